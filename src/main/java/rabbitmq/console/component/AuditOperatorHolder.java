@@ -0,0 +1,76 @@
+package rabbitmq.console.component;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 処理中のスレッドで更新操作を行っている操作者を保持する.
+ *
+ * @author Tomoaki Mikami
+ */
+public final class AuditOperatorHolder {
+  /**
+   * 操作者が設定されていない場合(スケジューラなど)の操作者.
+   */
+  public static final String SYSTEM_OPERATOR = "system";
+
+  /**
+   * 操作者.
+   */
+  private static final ThreadLocal<String> CURRENT_OPERATOR = new ThreadLocal<>();
+
+  /**
+   * インスタンス化禁止.
+   */
+  private AuditOperatorHolder() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * 操作者を取得.
+   *
+   * @return 操作者。未設定の場合は{@link #SYSTEM_OPERATOR}
+   */
+  public static String get() {
+    String operator = CURRENT_OPERATOR.get();
+    return operator == null ? SYSTEM_OPERATOR : operator;
+  }
+
+  /**
+   * 操作者を設定.
+   *
+   * @param operator 操作者
+   */
+  public static void set(String operator) {
+    if (operator == null) {
+      CURRENT_OPERATOR.remove();
+    } else {
+      CURRENT_OPERATOR.set(operator);
+    }
+  }
+
+  /**
+   * 操作者をクリア.
+   */
+  public static void clear() {
+    CURRENT_OPERATOR.remove();
+  }
+
+  /**
+   * 呼び出し元スレッドの操作者を別スレッドへ引き継ぐようにタスクを包む.
+   *
+   * @param task タスク
+   * @return 操作者を引き継ぐタスク
+   */
+  public static <T> Callable<T> wrap(Callable<T> task) {
+    final String operator = CURRENT_OPERATOR.get();
+    return () -> {
+      String previous = CURRENT_OPERATOR.get();
+      set(operator);
+      try {
+        return task.call();
+      } finally {
+        set(previous);
+      }
+    };
+  }
+}
@@ -0,0 +1,102 @@
+package rabbitmq.console.component;
+
+import java.util.Map;
+
+import org.springframework.amqp.rabbit.connection.ChannelProxy;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.RabbitUtils;
+import org.springframework.amqp.rabbit.core.ChannelCallback;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.support.RabbitExceptionTranslator;
+
+import com.rabbitmq.client.Channel;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 接続先(ブローカーおよび仮想ホスト)ごとの接続情報.
+ *
+ * @author Tomoaki Mikami
+ */
+@Getter
+@RequiredArgsConstructor
+public class BrokerTarget {
+  /**
+   * 接続先名.
+   */
+  private final String name;
+
+  /**
+   * 接続ユーザ名.
+   */
+  private final String username;
+
+  /**
+   * 接続先専用のコネクションファクトリ(コネクションおよびチャネルをキャッシュする).
+   */
+  private final ConnectionFactory connectionFactory;
+
+  /**
+   * 接続先専用のRabbitMQテンプレート.
+   */
+  private final RabbitTemplate rabbitTemplate;
+
+  /**
+   * Dead Letter Queue名マップ(キー:Dead Letter Queue名,値:Backup Queue名).
+   */
+  private final Map<String, String> deadLetterQueue;
+
+  /**
+   * 接続ホスト名.
+   *
+   * @return ホスト名
+   */
+  public String getHost() {
+    return connectionFactory.getHost();
+  }
+
+  /**
+   * 接続ポート.
+   *
+   * @return ポート
+   */
+  public int getPort() {
+    return connectionFactory.getPort();
+  }
+
+  /**
+   * 仮想ホスト名.
+   *
+   * @return 仮想ホスト名
+   */
+  public String getVirtualHost() {
+    return connectionFactory.getVirtualHost();
+  }
+
+  /**
+   * キャッシュしない使い捨てのチャネルでブローカーを操作する.
+   *
+   * <p>
+   * 操作の完了後にチャネルを閉じるので、受信して応答していないメッセージはキューの元の位置へ戻る.
+   * キャッシュしたチャネルと違い、Nackが他の処理のCommitまで保留されたり、他の処理へ未応答のメッセージを残したりしない.
+   * </p>
+   *
+   * @param action チャネル操作
+   * @param <T> 操作結果の型
+   * @return 操作結果
+   */
+  public <T> T executeOnDedicatedChannel(ChannelCallback<T> action) {
+    Channel proxy = connectionFactory.createConnection().createChannel(false);
+    Channel channel = ((ChannelProxy) proxy).getTargetChannel();
+    try {
+      return action.doInRabbit(channel);
+    } catch (Exception e) {
+      throw RabbitExceptionTranslator.convertRabbitAccessException(e);
+    } finally {
+      RabbitUtils.closeChannel(channel);
+      // 閉じたチャネルはキャッシュへ戻さずに破棄される
+      RabbitUtils.closeChannel(proxy);
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package rabbitmq.console.component;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 処理中のスレッドが操作対象とする接続先名を保持する.
+ *
+ * @author Tomoaki Mikami
+ */
+public final class BrokerTargetHolder {
+  /**
+   * 接続先名.
+   */
+  private static final ThreadLocal<String> CURRENT_TARGET = new ThreadLocal<>();
+
+  /**
+   * インスタンス化禁止.
+   */
+  private BrokerTargetHolder() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * 接続先名を取得.
+   *
+   * @return 接続先名。未設定の場合はnull
+   */
+  public static String get() {
+    return CURRENT_TARGET.get();
+  }
+
+  /**
+   * 接続先名を設定.
+   *
+   * @param targetName 接続先名
+   */
+  public static void set(String targetName) {
+    if (targetName == null) {
+      CURRENT_TARGET.remove();
+    } else {
+      CURRENT_TARGET.set(targetName);
+    }
+  }
+
+  /**
+   * 接続先名をクリア.
+   */
+  public static void clear() {
+    CURRENT_TARGET.remove();
+  }
+
+  /**
+   * 呼び出し元スレッドの接続先を別スレッドへ引き継ぐようにタスクを包む.
+   *
+   * @param task タスク
+   * @return 接続先を引き継ぐタスク
+   */
+  public static <T> Callable<T> wrap(Callable<T> task) {
+    final String targetName = get();
+    return () -> {
+      String previous = get();
+      set(targetName);
+      try {
+        return task.call();
+      } finally {
+        set(previous);
+      }
+    };
+  }
+
+  /**
+   * 呼び出し元スレッドの接続先を別スレッドへ引き継ぐようにタスクを包む.
+   *
+   * @param task タスク
+   * @return 接続先を引き継ぐタスク
+   */
+  public static Runnable wrap(Runnable task) {
+    final String targetName = get();
+    return () -> {
+      String previous = get();
+      set(targetName);
+      try {
+        task.run();
+      } finally {
+        set(previous);
+      }
+    };
+  }
+}
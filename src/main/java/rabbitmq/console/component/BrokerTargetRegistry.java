@@ -0,0 +1,168 @@
+package rabbitmq.console.component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.amqp.RabbitProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import lombok.extern.slf4j.Slf4j;
+import rabbitmq.console.configuration.DlqProperties;
+import rabbitmq.console.configuration.DlqProperties.Target;
+
+/**
+ * 接続先(ブローカーおよび仮想ホスト)の一覧を管理する.
+ *
+ * <p>
+ * 既定の接続先はアプリケーションのコネクションファクトリとRabbitMQテンプレートをそのまま使い、 dlq.rabbitmq.targetsに定義された接続先には専用のコネクションファクトリを生成する.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+@Component
+@Slf4j
+public class BrokerTargetRegistry {
+  /**
+   * 既定の接続先名.
+   */
+  public static final String DEFAULT_TARGET_NAME = "default";
+
+  /**
+   * Dead Letter Queue関連プロパティ.
+   */
+  @Autowired
+  private DlqProperties dlqProperties;
+
+  /**
+   * RabbitMQ関連プロパティ.
+   */
+  @Autowired
+  private RabbitProperties rabbitProperties;
+
+  /**
+   * アプリケーションのRabbitMQコネクションファクトリ.
+   */
+  @Autowired
+  private ConnectionFactory connectionFactory;
+
+  /**
+   * アプリケーションのRabbitMQテンプレート.
+   */
+  @Autowired
+  private RabbitTemplate rabbitTemplate;
+
+  /**
+   * 接続先マップ(キー:接続先名).
+   */
+  private final Map<String, BrokerTarget> targets = new LinkedHashMap<>();
+
+  /**
+   * 本クラスで生成したコネクションファクトリ(終了時に破棄する).
+   */
+  private final List<CachingConnectionFactory> createdConnectionFactories = new ArrayList<>();
+
+  /**
+   * 接続先を初期化する.
+   */
+  @PostConstruct
+  public void initialize() {
+    Map<String, String> defaultDeadLetterQueue = dlqProperties.getDeadLetterQueue() == null
+        ? Collections.emptyMap() : dlqProperties.getDeadLetterQueue();
+    targets.put(DEFAULT_TARGET_NAME, new BrokerTarget(DEFAULT_TARGET_NAME,
+        rabbitProperties.getUsername(), connectionFactory, rabbitTemplate, defaultDeadLetterQueue));
+
+    dlqProperties.getTargets().forEach((name, target) -> {
+      CachingConnectionFactory targetConnectionFactory = createConnectionFactory(target);
+      createdConnectionFactories.add(targetConnectionFactory);
+      RabbitTemplate targetRabbitTemplate = new RabbitTemplate(targetConnectionFactory);
+      targetRabbitTemplate.setChannelTransacted(true);
+      targetRabbitTemplate.setMessageConverter(new Jackson2JsonMessageConverter());
+      Map<String, String> deadLetterQueue = target.getDeadLetterQueue() == null
+          ? defaultDeadLetterQueue : target.getDeadLetterQueue();
+      targets.put(name, new BrokerTarget(name, target.getUsername(), targetConnectionFactory,
+          targetRabbitTemplate, deadLetterQueue));
+      log.info(String.format("Broker target registered. Name:%s,Host:%s,Virtual-Host:%s", name,
+          targetConnectionFactory.getHost(), targetConnectionFactory.getVirtualHost()));
+    });
+  }
+
+  /**
+   * 接続先専用のコネクションファクトリを生成する.
+   *
+   * @param target 接続先設定
+   * @return コネクションファクトリ
+   */
+  private CachingConnectionFactory createConnectionFactory(Target target) {
+    CachingConnectionFactory factory = new CachingConnectionFactory();
+    if (StringUtils.hasText(target.getAddresses())) {
+      factory.setAddresses(target.getAddresses());
+    } else {
+      factory.setHost(target.getHost());
+      factory.setPort(target.getPort());
+    }
+    factory.setUsername(target.getUsername());
+    factory.setPassword(target.getPassword());
+    factory.setVirtualHost(target.getVirtualHost());
+    factory.setChannelCacheSize(target.getChannelCacheSize());
+    return factory;
+  }
+
+  /**
+   * 生成したコネクションファクトリを破棄する.
+   */
+  @PreDestroy
+  public void destroy() {
+    createdConnectionFactories.forEach(CachingConnectionFactory::destroy);
+  }
+
+  /**
+   * 処理中のスレッドが操作対象とする接続先を取得する.
+   *
+   * @return 接続先。未指定の場合は既定の接続先
+   * @throws ResourceNotFoundException 未定義の接続先が指定されている場合
+   */
+  public BrokerTarget current() {
+    String name = BrokerTargetHolder.get();
+    if (name == null) {
+      return targets.get(DEFAULT_TARGET_NAME);
+    }
+    BrokerTarget target = targets.get(name);
+    if (target == null) {
+      // 別の接続先(既定の接続先)を黙って操作しない
+      throw new ResourceNotFoundException();
+    }
+    return target;
+  }
+
+  /**
+   * 接続先を取得する.
+   *
+   * @param name 接続先名
+   * @return 接続先。未定義の場合はnull
+   */
+  public BrokerTarget get(String name) {
+    return name == null ? null : targets.get(name);
+  }
+
+  /**
+   * 全接続先を取得する.
+   *
+   * @return 接続先一覧(既定の接続先が先頭)
+   */
+  public Collection<BrokerTarget> list() {
+    return Collections.unmodifiableCollection(targets.values());
+  }
+}
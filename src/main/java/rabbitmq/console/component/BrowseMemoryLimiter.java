@@ -0,0 +1,236 @@
+package rabbitmq.console.component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import rabbitmq.console.configuration.DlqProperties;
+
+/**
+ * 一覧取得・エクスポートでメモリへ読み込むメッセージのバイト数を制限する.
+ *
+ * <p>
+ * 操作毎の上限(Dead Letter Queue毎に設定可能)に加えて、同時に実行される全操作の合計にも上限を設け、
+ * 大きなメッセージを同時に読み込んでホストアプリケーションのヒープを使い切らないようにする。
+ * </p>
+ *
+ * <p>
+ * 読み込んだメッセージは画面描画・レスポンス出力まで保持されるので、枠はリクエストの完了時に解放する。 画面の処理はブローカー入出力用・並列処理用のスレッドで行うので、
+ * リクエストの枠一覧は{@link #wrap(Callable)}でそれらのスレッドへ引き継ぐ.
+ * 一覧セッション({@link BrowseSession})は受信したメッセージを閉じるまで保持するので、枠もセッションを閉じた時点で解放する.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+@Component
+public class BrowseMemoryLimiter {
+  /**
+   * 全体の上限を管理する単位(バイト). intの許可数に収めるためKB単位で管理する.
+   */
+  private static final int PERMIT_BYTES = 1024;
+
+  /**
+   * 処理中のスレッドが属するリクエストの読み込み枠一覧. リクエスト外ではnull.
+   */
+  private static final ThreadLocal<RequestReservations> CURRENT_REQUEST = new ThreadLocal<>();
+
+  /**
+   * Dead Letter Queue関連プロパティ.
+   */
+  @Autowired
+  private DlqProperties dlqProperties;
+
+  /**
+   * 全操作の合計バイト数の上限(KB単位の許可数).
+   */
+  private Semaphore concurrentPermits;
+
+  /**
+   * 初期化.
+   */
+  @PostConstruct
+  public void initialize() {
+    long permits = dlqProperties.getBrowseBudget().getMaxConcurrentBytes() / PERMIT_BYTES;
+    concurrentPermits = new Semaphore((int) Math.min(permits, Integer.MAX_VALUE));
+  }
+
+  /**
+   * Dead Letter Queueに対する読み込み枠を開く.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @return 読み込み枠
+   */
+  public Reservation open(String dlqName) {
+    DlqProperties.BrowseBudget budget = dlqProperties.getBrowseBudget();
+    Long maxBytes = budget.getQueues().get(dlqName);
+    return new Reservation(maxBytes != null ? maxBytes : budget.getMaxBytes());
+  }
+
+  /**
+   * 読み込み枠を、処理中のリクエストが完了した時点(画面描画・レスポンス出力後)で解放する. リクエスト外で呼ばれた場合は即座に解放する.
+   *
+   * @param reservation 読み込み枠
+   */
+  public void releaseAfterRequest(Reservation reservation) {
+    RequestReservations request = CURRENT_REQUEST.get();
+    if (request == null) {
+      reservation.release();
+      return;
+    }
+    request.add(reservation);
+  }
+
+  /**
+   * 処理中のスレッドにリクエストの読み込み枠一覧を設定する.
+   *
+   * @param request リクエストの読み込み枠一覧
+   */
+  public static void attach(RequestReservations request) {
+    CURRENT_REQUEST.set(request);
+  }
+
+  /**
+   * 処理中のスレッドからリクエストの読み込み枠一覧を切り離す. 枠は解放しない.
+   */
+  public static void detach() {
+    CURRENT_REQUEST.remove();
+  }
+
+  /**
+   * 呼び出し元スレッドのリクエストの読み込み枠一覧を別スレッドへ引き継ぐようにタスクを包む.
+   *
+   * @param task タスク
+   * @return 読み込み枠一覧を引き継ぐタスク
+   */
+  public static <T> Callable<T> wrap(Callable<T> task) {
+    final RequestReservations request = CURRENT_REQUEST.get();
+    if (request == null) {
+      return task;
+    }
+    return () -> {
+      RequestReservations previous = CURRENT_REQUEST.get();
+      CURRENT_REQUEST.set(request);
+      try {
+        return task.call();
+      } finally {
+        if (previous == null) {
+          CURRENT_REQUEST.remove();
+        } else {
+          CURRENT_REQUEST.set(previous);
+        }
+      }
+    };
+  }
+
+  /**
+   * 1リクエスト分の読み込み枠一覧. リクエストの完了時にまとめて解放する.
+   *
+   * @author Tomoaki Mikami
+   */
+  public static final class RequestReservations {
+    /**
+     * 解放待ちの読み込み枠.
+     */
+    private final List<Reservation> reservations = new ArrayList<>();
+
+    /**
+     * リクエストが完了したかどうか.
+     */
+    private boolean completed = false;
+
+    /**
+     * 読み込み枠を解放待ちに加える. タイムアウト等でリクエストの完了後に加えられた場合は即座に解放する.
+     *
+     * @param reservation 読み込み枠
+     */
+    private synchronized void add(Reservation reservation) {
+      if (completed) {
+        reservation.release();
+        return;
+      }
+      reservations.add(reservation);
+    }
+
+    /**
+     * リクエストの完了時に全ての読み込み枠を解放する.
+     */
+    public synchronized void complete() {
+      completed = true;
+      reservations.forEach(Reservation::release);
+      reservations.clear();
+    }
+  }
+
+  /**
+   * 1操作分の読み込み枠.
+   *
+   * @author Tomoaki Mikami
+   */
+  public final class Reservation {
+    /**
+     * 操作毎の上限(バイト).
+     */
+    private final long maxBytes;
+
+    /**
+     * 読み込み済みバイト数.
+     */
+    private long bytes = 0;
+
+    /**
+     * 確保済みの許可数.
+     */
+    private int permits = 0;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param maxBytes 操作毎の上限(バイト)
+     */
+    private Reservation(long maxBytes) {
+      this.maxBytes = maxBytes;
+    }
+
+    /**
+     * メッセージ1件分の枠を確保する. 1件目は操作毎の上限を超えていても、全体の上限内であれば確保する.
+     *
+     * @param size メッセージのサイズ(バイト)
+     * @return 確保できればtrue。上限に達した場合はfalse
+     */
+    public synchronized boolean tryReserve(int size) {
+      if (bytes > 0 && bytes + size > maxBytes) {
+        return false;
+      }
+      int required = (int) ((bytes + size + PERMIT_BYTES - 1) / PERMIT_BYTES) - permits;
+      if (required > 0 && !concurrentPermits.tryAcquire(required)) {
+        return false;
+      }
+      permits += Math.max(required, 0);
+      bytes += size;
+      return true;
+    }
+
+    /**
+     * 読み込み済みバイト数.
+     *
+     * @return 読み込み済みバイト数
+     */
+    public synchronized long getBytes() {
+      return bytes;
+    }
+
+    /**
+     * 確保した枠を解放する.
+     */
+    public synchronized void release() {
+      concurrentPermits.release(permits);
+      permits = 0;
+    }
+  }
+}
@@ -0,0 +1,239 @@
+package rabbitmq.console.component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.GetResponse;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import rabbitmq.console.service.dto.DeadLetteredMessage;
+
+/**
+ * 一覧に表示したメッセージを専用チャネルで未確定(Unacked)のまま保持するセッション.
+ *
+ * <p>
+ * 削除・再登録・待避は保持しているDelivery Tagに対して直接行うので、キューを再走査しない。 保持しているメッセージはチャネルを閉じるとブローカーがキューへ戻す。
+ * 受信したメッセージは閉じるまで保持するので、読み込み枠もリクエストではなくセッションを閉じた時点で解放する。
+ * チャネルはスレッドセーフではないので、チャネルを使う操作はこのオブジェクトで同期する.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+@Slf4j
+public class BrowseSession {
+  /**
+   * セッションID.
+   */
+  @Getter
+  private final String id;
+
+  /**
+   * 接続先名.
+   */
+  @Getter
+  private final String target;
+
+  /**
+   * Dead Letter Queue名.
+   */
+  @Getter
+  private final String dlqName;
+
+  /**
+   * キャッシュから取得したチャネル. 閉じるとキャッシュへ戻さずに破棄される.
+   */
+  private final Channel proxy;
+
+  /**
+   * メッセージを保持している実体のチャネル.
+   */
+  @Getter
+  private final Channel channel;
+
+  /**
+   * 保持期間(ミリ秒).
+   */
+  private final long lease;
+
+  /**
+   * 受信したメッセージの読み込み枠.
+   */
+  @Getter
+  private final BrowseMemoryLimiter.Reservation reservation;
+
+  /**
+   * 保持しているメッセージ(キー:メッセージID). 取得した順に並ぶ.
+   */
+  private final Map<String, Held> held = new LinkedHashMap<>();
+
+  /**
+   * 保持期限.
+   */
+  private volatile long expiresAt;
+
+  /**
+   * 閉じたかどうか.
+   */
+  private volatile boolean closed = false;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param id セッションID
+   * @param target 接続先名
+   * @param dlqName Dead Letter Queue名
+   * @param proxy キャッシュから取得したチャネル
+   * @param channel 実体のチャネル
+   * @param lease 保持期間(ミリ秒)
+   * @param reservation 受信したメッセージの読み込み枠
+   */
+  BrowseSession(String id, String target, String dlqName, Channel proxy, Channel channel,
+      long lease, BrowseMemoryLimiter.Reservation reservation) {
+    this.id = id;
+    this.target = target;
+    this.dlqName = dlqName;
+    this.proxy = proxy;
+    this.channel = channel;
+    this.lease = lease;
+    this.reservation = reservation;
+    touch();
+  }
+
+  /**
+   * 保持期限を延長する.
+   */
+  void touch() {
+    expiresAt = System.currentTimeMillis() + lease;
+  }
+
+  /**
+   * 保持期限を過ぎたかどうか.
+   *
+   * @param now 現在時刻
+   * @return 過ぎていればtrue
+   */
+  boolean isExpired(long now) {
+    return now > expiresAt;
+  }
+
+  /**
+   * メッセージを保持し続けているかどうか.
+   *
+   * @return 閉じておらず、チャネルが開いていればtrue
+   */
+  public boolean isOpen() {
+    return !closed && channel.isOpen();
+  }
+
+  /**
+   * 受信したメッセージを保持する.
+   *
+   * @param response 受信メッセージ
+   * @param message 変換したメッセージ
+   */
+  public synchronized void hold(GetResponse response, DeadLetteredMessage message) {
+    held.put(message.getProperties().getMessageId(), new Held(response, message));
+  }
+
+  /**
+   * 保持しているメッセージを取得する.
+   *
+   * @param messageId メッセージID
+   * @return メッセージ。保持していない場合はnull
+   */
+  public synchronized DeadLetteredMessage find(String messageId) {
+    Held entry = held.get(messageId);
+    return entry == null ? null : entry.message;
+  }
+
+  /**
+   * 保持しているメッセージ一覧を取得する.
+   *
+   * @return メッセージ一覧(取得した順)
+   */
+  public synchronized List<DeadLetteredMessage> messages() {
+    List<DeadLetteredMessage> messages = new ArrayList<>(held.size());
+    held.values().forEach(entry -> messages.add(entry.message));
+    return messages;
+  }
+
+  /**
+   * 保持しているメッセージの受信結果を取得する.
+   *
+   * @param messageId メッセージID
+   * @return 受信結果。保持していない場合はnull
+   */
+  public synchronized GetResponse response(String messageId) {
+    Held entry = held.get(messageId);
+    return entry == null ? null : entry.response;
+  }
+
+  /**
+   * 処理を確定したメッセージを保持対象から外す.
+   *
+   * @param messageId メッセージID
+   */
+  public synchronized void release(String messageId) {
+    held.remove(messageId);
+  }
+
+  /**
+   * セッションを閉じる. 未確定のメッセージはブローカーがキューへ戻す. 読み込み枠も解放する.
+   */
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    held.clear();
+    close(channel);
+    // 閉じたチャネルはキャッシュへ戻さずに破棄される
+    close(proxy);
+    reservation.release();
+  }
+
+  /**
+   * チャネルを閉じる. 閉じる際のエラーは無視する.
+   *
+   * @param target チャネル
+   */
+  private void close(Channel target) {
+    try {
+      target.close();
+    } catch (IOException | TimeoutException | RuntimeException e) {
+      log.debug("Failed to close browse session channel.", e);
+    }
+  }
+
+  /**
+   * 保持しているメッセージ.
+   */
+  private static final class Held {
+    /**
+     * 受信結果.
+     */
+    private final GetResponse response;
+
+    /**
+     * 変換したメッセージ.
+     */
+    private final DeadLetteredMessage message;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param response 受信結果
+     * @param message 変換したメッセージ
+     */
+    private Held(GetResponse response, DeadLetteredMessage message) {
+      this.response = response;
+      this.message = message;
+    }
+  }
+}
@@ -0,0 +1,166 @@
+package rabbitmq.console.component;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.rabbitmq.client.Channel;
+
+import lombok.extern.slf4j.Slf4j;
+import rabbitmq.console.configuration.DlqProperties;
+
+/**
+ * 開いている一覧セッションの一覧. 保持期限を過ぎたセッションを閉じ、メッセージをキューへ戻す.
+ *
+ * @author Tomoaki Mikami
+ */
+@Component
+@Slf4j
+public class BrowseSessionRegistry {
+  /**
+   * 保持期限を確認する間隔(ミリ秒).
+   */
+  private static final long SWEEP_INTERVAL = 1000L;
+
+  /**
+   * Dead Letter Queue関連プロパティ.
+   */
+  @Autowired
+  private DlqProperties dlqProperties;
+
+  /**
+   * 接続先一覧.
+   */
+  @Autowired
+  private BrokerTargetRegistry brokerTargetRegistry;
+
+  /**
+   * 開いているセッション(キー:セッションID).
+   */
+  private final Map<String, BrowseSession> sessions = new ConcurrentHashMap<>();
+
+  /**
+   * 保持期限確認用スレッド.
+   */
+  private final ScheduledExecutorService sweeper = Executors
+      .newSingleThreadScheduledExecutor(sweeperThreadFactory());
+
+  /**
+   * 保持期限確認用スレッドファクトリを生成する.
+   *
+   * @return スレッドファクトリ
+   */
+  private static CustomizableThreadFactory sweeperThreadFactory() {
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+        "dlq-browse-session-");
+    threadFactory.setDaemon(true);
+    return threadFactory;
+  }
+
+  /**
+   * 保持期限の確認を開始する.
+   */
+  @PostConstruct
+  public void initialize() {
+    sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL, SWEEP_INTERVAL,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * セッションを開く.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param proxy キャッシュから取得したチャネル
+   * @param channel 実体のチャネル
+   * @param reservation 受信したメッセージの読み込み枠. セッションを閉じた時点で解放する
+   * @return セッション。同時に開けるセッション数に達している場合はnull
+   */
+  public synchronized BrowseSession open(String dlqName, Channel proxy, Channel channel,
+      BrowseMemoryLimiter.Reservation reservation) {
+    DlqProperties.BrowseSession settings = dlqProperties.getBrowseSession();
+    if (sessions.size() >= settings.getMaxSessions()) {
+      return null;
+    }
+    BrowseSession session = new BrowseSession(UUID.randomUUID().toString(),
+        brokerTargetRegistry.current().getName(), dlqName, proxy, channel, settings.getLease(),
+        reservation);
+    sessions.put(session.getId(), session);
+    return session;
+  }
+
+  /**
+   * セッションを取得し、保持期限を延長する.
+   *
+   * @param id セッションID
+   * @param dlqName Dead Letter Queue名
+   * @return セッション。閉じている、または接続先・Dead Letter Queueが異なる場合はnull
+   */
+  public BrowseSession get(String id, String dlqName) {
+    if (id == null) {
+      return null;
+    }
+    BrowseSession session = sessions.get(id);
+    if (session == null) {
+      return null;
+    }
+    if (!session.isOpen()) {
+      close(id);
+      return null;
+    }
+    if (!session.getDlqName().equals(dlqName)
+        || !session.getTarget().equals(brokerTargetRegistry.current().getName())) {
+      return null;
+    }
+    session.touch();
+    return session;
+  }
+
+  /**
+   * セッションを閉じる. 保持していたメッセージはキューへ戻る.
+   *
+   * @param id セッションID
+   */
+  public void close(String id) {
+    if (id == null) {
+      return;
+    }
+    BrowseSession session = sessions.remove(id);
+    if (session != null) {
+      session.close();
+    }
+  }
+
+  /**
+   * 保持期限を過ぎたセッションを閉じる.
+   */
+  void sweep() {
+    long now = System.currentTimeMillis();
+    for (BrowseSession session : new ArrayList<>(sessions.values())) {
+      if (session.isExpired(now) || !session.isOpen()) {
+        close(session.getId());
+        log.info(String.format("Browse session released. Target:%s,Queue:%s,Session:%s",
+            session.getTarget(), session.getDlqName(), session.getId()));
+      }
+    }
+  }
+
+  /**
+   * 全セッションを閉じ、保持期限確認用スレッドを停止する.
+   */
+  @PreDestroy
+  public void shutdown() {
+    sweeper.shutdownNow();
+    new ArrayList<>(sessions.keySet()).forEach(this::close);
+  }
+}
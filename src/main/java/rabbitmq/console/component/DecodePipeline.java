@@ -0,0 +1,172 @@
+package rabbitmq.console.component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import rabbitmq.console.configuration.DlqProperties;
+
+/**
+ * キュー走査で受信したメッセージの変換・絞り込みを、受信と並行してスレッドプールで実行する.
+ *
+ * <p>
+ * 受信(ブローカー入出力)は走査するスレッドで順に行い、変換(ペイロードの複製・Mutexテーブルの参照・全文検索の照合等)はスレッドプールへ投入する。
+ * 変換結果は受信した順に、走査するスレッドで処理する。 変換待ちの件数が上限に達したら先頭の変換完了を待ってから次を受信するので、
+ * 受信が変換を追い越して保持件数が増え続けることはない。 走査に掛かる時間は、受信と変換の合計ではなく大きい方に近づく.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+@Component
+public class DecodePipeline {
+  /**
+   * Dead Letter Queue関連プロパティ.
+   */
+  @Autowired
+  private DlqProperties dlqProperties;
+
+  /**
+   * コンソール専用のスレッドプール.
+   */
+  @Autowired
+  private DlqExecutors dlqExecutors;
+
+  /**
+   * 1回の走査分の変換待ち枠を開く. 終了時は必ず{@link Window#close()}を呼び出す.
+   *
+   * @return 変換待ち枠
+   */
+  public <T> Window<T> open() {
+    DlqProperties.DecodePipeline settings = dlqProperties.getDecodePipeline();
+    return new Window<>(settings.isEnabled() ? dlqExecutors.getDecode() : null,
+        Math.max(settings.getWindow(), 1));
+  }
+
+  /**
+   * 1回の走査分の変換待ち枠. 走査するスレッドだけが操作する.
+   *
+   * @author Tomoaki Mikami
+   */
+  public static final class Window<T> {
+    /**
+     * 変換用スレッドプール. nullの場合は走査するスレッドで変換する.
+     */
+    private final AsyncTaskExecutor executor;
+
+    /**
+     * 変換待ちにできる最大件数.
+     */
+    private final int size;
+
+    /**
+     * 変換待ち(受信順).
+     */
+    private final Deque<Stage<T>> stages = new ArrayDeque<>();
+
+    /**
+     * コンストラクタ.
+     *
+     * @param executor 変換用スレッドプール
+     * @param size 変換待ちにできる最大件数
+     */
+    private Window(AsyncTaskExecutor executor, int size) {
+      this.executor = executor;
+      this.size = size;
+    }
+
+    /**
+     * 変換を投入する. 変換待ちが上限に達している場合は、先頭から順に変換完了を待って処理してから投入する.
+     *
+     * @param decoder 変換処理(スレッドプールで実行)
+     * @param consumer 変換結果の処理(走査するスレッドで受信順に実行)
+     */
+    public void submit(Supplier<T> decoder, Consumer<T> consumer) {
+      if (executor == null) {
+        consumer.accept(decoder.get());
+        return;
+      }
+      while (stages.size() >= size) {
+        completeHead();
+      }
+      stages.add(new Stage<>(executor.submit(decoder::get), consumer));
+    }
+
+    /**
+     * 変換待ちを全て変換完了まで待って、受信順に処理する.
+     */
+    public void drain() {
+      while (!stages.isEmpty()) {
+        completeHead();
+      }
+    }
+
+    /**
+     * 処理していない変換待ちを取り消す. 走査を途中で抜けた場合に残った変換をスレッドプールで実行し続けないようにする.
+     */
+    public void close() {
+      stages.forEach(stage -> stage.future.cancel(true));
+      stages.clear();
+    }
+
+    /**
+     * 先頭の変換完了を待って処理する. 変換に失敗した場合は残りを取り消して、失敗を走査するスレッドへ伝える.
+     */
+    private void completeHead() {
+      Stage<T> stage = stages.poll();
+      T result;
+      try {
+        result = stage.future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        stage.future.cancel(true);
+        close();
+        throw new IllegalStateException("Interrupted while decoding messages.", e);
+      } catch (ExecutionException e) {
+        close();
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        if (e.getCause() instanceof Error) {
+          throw (Error) e.getCause();
+        }
+        throw new IllegalStateException(e.getCause());
+      }
+      stage.consumer.accept(result);
+    }
+  }
+
+  /**
+   * 変換待ち1件分.
+   *
+   * @author Tomoaki Mikami
+   */
+  private static final class Stage<T> {
+    /**
+     * 変換結果.
+     */
+    private final Future<T> future;
+
+    /**
+     * 変換結果の処理.
+     */
+    private final Consumer<T> consumer;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param future 変換結果
+     * @param consumer 変換結果の処理
+     */
+    private Stage(Future<T> future, Consumer<T> consumer) {
+      this.future = future;
+      this.consumer = consumer;
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package rabbitmq.console.component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import rabbitmq.console.configuration.DlqProperties;
+
+/**
+ * DLQ管理コンソール専用のスレッドプール.
+ *
+ * <p>
+ * スレッドプールはBeanとして登録しないので、ホストアプリケーションの@Asyncの既定の実行スレッドプールやTaskExecutorの選択には影響しない。
+ * コンソールの処理はこのクラスから取得したスレッドプールへ明示的に投入する.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+@Component
+public class DlqExecutors {
+  /**
+   * Dead Letter Queue関連プロパティ.
+   */
+  @Autowired
+  private DlqProperties dlqProperties;
+
+  /**
+   * 複数のDead Letter Queueを並列に処理するためのスレッドプール.
+   */
+  private final ThreadPoolTaskExecutor fanOut = new ThreadPoolTaskExecutor();
+
+  /**
+   * 画面からのブローカー入出力をサーブレットのリクエストスレッドから切り離して実行するためのスレッドプール.
+   */
+  private final ThreadPoolTaskExecutor brokerIo = new ThreadPoolTaskExecutor();
+
+  /**
+   * 一覧・検索で受信したメッセージの変換・絞り込みを、受信と並行して実行するためのスレッドプール.
+   */
+  private final ThreadPoolTaskExecutor decode = new ThreadPoolTaskExecutor();
+
+  /**
+   * 設定に従ってスレッドプールを開始する.
+   */
+  @PostConstruct
+  public void start() {
+    fanOut.setCorePoolSize(dlqProperties.getFanOutPoolSize());
+    fanOut.setMaxPoolSize(dlqProperties.getFanOutPoolSize());
+    start(fanOut, "dlq-fan-out-");
+    brokerIo.setCorePoolSize(dlqProperties.getBrokerIo().getPoolSize());
+    brokerIo.setMaxPoolSize(dlqProperties.getBrokerIo().getPoolSize());
+    brokerIo.setQueueCapacity(dlqProperties.getBrokerIo().getQueueCapacity());
+    start(brokerIo, "dlq-broker-io-");
+    decode.setCorePoolSize(dlqProperties.getDecodePipeline().getPoolSize());
+    decode.setMaxPoolSize(dlqProperties.getDecodePipeline().getPoolSize());
+    start(decode, "dlq-decode-");
+  }
+
+  /**
+   * スレッドプールを開始する.
+   *
+   * @param executor スレッドプール
+   * @param threadNamePrefix スレッド名の接頭辞
+   */
+  private static void start(ThreadPoolTaskExecutor executor, String threadNamePrefix) {
+    executor.setThreadNamePrefix(threadNamePrefix);
+    executor.setDaemon(true);
+    executor.initialize();
+  }
+
+  /**
+   * スレッドプールを停止する.
+   */
+  @PreDestroy
+  public void shutdown() {
+    fanOut.shutdown();
+    brokerIo.shutdown();
+    decode.shutdown();
+  }
+
+  /**
+   * 複数のDead Letter Queueを並列に処理するためのスレッドプールを取得.
+   *
+   * @return スレッドプール
+   */
+  public AsyncTaskExecutor getFanOut() {
+    return fanOut;
+  }
+
+  /**
+   * 画面からのブローカー入出力を実行するためのスレッドプールを取得. 実行待ちが上限に達した場合は投入時に例外が発生する.
+   *
+   * @return スレッドプール
+   */
+  public AsyncTaskExecutor getBrokerIo() {
+    return brokerIo;
+  }
+
+  /**
+   * メッセージの変換・絞り込みを実行するためのスレッドプールを取得.
+   *
+   * @return スレッドプール
+   */
+  public AsyncTaskExecutor getDecode() {
+    return decode;
+  }
+}
@@ -0,0 +1,127 @@
+package rabbitmq.console.component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import rabbitmq.console.configuration.DlqProperties;
+
+/**
+ * 冪等キー毎に更新操作の結果を保持し、同じキーでの再実行を抑止するキャッシュ.
+ *
+ * <p>
+ * 保持件数と保持時間に上限があり、古いものから破棄する. 実行中の操作と同じキーで要求された場合は、その操作の完了を待って同じ結果を返す.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+@Component
+public class IdempotencyCache {
+  /**
+   * Dead Letter Queue関連プロパティ.
+   */
+  @Autowired
+  private DlqProperties dlqProperties;
+
+  /**
+   * 操作結果(キー:冪等キー). 登録順に並ぶので、先頭から期限切れを破棄できる.
+   */
+  private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>() {
+    private static final long serialVersionUID = 6102536186408412286L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+      return size() > dlqProperties.getIdempotency().getMaxEntries();
+    }
+  };
+
+  /**
+   * 冪等キーに対応する操作を1回だけ実行する.
+   *
+   * @param key 冪等キー。空の場合は毎回実行する
+   * @param operation 操作
+   * @return 操作結果。同じキーで実行済みであれば保持していた結果
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T execute(String key, Supplier<T> operation) {
+    if (!StringUtils.hasText(key)) {
+      return operation.get();
+    }
+    Entry entry;
+    boolean owner = false;
+    synchronized (entries) {
+      evictExpiredEntries();
+      entry = entries.get(key);
+      if (entry == null) {
+        entry = new Entry();
+        entries.put(key, entry);
+        owner = true;
+      }
+    }
+    if (owner) {
+      try {
+        T result = operation.get();
+        entry.result.complete(result);
+        return result;
+      } catch (RuntimeException e) {
+        // 失敗した操作は再試行できるように結果を残さない
+        synchronized (entries) {
+          entries.remove(key, entry);
+        }
+        entry.result.completeExceptionally(e);
+        throw e;
+      }
+    }
+    try {
+      return (T) entry.result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * 保持時間を過ぎた操作結果を破棄する.
+   */
+  private void evictExpiredEntries() {
+    long expiredBefore = System.currentTimeMillis()
+        - dlqProperties.getIdempotency().getTimeToLive();
+    Iterator<Entry> iterator = entries.values().iterator();
+    while (iterator.hasNext()) {
+      Entry entry = iterator.next();
+      if (entry.createdAt >= expiredBefore) {
+        break;
+      }
+      if (entry.result.isDone()) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * 操作結果.
+   */
+  private static class Entry {
+    /**
+     * 登録時刻.
+     */
+    private final long createdAt = System.currentTimeMillis();
+
+    /**
+     * 操作結果.
+     */
+    private final CompletableFuture<Object> result = new CompletableFuture<>();
+  }
+}
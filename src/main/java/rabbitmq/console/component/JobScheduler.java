@@ -0,0 +1,51 @@
+package rabbitmq.console.component;
+
+import java.util.Date;
+
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * 定期実行ジョブ専用のスケジューラ. ジョブ毎に生成し、専用のスレッドで実行する.
+ *
+ * <p>
+ * Beanとして登録しないので、ホストアプリケーションのスケジューリング(@EnableScheduling)やTaskSchedulerの選択には影響しない。
+ * ジョブが長時間実行しても、他のジョブやホストアプリケーションの定期処理を待たせない. ジョブで発生した例外はログ出力して次回も実行する.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+public final class JobScheduler {
+  /**
+   * スケジューラ.
+   */
+  private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+
+  /**
+   * コンストラクタ.
+   *
+   * @param name ジョブ名(スレッド名に使う)
+   */
+  public JobScheduler(String name) {
+    scheduler.setThreadNamePrefix("dlq-" + name + "-");
+    scheduler.setDaemon(true);
+    scheduler.initialize();
+  }
+
+  /**
+   * ジョブを一定間隔で実行する. 初回は間隔分待ってから実行する.
+   *
+   * @param job ジョブ
+   * @param interval 前回の完了から次回の開始までの間隔(ミリ秒)
+   */
+  public void scheduleWithFixedDelay(Runnable job, long interval) {
+    scheduler.scheduleWithFixedDelay(job, new Date(System.currentTimeMillis() + interval),
+        interval);
+  }
+
+  /**
+   * スケジューラを停止する. 実行中のジョブには割り込む.
+   */
+  public void shutdown() {
+    scheduler.shutdown();
+  }
+}
@@ -0,0 +1,171 @@
+package rabbitmq.console.component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.util.StringUtils;
+
+import lombok.extern.slf4j.Slf4j;
+import rabbitmq.console.configuration.DlqProperties;
+import rabbitmq.console.service.QueueService;
+import rabbitmq.console.service.dto.DeadLetteredMessage;
+import rabbitmq.console.service.dto.DeadLetteredMessage.MessageHeader;
+
+/**
+ * 再登録とDead Letter Queue入りを繰り返すメッセージを検知して隔離する.
+ *
+ * <p>
+ * Dead Letter Queue入りした回数の合計、または集計期間内の再登録回数が閾値以上のメッセージをBackup Queueへ待避する。
+ * 待避したメッセージには隔離時刻と理由をヘッダに記録し、リストアしても再登録できないようにする。 Backup Queueが定義されていないDead Letter
+ * Queueは対象外.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+@Slf4j
+public class LoopBreaker {
+  /**
+   * Dead Letter Queue関連プロパティ.
+   */
+  @Autowired
+  private DlqProperties dlqProperties;
+
+  /**
+   * キューサービス.
+   */
+  @Autowired
+  private QueueService queueService;
+
+  /**
+   * 接続先一覧.
+   */
+  @Autowired
+  private BrokerTargetRegistry brokerTargetRegistry;
+
+  /**
+   * 再登録履歴.
+   */
+  @Autowired
+  private RepublishHistory republishHistory;
+
+  /**
+   * 隔離件数メトリクス.
+   */
+  @Autowired
+  private CounterService counterService;
+
+  /**
+   * 専用のスケジューラ.
+   */
+  private final JobScheduler jobScheduler = new JobScheduler("loop-breaker");
+
+  /**
+   * 設定した間隔での実行を開始する.
+   */
+  @PostConstruct
+  public void start() {
+    jobScheduler.scheduleWithFixedDelay(this::run, dlqProperties.getLoopBreaker().getInterval());
+  }
+
+  /**
+   * 実行を停止する.
+   */
+  @PreDestroy
+  public void stop() {
+    jobScheduler.shutdown();
+  }
+
+  /**
+   * 全接続先のDead Letter Queueを走査して隔離する.
+   */
+  public void run() {
+    String previousTarget = BrokerTargetHolder.get();
+    AuditOperatorHolder.set("loop-breaker");
+    try {
+      for (BrokerTarget target : brokerTargetRegistry.list()) {
+        BrokerTargetHolder.set(target.getName());
+        target.getDeadLetterQueue().forEach((dlqName, backupQueueName) -> {
+          if (!StringUtils.isEmpty(backupQueueName)) {
+            breakLoops(target.getName(), dlqName, backupQueueName);
+          }
+        });
+      }
+    } finally {
+      BrokerTargetHolder.set(previousTarget);
+      AuditOperatorHolder.clear();
+    }
+    counterService.increment("dlq.loop-breaker.runs");
+  }
+
+  /**
+   * 1つのDead Letter Queueを走査し、閾値を超えたメッセージを隔離する.
+   *
+   * @param targetName 接続先名
+   * @param dlqName Dead Letter Queue名
+   * @param backupQueueName Backup Queue名
+   */
+  private void breakLoops(String targetName, String dlqName, String backupQueueName) {
+    final int maxQuarantine = dlqProperties.getLoopBreaker().getMaxQuarantinePerRun();
+    Map<DeadLetteredMessage, String> loopingMessages = new LinkedHashMap<>();
+    try {
+      queueService.streamMessages(dlqName, null, message -> {
+        String reason = detectLoop(message);
+        if (reason != null && loopingMessages.size() < maxQuarantine) {
+          loopingMessages.put(message, reason);
+        }
+      });
+    } catch (RuntimeException e) {
+      log.warn(String.format("Failed to scan for looping messages. Target:%s,Queue:%s",
+          targetName, dlqName), e);
+      return;
+    }
+    List<String> quarantined = new ArrayList<>();
+    loopingMessages.forEach((message, reason) -> {
+      try {
+        queueService.quarantineMessage(dlqName, backupQueueName, message, reason);
+        quarantined.add(message.getProperties().getMessageId());
+        counterService.increment("dlq.loop-breaker.quarantined");
+      } catch (RuntimeException e) {
+        log.warn(String.format("Failed to quarantine. Target:%s,Queue:%s,Message-Id:%s",
+            targetName, dlqName, message.getProperties().getMessageId()), e);
+      }
+    });
+    if (!quarantined.isEmpty()) {
+      queueService.recoverAllUnackedMessages(dlqName);
+      log.info(String.format("Looping messages quarantined. Target:%s,Queue:%s,Message-Ids:%s",
+          targetName, dlqName, quarantined));
+    }
+  }
+
+  /**
+   * メッセージが再登録とDead Letter Queue入りを繰り返しているかどうかを判定する.
+   *
+   * @param message メッセージ
+   * @return 隔離理由。隔離しない場合はnull
+   */
+  private String detectLoop(DeadLetteredMessage message) {
+    DlqProperties.LoopBreaker settings = dlqProperties.getLoopBreaker();
+    MessageHeader messageHeader = message.getProperties().getHeaders();
+    if (messageHeader.getExtraQuarantinedAt() != null) {
+      // 隔離済みのメッセージは再登録できないのでループしない
+      return null;
+    }
+    if (message.getTotalDeathCount() >= settings.getMaxDeathCount()) {
+      return String.format("Dead-lettered %d times", message.getTotalDeathCount());
+    }
+    int republishes = republishHistory.countRecent(RepublishHistory
+        .identity(messageHeader.getExtraMessageMutex(), message.getProperties().getMessageId()));
+    if (republishes >= settings.getMaxRepublishes()) {
+      return String.format("Republished %d times within %dms", republishes,
+          settings.getRepublishWindow());
+    }
+    return null;
+  }
+}
@@ -0,0 +1,235 @@
+package rabbitmq.console.component;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 一覧表示用のメッセージをヒープ外(ダイレクトバッファ)へ保持するスナップショット.
+ *
+ * <p>
+ * 一定サイズのダイレクトバッファ(スラブ)を順に確保して切り出す。 リクエスト単位で{@link #begin(int)}により開始し、
+ * {@link #end()}で終了する。開始していないスレッドでは{@link #current()}がnullを返すので、呼び出し元はヒープ上に保持する。
+ * タイムアウト等で終了した後も変換用スレッドがスラブへ書き込み中の場合があるので、スラブの読み書きは{@link #retain()}と
+ * {@link #release()}で囲み、終了後に読み書き中の処理が無くなった時点で全スラブを明示的に解放する。
+ * 画面の処理はブローカー入出力用・並列処理用のスレッドで行うので、{@link #wrap(Callable)}でリクエストのスナップショットを引き継ぐ。
+ * 切り出しはそれらのスレッドや変換用スレッドプールから並行して呼ばれるので、スラブの操作は同期する.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+@Slf4j
+public final class MessageSnapshot {
+  /**
+   * 処理中のスレッドのスナップショット.
+   */
+  private static final ThreadLocal<MessageSnapshot> CURRENT_SNAPSHOT = new ThreadLocal<>();
+
+  /**
+   * スラブ1個あたりのサイズ(バイト).
+   */
+  private final int slabSize;
+
+  /**
+   * 確保済みスラブ.
+   */
+  private final List<ByteBuffer> slabs = new ArrayList<>();
+
+  /**
+   * 切り出し中のスラブ.
+   */
+  private ByteBuffer currentSlab;
+
+  /**
+   * 参照数. 開始したリクエストの分とスラブを読み書き中の処理の分を数え、0になった時点でスラブを解放する.
+   */
+  private int references = 1;
+
+  /**
+   * 終了済み(開始したリクエストが参照を外した)かどうか. 終了後は新たな読み書きを受け付けない.
+   */
+  private volatile boolean closed = false;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param slabSize スラブ1個あたりのサイズ(バイト)
+   */
+  private MessageSnapshot(int slabSize) {
+    this.slabSize = slabSize;
+  }
+
+  /**
+   * 処理中のスレッドでスナップショットを開始する.
+   *
+   * @param slabSize スラブ1個あたりのサイズ(バイト)
+   */
+  public static void begin(int slabSize) {
+    end();
+    CURRENT_SNAPSHOT.set(new MessageSnapshot(slabSize));
+  }
+
+  /**
+   * 処理中のスレッドのスナップショットを取得.
+   *
+   * @return スナップショット。開始していない場合はnull
+   */
+  public static MessageSnapshot current() {
+    return CURRENT_SNAPSHOT.get();
+  }
+
+  /**
+   * 処理中のスレッドのスナップショットを終了し、スラブを解放する.
+   */
+  public static void end() {
+    MessageSnapshot snapshot = CURRENT_SNAPSHOT.get();
+    CURRENT_SNAPSHOT.remove();
+    if (snapshot != null) {
+      snapshot.close();
+    }
+  }
+
+  /**
+   * 処理中のスレッドからスナップショットを切り離す. スラブは解放せず、開始したリクエストの完了時に{@link #end()}で解放する.
+   */
+  public static void detach() {
+    CURRENT_SNAPSHOT.remove();
+  }
+
+  /**
+   * 別スレッドで開始したスナップショットを処理中のスレッドに設定する. 非同期処理の結果を描画する再ディスパッチで使う.
+   *
+   * @param snapshot スナップショット
+   */
+  public static void attach(MessageSnapshot snapshot) {
+    CURRENT_SNAPSHOT.set(snapshot);
+  }
+
+  /**
+   * 呼び出し元スレッドのスナップショットを別スレッドへ引き継ぐようにタスクを包む. 引き継いだ側では解放しない.
+   *
+   * @param task タスク
+   * @return スナップショットを引き継ぐタスク
+   */
+  public static <T> Callable<T> wrap(Callable<T> task) {
+    final MessageSnapshot snapshot = current();
+    if (snapshot == null) {
+      return task;
+    }
+    return () -> {
+      MessageSnapshot previous = current();
+      CURRENT_SNAPSHOT.set(snapshot);
+      try {
+        return task.call();
+      } finally {
+        if (previous == null) {
+          CURRENT_SNAPSHOT.remove();
+        } else {
+          CURRENT_SNAPSHOT.set(previous);
+        }
+      }
+    };
+  }
+
+  /**
+   * 指定サイズの領域を切り出す.
+   *
+   * @param size サイズ(バイト)
+   * @return 切り出した領域(位置0、上限size)
+   */
+  public synchronized ByteBuffer allocate(int size) {
+    checkNotReleased();
+    if (size > slabSize) {
+      // スラブに収まらない大きなメッセージは専用のスラブを確保する
+      ByteBuffer slab = ByteBuffer.allocateDirect(size);
+      slabs.add(slab);
+      return slab;
+    }
+    if (currentSlab == null || currentSlab.remaining() < size) {
+      currentSlab = ByteBuffer.allocateDirect(slabSize);
+      slabs.add(currentSlab);
+    }
+    ByteBuffer region = currentSlab.slice();
+    region.limit(size);
+    currentSlab.position(currentSlab.position() + size);
+    return region;
+  }
+
+  /**
+   * 終了済みでないことを確認する.
+   *
+   * @throws IllegalStateException 終了済みの場合
+   */
+  public void checkNotReleased() {
+    if (closed) {
+      throw new IllegalStateException("Message snapshot has already been released.");
+    }
+  }
+
+  /**
+   * スラブを読み書きする間、解放されないよう参照を追加する. 解放済みのスラブを読み書きするとJVMが異常終了しうるため、
+   * 切り出した領域を読み書きする処理は必ず呼び出し、完了後に{@link #release()}を呼び出す.
+   *
+   * @throws IllegalStateException 終了済みの場合
+   */
+  public synchronized void retain() {
+    checkNotReleased();
+    references++;
+  }
+
+  /**
+   * 確保済みのスラブ合計サイズ.
+   *
+   * @return 合計サイズ(バイト)
+   */
+  public synchronized long getAllocatedBytes() {
+    return slabs.stream().mapToLong(ByteBuffer::capacity).sum();
+  }
+
+  /**
+   * 開始したリクエストの参照を外して終了する. 読み書き中の処理が無ければ全スラブを解放する.
+   */
+  private synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    release();
+  }
+
+  /**
+   * 参照を外す. 参照が無くなった時点で全スラブを解放する.
+   */
+  public synchronized void release() {
+    if (references == 0 || --references > 0) {
+      return;
+    }
+    slabs.forEach(MessageSnapshot::free);
+    slabs.clear();
+    currentSlab = null;
+  }
+
+  /**
+   * ダイレクトバッファのメモリを即座に解放する. 解放できない実行環境ではGCによる回収に委ねる.
+   *
+   * @param buffer ダイレクトバッファ
+   */
+  private static void free(ByteBuffer buffer) {
+    try {
+      Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+      cleanerMethod.setAccessible(true);
+      Object cleaner = cleanerMethod.invoke(buffer);
+      if (cleaner != null) {
+        Method cleanMethod = cleaner.getClass().getMethod("clean");
+        cleanMethod.setAccessible(true);
+        cleanMethod.invoke(cleaner);
+      }
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      log.debug("Direct buffer could not be freed explicitly.", e);
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package rabbitmq.console.component;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.dao.DataAccessException;
+
+import lombok.extern.slf4j.Slf4j;
+import rabbitmq.console.configuration.DlqProperties;
+import rabbitmq.console.repository.RabbitMqMutexRepository;
+
+/**
+ * 保持期間を過ぎたMutexを定期的に削除するスイーパー.
+ *
+ * <p>
+ * 1回の削除文で削除する件数に上限を設け、削除文の間に間隔を空けることで、テーブルのロックを長時間保持しないようにする。
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+@Slf4j
+public class MutexSweeper {
+  /**
+   * Dead Letter Queue関連プロパティ.
+   */
+  @Autowired
+  private DlqProperties dlqProperties;
+
+  /**
+   * Mutex ID保持テーブル用リポジトリ.
+   */
+  @Autowired
+  private RabbitMqMutexRepository rabbitMqMutexRepository;
+
+  /**
+   * 実行回数メトリクス.
+   */
+  @Autowired
+  private CounterService counterService;
+
+  /**
+   * 削除件数・所要時間メトリクス.
+   */
+  @Autowired
+  private GaugeService gaugeService;
+
+  /**
+   * 起動からの累計削除件数.
+   */
+  private final AtomicLong totalSweptRows = new AtomicLong();
+
+  /**
+   * 専用のスケジューラ.
+   */
+  private final JobScheduler jobScheduler = new JobScheduler("mutex-sweeper");
+
+  /**
+   * 設定した間隔での実行を開始する.
+   */
+  @PostConstruct
+  public void start() {
+    jobScheduler.scheduleWithFixedDelay(this::sweep, dlqProperties.getMutexSweeper().getInterval());
+  }
+
+  /**
+   * 実行を停止する.
+   */
+  @PreDestroy
+  public void stop() {
+    jobScheduler.shutdown();
+  }
+
+  /**
+   * 保持期間を過ぎたMutexを削除する.
+   */
+  public void sweep() {
+    DlqProperties.MutexSweeper settings = dlqProperties.getMutexSweeper();
+    final long startedAt = System.currentTimeMillis();
+    final Date threshold = new Date(startedAt - settings.getRetention());
+    long swept = 0;
+    try {
+      for (int batch = 0; batch < settings.getMaxBatches(); batch++) {
+        int deleted = rabbitMqMutexRepository.deleteCreatedBefore(threshold,
+            settings.getBatchSize());
+        swept += deleted;
+        if (deleted < settings.getBatchSize()) {
+          break;
+        }
+        TimeUnit.MILLISECONDS.sleep(settings.getBatchPause());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (DataAccessException e) {
+      log.warn("Failed to sweep stale mutexes.", e);
+    } finally {
+      long elapsed = System.currentTimeMillis() - startedAt;
+      counterService.increment("dlq.mutex.sweep.runs");
+      gaugeService.submit("dlq.mutex.sweep.rows", swept);
+      gaugeService.submit("dlq.mutex.sweep.duration", elapsed);
+      gaugeService.submit("dlq.mutex.sweep.total-rows", totalSweptRows.addAndGet(swept));
+      log.info(String.format("Mutex sweep finished. Created before:%s, Swept:%d, Elapsed:%dms",
+          threshold, swept, elapsed));
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package rabbitmq.console.component;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 隔離したメッセージを再登録しようとした場合の例外
+ * @author Tomoaki Mikami
+ *
+ */
+@ResponseStatus(code = HttpStatus.CONFLICT)
+public class QuarantinedMessageException extends RuntimeException {
+  /**
+   * serialVersionUID
+   */
+  private static final long serialVersionUID = 4418208297533860374L;
+}
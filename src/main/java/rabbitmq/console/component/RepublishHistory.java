@@ -0,0 +1,125 @@
+package rabbitmq.console.component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import rabbitmq.console.configuration.DlqProperties;
+
+/**
+ * メッセージ毎の再登録時刻の履歴.
+ *
+ * <p>
+ * Mutex ID(無ければメッセージID)をメッセージの識別子とし、集計期間内の再登録時刻だけを保持する。 保持するメッセージ数に上限があり、最も長く再登録されていないものから破棄する.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+@Component
+public class RepublishHistory {
+  /**
+   * Dead Letter Queue関連プロパティ.
+   */
+  @Autowired
+  private DlqProperties dlqProperties;
+
+  /**
+   * 再登録時刻(キー:識別子). 最後に再登録された順に並ぶ.
+   */
+  private final Map<String, Deque<Long>> republishedTimes = new LinkedHashMap<String, Deque<Long>>(
+      16, 0.75f, true) {
+    private static final long serialVersionUID = -3016823513409145781L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Deque<Long>> eldest) {
+      return size() > dlqProperties.getLoopBreaker().getMaxTrackedMessages();
+    }
+  };
+
+  /**
+   * メッセージの識別子を導出する.
+   *
+   * @param mutex Mutex ID
+   * @param messageId メッセージID
+   * @return 識別子。どちらも無い場合はnull
+   */
+  public static String identity(String mutex, String messageId) {
+    if (StringUtils.hasText(mutex)) {
+      return "mutex:" + mutex;
+    }
+    return StringUtils.hasText(messageId) ? "id:" + messageId : null;
+  }
+
+  /**
+   * 再登録を記録する.
+   *
+   * @param identity 識別子。nullの場合は記録しない
+   */
+  public void record(String identity) {
+    if (identity == null) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    synchronized (republishedTimes) {
+      Deque<Long> times = republishedTimes.get(identity);
+      if (times == null) {
+        times = new ArrayDeque<>();
+        republishedTimes.put(identity, times);
+      }
+      times.addLast(now);
+      evictOutsideWindow(times, now);
+    }
+  }
+
+  /**
+   * 集計期間内の再登録回数を取得する.
+   *
+   * @param identity 識別子
+   * @return 再登録回数
+   */
+  public int countRecent(String identity) {
+    if (identity == null) {
+      return 0;
+    }
+    synchronized (republishedTimes) {
+      Deque<Long> times = republishedTimes.get(identity);
+      if (times == null) {
+        return 0;
+      }
+      evictOutsideWindow(times, System.currentTimeMillis());
+      return times.size();
+    }
+  }
+
+  /**
+   * 記録を破棄する.
+   *
+   * @param identity 識別子
+   */
+  public void forget(String identity) {
+    if (identity == null) {
+      return;
+    }
+    synchronized (republishedTimes) {
+      republishedTimes.remove(identity);
+    }
+  }
+
+  /**
+   * 集計期間より前の再登録時刻を破棄する.
+   *
+   * @param times 再登録時刻
+   * @param now 現在時刻
+   */
+  private void evictOutsideWindow(Deque<Long> times, long now) {
+    long since = now - dlqProperties.getLoopBreaker().getRepublishWindow();
+    while (!times.isEmpty() && times.peekFirst() < since) {
+      times.removeFirst();
+    }
+  }
+}
@@ -0,0 +1,220 @@
+package rabbitmq.console.component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.util.StringUtils;
+
+import lombok.extern.slf4j.Slf4j;
+import rabbitmq.console.configuration.DlqProperties;
+import rabbitmq.console.service.QueueService;
+import rabbitmq.console.service.dto.BulkActionResult;
+import rabbitmq.console.service.dto.DeadLetteredMessage;
+import rabbitmq.console.service.dto.DeadLetteredMessage.XDeath;
+import rabbitmq.console.service.dto.MessageAction;
+
+/**
+ * 再登録ルールに従ってDead Letterメッセージを自動で再登録するスケジューラ.
+ *
+ * <p>
+ * Dead Letter Queue入りした時刻から指数的に伸ばした待ち時間が経過したメッセージを元のキューへ再登録し、
+ * 再登録回数が上限に達したメッセージはBackup Queueへ待避する。 1回の走査では一定件数のみを対象とする。
+ * 対象外や待ち時間が未経過のメッセージはキューに残るので、Dead Letter Queue毎に前回までに走査した位置を覚えておき、
+ * 次回はその続きから走査する。キューの末尾まで走査したら先頭へ戻り、複数回の走査でキュー全体を巡回する。
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+@Slf4j
+public class RetryPolicyScheduler {
+  /**
+   * Dead Letter Queue関連プロパティ.
+   */
+  @Autowired
+  private DlqProperties dlqProperties;
+
+  /**
+   * キューサービス.
+   */
+  @Autowired
+  private QueueService queueService;
+
+  /**
+   * 接続先一覧.
+   */
+  @Autowired
+  private BrokerTargetRegistry brokerTargetRegistry;
+
+  /**
+   * 実行回数メトリクス.
+   */
+  @Autowired
+  private CounterService counterService;
+
+  /**
+   * 再登録・待避件数メトリクス.
+   */
+  @Autowired
+  private GaugeService gaugeService;
+
+  /**
+   * 専用のスケジューラ.
+   */
+  private final JobScheduler jobScheduler = new JobScheduler("retry-policy");
+
+  /**
+   * 次回の走査を始める位置(キー:接続先名/Dead Letter Queue名,値:先頭から読み飛ばす件数).
+   */
+  private final Map<String, Integer> cursors = new ConcurrentHashMap<>();
+
+  /**
+   * 設定した間隔での実行を開始する.
+   */
+  @PostConstruct
+  public void start() {
+    jobScheduler.scheduleWithFixedDelay(this::run, dlqProperties.getRetryPolicy().getInterval());
+  }
+
+  /**
+   * 実行を停止する.
+   */
+  @PreDestroy
+  public void stop() {
+    jobScheduler.shutdown();
+  }
+
+  /**
+   * 全接続先のルールが定義されたDead Letter Queueを走査する.
+   */
+  public void run() {
+    DlqProperties.RetryPolicy settings = dlqProperties.getRetryPolicy();
+    String previousTarget = BrokerTargetHolder.get();
+    AuditOperatorHolder.set("retry-policy");
+    try {
+      for (BrokerTarget target : brokerTargetRegistry.list()) {
+        BrokerTargetHolder.set(target.getName());
+        for (String dlqName : target.getDeadLetterQueue().keySet()) {
+          List<DlqProperties.RetryRule> rules = settings.getRules().get(dlqName);
+          if (rules != null && !rules.isEmpty()) {
+            retry(target.getName(), dlqName, rules, settings.getMaxScan());
+          }
+        }
+      }
+    } finally {
+      BrokerTargetHolder.set(previousTarget);
+      AuditOperatorHolder.clear();
+    }
+    counterService.increment("dlq.retry.runs");
+  }
+
+  /**
+   * 1つのDead Letter Queueを走査し、再登録・待避する.
+   *
+   * @param targetName 接続先名
+   * @param dlqName Dead Letter Queue名
+   * @param rules 再登録ルール一覧
+   * @param maxScan 走査する最大件数
+   */
+  private void retry(String targetName, String dlqName, List<DlqProperties.RetryRule> rules,
+      int maxScan) {
+    final long now = System.currentTimeMillis();
+    final String cursorKey = targetName + "/" + dlqName;
+    try {
+      int skip = cursors.getOrDefault(cursorKey, 0);
+      BulkActionResult result = queueService.applyMessageActions(dlqName,
+          message -> resolve(rules, message, now), skip, maxScan);
+      if (result.getScanned() < maxScan) {
+        // 末尾に達した(または打ち切った)ので次回は先頭から走査する
+        cursors.remove(cursorKey);
+      } else {
+        // 再登録・待避したメッセージはキューから無くなるので、残したメッセージの分だけ進める
+        cursors.put(cursorKey, skip + result.getScanned() - result.getProcessed());
+      }
+      gaugeService.submit("dlq.retry.republished." + dlqName, result.getRepublished());
+      gaugeService.submit("dlq.retry.backed-up." + dlqName, result.getBackedUp());
+      if (result.getProcessed() > 0) {
+        log.info(String.format(
+            "Retry policy applied. Target:%s,Queue:%s,Skipped:%d,Scanned:%d,Republished:%d,"
+                + "BackedUp:%d",
+            targetName, dlqName, skip, result.getScanned(), result.getRepublished(),
+            result.getBackedUp()));
+      }
+    } catch (RuntimeException e) {
+      counterService.increment("dlq.retry.failures");
+      log.warn(String.format("Failed to apply retry policy. Target:%s,Queue:%s", targetName,
+          dlqName), e);
+    }
+  }
+
+  /**
+   * メッセージへ適用する処理を決定する.
+   *
+   * @param rules 再登録ルール一覧
+   * @param message メッセージ
+   * @param now 走査開始時刻
+   * @return 適用する処理
+   */
+  private MessageAction resolve(List<DlqProperties.RetryRule> rules,
+      DeadLetteredMessage message, long now) {
+    List<XDeath> extraDeaths = message.getProperties().getHeaders().getExtraDeaths();
+    if (extraDeaths.isEmpty() || extraDeaths.get(0).getTime() == null) {
+      return MessageAction.KEEP;
+    }
+    XDeath extraDeath = extraDeaths.get(0);
+    DlqProperties.RetryRule rule = rules.stream()//
+        .filter(candidate -> matches(candidate, extraDeath, message.getTotalDeathCount()))//
+        .findFirst()//
+        .orElse(null);
+    if (rule == null) {
+      return MessageAction.KEEP;
+    }
+    Integer republishCount = message.getProperties().getHeaders().getExtraRepublishCount();
+    int attempts = republishCount == null ? 0 : republishCount;
+    if (attempts >= rule.getMaxAttempts()) {
+      // 再登録しても回復しないので待避する
+      return MessageAction.BACKUP;
+    }
+    long dueAt = extraDeath.getTime().getTime() + backoff(rule, attempts);
+    return dueAt <= now ? MessageAction.REPUBLISH : MessageAction.KEEP;
+  }
+
+  /**
+   * x-death情報がルールに合致するかどうか.
+   *
+   * @param rule 再登録ルール
+   * @param extraDeath 直近のx-death情報
+   * @param totalDeathCount Dead Letter Queue入りした回数の合計
+   * @return 合致すればtrue
+   */
+  private boolean matches(DlqProperties.RetryRule rule, XDeath extraDeath,
+      long totalDeathCount) {
+    if (!StringUtils.isEmpty(rule.getOriginalQueue())
+        && !rule.getOriginalQueue().equals(extraDeath.getQueue())) {
+      return false;
+    }
+    if (!StringUtils.isEmpty(rule.getReason())
+        && !rule.getReason().equals(extraDeath.getReason())) {
+      return false;
+    }
+    return rule.getMaxDeathCount() == null || totalDeathCount <= rule.getMaxDeathCount();
+  }
+
+  /**
+   * 再登録回数に応じた待ち時間を求める.
+   *
+   * @param rule 再登録ルール
+   * @param attempts これまでの再登録回数
+   * @return 待ち時間(ミリ秒)
+   */
+  private long backoff(DlqProperties.RetryRule rule, int attempts) {
+    double delay = rule.getInitialDelay() * Math.pow(rule.getMultiplier(), attempts);
+    return (long) Math.min(delay, rule.getMaxDelay());
+  }
+}
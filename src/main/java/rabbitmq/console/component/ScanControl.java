@@ -0,0 +1,239 @@
+package rabbitmq.console.component;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.Getter;
+
+/**
+ * 1回のキュー走査の打ち切り条件.
+ *
+ * <p>
+ * 走査中もキューにメッセージが届き続けると、basic.getがnullを返さずに走査が終わらない。 走査の開始時点のメッセージ数(上限あり)・期限・取り消しのいずれかで打ち切り、
+ * 打ち切った理由を走査結果として報告できるようにする。 開始時点のメッセージ数まで走査し終えた場合は完了とみなす.
+ * </p>
+ *
+ * <p>
+ * 走査・Ack・Nack・登録の件数と読み込みバイト数を数え、走査の終了時に1件の要約としてログ出力する(メッセージ毎にはログ出力しない).
+ * 件数は走査中のスレッドだけが更新する.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+@Getter
+public class ScanControl {
+  /**
+   * 打ち切り理由:取り消し.
+   */
+  public static final String CANCELLED = "cancelled";
+
+  /**
+   * 打ち切り理由:割り込み.
+   */
+  public static final String INTERRUPTED = "interrupted";
+
+  /**
+   * 打ち切り理由:期限切れ.
+   */
+  public static final String DEADLINE = "deadline";
+
+  /**
+   * 打ち切り理由:走査件数の上限.
+   */
+  public static final String BUDGET = "budget";
+
+  /**
+   * 走査ID.
+   */
+  @JsonProperty("id")
+  private final String id;
+
+  /**
+   * 接続先名.
+   */
+  @JsonProperty("target")
+  private final String target;
+
+  /**
+   * 操作名.
+   */
+  @JsonProperty("operation")
+  private final String operation;
+
+  /**
+   * 走査するキュー名.
+   */
+  @JsonProperty("queue")
+  private final String queueName;
+
+  /**
+   * 開始時点のメッセージ数.
+   */
+  @JsonProperty("depth")
+  private final int depth;
+
+  /**
+   * 走査する最大件数.
+   */
+  @JsonProperty("budget")
+  private final int budget;
+
+  /**
+   * 開始時刻(エポックミリ秒).
+   */
+  @JsonProperty("started_at")
+  private final long startedAt;
+
+  /**
+   * 期限(エポックミリ秒).
+   */
+  @JsonProperty("deadline")
+  private final long deadline;
+
+  /**
+   * 取り消されたかどうか.
+   */
+  private final AtomicBoolean cancelled = new AtomicBoolean();
+
+  /**
+   * 走査したメッセージ数.
+   */
+  @JsonProperty("scanned")
+  private volatile int scanned;
+
+  /**
+   * 読み込んだペイロードのバイト数.
+   */
+  @JsonProperty("bytes")
+  private volatile long bytes;
+
+  /**
+   * 取り出した(Ackした)メッセージ数.
+   */
+  @JsonProperty("acked")
+  private volatile int acked;
+
+  /**
+   * キューへ戻した(Nackした)メッセージ数.
+   */
+  @JsonProperty("nacked")
+  private volatile int nacked;
+
+  /**
+   * 他のキューへ登録したメッセージ数.
+   */
+  @JsonProperty("published")
+  private volatile int published;
+
+  /**
+   * 打ち切り理由. 完了した場合・走査中はnull.
+   */
+  @JsonProperty("incomplete_reason")
+  private volatile String incompleteReason;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param id 走査ID
+   * @param target 接続先名
+   * @param operation 操作名
+   * @param queueName 走査するキュー名
+   * @param depth 開始時点のメッセージ数
+   * @param maxMessages 走査する最大件数の上限
+   * @param timeout 走査の制限時間(ミリ秒)
+   */
+  ScanControl(String id, String target, String operation, String queueName, int depth,
+      int maxMessages, long timeout) {
+    this.id = id;
+    this.target = target;
+    this.operation = operation;
+    this.queueName = queueName;
+    this.depth = depth;
+    this.budget = Math.min(depth, maxMessages);
+    this.startedAt = System.currentTimeMillis();
+    this.deadline = startedAt + timeout;
+  }
+
+  /**
+   * 次のメッセージを走査してよいかどうかを判定する. 走査する前に毎回呼び出す.
+   *
+   * @return 走査してよければtrue。falseの場合は打ち切り理由が設定される(完了した場合を除く)
+   */
+  public boolean proceed() {
+    if (cancelled.get()) {
+      incompleteReason = CANCELLED;
+      return false;
+    }
+    if (Thread.currentThread().isInterrupted()) {
+      incompleteReason = INTERRUPTED;
+      return false;
+    }
+    if (System.currentTimeMillis() >= deadline) {
+      incompleteReason = DEADLINE;
+      return false;
+    }
+    if (scanned >= budget) {
+      // 開始時点のメッセージを全て走査した場合は完了
+      incompleteReason = budget < depth ? BUDGET : null;
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * メッセージを1件走査したことを記録する.
+   *
+   * @param bodyLength ペイロードのバイト数
+   */
+  public void scanned(int bodyLength) {
+    scanned++;
+    bytes += bodyLength;
+  }
+
+  /**
+   * メッセージを1件取り出した(Ackした)ことを記録する.
+   */
+  public void acked() {
+    acked++;
+  }
+
+  /**
+   * メッセージを1件キューへ戻した(Nackした)ことを記録する.
+   */
+  public void nacked() {
+    nacked++;
+  }
+
+  /**
+   * メッセージを1件他のキューへ登録したことを記録する.
+   */
+  public void published() {
+    published++;
+  }
+
+  /**
+   * キューの内容を変更したかどうか.
+   *
+   * @return 取り出した・登録したメッセージがあればtrue
+   */
+  public boolean isModified() {
+    return acked > 0 || published > 0;
+  }
+
+  /**
+   * 走査を取り消す. 走査中のスレッドは次のメッセージを走査する前に打ち切る.
+   */
+  public void cancel() {
+    cancelled.set(true);
+  }
+
+  /**
+   * 打ち切ったかどうか.
+   *
+   * @return 打ち切った場合はtrue
+   */
+  public boolean isIncomplete() {
+    return incompleteReason != null;
+  }
+}
@@ -0,0 +1,29 @@
+package rabbitmq.console.component;
+
+import org.springframework.amqp.AmqpException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 対象メッセージを見つける前にキューの走査を打ち切った場合の例外. RabbitTemplateのコールバックから送出してもそのまま伝播するようAmqpExceptionを継承する
+ * @author Tomoaki Mikami
+ *
+ */
+@ResponseStatus(code = HttpStatus.SERVICE_UNAVAILABLE, reason = "Scan incomplete")
+public class ScanIncompleteException extends AmqpException {
+  /**
+   * serialVersionUID
+   */
+  private static final long serialVersionUID = -2730581647921064532L;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param control 打ち切った走査
+   */
+  public ScanIncompleteException(ScanControl control) {
+    super(String.format("Scan of %s stopped after %d of %d messages: %s",
+        control.getQueueName(), control.getScanned(), control.getDepth(),
+        control.getIncompleteReason()));
+  }
+}
@@ -0,0 +1,215 @@
+package rabbitmq.console.component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+import rabbitmq.console.configuration.DlqProperties;
+
+/**
+ * 実行中のキュー走査の一覧. 走査毎の打ち切り条件を発行し、画面・APIからの取り消しを受け付ける.
+ *
+ * <p>
+ * 非同期タスクの走査一覧({@link TaskScans})を処理中のスレッドへ設定しておくと、そのスレッドで開いた走査を登録する。
+ * リクエストがタイムアウトした後も、スレッドプールで走査し続けないようにまとめて取り消すために使う.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+@Component
+@Slf4j
+public class ScanRegistry {
+  /**
+   * 走査の要約のログ形式.
+   */
+  private static final String SUMMARY = "Operation:{},Target:{},Queue:{},"
+      + "Scanned:{},Acked:{},Nacked:{},Published:{},Bytes:{},Elapsed:{}ms";
+
+  /**
+   * Dead Letter Queue関連プロパティ.
+   */
+  @Autowired
+  private DlqProperties dlqProperties;
+
+  /**
+   * 実行中の走査(キー:走査ID).
+   */
+  private final Map<String, ScanControl> scans = new ConcurrentHashMap<>();
+
+  /**
+   * 処理中のスレッドが実行している非同期タスクの走査一覧.
+   */
+  private static final ThreadLocal<TaskScans> CURRENT_TASK = new ThreadLocal<>();
+
+  /**
+   * 走査を開始する. 終了時は必ず{@link #close(ScanControl)}を呼び出す.
+   *
+   * @param operation 操作名
+   * @param queueName 走査するキュー名
+   * @param depth 開始時点のメッセージ数
+   * @return 打ち切り条件
+   */
+  public ScanControl open(String operation, String queueName, int depth) {
+    DlqProperties.Scan settings = dlqProperties.getScan();
+    ScanControl control = new ScanControl(UUID.randomUUID().toString(), BrokerTargetHolder.get(),
+        operation, queueName, depth, settings.getMaxMessages(), settings.getTimeout());
+    scans.put(control.getId(), control);
+    TaskScans taskScans = CURRENT_TASK.get();
+    if (taskScans != null) {
+      taskScans.add(control);
+    }
+    return control;
+  }
+
+  /**
+   * 走査を終了する. 走査の要約をログ出力する. 打ち切った場合はWARN、キューを変更した場合はINFO、参照のみの場合はDEBUG.
+   *
+   * @param control 打ち切り条件
+   */
+  public void close(ScanControl control) {
+    scans.remove(control.getId());
+    TaskScans taskScans = CURRENT_TASK.get();
+    if (taskScans != null) {
+      taskScans.remove(control);
+    }
+    if (control.isIncomplete()) {
+      log.warn("Scan incomplete. " + SUMMARY + ",Depth:{},Reason:{}",
+          summaryOf(control, control.getDepth(), control.getIncompleteReason()));
+    } else if (control.isModified()) {
+      log.info("Scan finished. " + SUMMARY, summaryOf(control));
+    } else if (log.isDebugEnabled()) {
+      log.debug("Scan finished. " + SUMMARY, summaryOf(control));
+    }
+  }
+
+  /**
+   * 走査の要約のログ出力引数を組み立てる.
+   *
+   * @param control 打ち切り条件
+   * @param extras 追加の引数
+   * @return ログ出力引数
+   */
+  private static Object[] summaryOf(ScanControl control, Object... extras) {
+    Object[] summary = new Object[] {control.getOperation(), control.getTarget(),
+        control.getQueueName(), control.getScanned(), control.getAcked(), control.getNacked(),
+        control.getPublished(), control.getBytes(),
+        System.currentTimeMillis() - control.getStartedAt()};
+    Object[] args = new Object[summary.length + extras.length];
+    System.arraycopy(summary, 0, args, 0, summary.length);
+    System.arraycopy(extras, 0, args, summary.length, extras.length);
+    return args;
+  }
+
+  /**
+   * 実行中の走査一覧を取得する.
+   *
+   * @return 走査一覧
+   */
+  public List<ScanControl> list() {
+    return new ArrayList<>(scans.values());
+  }
+
+  /**
+   * 走査を取り消す.
+   *
+   * @param id 走査ID
+   * @return 実行中の走査が見つかった場合はtrue
+   */
+  public boolean cancel(String id) {
+    ScanControl control = scans.get(id);
+    if (control == null) {
+      return false;
+    }
+    control.cancel();
+    return true;
+  }
+
+  /**
+   * 非同期タスクの走査一覧を設定してタスクを実行するように包む.
+   *
+   * @param taskScans 非同期タスクの走査一覧
+   * @param task タスク
+   * @return 走査一覧を設定するタスク
+   */
+  public static <T> Callable<T> wrap(TaskScans taskScans, Callable<T> task) {
+    return () -> {
+      TaskScans previous = CURRENT_TASK.get();
+      CURRENT_TASK.set(taskScans);
+      try {
+        return task.call();
+      } finally {
+        if (previous == null) {
+          CURRENT_TASK.remove();
+        } else {
+          CURRENT_TASK.set(previous);
+        }
+      }
+    };
+  }
+
+  /**
+   * 呼び出し元スレッドの非同期タスクの走査一覧を別スレッドへ引き継ぐようにタスクを包む.
+   *
+   * @param task タスク
+   * @return 走査一覧を引き継ぐタスク
+   */
+  public static <T> Callable<T> wrap(Callable<T> task) {
+    TaskScans taskScans = CURRENT_TASK.get();
+    return taskScans == null ? task : wrap(taskScans, task);
+  }
+
+  /**
+   * 1つの非同期タスクが開いている走査の一覧.
+   *
+   * @author Tomoaki Mikami
+   */
+  public static final class TaskScans {
+    /**
+     * 開いている走査.
+     */
+    private final Set<ScanControl> scans = new HashSet<>();
+
+    /**
+     * 取り消したかどうか.
+     */
+    private boolean cancelled = false;
+
+    /**
+     * 走査を加える. 取り消した後に開いた走査は即座に取り消す.
+     *
+     * @param control 打ち切り条件
+     */
+    private synchronized void add(ScanControl control) {
+      if (cancelled) {
+        control.cancel();
+      }
+      scans.add(control);
+    }
+
+    /**
+     * 終了した走査を除く.
+     *
+     * @param control 打ち切り条件
+     */
+    private synchronized void remove(ScanControl control) {
+      scans.remove(control);
+    }
+
+    /**
+     * 開いている走査と、これから開く走査を全て取り消す.
+     */
+    public synchronized void cancel() {
+      cancelled = true;
+      scans.forEach(ScanControl::cancel);
+    }
+  }
+}
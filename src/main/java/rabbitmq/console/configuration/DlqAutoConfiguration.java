@@ -1,8 +1,19 @@
 package rabbitmq.console.configuration;
 
+import javax.sql.DataSource;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.datasource.init.DataSourceInitializer;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import rabbitmq.console.repository.DatabaseDialect;
 
 /**
  * Dead Letter Queue関連自動設定.
@@ -15,7 +26,48 @@ public class DlqAutoConfiguration {
   /**
    * プロパティ.
    */
-  @SuppressWarnings("unused")
   @Autowired
   private DlqProperties dlqProperties;
+
+  /**
+   * Mutexテーブルを配置するデータベースの方言を取得.
+   *
+   * @param dataSource データソース
+   * @return 方言
+   */
+  @Bean
+  public DatabaseDialect dlqDatabaseDialect(DataSource dataSource) {
+    if (dlqProperties.getSchema().getDialect() != null) {
+      return dlqProperties.getSchema().getDialect();
+    }
+    try {
+      String productName = (String) JdbcUtils.extractDatabaseMetaData(dataSource,
+          "getDatabaseProductName");
+      return DatabaseDialect.fromProductName(productName);
+    } catch (MetaDataAccessException e) {
+      throw new IllegalStateException(
+          "Could not detect database dialect. Set dlq.rabbitmq.schema.dialect explicitly.", e);
+    }
+  }
+
+  /**
+   * 起動時にMutexテーブルを作成する初期化処理を取得.
+   *
+   * @param dataSource データソース
+   * @param dialect 方言
+   * @return 初期化処理
+   */
+  @Bean
+  @ConditionalOnProperty(prefix = "dlq.rabbitmq.schema", name = "initialize", havingValue = "true")
+  public DataSourceInitializer dlqSchemaInitializer(DataSource dataSource,
+      DatabaseDialect dialect) {
+    ResourceDatabasePopulator populator = new ResourceDatabasePopulator(
+        new DefaultResourceLoader().getResource(dialect.getSchemaLocation()));
+    populator.setSeparator(dialect.getScriptSeparator());
+    populator.setSqlScriptEncoding("UTF-8");
+    DataSourceInitializer initializer = new DataSourceInitializer();
+    initializer.setDataSource(dataSource);
+    initializer.setDatabasePopulator(populator);
+    return initializer;
+  }
 }
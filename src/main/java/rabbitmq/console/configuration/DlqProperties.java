@@ -1,11 +1,16 @@
 package rabbitmq.console.configuration;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import lombok.Getter;
 import lombok.Setter;
+import rabbitmq.console.repository.DatabaseDialect;
 
 /**
  * Dead Letter Queue関連プロパティ.
@@ -25,4 +30,646 @@ public class DlqProperties {
    * 一覧取得最大件数.
    */
   private Integer maxCount = 10;
+
+  /**
+   * 複数のDead Letter Queueを並列に処理する際のスレッド数.
+   */
+  private Integer fanOutPoolSize = 8;
+
+  /**
+   * 複数のDead Letter Queueを並列に処理する際、全キューの完了を待つ最大時間(ミリ秒). 超えたキューは失敗として扱う.
+   */
+  private long fanOutTimeout = 30 * 1000L;
+
+  /**
+   * 追加の接続先マップ(キー:接続先名). 既定の接続先(default)はspring.rabbitmq.*の設定を使う.
+   */
+  private Map<String, Target> targets = new LinkedHashMap<>();
+
+  /**
+   * 全文検索用インデックス設定.
+   */
+  private SearchIndex searchIndex = new SearchIndex();
+
+  /**
+   * 更新操作の冪等キー設定.
+   */
+  private Idempotency idempotency = new Idempotency();
+
+  /**
+   * Mutexテーブルのスキーマ設定.
+   */
+  private Schema schema = new Schema();
+
+  /**
+   * 古いMutexを削除するスイーパー設定.
+   */
+  private MutexSweeper mutexSweeper = new MutexSweeper();
+
+  /**
+   * 一覧表示用スナップショットのヒープ外保持設定.
+   */
+  private OffHeapSnapshot offHeapSnapshot = new OffHeapSnapshot();
+
+  /**
+   * 一覧取得・エクスポートで読み込むバイト数の上限設定.
+   */
+  private BrowseBudget browseBudget = new BrowseBudget();
+
+  /**
+   * メッセージ一覧のストリーミング表示設定.
+   */
+  private StreamingList streamingList = new StreamingList();
+
+  /**
+   * 画面からのブローカー入出力を実行するスレッドプール設定.
+   */
+  private BrokerIo brokerIo = new BrokerIo();
+
+  /**
+   * 自動再登録ポリシー設定.
+   */
+  private RetryPolicy retryPolicy = new RetryPolicy();
+
+  /**
+   * 再登録とDead Letter Queue入りを繰り返すメッセージの隔離設定.
+   */
+  private LoopBreaker loopBreaker = new LoopBreaker();
+
+  /**
+   * キュー間のメッセージ移動設定.
+   */
+  private Shovel shovel = new Shovel();
+
+  /**
+   * 同一ペイロードのグループ表示設定.
+   */
+  private Grouping grouping = new Grouping();
+
+  /**
+   * キュー走査の打ち切り条件.
+   */
+  private Scan scan = new Scan();
+
+  /**
+   * 一覧のメッセージを保持したまま操作するセッションの設定.
+   */
+  private BrowseSession browseSession = new BrowseSession();
+
+  /**
+   * 更新操作の監査ログ設定.
+   */
+  private Audit audit = new Audit();
+
+  /**
+   * 画面用の静的ファイルの配信設定.
+   */
+  private StaticAssets staticAssets = new StaticAssets();
+
+  /**
+   * 一覧・検索でのメッセージ変換の並列化設定.
+   */
+  private DecodePipeline decodePipeline = new DecodePipeline();
+
+  /**
+   * 一覧・検索でのメッセージ変換の並列化設定.
+   *
+   * @author Tomoaki Mikami
+   */
+  @Setter
+  @Getter
+  public static class DecodePipeline {
+    /**
+     * ブローカーからの受信と並行して、変換・絞り込みをスレッドプールで実行するかどうか. falseの場合は受信したスレッドで順に実行する.
+     */
+    private boolean enabled = true;
+
+    /**
+     * 変換・絞り込みを実行するスレッド数.
+     */
+    private int poolSize = 4;
+
+    /**
+     * 1回の走査で変換待ち・変換済み(未処理)として保持できる最大件数. 達した場合は先頭の変換完了を待ってから次を受信する.
+     */
+    private int window = 32;
+  }
+
+  /**
+   * 画面用の静的ファイルの配信設定.
+   *
+   * @author Tomoaki Mikami
+   */
+  @Setter
+  @Getter
+  public static class StaticAssets {
+    /**
+     * ブラウザにキャッシュさせる期間(秒). URLに内容のハッシュ値を含むので、内容が変わるとURLも変わる.
+     */
+    private long cachePeriod = 365L * 24 * 60 * 60;
+
+    /**
+     * 配信するファイルとハッシュ値の解決結果をキャッシュするかどうか. 静的ファイルを編集しながら確認する場合はfalse.
+     */
+    private boolean cacheResolved = true;
+  }
+
+  /**
+   * 更新操作の監査ログ設定.
+   *
+   * @author Tomoaki Mikami
+   */
+  @Setter
+  @Getter
+  public static class Audit {
+    /**
+     * 監査ログを記録するかどうか. 記録する場合はRABBITMQ_AUDITテーブルが必要.
+     */
+    private boolean enabled = false;
+
+    /**
+     * 書き込み待ちにできる最大件数. 超えた分は記録せずに破棄する.
+     */
+    private int capacity = 10000;
+
+    /**
+     * 1回の書き込みでまとめて登録する最大件数.
+     */
+    private int batchSize = 200;
+
+    /**
+     * 書き込み待ちの監査ログを書き込む間隔(ミリ秒).
+     */
+    private long flushInterval = 1000L;
+
+    /**
+     * 画面の1ページに表示する件数.
+     */
+    private int pageSize = 50;
+  }
+
+  /**
+   * 一覧のメッセージを保持したまま操作するセッションの設定.
+   *
+   * @author Tomoaki Mikami
+   */
+  @Setter
+  @Getter
+  public static class BrowseSession {
+    /**
+     * 最後の操作からメッセージを保持し続ける時間(ミリ秒). 超えるとメッセージをキューへ戻してセッションを閉じる.
+     */
+    private long lease = 60 * 1000L;
+
+    /**
+     * 同時に開けるセッション数. 超えた場合は通常の一覧表示にする.
+     */
+    private int maxSessions = 10;
+
+    /**
+     * 再登録・待避先への登録確認を待つ時間(ミリ秒).
+     */
+    private long confirmTimeout = 30 * 1000L;
+  }
+
+  /**
+   * キュー走査の打ち切り条件.
+   *
+   * @author Tomoaki Mikami
+   */
+  @Setter
+  @Getter
+  public static class Scan {
+    /**
+     * 1回の走査の制限時間(ミリ秒).
+     */
+    private long timeout = 30000L;
+
+    /**
+     * 1回の走査で走査する最大件数. 開始時点のメッセージ数の方が少なければそちらまで走査する.
+     */
+    private int maxMessages = 100000;
+  }
+
+  /**
+   * 同一ペイロードのグループ表示設定.
+   *
+   * @author Tomoaki Mikami
+   */
+  @Setter
+  @Getter
+  public static class Grouping {
+    /**
+     * 集計する最大グループ数. 超えた分のメッセージは件数のみ数える.
+     */
+    private int maxGroups = 1000;
+
+    /**
+     * グループ毎に表示するペイロードの先頭バイト数.
+     */
+    private int previewBytes = 200;
+  }
+
+  /**
+   * キュー間のメッセージ移動設定.
+   *
+   * @author Tomoaki Mikami
+   */
+  @Setter
+  @Getter
+  public static class Shovel {
+    /**
+     * 移動先への登録確認を待ってから移動元を削除する単位(件数).
+     */
+    private int batchSize = 500;
+
+    /**
+     * 確認ウィンドウ. 移動先へ登録済み・移動元から未削除にしておける最大件数で、達した場合だけ先頭のバッチの確認を待つ.
+     * 絞り込みが無い場合のプリフェッチ数を兼ねる. batch-size未満の場合はbatch-sizeとみなす.
+     */
+    private int window = 2000;
+
+    /**
+     * 絞り込み時に未削除のまま保持できる対象外のメッセージの最大件数. 達した場合は移動を打ち切る.
+     */
+    private int holdLimit = 10000;
+
+    /**
+     * 移動先への登録確認を待つ時間(ミリ秒).
+     */
+    private long confirmTimeout = 30 * 1000L;
+
+    /**
+     * 移動元からの受信を待つ時間(ミリ秒). これを超えて受信できなければ移動元が空になったとみなす.
+     */
+    private long idleTimeout = 1000L;
+
+    /**
+     * 画面からの移動要求のタイムアウト(ミリ秒). 超えた場合は503を返すが、移動は継続する.
+     */
+    private long requestTimeout = 10 * 60 * 1000L;
+  }
+
+  /**
+   * 再登録とDead Letter Queue入りを繰り返すメッセージの隔離設定.
+   *
+   * @author Tomoaki Mikami
+   */
+  @Setter
+  @Getter
+  public static class LoopBreaker {
+    /**
+     * 隔離を使用するかどうか(既定は無効).
+     */
+    private boolean enabled = false;
+
+    /**
+     * 走査間隔(ミリ秒). 前回の完了から次回の開始までの間隔.
+     */
+    private long interval = 30 * 1000L;
+
+    /**
+     * Dead Letter Queue入りした回数の合計の閾値. これ以上のメッセージを隔離する.
+     */
+    private long maxDeathCount = 20;
+
+    /**
+     * 集計期間内の再登録回数の閾値. これ以上再登録されたメッセージを隔離する.
+     */
+    private int maxRepublishes = 3;
+
+    /**
+     * 再登録回数の集計期間(ミリ秒).
+     */
+    private long republishWindow = 10 * 60 * 1000L;
+
+    /**
+     * 再登録履歴を保持する最大メッセージ数.
+     */
+    private int maxTrackedMessages = 10000;
+
+    /**
+     * 1回の走査でDead Letter Queue毎に隔離する最大件数.
+     */
+    private int maxQuarantinePerRun = 100;
+  }
+
+  /**
+   * 自動再登録ポリシー設定.
+   *
+   * @author Tomoaki Mikami
+   */
+  @Setter
+  @Getter
+  public static class RetryPolicy {
+    /**
+     * 自動再登録を使用するかどうか(既定は無効).
+     */
+    private boolean enabled = false;
+
+    /**
+     * 走査間隔(ミリ秒). 前回の完了から次回の開始までの間隔.
+     */
+    private long interval = 60 * 1000L;
+
+    /**
+     * 1回の走査でDead Letter Queue毎に走査する最大件数.
+     */
+    private int maxScan = 500;
+
+    /**
+     * 再登録ルール(キー:Dead Letter Queue名,値:ルール一覧。先に合致したルールを適用する).
+     */
+    private Map<String, List<RetryRule>> rules = new LinkedHashMap<>();
+  }
+
+  /**
+   * 自動再登録ルール.
+   *
+   * @author Tomoaki Mikami
+   */
+  @Setter
+  @Getter
+  public static class RetryRule {
+    /**
+     * Dead Letter Queue入りする前にいたキュー. 未指定の場合は全て.
+     */
+    private String originalQueue;
+
+    /**
+     * Dead Letter Queue入りした理由(rejected,expired,maxlen). 未指定の場合は全て.
+     */
+    private String reason;
+
+    /**
+     * 対象とするDead Letter Queue入り回数(x-deathの全エントリのcountの合計)の上限. 未指定の場合は制限なし.
+     */
+    private Long maxDeathCount;
+
+    /**
+     * 初回の再登録までの待ち時間(ミリ秒). Dead Letter Queue入りした時刻から数える.
+     */
+    private long initialDelay = 60 * 1000L;
+
+    /**
+     * 再登録する度に待ち時間に掛ける倍率.
+     */
+    private double multiplier = 2.0;
+
+    /**
+     * 待ち時間の上限(ミリ秒).
+     */
+    private long maxDelay = 60 * 60 * 1000L;
+
+    /**
+     * 再登録の最大回数. 超えた場合はBackup Queueへ待避する.
+     */
+    private int maxAttempts = 5;
+  }
+
+  /**
+   * 画面からのブローカー入出力を実行するスレッドプール設定.
+   *
+   * @author Tomoaki Mikami
+   */
+  @Setter
+  @Getter
+  public static class BrokerIo {
+    /**
+     * スレッド数.
+     */
+    private int poolSize = 4;
+
+    /**
+     * 実行待ちにできる最大件数. 超えた場合は即座に503を返す.
+     */
+    private int queueCapacity = 50;
+
+    /**
+     * タイムアウト(ミリ秒). 超えた場合は503を返す.
+     */
+    private long timeout = 30 * 1000L;
+  }
+
+  /**
+   * Mutexテーブルのスキーマ設定.
+   *
+   * @author Tomoaki Mikami
+   */
+  @Setter
+  @Getter
+  public static class Schema {
+    /**
+     * データベースの方言. 未指定の場合はデータソースのメタデータから判別する.
+     */
+    private DatabaseDialect dialect;
+
+    /**
+     * 起動時にMutexテーブルが存在しなければ作成するかどうか(既定は無効).
+     */
+    private boolean initialize = false;
+  }
+
+  /**
+   * 古いMutexを削除するスイーパー設定.
+   *
+   * @author Tomoaki Mikami
+   */
+  @Setter
+  @Getter
+  public static class MutexSweeper {
+    /**
+     * スイーパーを使用するかどうか(既定は無効).
+     */
+    private boolean enabled = false;
+
+    /**
+     * Mutexの保持期間(ミリ秒). これより前に作成されたMutexを削除する.
+     */
+    private long retention = 7 * 24 * 60 * 60 * 1000L;
+
+    /**
+     * 実行間隔(ミリ秒). 前回の完了から次回の開始までの間隔.
+     */
+    private long interval = 60 * 60 * 1000L;
+
+    /**
+     * 1回の削除文で削除する最大件数.
+     */
+    private int batchSize = 500;
+
+    /**
+     * 削除文の間に空ける時間(ミリ秒).
+     */
+    private long batchPause = 100;
+
+    /**
+     * 1回の実行で発行する削除文の最大数.
+     */
+    private int maxBatches = 1000;
+  }
+
+  /**
+   * メッセージ一覧のストリーミング表示設定.
+   *
+   * @author Tomoaki Mikami
+   */
+  @Setter
+  @Getter
+  public static class StreamingList {
+    /**
+     * Dead Letterメッセージ一覧画面を既定でストリーミング表示にするかどうか(既定は無効).
+     */
+    private boolean enabled = false;
+
+    /**
+     * ストリーミング時の取得最大件数. 一覧を保持しないので通常の一覧取得より大きくできる.
+     */
+    private int maxCount = 10000;
+  }
+
+  /**
+   * 一覧取得・エクスポートで読み込むバイト数の上限設定.
+   *
+   * @author Tomoaki Mikami
+   */
+  @Setter
+  @Getter
+  public static class BrowseBudget {
+    /**
+     * 1回の一覧取得・エクスポートで読み込むペイロードの上限(バイト).
+     */
+    private long maxBytes = 16L * 1024 * 1024;
+
+    /**
+     * Dead Letter Queue毎の上限(キー:Dead Letter Queue名,値:バイト). 指定のないキューはmaxBytesを使う.
+     */
+    private Map<String, Long> queues = new HashMap<>();
+
+    /**
+     * 同時に実行される全ての一覧取得・エクスポートで読み込むペイロードの合計上限(バイト).
+     */
+    private long maxConcurrentBytes = 256L * 1024 * 1024;
+  }
+
+  /**
+   * 一覧表示用スナップショットのヒープ外保持設定.
+   *
+   * @author Tomoaki Mikami
+   */
+  @Setter
+  @Getter
+  public static class OffHeapSnapshot {
+    /**
+     * 一覧表示時にペイロードをヒープ外(ダイレクトバッファ)へ保持するかどうか(既定は無効).
+     */
+    private boolean enabled = false;
+
+    /**
+     * スラブ1個あたりのサイズ(バイト).
+     */
+    private int slabSize = 1024 * 1024;
+  }
+
+  /**
+   * 全文検索用インデックス設定.
+   *
+   * @author Tomoaki Mikami
+   */
+  @Setter
+  @Getter
+  public static class SearchIndex {
+    /**
+     * インデックスを使用するかどうか(既定は無効).
+     */
+    private boolean enabled = false;
+
+    /**
+     * アプリケーション起動時にインデックスを構築するかどうか.
+     */
+    private boolean buildOnStartup = true;
+
+    /**
+     * Dead Letter Queue毎のインデックス最大メモリ使用量(バイト).
+     */
+    private long maxBytes = 64L * 1024 * 1024;
+
+    /**
+     * 構築済みインデックスが古くなっていないかを確認する間隔(ミリ秒). 0以下の場合は検索時のみ確認する.
+     */
+    private long staleCheckInterval = 60 * 1000L;
+
+    /**
+     * ペイロードに加えてインデックス対象とするヘッダ名リスト.
+     */
+    private List<String> headers = new ArrayList<>();
+  }
+
+  /**
+   * 更新操作の冪等キー設定.
+   *
+   * @author Tomoaki Mikami
+   */
+  @Setter
+  @Getter
+  public static class Idempotency {
+    /**
+     * 完了した操作結果を保持する最大件数.
+     */
+    private int maxEntries = 1000;
+
+    /**
+     * 完了した操作結果を保持する時間(ミリ秒).
+     */
+    private long timeToLive = 10 * 60 * 1000L;
+  }
+
+  /**
+   * 接続先(ブローカーおよび仮想ホスト)設定.
+   *
+   * @author Tomoaki Mikami
+   */
+  @Setter
+  @Getter
+  public static class Target {
+    /**
+     * 接続アドレス(カンマ区切りでhost:portを列挙). 指定した場合はhost,portより優先する.
+     */
+    private String addresses;
+
+    /**
+     * 接続ホスト名.
+     */
+    private String host = "localhost";
+
+    /**
+     * 接続ポート.
+     */
+    private int port = 5672;
+
+    /**
+     * 接続ユーザ名.
+     */
+    private String username = "guest";
+
+    /**
+     * 接続パスワード.
+     */
+    private String password = "guest";
+
+    /**
+     * 仮想ホスト名.
+     */
+    private String virtualHost = "/";
+
+    /**
+     * キャッシュするチャネル数.
+     */
+    private int channelCacheSize = 8;
+
+    /**
+     * Dead Letter Queue名マップ(キー:Dead Letter Queue名,値:Backup Queue名). 省略時はdlq.rabbitmq.dead-letter-queueを使う.
+     */
+    private Map<String, String> deadLetterQueue;
+  }
 }
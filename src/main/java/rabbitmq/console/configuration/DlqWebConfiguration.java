@@ -0,0 +1,99 @@
+package rabbitmq.console.configuration;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+import org.springframework.web.servlet.resource.GzipResourceResolver;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import rabbitmq.console.component.BrokerTargetRegistry;
+import rabbitmq.console.controller.AuditOperatorInterceptor;
+import rabbitmq.console.controller.BrokerTargetInterceptor;
+import rabbitmq.console.controller.BrowseMemoryInterceptor;
+import rabbitmq.console.controller.MessageSnapshotInterceptor;
+
+/**
+ * DLQ管理コンソール用Web設定.
+ *
+ * @author Tomoaki Mikami
+ */
+@Configuration
+public class DlqWebConfiguration extends WebMvcConfigurerAdapter {
+  /**
+   * 画面用の静的ファイルを配信するURLパス.
+   */
+  public static final String STATIC_ASSETS_PATH = "/dlq-assets";
+
+  /**
+   * プロパティ.
+   */
+  @Autowired
+  private DlqProperties dlqProperties;
+
+  /**
+   * 接続先一覧.
+   */
+  @Autowired
+  private BrokerTargetRegistry brokerTargetRegistry;
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(new BrokerTargetInterceptor(brokerTargetRegistry))//
+        .addPathPatterns("/deadLetterQueues", "/deadLetterQueues/**");
+    registry.addInterceptor(new AuditOperatorInterceptor())//
+        .addPathPatterns("/deadLetterQueues", "/deadLetterQueues/**");
+    registry.addInterceptor(new BrowseMemoryInterceptor())//
+        .addPathPatterns("/deadLetterQueues", "/deadLetterQueues/**");
+    DlqProperties.OffHeapSnapshot offHeapSnapshot = dlqProperties.getOffHeapSnapshot();
+    if (offHeapSnapshot.isEnabled()) {
+      registry.addInterceptor(new MessageSnapshotInterceptor(offHeapSnapshot.getSlabSize()))//
+          .addPathPatterns("/deadLetterQueues", "/deadLetterQueues/**");
+    }
+  }
+
+  /**
+   * {@inheritDoc}.
+   *
+   * <p>
+   * 画面用の静的ファイルは、URLに内容のハッシュ値を含めて長期間キャッシュさせる。 ビルド時に生成した.gzがあれば圧縮済みのまま返す。
+   * webjarsはパスにバージョンを含むので、キャッシュ期間のみ設定する.
+   * </p>
+   */
+  @Override
+  public void addResourceHandlers(ResourceHandlerRegistry registry) {
+    DlqProperties.StaticAssets staticAssets = dlqProperties.getStaticAssets();
+    CacheControl cacheControl = CacheControl
+        .maxAge(staticAssets.getCachePeriod(), TimeUnit.SECONDS).cachePublic();
+    registry.addResourceHandler(STATIC_ASSETS_PATH + "/webjars/**")//
+        .addResourceLocations("classpath:/META-INF/resources/webjars/")//
+        .setCacheControl(cacheControl);
+    registry.addResourceHandler(STATIC_ASSETS_PATH + "/**")//
+        .addResourceLocations("classpath:/static/")//
+        .setCacheControl(cacheControl)//
+        .resourceChain(staticAssets.isCacheResolved())//
+        .addResolver(new GzipResourceResolver())//
+        .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+  }
+
+  /**
+   * 画面のリンクを内容のハッシュ値を含むURLへ書き換えるフィルタを取得.
+   *
+   * @return フィルタ
+   */
+  @Bean
+  @ConditionalOnMissingBean(ResourceUrlEncodingFilter.class)
+  public ResourceUrlEncodingFilter dlqResourceUrlEncodingFilter() {
+    return new ResourceUrlEncodingFilter();
+  }
+}
@@ -0,0 +1,27 @@
+package rabbitmq.console.configuration;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import rabbitmq.console.component.LoopBreaker;
+
+/**
+ * 再登録とDead Letter Queue入りを繰り返すメッセージの隔離設定. dlq.rabbitmq.loop-breaker.enabled=trueの場合のみ有効.
+ *
+ * @author Tomoaki Mikami
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "dlq.rabbitmq.loop-breaker", name = "enabled",
+    havingValue = "true")
+public class LoopBreakerConfiguration {
+  /**
+   * 隔離処理を取得.
+   *
+   * @return 隔離処理
+   */
+  @Bean
+  public LoopBreaker loopBreaker() {
+    return new LoopBreaker();
+  }
+}
@@ -0,0 +1,27 @@
+package rabbitmq.console.configuration;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import rabbitmq.console.component.MutexSweeper;
+
+/**
+ * 古いMutexを削除するスイーパーの設定. dlq.rabbitmq.mutex-sweeper.enabled=trueの場合のみ有効.
+ *
+ * @author Tomoaki Mikami
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "dlq.rabbitmq.mutex-sweeper", name = "enabled",
+    havingValue = "true")
+public class MutexSweeperConfiguration {
+  /**
+   * スイーパーを取得.
+   *
+   * @return スイーパー
+   */
+  @Bean
+  public MutexSweeper mutexSweeper() {
+    return new MutexSweeper();
+  }
+}
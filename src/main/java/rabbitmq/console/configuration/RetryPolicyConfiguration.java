@@ -0,0 +1,27 @@
+package rabbitmq.console.configuration;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import rabbitmq.console.component.RetryPolicyScheduler;
+
+/**
+ * 自動再登録スケジューラの設定. dlq.rabbitmq.retry-policy.enabled=trueの場合のみ有効.
+ *
+ * @author Tomoaki Mikami
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "dlq.rabbitmq.retry-policy", name = "enabled",
+    havingValue = "true")
+public class RetryPolicyConfiguration {
+  /**
+   * 自動再登録スケジューラを取得.
+   *
+   * @return スケジューラ
+   */
+  @Bean
+  public RetryPolicyScheduler retryPolicyScheduler() {
+    return new RetryPolicyScheduler();
+  }
+}
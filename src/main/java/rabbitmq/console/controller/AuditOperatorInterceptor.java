@@ -0,0 +1,48 @@
+package rabbitmq.console.controller;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import rabbitmq.console.component.AuditOperatorHolder;
+
+/**
+ * 認証済みのユーザ名(認証していない場合は接続元アドレス)を、監査ログの操作者として処理中のスレッドへ設定するインターセプタ.
+ *
+ * @author Tomoaki Mikami
+ */
+public class AuditOperatorInterceptor extends HandlerInterceptorAdapter {
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+      Object handler) {
+    String operator = request.getRemoteUser();
+    if (!StringUtils.hasText(operator)) {
+      operator = request.getRemoteAddr();
+    }
+    AuditOperatorHolder.set(operator);
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+      Object handler, Exception ex) {
+    AuditOperatorHolder.clear();
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public void afterConcurrentHandlingStarted(HttpServletRequest request,
+      HttpServletResponse response, Object handler) {
+    AuditOperatorHolder.clear();
+  }
+}
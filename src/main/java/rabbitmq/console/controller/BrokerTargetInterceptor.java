@@ -0,0 +1,85 @@
+package rabbitmq.console.controller;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import lombok.RequiredArgsConstructor;
+import rabbitmq.console.component.BrokerTargetHolder;
+import rabbitmq.console.component.BrokerTargetRegistry;
+import rabbitmq.console.component.ResourceNotFoundException;
+
+/**
+ * リクエストパラメータまたはセッションで選択された接続先を、処理中のスレッドへ設定するインターセプタ.
+ *
+ * <p>
+ * 未定義の接続先がリクエストパラメータで指定された場合は、既定の接続先を操作しないよう404を返す。
+ * セッションに保持した接続先が設定変更で無くなった場合は、選択を解除して既定の接続先を使う.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+@RequiredArgsConstructor
+public class BrokerTargetInterceptor extends HandlerInterceptorAdapter {
+  /**
+   * 選択中の接続先名を保持するセッション属性名.
+   */
+  public static final String TARGET_SESSION_KEY = BrokerTargetInterceptor.class.getName()
+      + ".TARGET";
+
+  /**
+   * 接続先名を指定するリクエストパラメータ名(API利用時など、セッションより優先).
+   */
+  public static final String TARGET_PARAMETER = "target";
+
+  /**
+   * 接続先一覧.
+   */
+  private final BrokerTargetRegistry brokerTargetRegistry;
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+      Object handler) {
+    String targetName = request.getParameter(TARGET_PARAMETER);
+    if (StringUtils.hasText(targetName)) {
+      if (brokerTargetRegistry.get(targetName) == null) {
+        throw new ResourceNotFoundException(); // 404を返す
+      }
+    } else {
+      HttpSession session = request.getSession(false);
+      if (session != null) {
+        targetName = (String) session.getAttribute(TARGET_SESSION_KEY);
+        if (targetName != null && brokerTargetRegistry.get(targetName) == null) {
+          session.removeAttribute(TARGET_SESSION_KEY);
+          targetName = null;
+        }
+      }
+    }
+    BrokerTargetHolder.set(targetName);
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+      Object handler, Exception ex) {
+    BrokerTargetHolder.clear();
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public void afterConcurrentHandlingStarted(HttpServletRequest request,
+      HttpServletResponse response, Object handler) {
+    BrokerTargetHolder.clear();
+  }
+}
@@ -0,0 +1,67 @@
+package rabbitmq.console.controller;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import rabbitmq.console.component.BrowseMemoryLimiter;
+import rabbitmq.console.component.BrowseMemoryLimiter.RequestReservations;
+
+/**
+ * 一覧取得・エクスポートの読み込み枠を、画面描画・レスポンス出力の完了後に解放するインターセプタ.
+ *
+ * <p>
+ * 非同期処理の場合、枠一覧はリクエスト属性に保持して非同期処理のスレッドへ引き継ぎ、結果を描画する再ディスパッチの完了時に解放する.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+public class BrowseMemoryInterceptor extends HandlerInterceptorAdapter {
+  /**
+   * 読み込み枠一覧を保持するリクエスト属性名.
+   */
+  private static final String RESERVATIONS_ATTRIBUTE = BrowseMemoryInterceptor.class.getName()
+      + ".RESERVATIONS";
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+      Object handler) {
+    RequestReservations reservations = (RequestReservations) request
+        .getAttribute(RESERVATIONS_ATTRIBUTE);
+    if (reservations == null) {
+      reservations = new RequestReservations();
+      request.setAttribute(RESERVATIONS_ATTRIBUTE, reservations);
+    }
+    BrowseMemoryLimiter.attach(reservations);
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+      Object handler, Exception ex) {
+    RequestReservations reservations = (RequestReservations) request
+        .getAttribute(RESERVATIONS_ATTRIBUTE);
+    request.removeAttribute(RESERVATIONS_ATTRIBUTE);
+    BrowseMemoryLimiter.detach();
+    if (reservations != null) {
+      reservations.complete();
+    }
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public void afterConcurrentHandlingStarted(HttpServletRequest request,
+      HttpServletResponse response, Object handler) {
+    // 非同期処理と結果の描画でまだ参照するので解放せず、再ディスパッチの完了時に解放する
+    BrowseMemoryLimiter.detach();
+  }
+}
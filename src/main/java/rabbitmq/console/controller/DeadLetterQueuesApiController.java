@@ -0,0 +1,398 @@
+package rabbitmq.console.controller;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import rabbitmq.console.component.BrokerTargetHolder;
+import rabbitmq.console.component.BrokerTargetRegistry;
+import rabbitmq.console.component.DlqExecutors;
+import rabbitmq.console.component.ResourceNotFoundException;
+import rabbitmq.console.component.ScanControl;
+import rabbitmq.console.component.ScanRegistry;
+import rabbitmq.console.configuration.DlqProperties;
+import rabbitmq.console.controller.DeadLetterQueuesController.MessageResponse;
+import rabbitmq.console.service.CrossQueueService;
+import rabbitmq.console.service.QueueService;
+import rabbitmq.console.service.SearchIndexService;
+import rabbitmq.console.service.dto.BrowseResult;
+import rabbitmq.console.service.dto.DeadLetterQueue;
+import rabbitmq.console.service.dto.QueueVersion;
+
+/**
+ * ダッシュボードやスクリプトからのポーリング用JSON APIコントローラ.
+ *
+ * <p>
+ * ストリーミング取得以外のレスポンスにETagを付与し、If-None-Matchが一致する場合はキューを走査せずに304を返す. ETagはパッシブ宣言で得られるメッセージ数と先頭メッセージのハッシュから導出する.
+ * メッセージ一覧は削除可否・再登録可否を含むので、Mutexテーブルの版情報(行数とMutex IDの合計)もETagに含める.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+@Controller
+@RequestMapping(path = "/deadLetterQueues/api")
+public class DeadLetterQueuesApiController {
+  /**
+   * 読み込みバイト数の上限で一覧を打ち切ったことを示すレスポンスヘッダ名.
+   */
+  public static final String TRUNCATED_HEADER = "X-Dlq-Truncated";
+
+  /**
+   * 期限・走査件数の上限・取り消しにより走査を打ち切った理由を示すレスポンスヘッダ名.
+   */
+  public static final String INCOMPLETE_HEADER = "X-Dlq-Scan-Incomplete";
+
+  /**
+   * ストリーミング出力形式:JSON配列.
+   */
+  private static final String FORMAT_JSON = "json";
+
+  /**
+   * ストリーミング出力形式:1行1メッセージのJSON.
+   */
+  private static final String FORMAT_NDJSON = "ndjson";
+
+  /**
+   * 1行1メッセージのJSONのメディアタイプ.
+   */
+  private static final MediaType NDJSON = new MediaType("application", "x-ndjson",
+      StandardCharsets.UTF_8);
+
+  /**
+   * キューサービス.
+   */
+  @Autowired
+  private QueueService queueService;
+
+  /**
+   * 複数キュー横断サービス.
+   */
+  @Autowired
+  private CrossQueueService crossQueueService;
+
+  /**
+   * 全文検索用インデックスサービス.
+   */
+  @Autowired
+  private SearchIndexService searchIndexService;
+
+  /**
+   * 接続先一覧.
+   */
+  @Autowired
+  private BrokerTargetRegistry brokerTargetRegistry;
+
+  /**
+   * Dead Letter Queue関連プロパティ.
+   */
+  @Autowired
+  private DlqProperties dlqProperties;
+
+  /**
+   * JSON変換.
+   */
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  /**
+   * 実行中の走査一覧.
+   */
+  @Autowired
+  private ScanRegistry scanRegistry;
+
+  /**
+   * コンソール専用のスレッドプール.
+   */
+  @Autowired
+  private DlqExecutors dlqExecutors;
+
+  /**
+   * Dead Letter Queue一覧(メッセージ数付き)取得.
+   *
+   * @param webRequest リクエスト
+   * @return Dead Letter Queue一覧。変化が無ければnull(304)
+   */
+  @RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_UTF8_VALUE, path = "/queues")
+  @ResponseBody
+  public List<DeadLetterQueue> listDeadLetterQueues(WebRequest webRequest) {
+    // 一覧はメッセージ数しか含まないので、パッシブ宣言の結果そのものからETagを導出する
+    List<DeadLetterQueue> queues = crossQueueService.overview();
+    String etag = etag(queues.stream()//
+        .map(queue -> queue.getDlqName() + "=" + queue.getMessageCount() + ","
+            + queue.getBackupMessageCount())//
+        .collect(Collectors.joining(";")));
+    if (webRequest.checkNotModified(etag)) {
+      return null;
+    }
+    return queues;
+  }
+
+  /**
+   * Dead Letter Queueの統計情報取得.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param webRequest リクエスト
+   * @return 統計情報。変化が無ければnull(304)
+   */
+  @RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_UTF8_VALUE, path = "/queues/{dlqName}/stats")
+  @ResponseBody
+  public DeadLetterQueue findDeadLetterQueueStats(@PathVariable String dlqName,
+      WebRequest webRequest) {
+    String backupQueueName = resolveDeadLetterQueue(dlqName);
+    QueueVersion version = resolveQueueVersion(dlqName);
+    QueueVersion backupVersion = queueService.resolveQueueVersion(backupQueueName);
+    if (webRequest.checkNotModified(etag(version, backupVersion))) {
+      return null;
+    }
+    DeadLetterQueue queue = new DeadLetterQueue();
+    queue.setDlqName(dlqName);
+    queue.setBackupQueueName(backupQueueName);
+    queue.setMessageCount(version.getMessageCount());
+    queue.setBackupMessageCount(backupVersion == null ? null : backupVersion.getMessageCount());
+    queue.setTotalDeathCount(searchIndexService.totalDeathCount(dlqName));
+    return queue;
+  }
+
+  /**
+   * Dead Letter Queueメッセージ一覧(先頭から最大件数分)取得.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param webRequest リクエスト
+   * @param response レスポンス
+   * @return メッセージ一覧。変化が無ければnull(304)
+   */
+  @RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_UTF8_VALUE, path = "/queues/{dlqName}/messages")
+  @ResponseBody
+  public List<MessageResponse> listDeadLetteredMessages(@PathVariable String dlqName,
+      WebRequest webRequest, HttpServletResponse response) {
+    resolveDeadLetterQueue(dlqName);
+    // キューを走査する前に版情報だけで304を判定する
+    if (webRequest.checkNotModified(etag(resolveQueueVersion(dlqName),
+        queueService.resolveMutexVersion(), dlqProperties.getMaxCount()))) {
+      return null;
+    }
+    return toResponse(queueService.listDeadLetteredMessages(dlqName), response);
+  }
+
+  /**
+   * Backup Queueメッセージ一覧(先頭から最大件数分)取得.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param webRequest リクエスト
+   * @param response レスポンス
+   * @return メッセージ一覧。変化が無ければnull(304)
+   */
+  @RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_UTF8_VALUE, path = "/queues/{dlqName}/archivedMessages")
+  @ResponseBody
+  public List<MessageResponse> listArchivedMessages(@PathVariable String dlqName,
+      WebRequest webRequest, HttpServletResponse response) {
+    String backupQueueName = resolveDeadLetterQueue(dlqName);
+    if (StringUtils.isEmpty(backupQueueName)) {
+      throw new ResourceNotFoundException(); // 404を返す
+    }
+    if (webRequest.checkNotModified(etag(resolveQueueVersion(backupQueueName),
+        queueService.resolveMutexVersion(), dlqProperties.getMaxCount()))) {
+      return null;
+    }
+    return toResponse(queueService.listBackedUpMessages(dlqName, backupQueueName), response);
+  }
+
+  /**
+   * 取得結果をレスポンス用に変換する. 読み込みバイト数の上限や走査の打ち切りで一部のみ取得した場合はその旨をヘッダで知らせる.
+   *
+   * @param result 取得結果
+   * @param response レスポンス
+   * @return メッセージ一覧
+   */
+  private List<MessageResponse> toResponse(BrowseResult result, HttpServletResponse response) {
+    if (result.isTruncated()) {
+      response.setHeader(TRUNCATED_HEADER, Boolean.TRUE.toString());
+    }
+    if (result.getIncompleteReason() != null) {
+      response.setHeader(INCOMPLETE_HEADER, result.getIncompleteReason());
+    }
+    return result.getMessages().stream()//
+        .map(DeadLetterQueuesController::convertToResponse)//
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Dead Letter Queueメッセージ一覧をストリーミングで取得. メッセージを1件取得する毎にクライアントへ送出する.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param format 出力形式(json:JSON配列、ndjson:1行1メッセージ)
+   * @param response HTTPレスポンス
+   * @return 出力する非同期タスク
+   */
+  @RequestMapping(method = RequestMethod.GET, path = "/queues/{dlqName}/messages/stream")
+  @ResponseStatus(HttpStatus.OK)
+  public WebAsyncTask<Void> streamDeadLetteredMessages(@PathVariable String dlqName,
+      @RequestParam(defaultValue = FORMAT_JSON) String format, HttpServletResponse response) {
+    resolveDeadLetterQueue(dlqName);
+    return stream(dlqName, null, format, response);
+  }
+
+  /**
+   * Backup Queueメッセージ一覧をストリーミングで取得. メッセージを1件取得する毎にクライアントへ送出する.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param format 出力形式(json:JSON配列、ndjson:1行1メッセージ)
+   * @param response HTTPレスポンス
+   * @return 出力する非同期タスク
+   */
+  @RequestMapping(method = RequestMethod.GET, path = "/queues/{dlqName}/archivedMessages/stream")
+  @ResponseStatus(HttpStatus.OK)
+  public WebAsyncTask<Void> streamArchivedMessages(@PathVariable String dlqName,
+      @RequestParam(defaultValue = FORMAT_JSON) String format, HttpServletResponse response) {
+    String backupQueueName = resolveDeadLetterQueue(dlqName);
+    if (StringUtils.isEmpty(backupQueueName)) {
+      throw new ResourceNotFoundException(); // 404を返す
+    }
+    return stream(dlqName, backupQueueName, format, response);
+  }
+
+  /**
+   * メッセージを取得した順にJSONへ変換してレスポンスへ書き出すタスクを組み立てる.
+   *
+   * <p>
+   * 出力はホストアプリケーションの非同期処理の設定を変えずに、ブローカー入出力用スレッドプールで実行する. 操作対象の接続先を引き継ぎ、
+   * タイムアウト等でリクエストが完了した時点で実行中の走査は取り消す. プールが満杯の場合は503を返す.
+   * </p>
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param backupQueueName Backup Queue名。Dead Letter Queueから取得する場合はnull
+   * @param format 出力形式
+   * @param response HTTPレスポンス
+   * @return 出力する非同期タスク
+   */
+  private WebAsyncTask<Void> stream(String dlqName, String backupQueueName, String format,
+      HttpServletResponse response) {
+    final boolean ndjson = FORMAT_NDJSON.equals(format);
+    response.setContentType((ndjson ? NDJSON : MediaType.APPLICATION_JSON_UTF8).toString());
+    Callable<Void> body = () -> {
+      try (JsonGenerator generator = objectMapper.getFactory()
+          .createGenerator(response.getOutputStream())) {
+        if (!ndjson) {
+          generator.writeStartArray();
+        }
+        queueService.streamMessages(dlqName, backupQueueName, message -> {
+          generator.writeObject(DeadLetterQueuesController.convertToResponse(message));
+          if (ndjson) {
+            generator.writeRaw('\n');
+          }
+          generator.flush();
+        });
+        if (!ndjson) {
+          generator.writeEndArray();
+        }
+      }
+      return null;
+    };
+    ScanRegistry.TaskScans scans = new ScanRegistry.TaskScans();
+    // 一覧全体の送出には時間がかかるので、タイムアウトは画面の処理用ではなく非同期要求の既定値とする
+    WebAsyncTask<Void> asyncTask = new WebAsyncTask<>(null, dlqExecutors.getBrokerIo(),
+        BrokerTargetHolder.wrap(ScanRegistry.wrap(scans, body)));
+    asyncTask.onCompletion(scans::cancel);
+    return asyncTask;
+  }
+
+  /**
+   * 実行中のキュー走査一覧取得.
+   *
+   * @return 走査一覧
+   */
+  @RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_UTF8_VALUE, path = "/scans")
+  @ResponseBody
+  public List<ScanControl> listScans() {
+    return scanRegistry.list();
+  }
+
+  /**
+   * 実行中のキュー走査を取り消す. 走査は次のメッセージを取得する前に打ち切られ、取得済みの分が結果として返る.
+   *
+   * @param id 走査ID
+   */
+  @RequestMapping(method = RequestMethod.POST, path = "/scans/{id}/cancel")
+  @ResponseStatus(HttpStatus.ACCEPTED)
+  public void cancelScan(@PathVariable String id) {
+    if (!scanRegistry.cancel(id)) {
+      throw new ResourceNotFoundException(); // 404を返す
+    }
+  }
+
+  /**
+   * 定義済みのDead Letter Queueかどうかを確認し、対応するBackup Queue名を返す.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @return Backup Queue名
+   */
+  private String resolveDeadLetterQueue(String dlqName) {
+    if (!queueService.listDeadLetterQueues().containsKey(dlqName)) {
+      throw new ResourceNotFoundException(); // 404を返す
+    }
+    return queueService.resolveBackupQueueName(dlqName);
+  }
+
+  /**
+   * キューの版情報を取得する.
+   *
+   * @param queueName キュー名
+   * @return 版情報
+   */
+  private QueueVersion resolveQueueVersion(String queueName) {
+    QueueVersion version = queueService.resolveQueueVersion(queueName);
+    if (version == null) {
+      throw new ResourceNotFoundException(); // 404を返す
+    }
+    return version;
+  }
+
+  /**
+   * 接続先とレスポンス内容を決める値からETagを導出する.
+   *
+   * @param values レスポンス内容を決める値
+   * @return ETag
+   */
+  private String etag(Object... values) {
+    StringBuilder builder = new StringBuilder(brokerTargetRegistry.current().getName());
+    for (Object value : values) {
+      builder.append('|').append(value);
+    }
+    return DigestUtils.md5DigestAsHex(builder.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * ストリーミング出力用のブローカー入出力用スレッドプールが満杯の場合に503を返す.
+   *
+   * @param response レスポンス
+   * @throws IOException 入出力例外
+   */
+  @ExceptionHandler(TaskRejectedException.class)
+  public void handleBrokerIoRejected(HttpServletResponse response) throws IOException {
+    response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Broker I/O pool is busy.");
+  }
+}
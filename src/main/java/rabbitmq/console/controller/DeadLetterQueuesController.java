@@ -1,32 +1,72 @@
 package rabbitmq.console.controller;
 
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import lombok.Data;
+import rabbitmq.console.component.AuditOperatorHolder;
+import rabbitmq.console.component.BrokerTargetHolder;
+import rabbitmq.console.component.BrokerTargetRegistry;
+import rabbitmq.console.component.BrowseMemoryLimiter;
+import rabbitmq.console.component.DlqExecutors;
+import rabbitmq.console.component.IdempotencyCache;
+import rabbitmq.console.component.MessageSnapshot;
+import rabbitmq.console.component.QuarantinedMessageException;
 import rabbitmq.console.component.ResourceNotFoundException;
+import rabbitmq.console.component.ScanRegistry;
+import rabbitmq.console.configuration.DlqProperties;
+import rabbitmq.console.service.AuditService;
+import rabbitmq.console.service.CrossQueueService;
+import rabbitmq.console.service.PurgeService;
 import rabbitmq.console.service.QueueService;
+import rabbitmq.console.service.SearchIndexService;
+import rabbitmq.console.service.ShovelService;
+import rabbitmq.console.service.dto.BrowseResult;
+import rabbitmq.console.service.dto.BulkActionResult;
 import rabbitmq.console.service.dto.DeadLetterQueue;
 import rabbitmq.console.service.dto.DeadLetteredMessage;
 import rabbitmq.console.service.dto.DeadLetteredMessage.XDeath;
+import rabbitmq.console.service.dto.GroupedMessages;
+import rabbitmq.console.service.dto.MessageAction;
+import rabbitmq.console.service.dto.MessageFilter;
+import rabbitmq.console.service.dto.MoveRequest;
+import rabbitmq.console.service.dto.MoveResult;
+import rabbitmq.console.service.dto.PurgeMode;
+import rabbitmq.console.service.dto.PurgeResult;
+import rabbitmq.console.service.dto.SearchIndexState;
 
 /**
  * Web用コントローラ
@@ -43,6 +83,88 @@ public class DeadLetterQueuesController {
   @Autowired
   private QueueService queueService;
 
+  /**
+   * 全文検索用インデックスサービス.
+   */
+  @Autowired
+  private SearchIndexService searchIndexService;
+
+  /**
+   * 複数キュー横断サービス.
+   */
+  @Autowired
+  private CrossQueueService crossQueueService;
+
+  /**
+   * キュー間移動サービス.
+   */
+  @Autowired
+  private ShovelService shovelService;
+
+  /**
+   * Dead Letter Queueを空にするサービス.
+   */
+  @Autowired
+  private PurgeService purgeService;
+
+  /**
+   * 監査ログサービス.
+   */
+  @Autowired
+  private AuditService auditService;
+
+  /**
+   * 接続先一覧.
+   */
+  @Autowired
+  private BrokerTargetRegistry brokerTargetRegistry;
+
+  /**
+   * 更新操作の冪等キーキャッシュ.
+   */
+  @Autowired
+  private IdempotencyCache idempotencyCache;
+
+  /**
+   * Dead Letter Queue関連プロパティ.
+   */
+  @Autowired
+  private DlqProperties dlqProperties;
+
+  /**
+   * コンソール専用のスレッドプール.
+   */
+  @Autowired
+  private DlqExecutors dlqExecutors;
+
+  /**
+   * 処理をブローカー入出力用スレッドプールで非同期に実行するタスクを生成. 接続先・操作者・ヒープ外スナップショット・読み込み枠はリクエストスレッドのものを引き継ぐ.
+   *
+   * @param task 処理
+   * @return 非同期タスク
+   */
+  private <T> WebAsyncTask<T> async(Callable<T> task) {
+    return async(dlqProperties.getBrokerIo().getTimeout(), task);
+  }
+
+  /**
+   * 処理をブローカー入出力用スレッドプールで非同期に実行するタスクを生成. 接続先・操作者・ヒープ外スナップショット・読み込み枠はリクエストスレッドのものを引き継ぐ.
+   * タイムアウト等でリクエストが完了した時点で実行中の走査は取り消す.
+   *
+   * @param timeout タイムアウト(ミリ秒)
+   * @param task 処理
+   * @return 非同期タスク
+   */
+  private <T> WebAsyncTask<T> async(long timeout, Callable<T> task) {
+    ScanRegistry.TaskScans scans = new ScanRegistry.TaskScans();
+    WebAsyncTask<T> asyncTask = new WebAsyncTask<>(timeout, dlqExecutors.getBrokerIo(),
+        AuditOperatorHolder.wrap(BrokerTargetHolder.wrap(MessageSnapshot
+            .wrap(BrowseMemoryLimiter.wrap(ScanRegistry.wrap(scans, task))))));
+    // タイムアウト等で応答した後も、スレッドプールで走査し続けないよう取り消す
+    asyncTask.onCompletion(scans::cancel);
+    return asyncTask;
+  }
+
   /**
    * モデルに共通属性を追加設定
    *
@@ -61,6 +183,10 @@ public class DeadLetterQueuesController {
     // vHost
     model.addAttribute("virtualHost", queueService.resolveVirtualHost());
 
+    // 接続先
+    model.addAttribute("targetName", brokerTargetRegistry.current().getName());
+    model.addAttribute("targets", brokerTargetRegistry.list());
+
     // 現在時刻
     LocalDateTime now = LocalDateTime.now();
     ZonedDateTime zdt = now.atZone(ZoneId.systemDefault());
@@ -82,6 +208,44 @@ public class DeadLetterQueuesController {
         originalQueue);
   }
 
+  /**
+   * idに合致するDead Letterメッセージを取得する. セッションが保持していればキューを走査しない. 見つからない場合は404とする.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param id メッセージid
+   * @param browseSession 一覧セッションID。無ければnull
+   * @return メッセージ
+   */
+  private DeadLetteredMessage findRequiredDeadLetteredMessage(String dlqName, String id,
+      String browseSession) {
+    DeadLetteredMessage message = queueService.findInBrowseSession(browseSession, dlqName, id);
+    if (message == null) {
+      message = queueService.findDeadLetteredMessage(dlqName, id);
+    }
+    if (message == null) {
+      throw new ResourceNotFoundException(); // 404を返す
+    }
+    return message;
+  }
+
+  /**
+   * クライアントが指定した冪等キーを、接続先・操作・対象メッセージ毎に区別されるように修飾する.
+   *
+   * @param idempotencyKey 冪等キー
+   * @param operation 操作名
+   * @param dlqName Dead Letter Queue名
+   * @param id メッセージid
+   * @return 修飾した冪等キー。冪等キーが指定されていない場合はnull
+   */
+  private String scopeIdempotencyKey(String idempotencyKey, String operation, String dlqName,
+      String id) {
+    if (!StringUtils.hasText(idempotencyKey)) {
+      return null;
+    }
+    return String.join("/", brokerTargetRegistry.current().getName(), operation, dlqName, id,
+        idempotencyKey);
+  }
+
   /**
    * Dead Letter Messageリストページへのリダイレクト用識別子を書式整形する
    * @param dlqName Dead Letter Queue名
@@ -91,6 +255,21 @@ public class DeadLetterQueuesController {
     return String.format("redirect:/deadLetterQueues/%s/messages", dlqName);
   }
 
+  /**
+   * Dead Letter Messageリストページへのリダイレクト用識別子を書式整形する. セッションが開いていれば引き続き表示する.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param browseSession 一覧セッションID。無ければnull
+   * @return 整形結果
+   */
+  private String formatRedirectToDlqMessageList(String dlqName, String browseSession) {
+    if (!StringUtils.hasText(browseSession)) {
+      return formatRedirectToDlqMessageList(dlqName);
+    }
+    return String.format("redirect:/deadLetterQueues/%s/messages?browseSession=%s", dlqName,
+        browseSession);
+  }
+
   /**
    * Dead Letter Queue一覧表示.
    *
@@ -98,46 +277,323 @@ public class DeadLetterQueuesController {
    * @return View指定キー
    */
   @RequestMapping(method = RequestMethod.GET)
-  public String listDeadLetterQueues(Model model) {
+  public WebAsyncTask<String> listDeadLetterQueues(Model model) {
+    return async(() -> {
+      // 共通属性
+      addCommonModelAttributes(model);
+
+      // キュー一覧取得(メッセージ数は全接続先・全キュー並列に取得)
+      Map<String, List<DeadLetterQueue>> overview = crossQueueService.overviewAllTargets();
+      List<DeadLetterQueue> queues = overview.get(brokerTargetRegistry.current().getName());
+      model.addAttribute("queues", queues);
+
+      // 接続先毎のメッセージ数合計
+      Map<String, Long> targetMessageCounts = new LinkedHashMap<>();
+      overview.forEach((targetName, targetQueues) -> targetMessageCounts.put(targetName,
+          targetQueues.stream()//
+              .filter(queue -> queue.getMessageCount() != null)//
+              .mapToLong(DeadLetterQueue::getMessageCount)//
+              .sum()));
+      model.addAttribute("targetMessageCounts", targetMessageCounts);
+
+      return "list";
+    });
+  }
+
+  /**
+   * 操作対象の接続先を切り替える.
+   *
+   * @param targetName 接続先名
+   * @param session セッション
+   * @return View指定キー
+   */
+  @RequestMapping(path = "/targets/{targetName}", method = RequestMethod.GET)
+  public String switchTarget(@PathVariable String targetName, HttpSession session) {
+    if (brokerTargetRegistry.get(targetName) == null) {
+      throw new ResourceNotFoundException(); // 404を返す
+    }
+    session.setAttribute(BrokerTargetInterceptor.TARGET_SESSION_KEY, targetName);
+    return "redirect:/deadLetterQueues";
+  }
+
+  /**
+   * 更新操作の監査ログ表示.
+   *
+   * @param page ページ番号(0始まり)
+   * @param model モデル
+   * @return View指定キー
+   */
+  @RequestMapping(path = "/audit", method = RequestMethod.GET)
+  public String listAuditEntries(@RequestParam(defaultValue = "0") int page, Model model) {
     // 共通属性
     addCommonModelAttributes(model);
 
-    // キュー一覧取得
-    List<DeadLetterQueue> queues = queueService.listDeadLetterQueues()//
-        .entrySet()//
-        .stream()//
-        .map(entry -> {
-          DeadLetterQueue queue = new DeadLetterQueue();
-          queue.setDlqName(entry.getKey());
-          queue.setBackupQueueName(entry.getValue());
-          return queue;
-        })//
-        .collect(Collectors.toList());
-    model.addAttribute("queues", queues);
+    model.addAttribute("auditEnabled", auditService.isEnabled());
+    if (auditService.isEnabled()) {
+      model.addAttribute("auditPage", auditService.findPage(page));
+    }
+    return "audit/list";
+  }
+
+  /**
+   * 全Dead Letter Queue横断メッセージ検索.
+   *
+   * @param keyword キーワード
+   * @return 検索結果マップ(キー:Dead Letter Queue名,値:メッセージIDリスト)
+   */
+  @RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_UTF8_VALUE, path = "/search")
+  @ResponseStatus(HttpStatus.OK)
+  @ResponseBody
+  public WebAsyncTask<Map<String, List<String>>> searchAllDeadLetteredMessages(
+      @RequestParam String keyword) {
+    return async(() -> crossQueueService.search(keyword));
+  }
+
+  /**
+   * 全Dead Letter Queue横断メッセージ一括再登録.
+   *
+   * @param filter 絞り込み条件
+   * @param idempotencyKey 冪等キー
+   * @param attributes リダイレクト属性
+   * @return View指定キー
+   */
+  @RequestMapping(path = "/republish", method = RequestMethod.POST)
+  public WebAsyncTask<String> republishAllMessages(@ModelAttribute MessageFilter filter,
+      @RequestParam(required = false) String idempotencyKey, RedirectAttributes attributes) {
+    return async(() -> {
+      if (filter.isEmpty()) {
+        // 条件なしで全メッセージを再登録するのは危険なので受け付けない
+        attributes.addFlashAttribute("bulkErrorMessage",
+            "Reason or Original Queue is required.");
+        return "redirect:/deadLetterQueues";
+      }
+      String summary = idempotencyCache.execute(
+          scopeIdempotencyKey(idempotencyKey, "republishAll", "*", "*"), () -> {
+            Map<String, BulkActionResult> results = crossQueueService.republish(filter);
+            int republished = results.values().stream()//
+                .filter(result -> result != null)//
+                .mapToInt(BulkActionResult::getRepublished)//
+                .sum();
+            long incomplete = results.values().stream()//
+                .filter(result -> result != null && result.getIncompleteReason() != null)//
+                .count();
+            return String.format("%d messages (Reason: %s, Original Queue: %s%s)", republished,
+                filter.getReason(), filter.getOriginalQueue(),
+                incomplete == 0 ? "" : String.format(", %d queues not fully scanned", incomplete));
+          });
+      attributes.addFlashAttribute("bulkRepublishedMessage", summary);
+      return "redirect:/deadLetterQueues";
+    });
+  }
+
+  /**
+   * 条件に合致するメッセージを任意のキュー間で移動.
+   *
+   * @param request 移動要求
+   * @param idempotencyKey 冪等キー(同じキーでの再要求は実行済みの結果を返す)
+   * @param attributes リダイレクト属性
+   * @return View指定キー
+   */
+  @RequestMapping(path = "/move", method = RequestMethod.POST)
+  public WebAsyncTask<String> moveMessages(@ModelAttribute MoveRequest request,
+      @RequestParam(required = false) String idempotencyKey, RedirectAttributes attributes) {
+    return async(dlqProperties.getShovel().getRequestTimeout(), () -> {
+      MoveResult result;
+      try {
+        result = idempotencyCache.execute(scopeIdempotencyKey(idempotencyKey, "move",
+            request.getSourceQueue(), request.getTargetRoutingKey()),
+            () -> shovelService.move(request));
+      } catch (IllegalArgumentException e) {
+        attributes.addFlashAttribute("bulkErrorMessage", e.getMessage());
+        return "redirect:/deadLetterQueues";
+      }
+      if (result.getError() != null) {
+        attributes.addFlashAttribute("bulkErrorMessage", String.format(
+            "Move stopped after %d messages: %s", result.getMoved(), result.getError()));
+      } else if (result.getIncompleteReason() != null) {
+        attributes.addFlashAttribute("bulkErrorMessage", String.format(
+            "Move stopped after %d messages: %s", result.getMoved(),
+            result.getIncompleteReason()));
+      } else {
+        attributes.addFlashAttribute("bulkMovedMessage",
+            String.format("%d messages (%s -> %s %s, %dms)", result.getMoved(),
+                request.getSourceQueue(), request.getTargetExchange(),
+                request.getTargetRoutingKey(), result.getElapsed()));
+      }
+      return "redirect:/deadLetterQueues";
+    });
+  }
+
+  /**
+   * Dead Letter Queueを空にする. ドライランの場合は削除されるメッセージ数のみを返す.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param mode 方法
+   * @param dryRun ドライランの場合はtrue
+   * @param idempotencyKey 冪等キー(同じキーでの再要求は実行済みの結果を返す)
+   * @param attributes リダイレクト属性
+   * @return View指定キー
+   */
+  @RequestMapping(path = "/{dlqName}/purge", method = RequestMethod.POST)
+  public WebAsyncTask<String> purgeDeadLetterQueue(@PathVariable String dlqName,
+      @RequestParam PurgeMode mode, @RequestParam(defaultValue = "true") boolean dryRun,
+      @RequestParam(required = false) String idempotencyKey, RedirectAttributes attributes) {
+    if (!queueService.listDeadLetterQueues().containsKey(dlqName)) {
+      // 設定されていないキューは空にできない
+      throw new ResourceNotFoundException(); // 404を返す
+    }
+    return async(dlqProperties.getShovel().getRequestTimeout(), () -> {
+      if (dryRun) {
+        attributes.addFlashAttribute("purgeDlqName", dlqName);
+        attributes.addFlashAttribute("purgeMode", mode);
+        attributes.addFlashAttribute("purgeCount", purgeService.countPurgeTargets(dlqName));
+        return "redirect:/deadLetterQueues";
+      }
+      PurgeResult result;
+      try {
+        result = idempotencyCache.execute(
+            scopeIdempotencyKey(idempotencyKey, "purge", dlqName, mode.name()),
+            () -> purgeService.purge(dlqName, mode));
+      } catch (IllegalArgumentException e) {
+        attributes.addFlashAttribute("bulkErrorMessage", e.getMessage());
+        return "redirect:/deadLetterQueues";
+      }
+      String summary = String.format("%d messages (%s, %s, Mutexes: %d, %dms)",
+          result.getPurged(), dlqName, mode, result.getReleasedMutexes(), result.getElapsed());
+      if (result.getError() != null) {
+        attributes.addFlashAttribute("bulkErrorMessage",
+            String.format("Purge stopped after %s: %s", summary, result.getError()));
+      } else {
+        attributes.addFlashAttribute("purgedMessage", summary);
+      }
+      return "redirect:/deadLetterQueues";
+    });
+  }
 
-    return "list";
+  /**
+   * 全Dead Letter Queueのメッセージをエクスポート.
+   *
+   * @return メッセージマップ(キー:Dead Letter Queue名,値:メッセージ一覧と打ち切り有無)
+   */
+  @RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_UTF8_VALUE, path = "/export")
+  public WebAsyncTask<ResponseEntity<Map<String, BrowseResult>>> exportAllDeadLetteredMessages() {
+    return async(() -> ResponseEntity.ok()//
+        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"dead-letter-queues.json\"")//
+        .body(crossQueueService.export()));
   }
 
   /**
    * Dead Letter Queueメッセージ一覧表示
    *
    * @param dlqName Dead Letter Queue名
+   * @param stream ストリーミング表示するかどうか。未指定の場合は設定に従う
+   * @param session 表示したメッセージを保持するセッションを開くかどうか
+   * @param browseSession 引き続き表示する一覧セッションID
+   * @param release 表示前に閉じる一覧セッションID
    * @param model モデル
    * @return View指定キー
    */
   @RequestMapping(path = "/{dlqName}/messages", method = RequestMethod.GET)
-  public String listDeadLetteredMessages(@PathVariable String dlqName, Model model) {
-    // 共通属性
-    addCommonModelAttributes(model);
+  public WebAsyncTask<String> listDeadLetteredMessages(@PathVariable String dlqName,
+      @RequestParam(required = false) Boolean stream,
+      @RequestParam(required = false) Boolean session,
+      @RequestParam(required = false) String browseSession,
+      @RequestParam(required = false) String release, Model model) {
+    return async(() -> {
+      if (StringUtils.hasText(release)) {
+        // 保持していたメッセージをキューへ戻してから一覧を取得する
+        queueService.closeBrowseSession(release);
+      }
+
+      // 共通属性
+      addCommonModelAttributes(model);
+
+      // Dead Letter キュー
+      model.addAttribute("dlqName", dlqName);
+
+      boolean streaming = stream != null ? stream : dlqProperties.getStreamingList().isEnabled();
+      model.addAttribute("streaming", streaming);
+      if (streaming) {
+        // 一覧は画面表示後にストリーミングAPIから1行ずつ追加する
+        model.addAttribute("messages", Collections.emptyList());
+        return "dlq/list";
+      }
+
+      // Dead Letter メッセージ
+      BrowseResult result = null;
+      if (StringUtils.hasText(browseSession)) {
+        result = queueService.resumeBrowseSession(browseSession, dlqName);
+      }
+      if (result == null && Boolean.TRUE.equals(session)) {
+        result = queueService.openBrowseSession(dlqName);
+        // 同時に開けるセッション数に達していれば通常の一覧にする
+        model.addAttribute("browseSessionUnavailable", result == null);
+      }
+      if (result == null) {
+        result = queueService.listDeadLetteredMessages(dlqName);
+      }
+      model.addAttribute("browseSessionId", result.getSessionId());
+      model.addAttribute("messages", result.getMessages());
+      model.addAttribute("truncated", result.isTruncated());
+      model.addAttribute("incompleteReason", result.getIncompleteReason());
 
-    // Dead Letter キュー
-    model.addAttribute("dlqName", dlqName);
+      return "dlq/list";
+    });
+  }
+
+  /**
+   * Dead Letter Queueメッセージを元のキューとペイロード毎にまとめて表示
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param model モデル
+   * @return View指定キー
+   */
+  @RequestMapping(path = "/{dlqName}/groups", method = RequestMethod.GET)
+  public WebAsyncTask<String> listMessageGroups(@PathVariable String dlqName, Model model) {
+    return async(() -> {
+      // 共通属性
+      addCommonModelAttributes(model);
 
-    // Dead Letter メッセージ
-    List<DeadLetteredMessage> messages = queueService.listDeadLetteredMessages(dlqName);
-    model.addAttribute("messages", messages);
+      // Dead Letter キュー
+      model.addAttribute("dlqName", dlqName);
+      model.addAttribute("backupQueueName", queueService.resolveBackupQueueName(dlqName));
 
-    return "dlq/list";
+      // グループ
+      GroupedMessages result = queueService.groupMessages(dlqName);
+      model.addAttribute("groups", result.getGroups());
+      model.addAttribute("scanned", result.getScanned());
+      model.addAttribute("ungrouped", result.getUngrouped());
+      model.addAttribute("incompleteReason", result.getIncompleteReason());
+
+      return "dlq/groups";
+    });
+  }
+
+  /**
+   * グループに属するDead Letter Queueメッセージを一括で再登録・削除・待避.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param groupId グループID
+   * @param action 適用する処理
+   * @param idempotencyKey 冪等キー(同じキーでの再要求は実行済みの結果を返す)
+   * @param attributes リダイレクト属性
+   * @return View指定キー
+   */
+  @RequestMapping(path = "/{dlqName}/groups/{groupId}", method = RequestMethod.POST)
+  public WebAsyncTask<String> applyGroupAction(@PathVariable String dlqName,
+      @PathVariable String groupId, @RequestParam MessageAction action,
+      @RequestParam(required = false) String idempotencyKey, RedirectAttributes attributes) {
+    return async(() -> {
+      BulkActionResult result = idempotencyCache.execute(
+          scopeIdempotencyKey(idempotencyKey, "group" + action.name(), dlqName, groupId),
+          () -> queueService.applyGroupAction(dlqName, groupId, action));
+      attributes.addFlashAttribute("groupActionMessage",
+          String.format("%s (Republished: %d, Deleted: %d, Backed up: %d%s)", groupId,
+              result.getRepublished(), result.getDeleted(), result.getBackedUp(),
+              result.getIncompleteReason() == null ? ""
+                  : ", scan incomplete: " + result.getIncompleteReason()));
+      return String.format("redirect:/deadLetterQueues/%s/groups", dlqName);
+    });
   }
 
   /**
@@ -150,13 +606,63 @@ public class DeadLetterQueuesController {
   @RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_UTF8_VALUE, path = "/{dlqName}/message/{id}")
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
-  public MessageResponse findDeadLetteredMessage(@PathVariable String dlqName,
-      @PathVariable String id) {
-    DeadLetteredMessage message = queueService.findDeadLetteredMessage(dlqName, id);
-    if (message == null) {
-      throw new ResourceNotFoundException();
+  public WebAsyncTask<MessageResponse> findDeadLetteredMessage(@PathVariable String dlqName,
+      @PathVariable String id, @RequestParam(required = false) String browseSession) {
+    return async(() -> {
+      DeadLetteredMessage message = findRequiredDeadLetteredMessage(dlqName, id, browseSession);
+      return convertToResponse(message);
+    });
+  }
+
+  /**
+   * Dead Letter Queueメッセージ検索.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param keyword キーワード
+   * @return 検索結果
+   */
+  @RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_UTF8_VALUE, path = "/{dlqName}/search")
+  @ResponseStatus(HttpStatus.OK)
+  @ResponseBody
+  public WebAsyncTask<SearchResponse> searchDeadLetteredMessages(@PathVariable String dlqName,
+      @RequestParam String keyword) {
+    return async(() -> {
+      SearchResponse response = new SearchResponse();
+      response.setKeyword(keyword);
+      SearchIndexState indexState = searchIndexService.state(dlqName);
+      response.setStale(indexState == SearchIndexState.STALE);
+      response.setIndexed(indexState == SearchIndexState.AVAILABLE);
+      Map<String, Long> deathCounts = queueService.searchMessages(dlqName, keyword, indexState);
+      response.setMessageIds(new ArrayList<>(deathCounts.keySet()));
+      response.setDeathCounts(deathCounts);
+      return response;
+    });
+  }
+
+  /**
+   * 一覧セッションを閉じ、保持していたメッセージをキューへ戻す.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param sessionId 一覧セッションID
+   */
+  @RequestMapping(method = RequestMethod.POST, path = "/{dlqName}/browseSessions/{sessionId}/close")
+  @ResponseStatus(HttpStatus.NO_CONTENT)
+  public void closeBrowseSession(@PathVariable String dlqName, @PathVariable String sessionId) {
+    queueService.closeBrowseSession(sessionId);
+  }
+
+  /**
+   * Dead Letter Queueの全文検索用インデックスを再構築.
+   *
+   * @param dlqName Dead Letter Queue名
+   */
+  @RequestMapping(method = RequestMethod.POST, path = "/{dlqName}/index")
+  @ResponseStatus(HttpStatus.ACCEPTED)
+  public void rebuildSearchIndex(@PathVariable String dlqName) {
+    if (!searchIndexService.isEnabled()) {
+      throw new ResourceNotFoundException(); // 404を返す
     }
-    return convertToResponse(message);
+    searchIndexService.rebuild(dlqName);
   }
 
   /**
@@ -164,22 +670,35 @@ public class DeadLetterQueuesController {
    *
    * @param dlqName Dead Letter Queue名
    * @param id メッセージid
+   * @param idempotencyKey 冪等キー(同じキーでの再要求は実行済みの結果を返す)
    * @param attributes リダイレクト属性
    * @param model モデル
    * @return View指定キー
    */
-  @RequestMapping(path = "/{dlqName}/delete/{id}", method = RequestMethod.GET)
-  public String deleteMessage(@PathVariable String dlqName, @PathVariable String id,
-      RedirectAttributes attributes, Model model) {
-    // 対象メッセージを削除
-    DeadLetteredMessage message = queueService.findDeadLetteredMessage(dlqName, id);
-    queueService.deleteMessage(dlqName, message);
-    // UnackedになったメッセージをReadyに戻しておく
-    queueService.recoverAllUnackedMessages(dlqName);
+  @RequestMapping(path = "/{dlqName}/delete/{id}", method = RequestMethod.POST)
+  public WebAsyncTask<String> deleteMessage(@PathVariable String dlqName, @PathVariable String id,
+      @RequestParam(required = false) String idempotencyKey,
+      @RequestParam(required = false) String browseSession, RedirectAttributes attributes,
+      Model model) {
+    return async(() -> {
+      String identity = idempotencyCache.execute(
+          scopeIdempotencyKey(idempotencyKey, "delete", dlqName, id), () -> {
+            // 対象メッセージを削除
+            DeadLetteredMessage message = findRequiredDeadLetteredMessage(dlqName, id,
+                browseSession);
+            if (!queueService.applyInBrowseSession(browseSession, dlqName, message,
+                MessageAction.DELETE)) {
+              queueService.deleteMessage(dlqName, message);
+              // UnackedになったメッセージをReadyに戻しておく
+              queueService.recoverAllUnackedMessages(dlqName);
+            }
+            return messageIdentity(message);
+          });
 
-    // 削除完了メッセージを渡す
-    attributes.addFlashAttribute("deletedMessage", messageIdentity(message));
-    return formatRedirectToDlqMessageList(dlqName);
+      // 削除完了メッセージを渡す
+      attributes.addFlashAttribute("deletedMessage", identity);
+      return formatRedirectToDlqMessageList(dlqName, browseSession);
+    });
   }
 
   /**
@@ -187,23 +706,36 @@ public class DeadLetterQueuesController {
    *
    * @param dlqName Dead Letter Queue名
    * @param id メッセージid
+   * @param idempotencyKey 冪等キー(同じキーでの再要求は実行済みの結果を返す)
    * @param attributes リダイレクト属性
    * @param model モデル
    * @return View指定キー
    */
-  @RequestMapping(path = "/{dlqName}/deleteAndBackup/{id}", method = RequestMethod.GET)
-  public String deleteAndBackupMessage(@PathVariable String dlqName, @PathVariable String id,
-      RedirectAttributes attributes, Model model) {
-    // 対象メッセージを削除およびバックアップキューへ退避
-    DeadLetteredMessage message = queueService.findDeadLetteredMessage(dlqName, id);
-    String backupQueueName = queueService.resolveBackupQueueName(dlqName);
-    queueService.deleteAndBackupMessage(dlqName, backupQueueName, message);
-    // UnackedになったメッセージをReadyに戻しておく
-    queueService.recoverAllUnackedMessages(dlqName);
+  @RequestMapping(path = "/{dlqName}/deleteAndBackup/{id}", method = RequestMethod.POST)
+  public WebAsyncTask<String> deleteAndBackupMessage(@PathVariable String dlqName,
+      @PathVariable String id, @RequestParam(required = false) String idempotencyKey,
+      @RequestParam(required = false) String browseSession, RedirectAttributes attributes,
+      Model model) {
+    return async(() -> {
+      String identity = idempotencyCache.execute(
+          scopeIdempotencyKey(idempotencyKey, "deleteAndBackup", dlqName, id), () -> {
+            // 対象メッセージを削除およびバックアップキューへ退避
+            DeadLetteredMessage message = findRequiredDeadLetteredMessage(dlqName, id,
+                browseSession);
+            if (!queueService.applyInBrowseSession(browseSession, dlqName, message,
+                MessageAction.BACKUP)) {
+              String backupQueueName = queueService.resolveBackupQueueName(dlqName);
+              queueService.deleteAndBackupMessage(dlqName, backupQueueName, message);
+              // UnackedになったメッセージをReadyに戻しておく
+              queueService.recoverAllUnackedMessages(dlqName);
+            }
+            return messageIdentity(message);
+          });
 
-    // 削除完了メッセージを渡す
-    attributes.addFlashAttribute("deletedMessage", messageIdentity(message));
-    return formatRedirectToDlqMessageList(dlqName);
+      // 削除完了メッセージを渡す
+      attributes.addFlashAttribute("deletedMessage", identity);
+      return formatRedirectToDlqMessageList(dlqName, browseSession);
+    });
   }
 
   /**
@@ -211,22 +743,38 @@ public class DeadLetterQueuesController {
    *
    * @param dlqName Dead Letter Queue名
    * @param id メッセージid
+   * @param idempotencyKey 冪等キー(同じキーでの再要求は実行済みの結果を返す)
    * @param attributes リダイレクト属性
    * @param model モデル
    * @return View指定キー
    */
-  @RequestMapping(path = "/{dlqName}/republish/{id}", method = RequestMethod.GET)
-  public String republishMessage(@PathVariable String dlqName, @PathVariable String id,
-      RedirectAttributes attributes, Model model) {
-    // 対象メッセージを再登録
-    DeadLetteredMessage message = queueService.findDeadLetteredMessage(dlqName, id);
-    queueService.republishMessage(dlqName, message);
-    // UnackedになったメッセージをReadyに戻しておく
-    queueService.recoverAllUnackedMessages(dlqName);
+  @RequestMapping(path = "/{dlqName}/republish/{id}", method = RequestMethod.POST)
+  public WebAsyncTask<String> republishMessage(@PathVariable String dlqName,
+      @PathVariable String id, @RequestParam(required = false) String idempotencyKey,
+      @RequestParam(required = false) String browseSession, RedirectAttributes attributes,
+      Model model) {
+    return async(() -> {
+      String identity = idempotencyCache.execute(
+          scopeIdempotencyKey(idempotencyKey, "republish", dlqName, id), () -> {
+            // 対象メッセージを再登録
+            DeadLetteredMessage message = findRequiredDeadLetteredMessage(dlqName, id,
+                browseSession);
+            if (message.getProperties().getHeaders().getExtraQuarantinedAt() != null) {
+              throw new QuarantinedMessageException(); // 409を返す
+            }
+            if (!queueService.applyInBrowseSession(browseSession, dlqName, message,
+                MessageAction.REPUBLISH)) {
+              queueService.republishMessage(dlqName, message);
+              // UnackedになったメッセージをReadyに戻しておく
+              queueService.recoverAllUnackedMessages(dlqName);
+            }
+            return messageIdentity(message);
+          });
 
-    // 再登録完了メッセージを渡す
-    attributes.addFlashAttribute("republishedMessage", messageIdentity(message));
-    return formatRedirectToDlqMessageList(dlqName);
+      // 再登録完了メッセージを渡す
+      attributes.addFlashAttribute("republishedMessage", identity);
+      return formatRedirectToDlqMessageList(dlqName, browseSession);
+    });
   }
 
   /**
@@ -237,26 +785,30 @@ public class DeadLetterQueuesController {
    * @return View指定キー
    */
   @RequestMapping(path = "/{dlqName}/archivedMessages", method = RequestMethod.GET)
-  public String listArchivedMessages(@PathVariable String dlqName, Model model) {
-    // 共通属性
-    addCommonModelAttributes(model);
+  public WebAsyncTask<String> listArchivedMessages(@PathVariable String dlqName, Model model) {
+    return async(() -> {
+      // 共通属性
+      addCommonModelAttributes(model);
 
-    // Dead Letter Queueに対応するBackup Queue名を導出
-    String backupQueueName = queueService.resolveBackupQueueName(dlqName);
-    if (StringUtils.isEmpty(backupQueueName)) {
-      throw new ResourceNotFoundException(); // 404を返す
-    }
+      // Dead Letter Queueに対応するBackup Queue名を導出
+      String backupQueueName = queueService.resolveBackupQueueName(dlqName);
+      if (StringUtils.isEmpty(backupQueueName)) {
+        throw new ResourceNotFoundException(); // 404を返す
+      }
 
-    // Dead Letter Queue名
-    model.addAttribute("dlqName", dlqName);
-    // Backup Queue名
-    model.addAttribute("backupQueueName", backupQueueName);
+      // Dead Letter Queue名
+      model.addAttribute("dlqName", dlqName);
+      // Backup Queue名
+      model.addAttribute("backupQueueName", backupQueueName);
 
-    // Backup Queue メッセージ
-    List<DeadLetteredMessage> messages = queueService.listBackedUpMessages(dlqName, backupQueueName);
-    model.addAttribute("messages", messages);
+      // Backup Queue メッセージ
+      BrowseResult result = queueService.listBackedUpMessages(dlqName, backupQueueName);
+      model.addAttribute("messages", result.getMessages());
+      model.addAttribute("truncated", result.isTruncated());
+      model.addAttribute("incompleteReason", result.getIncompleteReason());
 
-    return "backup/list";
+      return "backup/list";
+    });
   }
 
   /**
@@ -269,16 +821,18 @@ public class DeadLetterQueuesController {
   @RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_UTF8_VALUE, path = "/{dlqName}/archivedMessage/{id}")
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
-  public MessageResponse findBackedUpMessage(@PathVariable String dlqName,
+  public WebAsyncTask<MessageResponse> findBackedUpMessage(@PathVariable String dlqName,
       @PathVariable String id) {
-    // Dead Letter Queueに対応するBackup Queue名を導出
-    String backupQueueName = queueService.resolveBackupQueueName(dlqName);
-    if (StringUtils.isEmpty(backupQueueName)) {
-      throw new ResourceNotFoundException(); // 404を返す
-    }
+    return async(() -> {
+      // Dead Letter Queueに対応するBackup Queue名を導出
+      String backupQueueName = queueService.resolveBackupQueueName(dlqName);
+      if (StringUtils.isEmpty(backupQueueName)) {
+        throw new ResourceNotFoundException(); // 404を返す
+      }
 
-    DeadLetteredMessage message = queueService.findBackedUpMessage(dlqName, backupQueueName, id);
-    return convertToResponse(message);
+      DeadLetteredMessage message = queueService.findBackedUpMessage(dlqName, backupQueueName, id);
+      return convertToResponse(message);
+    });
   }
 
   /**
@@ -286,27 +840,39 @@ public class DeadLetterQueuesController {
    *
    * @param dlqName Dead Letter Queue名
    * @param id メッセージid
+   * @param idempotencyKey 冪等キー(同じキーでの再要求は実行済みの結果を返す)
    * @param attributes リダイレクト属性
    * @param model モデル
    * @return View指定キー
    */
-  @RequestMapping(path = "/{dlqName}/restore/{id}", method = RequestMethod.GET)
-  public String restoreBackedUpMessage(@PathVariable String dlqName, @PathVariable String id,
+  @RequestMapping(path = "/{dlqName}/restore/{id}", method = RequestMethod.POST)
+  public WebAsyncTask<String> restoreBackedUpMessage(@PathVariable String dlqName,
+      @PathVariable String id, @RequestParam(required = false) String idempotencyKey,
       RedirectAttributes attributes, Model model) {
-    // Dead Letter Queueに対応するBackup Queue名を導出
-    String backupQueueName = queueService.resolveBackupQueueName(dlqName);
-    if (StringUtils.isEmpty(backupQueueName)) {
-      throw new ResourceNotFoundException(); // 404を返す
-    }
-    // 対象メッセージを削除
-    DeadLetteredMessage message = queueService.findBackedUpMessage(dlqName, backupQueueName, id);
-    queueService.restoreBackedUpMessage(dlqName, backupQueueName, message);
-    // UnackedになったメッセージをReadyに戻しておく
-    queueService.recoverAllUnackedMessages(backupQueueName);
+    return async(() -> {
+      // Dead Letter Queueに対応するBackup Queue名を導出
+      String backupQueueName = queueService.resolveBackupQueueName(dlqName);
+      if (StringUtils.isEmpty(backupQueueName)) {
+        throw new ResourceNotFoundException(); // 404を返す
+      }
+      String identity = idempotencyCache.execute(
+          scopeIdempotencyKey(idempotencyKey, "restore", dlqName, id), () -> {
+            // 対象メッセージを削除
+            DeadLetteredMessage message = queueService.findBackedUpMessage(dlqName, backupQueueName,
+                id);
+            if (message == null) {
+              throw new ResourceNotFoundException(); // 404を返す
+            }
+            queueService.restoreBackedUpMessage(dlqName, backupQueueName, message);
+            // UnackedになったメッセージをReadyに戻しておく
+            queueService.recoverAllUnackedMessages(backupQueueName);
+            return messageIdentity(message);
+          });
 
-    // リストア完了メッセージを渡す
-    attributes.addFlashAttribute("restoreMessage", messageIdentity(message));
-    return String.format("redirect:/deadLetterQueues/%s/archivedMessages", dlqName);
+      // リストア完了メッセージを渡す
+      attributes.addFlashAttribute("restoreMessage", identity);
+      return String.format("redirect:/deadLetterQueues/%s/archivedMessages", dlqName);
+    });
   }
 
   /**
@@ -315,7 +881,7 @@ public class DeadLetterQueuesController {
    * @param message メッセージ
    * @return レスポンス用DTO
    */
-  private MessageResponse convertToResponse(DeadLetteredMessage message) {
+  static MessageResponse convertToResponse(DeadLetteredMessage message) {
     if (message == null) {
       return null;
     }
@@ -330,6 +896,10 @@ public class DeadLetterQueuesController {
     response.setRepublishable(message.isRepublishable());
     // mutex
     response.setMutexId(message.getProperties().getHeaders().getExtraMessageMutex());
+    // total death count
+    response.setTotalDeathCount(message.getTotalDeathCount());
+    // quarantine reason
+    response.setQuarantineReason(message.getProperties().getHeaders().getExtraQuarantineReason());
 
     List<XDeath> extraDeaths = message.getProperties().getHeaders().getExtraDeaths();
     if (!extraDeaths.isEmpty()) {
@@ -338,6 +908,8 @@ public class DeadLetterQueuesController {
       if (extraDeath.getTime() != null) {
         response.setTime(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(extraDeath.getTime()));
       }
+      // queue
+      response.setQueue(extraDeath.getQueue());
       // reason
       response.setReason(extraDeath.getReason());
 
@@ -345,13 +917,24 @@ public class DeadLetterQueuesController {
     return response;
   }
 
+  /**
+   * ブローカー入出力用スレッドプールが満杯の場合に503を返す.
+   *
+   * @param response レスポンス
+   * @throws IOException 入出力例外
+   */
+  @ExceptionHandler(TaskRejectedException.class)
+  public void handleBrokerIoRejected(HttpServletResponse response) throws IOException {
+    response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Broker I/O pool is busy.");
+  }
+
   /**
    * ペイロードは長くなる可能性があるので、ある程度のサイズで間引く.
    *
    * @param payload ペイロード
    * @return 間引いた結果の文字列
    */
-  private String abbreviatePayload(String payload) {
+  private static String abbreviatePayload(String payload) {
     final int maxSize = 256;
     return org.thymeleaf.util.StringUtils.abbreviate(payload, maxSize);
   }
@@ -373,6 +956,11 @@ public class DeadLetterQueuesController {
      */
     private String time;
 
+    /**
+     * Dead Letter Queue入りする前にいたキュー.
+     */
+    private String queue;
+
     /**
      * ペイロード.
      */
@@ -388,6 +976,16 @@ public class DeadLetterQueuesController {
      */
     private String mutexId;
 
+    /**
+     * Dead Letter Queue入りした回数の合計.
+     */
+    private Long totalDeathCount;
+
+    /**
+     * 隔離理由(隔離していない場合はnull).
+     */
+    private String quarantineReason;
+
     /**
      * 削除可能かどうか.
      */
@@ -398,4 +996,37 @@ public class DeadLetterQueuesController {
      */
     private Boolean republishable;
   }
+
+  /**
+   * 検索APIレスポンス用DTO.
+   *
+   * @author Tomoaki Mikami
+   */
+  @Data
+  public static class SearchResponse {
+    /**
+     * キーワード.
+     */
+    private String keyword;
+
+    /**
+     * インデックスを用いて検索したかどうか.
+     */
+    private Boolean indexed;
+
+    /**
+     * インデックスが古くなっていたかどうか. 古い場合はキューを走査して検索し、インデックスはバックグラウンドで再構築する.
+     */
+    private Boolean stale;
+
+    /**
+     * 合致したメッセージIDリスト.
+     */
+    private List<String> messageIds;
+
+    /**
+     * 合致したメッセージ毎のDead Letter Queue入りした回数の合計(キー:メッセージID).
+     */
+    private Map<String, Long> deathCounts;
+  }
 }
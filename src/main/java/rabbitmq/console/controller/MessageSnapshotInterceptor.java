@@ -0,0 +1,70 @@
+package rabbitmq.console.controller;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import lombok.RequiredArgsConstructor;
+import rabbitmq.console.component.MessageSnapshot;
+
+/**
+ * リクエスト毎にヒープ外スナップショットを開始し、画面描画・レスポンス出力の完了後に解放するインターセプタ.
+ *
+ * <p>
+ * 非同期処理の場合、スナップショットはリクエスト属性に保持して非同期処理のスレッドへ引き継ぎ、結果を描画する再ディスパッチで再び設定して、
+ * その完了時に解放する.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+@RequiredArgsConstructor
+public class MessageSnapshotInterceptor extends HandlerInterceptorAdapter {
+  /**
+   * スナップショットを保持するリクエスト属性名.
+   */
+  private static final String SNAPSHOT_ATTRIBUTE = MessageSnapshotInterceptor.class.getName()
+      + ".SNAPSHOT";
+
+  /**
+   * スラブ1個あたりのサイズ(バイト).
+   */
+  private final int slabSize;
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+      Object handler) {
+    MessageSnapshot snapshot = (MessageSnapshot) request.getAttribute(SNAPSHOT_ATTRIBUTE);
+    if (snapshot != null) {
+      // 非同期処理の結果を描画する再ディスパッチ
+      MessageSnapshot.attach(snapshot);
+    } else {
+      MessageSnapshot.begin(slabSize);
+      request.setAttribute(SNAPSHOT_ATTRIBUTE, MessageSnapshot.current());
+    }
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+      Object handler, Exception ex) {
+    request.removeAttribute(SNAPSHOT_ATTRIBUTE);
+    MessageSnapshot.end();
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public void afterConcurrentHandlingStarted(HttpServletRequest request,
+      HttpServletResponse response, Object handler) {
+    // 非同期処理と結果の描画でまだ参照するので解放せず、再ディスパッチの完了時に解放する
+    MessageSnapshot.detach();
+  }
+}
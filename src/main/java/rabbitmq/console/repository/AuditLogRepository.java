@@ -0,0 +1,33 @@
+package rabbitmq.console.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import rabbitmq.console.repository.entity.AuditEntry;
+
+/**
+ * 監査ログテーブルアクセス用リポジトリ.
+ *
+ * @author Tomoaki Mikami
+ */
+public interface AuditLogRepository {
+  /**
+   * 複数の監査ログを一括で登録する
+   * @param entries 監査ログ
+   */
+  void saveAll(Collection<AuditEntry> entries);
+
+  /**
+   * 監査ログを新しい順に取得する
+   * @param offset 読み飛ばす件数
+   * @param limit 取得する最大件数
+   * @return 監査ログ
+   */
+  List<AuditEntry> findPage(int offset, int limit);
+
+  /**
+   * 監査ログの件数を取得する
+   * @return 件数
+   */
+  long count();
+}
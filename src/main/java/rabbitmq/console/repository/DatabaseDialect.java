@@ -0,0 +1,62 @@
+package rabbitmq.console.repository;
+
+import java.util.Locale;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Mutexテーブルを配置するデータベースの方言.
+ *
+ * @author Tomoaki Mikami
+ */
+@Getter
+@RequiredArgsConstructor
+public enum DatabaseDialect {
+  /**
+   * Oracle.
+   */
+  ORACLE("classpath:schema/rabbitmq-mutex-oracle.sql", "/"),
+
+  /**
+   * PostgreSQL.
+   */
+  POSTGRESQL("classpath:schema/rabbitmq-mutex-postgresql.sql", ";"),
+
+  /**
+   * H2(ローカル実行・テスト用).
+   */
+  H2("classpath:schema/rabbitmq-mutex-h2.sql", ";");
+
+  /**
+   * スキーマ定義スクリプトの場所.
+   */
+  private final String schemaLocation;
+
+  /**
+   * スキーマ定義スクリプトの文区切り文字.
+   */
+  private final String scriptSeparator;
+
+  /**
+   * JDBCのデータベース製品名から方言を判別する.
+   *
+   * @param databaseProductName データベース製品名
+   * @return 方言
+   * @throws IllegalArgumentException 対応していないデータベースの場合
+   */
+  public static DatabaseDialect fromProductName(String databaseProductName) {
+    String name = databaseProductName == null ? ""
+        : databaseProductName.toLowerCase(Locale.ROOT);
+    if (name.contains("oracle")) {
+      return ORACLE;
+    }
+    if (name.contains("postgresql")) {
+      return POSTGRESQL;
+    }
+    if (name.contains("h2")) {
+      return H2;
+    }
+    throw new IllegalArgumentException("Unsupported database: " + databaseProductName);
+  }
+}
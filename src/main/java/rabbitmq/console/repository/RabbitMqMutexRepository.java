@@ -1,5 +1,8 @@
 package rabbitmq.console.repository;
 
+import java.util.Collection;
+import java.util.Date;
+
 import rabbitmq.console.repository.entity.RabbitMqMutex;
 
 /**
@@ -16,7 +19,7 @@ public interface RabbitMqMutexRepository {
   boolean exists(Long mutexId);
 
   /**
-   * ミューテックスを永続化する
+   * ミューテックスを永続化する. 既に存在する場合は何もしない
    * @param mutex ミューテックス
    */
   void save(RabbitMqMutex mutex);
@@ -26,4 +29,25 @@ public interface RabbitMqMutexRepository {
    * @param mutexId ミューテックスID
    */
   void delete(Long mutexId);
+
+  /**
+   * 複数のミューテックスを一括で削除する. 存在しないものは無視する
+   * @param mutexIds ミューテックスID
+   * @return 削除件数
+   */
+  int deleteAll(Collection<Long> mutexIds);
+
+  /**
+   * 指定時刻より前に作成されたミューテックスを上限件数まで削除する
+   * @param threshold 基準時刻
+   * @param limit 削除する最大件数
+   * @return 削除件数
+   */
+  int deleteCreatedBefore(Date threshold, int limit);
+
+  /**
+   * テーブル全体の版情報を取得する. 行数とミューテックスIDの合計から導出するので、行の追加・削除で変化する
+   * @return 版情報
+   */
+  String resolveVersion();
 }
@@ -0,0 +1,62 @@
+package rabbitmq.console.repository.entity;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import lombok.Data;
+
+/**
+ * 監査ログエンティティ.
+ *
+ * @author Tomoaki Mikami
+ */
+@Data
+public class AuditEntry implements Serializable {
+  /** serialVersionUID. */
+  private static final long serialVersionUID = -2719318462079745623L;
+
+  /**
+   * 記録時刻.
+   */
+  private Date recordedAt;
+
+  /**
+   * 操作者.
+   */
+  private String operator;
+
+  /**
+   * 接続先名.
+   */
+  private String target;
+
+  /**
+   * 操作対象のキュー名.
+   */
+  private String queueName;
+
+  /**
+   * メッセージID. キュー単位の操作の場合はnull.
+   */
+  private String messageId;
+
+  /**
+   * Mutex ID.
+   */
+  private String mutex;
+
+  /**
+   * 操作.
+   */
+  private String action;
+
+  /**
+   * 結果.
+   */
+  private String outcome;
+
+  /**
+   * 詳細(件数・エラー内容など).
+   */
+  private String detail;
+}
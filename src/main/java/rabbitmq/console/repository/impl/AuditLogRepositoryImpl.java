@@ -0,0 +1,111 @@
+package rabbitmq.console.repository.impl;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.namedparam.BeanPropertySqlParameterSource;
+import org.springframework.jdbc.core.namedparam.EmptySqlParameterSource;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import rabbitmq.console.repository.AuditLogRepository;
+import rabbitmq.console.repository.DatabaseDialect;
+import rabbitmq.console.repository.entity.AuditEntry;
+
+/**
+ * AuditLogRepositoryのJdbcTemplate実装
+ *
+ * @author Tomoaki Mikami
+ *
+ */
+@Repository
+public class AuditLogRepositoryImpl implements AuditLogRepository {
+  /**
+   * 取得するカラム
+   */
+  private static final String COLUMNS = "RECORDED_AT, OPERATOR, TARGET, QUEUE_NAME, MESSAGE_ID,"
+      + " MUTEX, ACTION, OUTCOME, DETAIL";
+
+  /**
+   * 読み飛ばす件数用プレースホルダー名
+   */
+  private static final String OFFSET_PLACE_HOLDER = "offset";
+
+  /**
+   * 取得件数上限用プレースホルダー名
+   */
+  private static final String LIMIT_PLACE_HOLDER = "limit";
+
+  /**
+   * JdbcTemplate
+   */
+  @Autowired
+  public NamedParameterJdbcTemplate jdbcTemplate;
+
+  /**
+   * データベースの方言
+   */
+  @Autowired
+  private DatabaseDialect databaseDialect;
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void saveAll(Collection<AuditEntry> entries) {
+    if (entries.isEmpty()) {
+      return;
+    }
+    String sql = String.format("INSERT INTO RABBITMQ_AUDIT (%s) VALUES (:recordedAt, :operator,"
+        + " :target, :queueName, :messageId, :mutex, :action, :outcome, :detail)", COLUMNS);
+    SqlParameterSource[] paramSources = entries.stream()//
+        .map(BeanPropertySqlParameterSource::new)//
+        .toArray(SqlParameterSource[]::new);
+    jdbcTemplate.batchUpdate(sql, paramSources);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<AuditEntry> findPage(int offset, int limit) {
+    SqlParameterSource paramSource = new MapSqlParameterSource()//
+        .addValue(OFFSET_PLACE_HOLDER, offset)//
+        .addValue(LIMIT_PLACE_HOLDER, limit);
+    return jdbcTemplate.query(findPageSql(), paramSource,
+        new BeanPropertyRowMapper<>(AuditEntry.class));
+  }
+
+  /**
+   * 新しい順に指定範囲の監査ログを取得するSQLを方言に応じて組み立てる
+   * @return SQL
+   */
+  private String findPageSql() {
+    switch (databaseDialect) {
+      case ORACLE:
+        return String.format("SELECT %1$s FROM (SELECT A.*, ROWNUM RN FROM"
+            + " (SELECT %1$s FROM RABBITMQ_AUDIT ORDER BY RECORDED_AT DESC) A"
+            + " WHERE ROWNUM <= :%2$s + :%3$s) WHERE RN > :%2$s",
+            COLUMNS, OFFSET_PLACE_HOLDER, LIMIT_PLACE_HOLDER);
+      case POSTGRESQL:
+      case H2:
+        return String.format("SELECT %s FROM RABBITMQ_AUDIT ORDER BY RECORDED_AT DESC"
+            + " LIMIT :%s OFFSET :%s", COLUMNS, LIMIT_PLACE_HOLDER, OFFSET_PLACE_HOLDER);
+      default:
+        throw new IllegalStateException("Unsupported database dialect: " + databaseDialect);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long count() {
+    return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM RABBITMQ_AUDIT",
+        EmptySqlParameterSource.INSTANCE, Long.class);
+  }
+}
@@ -1,11 +1,16 @@
 package rabbitmq.console.repository.impl;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.stereotype.Repository;
 
+import rabbitmq.console.repository.DatabaseDialect;
 import rabbitmq.console.repository.RabbitMqMutexRepository;
 import rabbitmq.console.repository.entity.RabbitMqMutex;
 
@@ -27,12 +32,23 @@ public class RabbitMqMutexRepositoryImpl implements RabbitMqMutexRepository {
    */
   private static final String CREATED_AT_PLACE_HOLDER = "createdAt";
 
+  /**
+   * 削除件数上限用プレースホルダー名
+   */
+  private static final String LIMIT_PLACE_HOLDER = "limit";
+
   /**
    * JdbcTemplate
    */
   @Autowired
   public NamedParameterJdbcTemplate jdbcTemplate;
 
+  /**
+   * データベースの方言
+   */
+  @Autowired
+  private DatabaseDialect databaseDialect;
+
   /**
    * {@inheritDoc}
    */
@@ -51,12 +67,43 @@ public class RabbitMqMutexRepositoryImpl implements RabbitMqMutexRepository {
    */
   @Override
   public void save(RabbitMqMutex mutex) {
-    String sql = String.format("INSERT INTO RABBITMQ_MUTEX (MUTEX, CREATED_AT) VALUES  (:%s, :%s)",
-        MUTEX_PLACE_HOLDER, CREATED_AT_PLACE_HOLDER);
-    SqlParameterSource paramSource = new MapSqlParameterSource()//
+    jdbcTemplate.update(upsertSql(), toParamSource(mutex));
+  }
+
+  /**
+   * ミューテックスをSQLパラメータへ変換する
+   * @param mutex ミューテックス
+   * @return SQLパラメータ
+   */
+  private SqlParameterSource toParamSource(RabbitMqMutex mutex) {
+    return new MapSqlParameterSource()//
         .addValue(MUTEX_PLACE_HOLDER, mutex.getMutex())//
         .addValue(CREATED_AT_PLACE_HOLDER, mutex.getCreatedAt());
-    jdbcTemplate.update(sql, paramSource);
+  }
+
+  /**
+   * 存在しない場合のみ登録するSQLを方言に応じて組み立てる. MUTEXの主キーで重複を判定する
+   * @return SQL
+   */
+  private String upsertSql() {
+    switch (databaseDialect) {
+      case ORACLE:
+        return String.format("MERGE INTO RABBITMQ_MUTEX T"
+            + " USING (SELECT :%1$s AS MUTEX, :%2$s AS CREATED_AT FROM DUAL) S"
+            + " ON (T.MUTEX = S.MUTEX)"
+            + " WHEN NOT MATCHED THEN INSERT (MUTEX, CREATED_AT) VALUES (S.MUTEX, S.CREATED_AT)",
+            MUTEX_PLACE_HOLDER, CREATED_AT_PLACE_HOLDER);
+      case POSTGRESQL:
+        return String.format("INSERT INTO RABBITMQ_MUTEX (MUTEX, CREATED_AT) VALUES (:%s, :%s)"
+            + " ON CONFLICT (MUTEX) DO NOTHING", MUTEX_PLACE_HOLDER, CREATED_AT_PLACE_HOLDER);
+      case H2:
+        return String.format("INSERT INTO RABBITMQ_MUTEX (MUTEX, CREATED_AT)"
+            + " SELECT :%1$s, :%2$s FROM DUAL"
+            + " WHERE NOT EXISTS (SELECT 1 FROM RABBITMQ_MUTEX WHERE MUTEX = :%1$s)",
+            MUTEX_PLACE_HOLDER, CREATED_AT_PLACE_HOLDER);
+      default:
+        throw new IllegalStateException("Unsupported database dialect: " + databaseDialect);
+    }
   }
 
   /**
@@ -70,4 +117,64 @@ public class RabbitMqMutexRepositoryImpl implements RabbitMqMutexRepository {
     jdbcTemplate.update(sql, paramSource);
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int deleteAll(Collection<Long> mutexIds) {
+    if (mutexIds.isEmpty()) {
+      return 0;
+    }
+    // IN句は件数上限のあるデータベースがあるので、1件ずつの削除をバッチで実行する
+    String sql = String.format("DELETE FROM RABBITMQ_MUTEX WHERE MUTEX = :%s", MUTEX_PLACE_HOLDER);
+    SqlParameterSource[] paramSources = mutexIds.stream()//
+        .map(mutexId -> new MapSqlParameterSource().addValue(MUTEX_PLACE_HOLDER, mutexId))//
+        .toArray(SqlParameterSource[]::new);
+    // 件数を返さないドライバ(SUCCESS_NO_INFO)の分は0件として数える
+    return Arrays.stream(jdbcTemplate.batchUpdate(sql, paramSources))//
+        .map(count -> Math.max(count, 0))//
+        .sum();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int deleteCreatedBefore(Date threshold, int limit) {
+    SqlParameterSource paramSource = new MapSqlParameterSource()//
+        .addValue(CREATED_AT_PLACE_HOLDER, threshold)//
+        .addValue(LIMIT_PLACE_HOLDER, limit);
+    return jdbcTemplate.update(deleteCreatedBeforeSql(), paramSource);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String resolveVersion() {
+    String sql = "SELECT COUNT(*), SUM(MUTEX) FROM RABBITMQ_MUTEX";
+    return jdbcTemplate.queryForObject(sql, new MapSqlParameterSource(),
+        (rs, rowNum) -> rs.getLong(1) + ":" + rs.getBigDecimal(2));
+  }
+
+  /**
+   * 作成時刻が基準より前のミューテックスを上限件数まで削除するSQLを方言に応じて組み立てる
+   * @return SQL
+   */
+  private String deleteCreatedBeforeSql() {
+    switch (databaseDialect) {
+      case ORACLE:
+        return String.format("DELETE FROM RABBITMQ_MUTEX WHERE CREATED_AT < :%s AND ROWNUM <= :%s",
+            CREATED_AT_PLACE_HOLDER, LIMIT_PLACE_HOLDER);
+      case POSTGRESQL:
+        return String.format("DELETE FROM RABBITMQ_MUTEX WHERE MUTEX IN"
+            + " (SELECT MUTEX FROM RABBITMQ_MUTEX WHERE CREATED_AT < :%s LIMIT :%s)",
+            CREATED_AT_PLACE_HOLDER, LIMIT_PLACE_HOLDER);
+      case H2:
+        return String.format("DELETE FROM RABBITMQ_MUTEX WHERE CREATED_AT < :%s LIMIT :%s",
+            CREATED_AT_PLACE_HOLDER, LIMIT_PLACE_HOLDER);
+      default:
+        throw new IllegalStateException("Unsupported database dialect: " + databaseDialect);
+    }
+  }
 }
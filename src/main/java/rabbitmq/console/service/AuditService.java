@@ -0,0 +1,64 @@
+package rabbitmq.console.service;
+
+import java.util.Collection;
+
+import rabbitmq.console.repository.entity.AuditEntry;
+import rabbitmq.console.service.dto.AuditAction;
+import rabbitmq.console.service.dto.AuditOutcome;
+import rabbitmq.console.service.dto.AuditPage;
+import rabbitmq.console.service.dto.DeadLetteredMessage;
+
+/**
+ * 更新操作の監査ログを扱うサービス.
+ *
+ * <p>
+ * 記録した監査ログはメモリ上の書き込み待ちに積むだけで、テーブルへはバックグラウンドでまとめて書き込む。 書き込み待ちが上限に達した分は破棄する.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+public interface AuditService {
+  /**
+   * 監査ログを有効にしているかどうか.
+   *
+   * @return 有効ならtrue
+   */
+  boolean isEnabled();
+
+  /**
+   * メッセージ単位の更新操作を記録する.
+   *
+   * @param action 操作
+   * @param queueName 操作対象のキュー名
+   * @param message 操作対象のメッセージ
+   * @param outcome 結果
+   * @param detail 詳細。無ければnull
+   */
+  void record(AuditAction action, String queueName, DeadLetteredMessage message,
+      AuditOutcome outcome, String detail);
+
+  /**
+   * キュー単位の更新操作を記録する.
+   *
+   * @param action 操作
+   * @param queueName 操作対象のキュー名
+   * @param outcome 結果
+   * @param detail 詳細(件数など)。無ければnull
+   */
+  void record(AuditAction action, String queueName, AuditOutcome outcome, String detail);
+
+  /**
+   * 組み立て済みの監査ログをまとめて記録する. 記録時刻・操作者・接続先が未設定であれば補う.
+   *
+   * @param entries 監査ログ
+   */
+  void recordAll(Collection<AuditEntry> entries);
+
+  /**
+   * 監査ログを新しい順に1ページ分取得する.
+   *
+   * @param page ページ番号(0始まり)
+   * @return 監査ログ
+   */
+  AuditPage findPage(int page);
+}
@@ -0,0 +1,53 @@
+package rabbitmq.console.service;
+
+import java.util.List;
+import java.util.Map;
+
+import rabbitmq.console.service.dto.BrowseResult;
+import rabbitmq.console.service.dto.BulkActionResult;
+import rabbitmq.console.service.dto.DeadLetterQueue;
+import rabbitmq.console.service.dto.MessageFilter;
+
+/**
+ * 複数のDead Letter Queueをまとめて扱うサービス. 各キューの処理はスレッドプール上で並列に実行する.
+ *
+ * @author Tomoaki Mikami
+ */
+public interface CrossQueueService {
+  /**
+   * 全Dead Letter Queueの概要(メッセージ数)を取得.
+   *
+   * @return Dead Letter Queue一覧
+   */
+  List<DeadLetterQueue> overview();
+
+  /**
+   * 全接続先の全Dead Letter Queueの概要(メッセージ数)を取得. 全接続先・全キュー分を並列に取得する.
+   *
+   * @return 接続先毎のDead Letter Queue一覧マップ(キー:接続先名,値:Dead Letter Queue一覧)
+   */
+  Map<String, List<DeadLetterQueue>> overviewAllTargets();
+
+  /**
+   * 全Dead Letter Queueからキーワードに合致するメッセージIDを検索.
+   *
+   * @param keyword キーワード
+   * @return 検索結果マップ(キー:Dead Letter Queue名,値:メッセージIDリスト)
+   */
+  Map<String, List<String>> search(String keyword);
+
+  /**
+   * 全Dead Letter Queueから条件に合致するメッセージを再登録.
+   *
+   * @param filter 絞り込み条件
+   * @return 一括操作結果マップ(キー:Dead Letter Queue名,値:一括操作結果)
+   */
+  Map<String, BulkActionResult> republish(MessageFilter filter);
+
+  /**
+   * 全Dead Letter Queueのメッセージを取得(エクスポート用).
+   *
+   * @return メッセージマップ(キー:Dead Letter Queue名,値:メッセージ一覧と打ち切り有無)
+   */
+  Map<String, BrowseResult> export();
+}
@@ -0,0 +1,29 @@
+package rabbitmq.console.service;
+
+import rabbitmq.console.service.dto.PurgeMode;
+import rabbitmq.console.service.dto.PurgeResult;
+
+/**
+ * Dead Letter Queueを空にするサービス.
+ *
+ * @author Tomoaki Mikami
+ */
+public interface PurgeService {
+  /**
+   * 空にした場合に削除されるメッセージ数を取得する(ドライラン). キューは変更しない.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @return メッセージ数。キューが存在しない等で取得できなかった場合はnull
+   */
+  Long countPurgeTargets(String dlqName);
+
+  /**
+   * Dead Letter Queueを空にする.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param mode 方法
+   * @return 結果
+   * @throws IllegalArgumentException BACKUPを指定したがBackup Queueが定義されていない場合
+   */
+  PurgeResult purge(String dlqName, PurgeMode mode);
+}
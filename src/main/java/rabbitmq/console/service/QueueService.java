@@ -1,9 +1,16 @@
 package rabbitmq.console.service;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
+import rabbitmq.console.service.dto.BrowseResult;
+import rabbitmq.console.service.dto.BulkActionResult;
 import rabbitmq.console.service.dto.DeadLetteredMessage;
+import rabbitmq.console.service.dto.GroupedMessages;
+import rabbitmq.console.service.dto.MessageAction;
+import rabbitmq.console.service.dto.QueueVersion;
+import rabbitmq.console.service.dto.SearchIndexState;
 
 /**
  * RabbitMQのキュー情報を扱うサービス.
@@ -29,18 +36,133 @@ public interface QueueService {
    * Dead Letter メッセージ一覧取得.
    *
    * @param dlqName 一覧取得したいDLQ名
-   * @return Dead Letter メッセージ一覧
+   * @return Dead Letter メッセージ一覧。読み込みバイト数の上限に達した場合は打ち切った旨を含む
    */
-  List<DeadLetteredMessage> listDeadLetteredMessages(String dlqName);
+  BrowseResult listDeadLetteredMessages(String dlqName);
+
+  /**
+   * メッセージを1件ずつ取得し、取得した順に処理する. 一覧はメモリに保持しない.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param backupQueueName Backup Queue名。Dead Letter Queueから取得する場合はnull
+   * @param visitor メッセージ毎の処理
+   * @return 処理したメッセージ数
+   */
+  int streamMessages(String dlqName, String backupQueueName, MessageVisitor visitor);
+
+  /**
+   * Dead Letter メッセージを件数上限なしで全件取得(エクスポート用).
+   *
+   * @param dlqName Dead Letter Queue名
+   * @return Dead Letter メッセージ一覧。読み込みバイト数の上限に達した場合は打ち切った旨を含む
+   */
+  BrowseResult exportDeadLetteredMessages(String dlqName);
+
+  /**
+   * キューにあるメッセージ数を取得.
+   *
+   * @param queueName キュー名
+   * @return メッセージ数。キューが存在しない等で取得できなかった場合はnull
+   */
+  Long countMessages(String queueName);
+
+  /**
+   * キューの版情報を取得. キューを走査せず、メッセージ数と先頭メッセージのみから導出する.
+   *
+   * @param queueName キュー名
+   * @return 版情報。キューが存在しない等で取得できなかった場合はnull
+   */
+  QueueVersion resolveQueueVersion(String queueName);
+
+  /**
+   * Mutexテーブルの版情報を取得. メッセージの削除可否・再登録可否が変わり得たかどうかの判定に使う.
+   *
+   * @return 版情報
+   */
+  String resolveMutexVersion();
+
+  /**
+   * Dead Letter Queueの全メッセージを走査し、メッセージ毎に決定した処理を適用する.
+   * 削除や再登録が許可されていないメッセージはキューに残す. 待避はMutexの登録有無によらずBackup Queueがあれば行い、Mutexを削除する.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param resolver メッセージに適用する処理を決定するコールバック
+   * @return 一括操作結果
+   */
+  BulkActionResult applyMessageActions(String dlqName, MessageActionResolver resolver);
+
+  /**
+   * Dead Letter Queueの先頭から指定件数までのメッセージへ一括操作を適用する.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param resolver メッセージに適用する処理を決定するコールバック
+   * @param maxScan 走査する最大件数
+   * @return 一括操作結果
+   */
+  BulkActionResult applyMessageActions(String dlqName, MessageActionResolver resolver,
+      int maxScan);
+
+  /**
+   * Dead Letter Queueの先頭から指定件数を読み飛ばし、続く指定件数までのメッセージへ一括操作を適用する.
+   * 読み飛ばしたメッセージは変換せずにキューへ戻す. 走査したメッセージ数に読み飛ばした分は含めない.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param resolver メッセージに適用する処理を決定するコールバック
+   * @param skip 先頭から読み飛ばす件数
+   * @param maxScan 走査する最大件数
+   * @return 一括操作結果
+   */
+  BulkActionResult applyMessageActions(String dlqName, MessageActionResolver resolver, int skip,
+      int maxScan);
+
+  /**
+   * Dead Letter Queueの全メッセージを元のキューとペイロードが同一のグループにまとめる.
+   * メッセージ自体は保持しないので、使用するメモリはグループ数に比例する.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @return グループ一覧
+   */
+  GroupedMessages groupMessages(String dlqName);
+
+  /**
+   * グループに属する全メッセージへ同じ処理を適用する. 削除や再登録が許可されていないメッセージはキューに残す.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param groupId グループID
+   * @param action 適用する処理
+   * @return 一括操作結果
+   */
+  BulkActionResult applyGroupAction(String dlqName, String groupId, MessageAction action);
 
   /**
    * バックアップメッセージ一覧取得.
    *
    * @param dlqName Dead Letter Queue名
    * @param backupQueueName 一覧取得したいBackup Queue名
-   * @return バックアップメッセージ一覧
+   * @return バックアップメッセージ一覧。読み込みバイト数の上限に達した場合は打ち切った旨を含む
+   */
+  BrowseResult listBackedUpMessages(String dlqName, String backupQueueName);
+
+  /**
+   * キーワードの全トークンを含むDead LetterメッセージのメッセージIDを検索.
+   * 全文検索用インデックスが利用可能であればインデックスを、そうでなければキュー全体を走査して検索する.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param keyword キーワード
+   * @return 合致したメッセージIDリスト
+   */
+  List<String> searchMessageIds(String dlqName, String keyword);
+
+  /**
+   * キーワードの全トークンを含むDead Letterメッセージを検索し、メッセージ毎のDead Letter Queue入り回数の合計を返す.
+   * 全文検索用インデックスが利用可能であればインデックスを、そうでなければキュー全体を走査して検索する.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param keyword キーワード
+   * @param indexState 検索要求の受付時に判定した全文検索用インデックスの状態
+   * @return 合致したメッセージIDとDead Letter Queue入り回数の合計のマップ(キューの並び順)
    */
-  List<DeadLetteredMessage> listBackedUpMessages(String dlqName, String backupQueueName);
+  Map<String, Long> searchMessages(String dlqName, String keyword, SearchIndexState indexState);
 
   /**
    * idに合致するDead Letterメッセージを取得.
@@ -51,6 +173,53 @@ public interface QueueService {
    */
   DeadLetteredMessage findDeadLetteredMessage(String dlqName, String id);
 
+  /**
+   * Dead Letter メッセージ一覧を取得し、取得したメッセージを専用チャネルで保持するセッションを開く.
+   * 保持したメッセージはセッションを閉じるか保持期限を過ぎるとキューへ戻る.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @return Dead Letter メッセージ一覧(セッションIDを含む)。同時に開けるセッション数に達している場合はnull
+   */
+  BrowseResult openBrowseSession(String dlqName);
+
+  /**
+   * セッションが保持しているDead Letter メッセージ一覧を取得し、保持期限を延長する. キューは走査しない.
+   *
+   * @param sessionId セッションID
+   * @param dlqName Dead Letter Queue名
+   * @return Dead Letter メッセージ一覧。セッションが閉じている場合はnull
+   */
+  BrowseResult resumeBrowseSession(String sessionId, String dlqName);
+
+  /**
+   * セッションが保持しているDead Letter メッセージからidに合致するものを取得.
+   *
+   * @param sessionId セッションID。nullの場合は常にnullを返す
+   * @param dlqName Dead Letter Queue名
+   * @param id メッセージID
+   * @return idに合致するメッセージ。セッションが閉じている、または保持していない場合はnull
+   */
+  DeadLetteredMessage findInBrowseSession(String sessionId, String dlqName, String id);
+
+  /**
+   * セッションが保持しているメッセージへ、Delivery Tagを使って処理を適用する. キューは走査しない.
+   *
+   * @param sessionId セッションID。nullの場合は常にfalseを返す
+   * @param dlqName Dead Letter Queue名
+   * @param message Dead Letter メッセージ
+   * @param action 適用する処理(削除・再登録・待避)
+   * @return 適用した場合はtrue。セッションが閉じている、または保持していない場合はfalse
+   */
+  boolean applyInBrowseSession(String sessionId, String dlqName, DeadLetteredMessage message,
+      MessageAction action);
+
+  /**
+   * セッションを閉じ、保持していたメッセージをキューへ戻す.
+   *
+   * @param sessionId セッションID
+   */
+  void closeBrowseSession(String sessionId);
+
   /**
    * idに合致するバックアップメッセージを取得.
    *
@@ -86,6 +255,18 @@ public interface QueueService {
    */
   void deleteAndBackupMessage(String dlqName, String backupQueueName, DeadLetteredMessage message);
 
+  /**
+   * 再登録とDead Letter Queue入りを繰り返すメッセージを隔離する. Backup Queueへ待避し、隔離時刻と理由をヘッダに記録する.
+   * 隔離したメッセージはリストアしても再登録できない.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param backupQueueName Backup Queue名
+   * @param message 隔離するメッセージ
+   * @param reason 隔離理由
+   */
+  void quarantineMessage(String dlqName, String backupQueueName, DeadLetteredMessage message,
+      String reason);
+
   /**
    * UnackedなメッセージをReadyにする.
    *
@@ -129,4 +310,36 @@ public interface QueueService {
    * @param message 復元したいメッセージ
    */
   void restoreBackedUpMessage(String dlqName, String backupQueueName, DeadLetteredMessage message);
+
+  /**
+   * 一括操作時にメッセージへ適用する処理を決定するコールバックインタフェース
+   *
+   * @author Tomoaki Mikami
+   */
+  @FunctionalInterface
+  interface MessageActionResolver {
+    /**
+     * メッセージへ適用する処理を決定する.
+     *
+     * @param message メッセージ
+     * @return 適用する処理
+     */
+    MessageAction resolve(DeadLetteredMessage message);
+  }
+
+  /**
+   * ストリーミング取得したメッセージ毎の処理.
+   *
+   * @author Tomoaki Mikami
+   */
+  @FunctionalInterface
+  interface MessageVisitor {
+    /**
+     * メッセージを処理する.
+     *
+     * @param message Dead Letter メッセージ
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    void visit(DeadLetteredMessage message) throws IOException;
+  }
 }
@@ -0,0 +1,80 @@
+package rabbitmq.console.service;
+
+import java.util.Map;
+
+import rabbitmq.console.service.dto.SearchIndexState;
+
+/**
+ * Dead Letter Queueの全文検索用インデックスを扱うサービス.
+ *
+ * @author Tomoaki Mikami
+ */
+public interface SearchIndexService {
+  /**
+   * インデックスを使用する設定かどうか.
+   *
+   * @return 使用する設定であればtrue
+   */
+  boolean isEnabled();
+
+  /**
+   * インデックスをバックグラウンドで再構築する.
+   *
+   * @param dlqName Dead Letter Queue名
+   */
+  void rebuild(String dlqName);
+
+  /**
+   * インデックスの状態を判定する. 構築後にこの画面を経由せずキューのメッセージ数や先頭のメッセージが変わった場合は古いとみなし、
+   * バックグラウンドで再構築する. 判定の度にブローカーへ問い合わせるので、1回の検索要求では1回だけ判定する.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @return インデックスの状態
+   */
+  SearchIndexState state(String dlqName);
+
+  /**
+   * インデックスからキーワードの全トークンを含むメッセージIDを検索する.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param keyword キーワード
+   * @return 合致したメッセージIDとDead Letter Queue入り回数の合計のマップ(登録順)
+   */
+  Map<String, Long> search(String dlqName, String keyword);
+
+  /**
+   * インデックスに登録された全メッセージのDead Letter Queue入り回数の総計.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @return 総計。インデックスが利用できない場合はnull
+   */
+  Long totalDeathCount(String dlqName);
+
+  /**
+   * メッセージがキーワードに合致するかどうかをインデックスと同じ基準で判定する.
+   *
+   * @param keyword キーワード
+   * @param body ペイロード
+   * @param headers メッセージヘッダ
+   * @return 合致すればtrue
+   */
+  boolean matches(String keyword, byte[] body, Map<String, Object> headers);
+
+  /**
+   * メッセージをインデックスへ追加する.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param messageId メッセージID
+   * @param body ペイロード
+   * @param headers メッセージヘッダ
+   */
+  void index(String dlqName, String messageId, byte[] body, Map<String, Object> headers);
+
+  /**
+   * メッセージをインデックスから削除する.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param messageId メッセージID
+   */
+  void remove(String dlqName, String messageId);
+}
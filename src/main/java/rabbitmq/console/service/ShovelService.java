@@ -0,0 +1,31 @@
+package rabbitmq.console.service;
+
+import rabbitmq.console.service.dto.MoveRequest;
+import rabbitmq.console.service.dto.MoveResult;
+
+/**
+ * 任意のキュー間でメッセージを移動するサービス.
+ *
+ * @author Tomoaki Mikami
+ */
+public interface ShovelService {
+  /**
+   * 条件に合致するメッセージを移動元キューから移動先へ移動する.
+   * 移動先への登録がブローカーに確認されてから移動元を削除するため、失敗時は移動先に重複することがあっても失われることはない.
+   *
+   * @param request 移動要求
+   * @return 移動結果
+   * @throws IllegalArgumentException 移動元・移動先の指定が不正な場合
+   */
+  MoveResult move(MoveRequest request);
+
+  /**
+   * キューの全メッセージを取り出し、Backup Queueへ移動または削除する. 取り出したメッセージのミューテックスも削除する.
+   * Backup Queueへの登録がブローカーに確認されてから移動元を削除する.
+   *
+   * @param queueName 移動元キュー名
+   * @param backupQueueName Backup Queue名。nullの場合は移動せずに削除する
+   * @return 移動結果
+   */
+  MoveResult drain(String queueName, String backupQueueName);
+}
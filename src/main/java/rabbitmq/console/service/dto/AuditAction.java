@@ -0,0 +1,43 @@
+package rabbitmq.console.service.dto;
+
+/**
+ * 監査ログに記録する更新操作.
+ *
+ * @author Tomoaki Mikami
+ */
+public enum AuditAction {
+  /**
+   * Dead Letterメッセージの削除.
+   */
+  DELETE,
+
+  /**
+   * Dead LetterメッセージのBackup Queueへの待避.
+   */
+  BACKUP,
+
+  /**
+   * Dead Letterメッセージの元のキューへの再登録.
+   */
+  REPUBLISH,
+
+  /**
+   * 再登録を繰り返すメッセージのBackup Queueへの隔離.
+   */
+  QUARANTINE,
+
+  /**
+   * バックアップメッセージのDead Letter Queueへのリストア.
+   */
+  RESTORE,
+
+  /**
+   * キュー間のメッセージ移動.
+   */
+  MOVE,
+
+  /**
+   * Dead Letter Queueを空にする.
+   */
+  PURGE
+}
@@ -0,0 +1,18 @@
+package rabbitmq.console.service.dto;
+
+/**
+ * 監査ログに記録する更新操作の結果.
+ *
+ * @author Tomoaki Mikami
+ */
+public enum AuditOutcome {
+  /**
+   * 成功.
+   */
+  SUCCEEDED,
+
+  /**
+   * 失敗.
+   */
+  FAILED
+}
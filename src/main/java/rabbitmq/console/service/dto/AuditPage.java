@@ -0,0 +1,53 @@
+package rabbitmq.console.service.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+import rabbitmq.console.repository.entity.AuditEntry;
+
+/**
+ * 監査ログの1ページ分の取得結果.
+ *
+ * @author Tomoaki Mikami
+ */
+@Data
+public class AuditPage {
+  /**
+   * 監査ログ(新しい順).
+   */
+  private List<AuditEntry> entries = new ArrayList<>();
+
+  /**
+   * ページ番号(0始まり).
+   */
+  private int page;
+
+  /**
+   * 1ページの件数.
+   */
+  private int pageSize;
+
+  /**
+   * 全件数.
+   */
+  private long total;
+
+  /**
+   * 前のページがあるかどうか.
+   *
+   * @return あればtrue
+   */
+  public boolean hasPrevious() {
+    return page > 0;
+  }
+
+  /**
+   * 次のページがあるかどうか.
+   *
+   * @return あればtrue
+   */
+  public boolean hasNext() {
+    return (long) (page + 1) * pageSize < total;
+  }
+}
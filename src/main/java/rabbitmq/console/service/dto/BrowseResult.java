@@ -0,0 +1,46 @@
+package rabbitmq.console.service.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.Data;
+
+/**
+ * メッセージ一覧の取得結果.
+ *
+ * @author Tomoaki Mikami
+ */
+@Data
+public class BrowseResult {
+  /**
+   * 取得したメッセージ一覧.
+   */
+  @JsonProperty("messages")
+  private List<DeadLetteredMessage> messages = new ArrayList<>();
+
+  /**
+   * 読み込みバイト数の上限に達したため、キューに残りのメッセージがあっても取得を打ち切ったかどうか.
+   */
+  @JsonProperty("truncated")
+  private boolean truncated = false;
+
+  /**
+   * 取得したメッセージのペイロード合計(バイト).
+   */
+  @JsonProperty("bytes")
+  private long bytes = 0;
+
+  /**
+   * 期限・走査件数の上限・取り消しにより走査を打ち切った理由. 最後まで走査した場合はnull.
+   */
+  @JsonProperty("incomplete_reason")
+  private String incompleteReason = null;
+
+  /**
+   * 取得したメッセージを保持しているセッションのID. セッションを開いていない場合はnull.
+   */
+  @JsonProperty("session_id")
+  private String sessionId = null;
+}
@@ -0,0 +1,50 @@
+package rabbitmq.console.service.dto;
+
+import lombok.Data;
+
+/**
+ * 一括操作結果.
+ *
+ * @author Tomoaki Mikami
+ */
+@Data
+public class BulkActionResult {
+  /**
+   * 走査したメッセージ数.
+   */
+  private int scanned;
+
+  /**
+   * 再登録したメッセージ数.
+   */
+  private int republished;
+
+  /**
+   * 削除したメッセージ数.
+   */
+  private int deleted;
+
+  /**
+   * Backup Queueへ待避したメッセージ数.
+   */
+  private int backedUp;
+
+  /**
+   * 処理に失敗した場合のエラー内容.
+   */
+  private String error;
+
+  /**
+   * 期限・走査件数の上限・取り消しにより走査を打ち切った理由. 最後まで走査した場合はnull.
+   */
+  private String incompleteReason;
+
+  /**
+   * 処理したメッセージ数の合計.
+   *
+   * @return 再登録・削除・待避したメッセージ数の合計
+   */
+  public int getProcessed() {
+    return republished + deleted + backedUp;
+  }
+}
@@ -24,4 +24,19 @@ public class DeadLetterQueue {
    * Backup Queue名
    */
   private String backupQueueName;
+
+  /**
+   * Dead Letter Queueのメッセージ数(取得できなかった場合はnull)
+   */
+  private Long messageCount;
+
+  /**
+   * Backup Queueのメッセージ数(取得できなかった場合はnull)
+   */
+  private Long backupMessageCount;
+
+  /**
+   * Dead Letter Queueの全メッセージのDead Letter Queue入りした回数の総計(全文検索用インデックスが利用できない場合はnull)
+   */
+  private Long totalDeathCount;
 }
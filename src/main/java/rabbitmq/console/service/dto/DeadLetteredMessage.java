@@ -92,6 +92,12 @@ public class DeadLetteredMessage {
   @JsonProperty("backup_queue_name")
   private String backupQueueName = null;
 
+  /**
+   * Dead Letter Queue入りした回数の合計(x-deathの全エントリのcountの合計).
+   */
+  @JsonProperty("total_death_count")
+  private long totalDeathCount = 0;
+
   /**
    * メッセージ属性.
    */
@@ -136,6 +142,24 @@ public class DeadLetteredMessage {
      */
     @JsonProperty("x-message-mutex")
     private String extraMessageMutex = null;
+
+    /**
+     * x-republish-countヘッダ情報(このコンソールから再登録した回数).
+     */
+    @JsonProperty("x-republish-count")
+    private Integer extraRepublishCount = null;
+
+    /**
+     * x-quarantined-atヘッダ情報(再登録を繰り返したため隔離した時刻).
+     */
+    @JsonProperty("x-quarantined-at")
+    private Date extraQuarantinedAt = null;
+
+    /**
+     * x-quarantine-reasonヘッダ情報(隔離した理由).
+     */
+    @JsonProperty("x-quarantine-reason")
+    private String extraQuarantineReason = null;
   }
 
   /**
@@ -175,5 +199,11 @@ public class DeadLetteredMessage {
      */
     @JsonProperty("routing-keys")
     private List<String> routingKeys;
+
+    /**
+     * 同じキュー・理由でDead Letter Queue入りした回数.
+     */
+    @JsonProperty("count")
+    private Long count;
   }
 }
@@ -0,0 +1,34 @@
+package rabbitmq.console.service.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * Dead Letterメッセージをペイロード毎にまとめた結果.
+ *
+ * @author Tomoaki Mikami
+ */
+@Data
+public class GroupedMessages {
+  /**
+   * グループ一覧(最初に見つかった順).
+   */
+  private List<MessageGroup> groups = new ArrayList<>();
+
+  /**
+   * 走査したメッセージ数.
+   */
+  private int scanned;
+
+  /**
+   * グループ数の上限に達したため、どのグループにも集計しなかったメッセージ数.
+   */
+  private int ungrouped;
+
+  /**
+   * 期限・走査件数の上限・取り消しにより走査を打ち切った理由. 最後まで走査した場合はnull.
+   */
+  private String incompleteReason;
+}
@@ -0,0 +1,28 @@
+package rabbitmq.console.service.dto;
+
+/**
+ * 一括操作時にメッセージへ適用する処理.
+ *
+ * @author Tomoaki Mikami
+ */
+public enum MessageAction {
+  /**
+   * キューに残す.
+   */
+  KEEP,
+
+  /**
+   * 元のキューへ再登録する.
+   */
+  REPUBLISH,
+
+  /**
+   * 削除する.
+   */
+  DELETE,
+
+  /**
+   * 削除してBackup Queueへ待避する.
+   */
+  BACKUP
+}
@@ -0,0 +1,53 @@
+package rabbitmq.console.service.dto;
+
+import java.util.List;
+
+import org.springframework.util.StringUtils;
+
+import lombok.Data;
+import rabbitmq.console.service.dto.DeadLetteredMessage.XDeath;
+
+/**
+ * 一括操作対象メッセージの絞り込み条件.
+ *
+ * @author Tomoaki Mikami
+ */
+@Data
+public class MessageFilter {
+  /**
+   * Dead Letter Queue入りした理由(rejected,expired,maxlen).
+   */
+  private String reason;
+
+  /**
+   * Dead Letter Queue入りする前にいたキュー.
+   */
+  private String originalQueue;
+
+  /**
+   * 条件が1つも指定されていないかどうか.
+   *
+   * @return 未指定であればtrue
+   */
+  public boolean isEmpty() {
+    return StringUtils.isEmpty(reason) && StringUtils.isEmpty(originalQueue);
+  }
+
+  /**
+   * メッセージが条件に合致するかどうか.
+   *
+   * @param message メッセージ
+   * @return 合致すればtrue
+   */
+  public boolean matches(DeadLetteredMessage message) {
+    List<XDeath> extraDeaths = message.getProperties().getHeaders().getExtraDeaths();
+    if (extraDeaths.isEmpty()) {
+      return false;
+    }
+    XDeath extraDeath = extraDeaths.get(0);
+    if (!StringUtils.isEmpty(reason) && !reason.equals(extraDeath.getReason())) {
+      return false;
+    }
+    return StringUtils.isEmpty(originalQueue) || originalQueue.equals(extraDeath.getQueue());
+  }
+}
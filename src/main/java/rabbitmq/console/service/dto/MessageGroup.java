@@ -0,0 +1,63 @@
+package rabbitmq.console.service.dto;
+
+import java.util.Date;
+
+import lombok.Data;
+
+/**
+ * 元のキューとペイロードが同一のDead Letterメッセージのグループ.
+ *
+ * @author Tomoaki Mikami
+ */
+@Data
+public class MessageGroup {
+  /**
+   * グループID(元のキューとペイロードのハッシュ値).
+   */
+  private String groupId;
+
+  /**
+   * 元のキュー名.
+   */
+  private String originalQueue;
+
+  /**
+   * 最初に見つかったメッセージのDead Letter理由.
+   */
+  private String reason;
+
+  /**
+   * メッセージ数.
+   */
+  private int count;
+
+  /**
+   * 最も古いDead Letter時刻.
+   */
+  private Date firstDeadLetteredAt;
+
+  /**
+   * 最も新しいDead Letter時刻.
+   */
+  private Date lastDeadLetteredAt;
+
+  /**
+   * 最小のMutex ID.
+   */
+  private Long minMutex;
+
+  /**
+   * 最大のMutex ID.
+   */
+  private Long maxMutex;
+
+  /**
+   * ペイロードのバイト数.
+   */
+  private int payloadBytes;
+
+  /**
+   * ペイロードの先頭部分.
+   */
+  private String preview;
+}
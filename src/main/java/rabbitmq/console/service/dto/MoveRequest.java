@@ -0,0 +1,36 @@
+package rabbitmq.console.service.dto;
+
+import lombok.Data;
+
+/**
+ * キュー間のメッセージ移動要求.
+ *
+ * @author Tomoaki Mikami
+ */
+@Data
+public class MoveRequest {
+  /**
+   * 移動元キュー.
+   */
+  private String sourceQueue;
+
+  /**
+   * 移動先exchange. 未指定の場合はデフォルトexchange(移動先ルーティングキーをキュー名とみなす).
+   */
+  private String targetExchange = "";
+
+  /**
+   * 移動先ルーティングキー.
+   */
+  private String targetRoutingKey;
+
+  /**
+   * 移動する最大件数. 0の場合は移動開始時点のメッセージ数.
+   */
+  private int maxMessages = 0;
+
+  /**
+   * 移動対象メッセージの絞り込み条件. 未指定の場合は全メッセージ.
+   */
+  private MessageFilter filter = new MessageFilter();
+}
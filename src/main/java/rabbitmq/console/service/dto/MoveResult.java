@@ -0,0 +1,41 @@
+package rabbitmq.console.service.dto;
+
+import lombok.Data;
+
+/**
+ * キュー間のメッセージ移動結果.
+ *
+ * @author Tomoaki Mikami
+ */
+@Data
+public class MoveResult {
+  /**
+   * 走査したメッセージ数.
+   */
+  private int scanned;
+
+  /**
+   * 移動したメッセージ数.
+   */
+  private int moved;
+
+  /**
+   * 移動したメッセージに合わせて削除したミューテックス数.
+   */
+  private int releasedMutexes;
+
+  /**
+   * 所要時間(ミリ秒).
+   */
+  private long elapsed;
+
+  /**
+   * 移動を打ち切った場合の理由(対象外のメッセージの保持上限に達した場合など). 打ち切った時点までの移動は完了している.
+   */
+  private String incompleteReason;
+
+  /**
+   * 処理に失敗した場合のエラー内容. 失敗した時点までに移動したメッセージは移動元から削除済み.
+   */
+  private String error;
+}
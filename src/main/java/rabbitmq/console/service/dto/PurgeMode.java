@@ -0,0 +1,23 @@
+package rabbitmq.console.service.dto;
+
+/**
+ * Dead Letter Queueを空にする方法.
+ *
+ * @author Tomoaki Mikami
+ */
+public enum PurgeMode {
+  /**
+   * queue.purgeで一括削除する. ミューテックスは削除せず、Mutexスイーパーによる期限切れ削除に任せる.
+   */
+  PURGE,
+
+  /**
+   * 1件ずつ取り出して削除し、ミューテックスもまとめて削除する.
+   */
+  DELETE,
+
+  /**
+   * Backup Queueへ移動し、ミューテックスもまとめて削除する.
+   */
+  BACKUP
+}
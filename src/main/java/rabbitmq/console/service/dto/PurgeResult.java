@@ -0,0 +1,36 @@
+package rabbitmq.console.service.dto;
+
+import lombok.Data;
+
+/**
+ * Dead Letter Queueを空にした結果.
+ *
+ * @author Tomoaki Mikami
+ */
+@Data
+public class PurgeResult {
+  /**
+   * 方法.
+   */
+  private PurgeMode mode;
+
+  /**
+   * 削除(BACKUPの場合は待避)したメッセージ数.
+   */
+  private int purged;
+
+  /**
+   * 削除したミューテックス数.
+   */
+  private int releasedMutexes;
+
+  /**
+   * 所要時間(ミリ秒).
+   */
+  private long elapsed;
+
+  /**
+   * 処理に失敗した場合のエラー内容. 失敗した時点までに削除したメッセージは削除済み.
+   */
+  private String error;
+}
@@ -0,0 +1,26 @@
+package rabbitmq.console.service.dto;
+
+import lombok.Data;
+
+/**
+ * キュー内容の変化を安価に検知するための版情報(メッセージ数と先頭メッセージのハッシュ).
+ *
+ * @author Tomoaki Mikami
+ */
+@Data
+public class QueueVersion {
+  /**
+   * キュー名.
+   */
+  private String queueName;
+
+  /**
+   * メッセージ数.
+   */
+  private long messageCount;
+
+  /**
+   * 先頭メッセージのハッシュ(メッセージが無い場合は0).
+   */
+  private long headHash;
+}
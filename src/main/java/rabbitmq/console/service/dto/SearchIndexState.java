@@ -0,0 +1,23 @@
+package rabbitmq.console.service.dto;
+
+/**
+ * 全文検索用インデックスの状態.
+ *
+ * @author Tomoaki Mikami
+ */
+public enum SearchIndexState {
+  /**
+   * 使用しない設定、未構築またはメモリ上限超過のため使用できない.
+   */
+  UNAVAILABLE,
+
+  /**
+   * 構築後にこの画面を経由せずキューの内容が変わったため使用できない. バックグラウンドで再構築する.
+   */
+  STALE,
+
+  /**
+   * 検索に使用できる.
+   */
+  AVAILABLE
+}
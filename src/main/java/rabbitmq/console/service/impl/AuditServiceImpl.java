@@ -0,0 +1,261 @@
+package rabbitmq.console.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import rabbitmq.console.component.AuditOperatorHolder;
+import rabbitmq.console.component.BrokerTargetRegistry;
+import rabbitmq.console.configuration.DlqProperties;
+import rabbitmq.console.repository.AuditLogRepository;
+import rabbitmq.console.repository.entity.AuditEntry;
+import rabbitmq.console.service.AuditService;
+import rabbitmq.console.service.dto.AuditAction;
+import rabbitmq.console.service.dto.AuditOutcome;
+import rabbitmq.console.service.dto.AuditPage;
+import rabbitmq.console.service.dto.DeadLetteredMessage;
+
+/**
+ * 更新操作の監査ログを扱うサービス.
+ *
+ * <p>
+ * 記録は書き込み待ちのキュー(ロックなし)に積むだけで、更新操作をテーブルへの書き込みで待たせない。 書き込み用スレッドが一定間隔で書き込み待ちを取り出し、バッチでまとめて登録する.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+@Service
+@Slf4j
+public class AuditServiceImpl implements AuditService {
+  /**
+   * 詳細カラムの最大文字数.
+   */
+  private static final int MAX_DETAIL_LENGTH = 1000;
+
+  /**
+   * Dead Letter Queue関連プロパティ.
+   */
+  @Autowired
+  private DlqProperties dlqProperties;
+
+  /**
+   * 監査ログテーブル用リポジトリ.
+   */
+  @Autowired
+  private AuditLogRepository auditLogRepository;
+
+  /**
+   * 接続先一覧.
+   */
+  @Autowired
+  private BrokerTargetRegistry brokerTargetRegistry;
+
+  /**
+   * 破棄件数メトリクス.
+   */
+  @Autowired
+  private CounterService counterService;
+
+  /**
+   * 書き込み待ち件数メトリクス.
+   */
+  @Autowired
+  private GaugeService gaugeService;
+
+  /**
+   * 書き込み待ちの監査ログ.
+   */
+  private final Queue<AuditEntry> pending = new ConcurrentLinkedQueue<>();
+
+  /**
+   * 書き込み待ちの件数. ConcurrentLinkedQueue#size()は全件を数えるので別に数える.
+   */
+  private final AtomicInteger pendingCount = new AtomicInteger();
+
+  /**
+   * 書き込み用スレッド.
+   */
+  private final ScheduledExecutorService writer = Executors
+      .newSingleThreadScheduledExecutor(writerThreadFactory());
+
+  /**
+   * 書き込み用スレッドファクトリを生成する.
+   *
+   * @return スレッドファクトリ
+   */
+  private static CustomizableThreadFactory writerThreadFactory() {
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("dlq-audit-");
+    threadFactory.setDaemon(true);
+    return threadFactory;
+  }
+
+  /**
+   * 書き込みを開始する.
+   */
+  @PostConstruct
+  public void initialize() {
+    if (isEnabled()) {
+      long interval = dlqProperties.getAudit().getFlushInterval();
+      writer.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * 書き込みを停止し、書き込み待ちを全て書き込む.
+   */
+  @PreDestroy
+  public void shutdown() {
+    writer.shutdown();
+    try {
+      writer.awaitTermination(dlqProperties.getAudit().getFlushInterval(), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (isEnabled()) {
+      flush();
+    }
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public boolean isEnabled() {
+    return dlqProperties.getAudit().isEnabled();
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public void record(AuditAction action, String queueName, DeadLetteredMessage message,
+      AuditOutcome outcome, String detail) {
+    AuditEntry entry = entry(action, queueName, outcome, detail);
+    if (message != null) {
+      entry.setMessageId(message.getProperties().getMessageId());
+      entry.setMutex(message.getProperties().getHeaders().getExtraMessageMutex());
+    }
+    offer(entry);
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public void record(AuditAction action, String queueName, AuditOutcome outcome, String detail) {
+    offer(entry(action, queueName, outcome, detail));
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public void recordAll(Collection<AuditEntry> entries) {
+    entries.forEach(this::offer);
+  }
+
+  /**
+   * 監査ログを組み立てる.
+   *
+   * @param action 操作
+   * @param queueName 操作対象のキュー名
+   * @param outcome 結果
+   * @param detail 詳細。無ければnull
+   * @return 監査ログ
+   */
+  private AuditEntry entry(AuditAction action, String queueName, AuditOutcome outcome,
+      String detail) {
+    AuditEntry entry = new AuditEntry();
+    entry.setAction(action.name());
+    entry.setQueueName(queueName);
+    entry.setOutcome(outcome.name());
+    entry.setDetail(detail);
+    return entry;
+  }
+
+  /**
+   * 監査ログを書き込み待ちに積む. 上限に達している場合は破棄する.
+   *
+   * @param entry 監査ログ
+   */
+  private void offer(AuditEntry entry) {
+    if (!isEnabled()) {
+      return;
+    }
+    if (entry.getRecordedAt() == null) {
+      entry.setRecordedAt(new Date());
+    }
+    if (entry.getOperator() == null) {
+      entry.setOperator(AuditOperatorHolder.get());
+    }
+    if (entry.getTarget() == null) {
+      entry.setTarget(brokerTargetRegistry.current().getName());
+    }
+    if (entry.getDetail() != null && entry.getDetail().length() > MAX_DETAIL_LENGTH) {
+      entry.setDetail(entry.getDetail().substring(0, MAX_DETAIL_LENGTH));
+    }
+    if (pendingCount.incrementAndGet() > dlqProperties.getAudit().getCapacity()) {
+      pendingCount.decrementAndGet();
+      counterService.increment("dlq.audit.dropped");
+      return;
+    }
+    pending.offer(entry);
+  }
+
+  /**
+   * 書き込み待ちをバッチ単位で全て書き込む. 書き込みに失敗したバッチは破棄する.
+   */
+  void flush() {
+    final int batchSize = dlqProperties.getAudit().getBatchSize();
+    List<AuditEntry> batch = new ArrayList<>(batchSize);
+    while (true) {
+      AuditEntry entry;
+      while (batch.size() < batchSize && (entry = pending.poll()) != null) {
+        pendingCount.decrementAndGet();
+        batch.add(entry);
+      }
+      if (batch.isEmpty()) {
+        break;
+      }
+      try {
+        auditLogRepository.saveAll(batch);
+      } catch (RuntimeException e) {
+        log.warn(String.format("Failed to write audit entries. Entries:%d", batch.size()), e);
+        batch.forEach(failed -> counterService.increment("dlq.audit.dropped"));
+      }
+      batch.clear();
+    }
+    gaugeService.submit("dlq.audit.pending", pendingCount.get());
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public AuditPage findPage(int page) {
+    int pageSize = dlqProperties.getAudit().getPageSize();
+    AuditPage result = new AuditPage();
+    result.setPage(Math.max(page, 0));
+    result.setPageSize(pageSize);
+    result.setTotal(auditLogRepository.count());
+    result.setEntries(auditLogRepository.findPage(result.getPage() * pageSize, pageSize));
+    return result;
+  }
+}
@@ -0,0 +1,234 @@
+package rabbitmq.console.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import rabbitmq.console.component.AuditOperatorHolder;
+import rabbitmq.console.component.BrokerTarget;
+import rabbitmq.console.component.BrokerTargetHolder;
+import rabbitmq.console.component.BrokerTargetRegistry;
+import rabbitmq.console.component.BrowseMemoryLimiter;
+import rabbitmq.console.component.DlqExecutors;
+import rabbitmq.console.component.MessageSnapshot;
+import rabbitmq.console.component.ScanRegistry;
+import rabbitmq.console.configuration.DlqProperties;
+import rabbitmq.console.service.CrossQueueService;
+import rabbitmq.console.service.QueueService;
+import rabbitmq.console.service.SearchIndexService;
+import rabbitmq.console.service.dto.BrowseResult;
+import rabbitmq.console.service.dto.BulkActionResult;
+import rabbitmq.console.service.dto.DeadLetterQueue;
+import rabbitmq.console.service.dto.DeadLetteredMessage;
+import rabbitmq.console.service.dto.MessageAction;
+import rabbitmq.console.service.dto.MessageFilter;
+
+/**
+ * 複数のDead Letter Queueをまとめて扱うサービス.
+ *
+ * @author Tomoaki Mikami
+ */
+@Service
+@Slf4j
+public class CrossQueueServiceImpl implements CrossQueueService {
+  /**
+   * キューサービス.
+   */
+  @Autowired
+  private QueueService queueService;
+
+  /**
+   * 全文検索用インデックスサービス.
+   */
+  @Autowired
+  private SearchIndexService searchIndexService;
+
+  /**
+   * コンソール専用のスレッドプール.
+   */
+  @Autowired
+  private DlqExecutors dlqExecutors;
+
+  /**
+   * 接続先一覧.
+   */
+  @Autowired
+  private BrokerTargetRegistry brokerTargetRegistry;
+
+  /**
+   * Dead Letter Queue関連プロパティ.
+   */
+  @Autowired
+  private DlqProperties dlqProperties;
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public List<DeadLetterQueue> overview() {
+    return overviewAllTargets(Collections.singletonList(brokerTargetRegistry.current()))
+        .get(brokerTargetRegistry.current().getName());
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public Map<String, List<DeadLetterQueue>> overviewAllTargets() {
+    return overviewAllTargets(brokerTargetRegistry.list());
+  }
+
+  /**
+   * 接続先毎のDead Letter Queueの概要を取得.
+   *
+   * @param targets 接続先一覧
+   * @return 接続先毎のDead Letter Queue一覧マップ(キー:接続先名,値:Dead Letter Queue一覧)
+   */
+  private Map<String, List<DeadLetterQueue>> overviewAllTargets(Collection<BrokerTarget> targets) {
+    Map<String, Map<String, DeadLetterQueue>> results = fanOut(targets, dlqName -> {
+      DeadLetterQueue queue = new DeadLetterQueue();
+      queue.setDlqName(dlqName);
+      queue.setBackupQueueName(queueService.resolveBackupQueueName(dlqName));
+      queue.setMessageCount(queueService.countMessages(dlqName));
+      queue.setBackupMessageCount(queueService.countMessages(queue.getBackupQueueName()));
+      queue.setTotalDeathCount(searchIndexService.totalDeathCount(dlqName));
+      return queue;
+    });
+    Map<String, List<DeadLetterQueue>> overview = new LinkedHashMap<>();
+    for (BrokerTarget target : targets) {
+      List<DeadLetterQueue> list = new ArrayList<>();
+      results.get(target.getName()).forEach((dlqName, queue) -> {
+        if (queue == null) { // 取得に失敗したキューも一覧には出す
+          queue = new DeadLetterQueue();
+          queue.setDlqName(dlqName);
+          queue.setBackupQueueName(target.getDeadLetterQueue().get(dlqName));
+        }
+        list.add(queue);
+      });
+      overview.put(target.getName(), list);
+    }
+    return overview;
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public Map<String, List<String>> search(String keyword) {
+    return fanOut(dlqName -> queueService.searchMessageIds(dlqName, keyword));
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public Map<String, BulkActionResult> republish(MessageFilter filter) {
+    return fanOut(dlqName -> {
+      try {
+        return queueService.applyMessageActions(dlqName,
+            message -> filter.matches(message) ? MessageAction.REPUBLISH : MessageAction.KEEP);
+      } catch (RuntimeException e) {
+        log.warn(String.format("Failed to republish. Queue:%s", dlqName), e);
+        BulkActionResult result = new BulkActionResult();
+        result.setError(e.getMessage());
+        return result;
+      }
+    });
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public Map<String, BrowseResult> export() {
+    return fanOut(queueService::exportDeadLetteredMessages);
+  }
+
+  /**
+   * 操作対象の接続先の全Dead Letter Queueに対して処理を並列実行し、結果をキュー定義順に集約する.
+   * 各処理はそれぞれ別のチャネルを使うので、全体の所要時間は最も遅いキューの処理時間に近くなる.
+   *
+   * @param task Dead Letter Queue毎の処理
+   * @return 処理結果マップ(キー:Dead Letter Queue名,値:処理結果。失敗した場合はnull)
+   */
+  private <T> Map<String, T> fanOut(Function<String, T> task) {
+    BrokerTarget target = brokerTargetRegistry.current();
+    return fanOut(Collections.singletonList(target), task).get(target.getName());
+  }
+
+  /**
+   * 複数接続先の全Dead Letter Queueに対して処理を一斉に並列実行し、結果を接続先毎に集約する.
+   *
+   * @param targets 接続先一覧
+   * @param task Dead Letter Queue毎の処理
+   * @return 処理結果マップ(キー:接続先名,値:Dead Letter Queue名をキーとする処理結果マップ)
+   */
+  private <T> Map<String, Map<String, T>> fanOut(Collection<BrokerTarget> targets,
+      Function<String, T> task) {
+    // 入れ子にするとプールを食い潰して待ち合うので、全接続先・全キュー分を一度に投入する
+    Map<String, Map<String, Future<T>>> futures = new LinkedHashMap<>();
+    String previousTarget = BrokerTargetHolder.get();
+    try {
+      for (BrokerTarget target : targets) {
+        BrokerTargetHolder.set(target.getName());
+        Map<String, Future<T>> targetFutures = new LinkedHashMap<>();
+        for (String dlqName : target.getDeadLetterQueue().keySet()) {
+          targetFutures.put(dlqName,
+              dlqExecutors.getFanOut().submit(AuditOperatorHolder.wrap(BrokerTargetHolder
+                  .wrap(MessageSnapshot.wrap(BrowseMemoryLimiter
+                      .wrap(ScanRegistry.wrap(() -> task.apply(dlqName))))))));
+        }
+        futures.put(target.getName(), targetFutures);
+      }
+    } finally {
+      BrokerTargetHolder.set(previousTarget);
+    }
+    // 全キュー共通の期限まで待ち、応答しないキューがあっても他のキューの結果は返す
+    final long deadline = System.currentTimeMillis() + dlqProperties.getFanOutTimeout();
+    Map<String, Map<String, T>> results = new LinkedHashMap<>();
+    futures.forEach((targetName, targetFutures) -> {
+      Map<String, T> targetResults = new LinkedHashMap<>();
+      targetFutures.forEach(
+          (dlqName, future) -> targetResults.put(dlqName, await(dlqName, future, deadline)));
+      results.put(targetName, targetResults);
+    });
+    return results;
+  }
+
+  /**
+   * 並列実行した処理の完了を期限まで待つ. 期限を過ぎた処理は取り消し(実行中の走査は打ち切られる)、失敗として扱う.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param future 処理結果
+   * @param deadline 期限(エポックミリ秒)
+   * @return 処理結果。失敗した場合・期限を過ぎた場合はnull
+   */
+  private <T> T await(String dlqName, Future<T> future, long deadline) {
+    try {
+      return future.get(Math.max(deadline - System.currentTimeMillis(), 0),
+          TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.cancel(true);
+    } catch (ExecutionException e) {
+      log.warn(String.format("Failed to process queue. Queue:%s", dlqName), e.getCause());
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      log.warn(String.format("Timed out processing queue. Queue:%s,Timeout:%dms", dlqName,
+          dlqProperties.getFanOutTimeout()));
+    }
+    return null;
+  }
+}
@@ -0,0 +1,298 @@
+package rabbitmq.console.service.impl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dead Letter Queue単位の転置インデックス.
+ *
+ * <p>
+ * トークンからメッセージIDの集合を引けるようにする。 メモリ使用量の見積もりが上限を超えた場合は、不完全なインデックスで誤った検索結果を返さないよう
+ * 内容を破棄して溢れ状態とする。
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+class DeadLetterQueueIndex {
+  /**
+   * トークン1件あたりの見積もりオーバーヘッド(String本体 + HashMapエントリ + HashSet).
+   */
+  private static final int TOKEN_OVERHEAD_BYTES = 128;
+
+  /**
+   * ポスティング1件あたりの見積もりオーバーヘッド(HashSetエントリ).
+   */
+  private static final int POSTING_OVERHEAD_BYTES = 48;
+
+  /**
+   * メッセージ1件あたりの見積もりオーバーヘッド(ID文字列 + トークン配列 + Dead Letter Queue入り回数).
+   */
+  private static final int DOCUMENT_OVERHEAD_BYTES = 128;
+
+  /**
+   * 最大メモリ使用量(バイト).
+   */
+  private final long maxBytes;
+
+  /**
+   * トークン→メッセージID集合.
+   */
+  private final Map<String, Set<String>> postings = new HashMap<>();
+
+  /**
+   * メッセージID→トークン配列(削除用).
+   */
+  private final Map<String, String[]> documents = new HashMap<>();
+
+  /**
+   * メッセージID→Dead Letter Queue入り回数の合計.
+   */
+  private final Map<String, Long> deathCounts = new HashMap<>();
+
+  /**
+   * 登録メッセージのDead Letter Queue入り回数の総計.
+   */
+  private long totalDeathCount = 0;
+
+  /**
+   * 見積もりメモリ使用量(バイト).
+   */
+  private long estimatedBytes = 0;
+
+  /**
+   * メモリ上限を超えたかどうか.
+   */
+  private boolean overflowed = false;
+
+  /**
+   * 構築時に走査した、メッセージIDが無いため登録できなかったメッセージ数.
+   */
+  private int unidentified = 0;
+
+  /**
+   * 構築時にキューの先頭にあったメッセージのID. 先頭にメッセージIDが無かった場合・空だった場合はnull.
+   */
+  private String headMessageId;
+
+  /**
+   * 構築後にこの画面を経由せずキューの内容が変わったかどうか.
+   */
+  private boolean stale = false;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param maxBytes 最大メモリ使用量(バイト)
+   */
+  DeadLetterQueueIndex(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * メッセージをインデックスへ登録する.
+   *
+   * @param messageId メッセージID
+   * @param tokens トークン集合
+   * @param deathCount Dead Letter Queue入り回数の合計
+   * @return 登録できればtrue。メモリ上限を超えた場合はfalse
+   */
+  synchronized boolean add(String messageId, Collection<String> tokens, long deathCount) {
+    if (overflowed) {
+      return false;
+    }
+    remove(messageId);
+    String[] tokenArray = tokens.toArray(new String[tokens.size()]);
+    documents.put(messageId, tokenArray);
+    deathCounts.put(messageId, deathCount);
+    totalDeathCount += deathCount;
+    estimatedBytes += DOCUMENT_OVERHEAD_BYTES + messageId.length() * 2L;
+    for (String token : tokenArray) {
+      Set<String> ids = postings.get(token);
+      if (ids == null) {
+        ids = new LinkedHashSet<>();
+        postings.put(token, ids);
+        estimatedBytes += TOKEN_OVERHEAD_BYTES + token.length() * 2L;
+      }
+      ids.add(messageId);
+      estimatedBytes += POSTING_OVERHEAD_BYTES;
+    }
+    if (estimatedBytes > maxBytes) {
+      // 不完全なインデックスは検索に使えないので破棄してメモリを返す
+      postings.clear();
+      documents.clear();
+      deathCounts.clear();
+      totalDeathCount = 0;
+      estimatedBytes = 0;
+      overflowed = true;
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * メッセージをインデックスから削除する.
+   *
+   * @param messageId メッセージID
+   */
+  synchronized void remove(String messageId) {
+    if (messageId.equals(headMessageId)) {
+      // 先頭のメッセージがこの画面から削除・再登録された後は、先頭が変わっても古くなったとはみなさない
+      headMessageId = null;
+    }
+    String[] tokens = documents.remove(messageId);
+    if (tokens == null) {
+      return;
+    }
+    estimatedBytes -= DOCUMENT_OVERHEAD_BYTES + messageId.length() * 2L;
+    Long deathCount = deathCounts.remove(messageId);
+    if (deathCount != null) {
+      totalDeathCount -= deathCount;
+    }
+    for (String token : tokens) {
+      Set<String> ids = postings.get(token);
+      if (ids != null && ids.remove(messageId)) {
+        estimatedBytes -= POSTING_OVERHEAD_BYTES;
+        if (ids.isEmpty()) {
+          postings.remove(token);
+          estimatedBytes -= TOKEN_OVERHEAD_BYTES + token.length() * 2L;
+        }
+      }
+    }
+  }
+
+  /**
+   * 全てのトークンを含むメッセージIDを検索する.
+   *
+   * @param queryTokens 検索トークン集合
+   * @return 合致したメッセージIDとDead Letter Queue入り回数の合計のマップ(登録順)
+   */
+  synchronized Map<String, Long> search(Collection<String> queryTokens) {
+    if (queryTokens.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    Set<String> result = null;
+    for (String token : queryTokens) {
+      Set<String> ids = postings.get(token);
+      if (ids == null) {
+        return Collections.emptyMap();
+      }
+      if (result == null) {
+        result = new LinkedHashSet<>(ids);
+      } else {
+        result.retainAll(ids);
+      }
+      if (result.isEmpty()) {
+        break;
+      }
+    }
+    Map<String, Long> hits = new LinkedHashMap<>();
+    result.forEach(messageId -> hits.put(messageId, deathCounts.get(messageId)));
+    return hits;
+  }
+
+  /**
+   * メモリ上限を超えたかどうか.
+   *
+   * @return 超えていればtrue
+   */
+  synchronized boolean isOverflowed() {
+    return overflowed;
+  }
+
+  /**
+   * 登録メッセージ数.
+   *
+   * @return 登録メッセージ数
+   */
+  synchronized int size() {
+    return documents.size();
+  }
+
+  /**
+   * メッセージIDが無いため登録できなかったメッセージを数える.
+   */
+  synchronized void skipUnidentified() {
+    unidentified++;
+  }
+
+  /**
+   * 構築時に走査したメッセージのうち、メッセージIDが無いため登録できなかったメッセージ数.
+   *
+   * @return メッセージ数
+   */
+  synchronized int getUnidentified() {
+    return unidentified;
+  }
+
+  /**
+   * 構築時にキューの先頭にあったメッセージのIDを記録する.
+   *
+   * @param messageId メッセージID
+   */
+  synchronized void setHeadMessageId(String messageId) {
+    headMessageId = messageId;
+  }
+
+  /**
+   * 構築時にキューの先頭にあり、この画面から削除されていないメッセージのID.
+   *
+   * @return メッセージID。記録が無いか削除済みの場合はnull
+   */
+  synchronized String getHeadMessageId() {
+    return headMessageId;
+  }
+
+  /**
+   * 古くなったことを記録する. 一度古くなったインデックスは再構築で差し替えるまで使わない.
+   */
+  synchronized void markStale() {
+    stale = true;
+  }
+
+  /**
+   * 古くなったかどうか.
+   *
+   * @return 古くなっていればtrue
+   */
+  synchronized boolean isStale() {
+    return stale;
+  }
+
+  /**
+   * 登録メッセージのDead Letter Queue入り回数の総計.
+   *
+   * @return 総計
+   */
+  synchronized long getTotalDeathCount() {
+    return totalDeathCount;
+  }
+
+  /**
+   * 文字列をトークンへ分割する. 英数字(および各国語の文字)の連続を1トークンとし、小文字化する.
+   *
+   * @param text 文字列
+   * @param tokens 分割結果の追加先
+   */
+  static void tokenize(CharSequence text, Set<String> tokens) {
+    if (text == null) {
+      return;
+    }
+    int length = text.length();
+    int start = -1;
+    for (int i = 0; i <= length; i++) {
+      boolean letter = i < length && Character.isLetterOrDigit(text.charAt(i));
+      if (letter && start < 0) {
+        start = i;
+      } else if (!letter && start >= 0) {
+        tokens.add(text.subSequence(start, i).toString().toLowerCase(Locale.ROOT));
+        start = -1;
+      }
+    }
+  }
+}
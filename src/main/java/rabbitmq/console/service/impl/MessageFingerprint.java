@@ -0,0 +1,147 @@
+package rabbitmq.console.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.util.StringUtils;
+
+import com.rabbitmq.client.GetResponse;
+import com.rabbitmq.client.LongString;
+
+import rabbitmq.console.service.dto.DeadLetteredMessage;
+import rabbitmq.console.service.dto.DeadLetteredMessage.MessageHeader;
+import rabbitmq.console.service.dto.DeadLetteredMessage.XDeath;
+
+/**
+ * 処理対象メッセージの同一性判定用の指紋.
+ *
+ * <p>
+ * 処理対象メッセージから一度だけ生成し、キューを走査する際は受信メッセージのヘッダを文字列化せずに比較する。
+ * 大半の候補はDead Letter時刻(long)の比較で除外できるため、受信メッセージ毎のオブジェクト生成はほぼ発生しない。
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+final class MessageFingerprint {
+  /**
+   * 時刻が存在しないことを表す値.
+   */
+  private static final long NO_TIME = Long.MIN_VALUE;
+
+  /**
+   * メッセージID.
+   */
+  private final String messageId;
+
+  /**
+   * Dead Letter時刻(エポックミリ秒).
+   */
+  private final long deadLetteredTime;
+
+  /**
+   * 元のキュー名(UTF-8).
+   */
+  private final byte[] originalQueue;
+
+  /**
+   * Mutex ID(UTF-8).
+   */
+  private final byte[] mutex;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param messageId メッセージID
+   * @param deadLetteredTime Dead Letter時刻
+   * @param originalQueue 元のキュー名
+   * @param mutex Mutex ID
+   */
+  private MessageFingerprint(String messageId, long deadLetteredTime, byte[] originalQueue,
+      byte[] mutex) {
+    this.messageId = messageId;
+    this.deadLetteredTime = deadLetteredTime;
+    this.originalQueue = originalQueue;
+    this.mutex = mutex;
+  }
+
+  /**
+   * 処理対象メッセージから指紋を生成する.
+   *
+   * @param message 処理対象メッセージ
+   * @return 指紋
+   */
+  static MessageFingerprint of(DeadLetteredMessage message) {
+    String messageId = message.getProperties().getMessageId();
+    MessageHeader messageHeader = message.getProperties().getHeaders();
+    XDeath extraDeath = messageHeader.getExtraDeaths().get(0);
+    Date time = extraDeath.getTime();
+    return new MessageFingerprint(StringUtils.hasText(messageId) ? messageId : null,
+        time == null ? NO_TIME : time.getTime(), toBytes(extraDeath.getQueue()),
+        toBytes(messageHeader.getExtraMessageMutex()));
+  }
+
+  /**
+   * 文字列をUTF-8のバイト列へ変換する.
+   *
+   * @param value 文字列
+   * @return バイト列。文字列がNULLの場合はNULL
+   */
+  private static byte[] toBytes(String value) {
+    return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * 受信メッセージが処理対象メッセージと同一かどうかを判定する.
+   *
+   * @param response 受信メッセージ
+   * @return 同一であればtrue
+   */
+  boolean matches(GetResponse response) {
+    // メッセージIDを最優先で比較
+    String responseMessageId = response.getProps().getMessageId();
+    if (messageId != null && StringUtils.hasText(responseMessageId)) {
+      return messageId.equals(responseMessageId);
+    }
+    Map<String, Object> headers = response.getProps().getHeaders();
+    if (headers == null) {
+      return false;
+    }
+    Object extraDeaths = headers.get(QueueServiceImpl.X_DEATH_KEY);
+    if (!(extraDeaths instanceof List) || ((List<?>) extraDeaths).isEmpty()) {
+      return false;
+    }
+    Object extraDeath = ((List<?>) extraDeaths).get(0);
+    if (!(extraDeath instanceof Map)) {
+      return false;
+    }
+    Map<?, ?> extraDeathMap = (Map<?, ?>) extraDeath;
+    // 最も選択性の高いDead Letter時刻で先に除外する
+    Object time = extraDeathMap.get("time");
+    if (!(time instanceof Date) || ((Date) time).getTime() != deadLetteredTime) {
+      return false;
+    }
+    return sameBytes(originalQueue, extraDeathMap.get("queue"))
+        && sameBytes(mutex, headers.get(QueueServiceImpl.X_MUTEX_KEY));
+  }
+
+  /**
+   * ヘッダ値が期待するバイト列と一致するかどうかを判定する.
+   *
+   * @param expected 期待するバイト列
+   * @param value ヘッダ値
+   * @return 一致すればtrue
+   */
+  private static boolean sameBytes(byte[] expected, Object value) {
+    if (expected == null || value == null) {
+      return expected == null && value == null;
+    }
+    if (value instanceof LongString) {
+      // LongString#getBytesは内部配列を返すのでコピーは発生しない
+      return Arrays.equals(expected, ((LongString) value).getBytes());
+    }
+    return Arrays.equals(expected, toBytes(value.toString()));
+  }
+}
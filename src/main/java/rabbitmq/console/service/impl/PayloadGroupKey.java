@@ -0,0 +1,66 @@
+package rabbitmq.console.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.rabbitmq.client.GetResponse;
+import com.rabbitmq.client.LongString;
+
+/**
+ * 元のキューとペイロードからグループIDを導出する.
+ *
+ * <p>
+ * ペイロードは文字列へ変換せず、受信したバイト列をそのままハッシュ関数へ流し込む。 ダイジェストは走査の間使い回すので、インスタンスはスレッド間で共有しない.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+final class PayloadGroupKey {
+  /**
+   * 16進数の文字.
+   */
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  /**
+   * ダイジェスト.
+   */
+  private final MessageDigest digest;
+
+  /**
+   * コンストラクタ.
+   */
+  PayloadGroupKey() {
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * 受信メッセージのグループIDを導出する.
+   *
+   * @param response 受信メッセージ
+   * @return グループID
+   */
+  String of(GetResponse response) {
+    Object queue = XDeathHeaders.latest(response.getProps().getHeaders()).get("queue");
+    if (queue instanceof LongString) {
+      // LongString#getBytesは内部配列を返すのでコピーは発生しない
+      digest.update(((LongString) queue).getBytes());
+    } else if (queue != null) {
+      digest.update(queue.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    // キュー名とペイロードの境界
+    digest.update((byte) 0);
+    digest.update(response.getBody());
+    byte[] hash = digest.digest();
+    char[] hex = new char[hash.length * 2];
+    for (int i = 0; i < hash.length; i++) {
+      hex[i * 2] = HEX[(hash[i] >> 4) & 0x0f];
+      hex[i * 2 + 1] = HEX[hash[i] & 0x0f];
+    }
+    return new String(hex);
+  }
+}
@@ -0,0 +1,111 @@
+package rabbitmq.console.service.impl;
+
+import org.springframework.amqp.AmqpException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import lombok.extern.slf4j.Slf4j;
+import rabbitmq.console.component.BrokerTargetRegistry;
+import rabbitmq.console.service.AuditService;
+import rabbitmq.console.service.PurgeService;
+import rabbitmq.console.service.QueueService;
+import rabbitmq.console.service.SearchIndexService;
+import rabbitmq.console.service.ShovelService;
+import rabbitmq.console.service.dto.AuditAction;
+import rabbitmq.console.service.dto.AuditOutcome;
+import rabbitmq.console.service.dto.MoveResult;
+import rabbitmq.console.service.dto.PurgeMode;
+import rabbitmq.console.service.dto.PurgeResult;
+
+/**
+ * Dead Letter Queueを空にするサービス.
+ *
+ * <p>
+ * ミューテックスの削除も待避も不要な場合はqueue.purgeで一括削除する。 それ以外はキュー間移動と同じ専用チャネルでバッチ単位に取り出し、
+ * Backup Queueへの登録確認を待ってから移動元を削除する。 取り出したメッセージのミューテックスはバッチ単位でまとめて削除する.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+@Service
+@Slf4j
+public class PurgeServiceImpl implements PurgeService {
+  /**
+   * キューサービス.
+   */
+  @Autowired
+  private QueueService queueService;
+
+  /**
+   * キュー間移動サービス.
+   */
+  @Autowired
+  private ShovelService shovelService;
+
+  /**
+   * 全文検索用インデックスサービス.
+   */
+  @Autowired
+  private SearchIndexService searchIndexService;
+
+  /**
+   * 接続先一覧.
+   */
+  @Autowired
+  private BrokerTargetRegistry brokerTargetRegistry;
+
+  /**
+   * 監査ログサービス.
+   */
+  @Autowired
+  private AuditService auditService;
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public Long countPurgeTargets(String dlqName) {
+    return queueService.countMessages(dlqName);
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public PurgeResult purge(String dlqName, PurgeMode mode) {
+    String backupQueueName = queueService.resolveBackupQueueName(dlqName);
+    if (mode == PurgeMode.BACKUP && StringUtils.isEmpty(backupQueueName)) {
+      throw new IllegalArgumentException("Backup queue is not defined: " + dlqName);
+    }
+    final long startedAt = System.currentTimeMillis();
+    PurgeResult result = new PurgeResult();
+    result.setMode(mode);
+    if (mode == PurgeMode.PURGE) {
+      try {
+        result.setPurged(brokerTargetRegistry.current().getRabbitTemplate()
+            .execute(channel -> channel.queuePurge(dlqName).getMessageCount()));
+      } catch (AmqpException e) {
+        log.warn(String.format("Failed to purge. Queue:%s", dlqName), e);
+        result.setError(e.getMessage());
+      }
+      // 一括削除したメッセージは1件ずつインデックスから削除できないので作り直す
+      searchIndexService.rebuild(dlqName);
+    } else {
+      MoveResult drained = shovelService.drain(dlqName,
+          mode == PurgeMode.BACKUP ? backupQueueName : null);
+      result.setPurged(drained.getMoved());
+      result.setReleasedMutexes(drained.getReleasedMutexes());
+      result.setError(drained.getError());
+    }
+    result.setElapsed(System.currentTimeMillis() - startedAt);
+    log.info(String.format("Purged. Queue:%s,Mode:%s,Purged:%d,Mutexes:%d,Elapsed:%dms", dlqName,
+        mode, result.getPurged(), result.getReleasedMutexes(), result.getElapsed()));
+    auditService.record(AuditAction.PURGE, dlqName,
+        result.getError() == null ? AuditOutcome.SUCCEEDED : AuditOutcome.FAILED,
+        String.format("Mode:%s,Purged:%d,Mutexes:%d%s", mode, result.getPurged(),
+            result.getReleasedMutexes(),
+            result.getError() == null ? "" : ",Error:" + result.getError()));
+    return result;
+  }
+}
@@ -1,19 +1,27 @@
 package rabbitmq.console.service.impl;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
 
-import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.AmqpIOException;
+import org.springframework.amqp.rabbit.connection.ChannelProxy;
+import org.springframework.amqp.rabbit.connection.Connection;
+import org.springframework.amqp.rabbit.connection.RabbitUtils;
 import org.springframework.amqp.rabbit.core.ChannelCallback;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.autoconfigure.amqp.RabbitProperties;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
@@ -23,14 +31,37 @@ import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Envelope;
 import com.rabbitmq.client.GetResponse;
 import com.rabbitmq.client.LongString;
+import com.rabbitmq.client.ShutdownSignalException;
 
 import lombok.extern.slf4j.Slf4j;
 import rabbitmq.console.component.BasicPublishException;
+import rabbitmq.console.component.BrokerTargetRegistry;
+import rabbitmq.console.component.BrowseMemoryLimiter;
+import rabbitmq.console.component.BrowseSession;
+import rabbitmq.console.component.BrowseSessionRegistry;
+import rabbitmq.console.component.DecodePipeline;
+import rabbitmq.console.component.MessageSnapshot;
+import rabbitmq.console.component.RepublishHistory;
+import rabbitmq.console.component.ScanControl;
+import rabbitmq.console.component.ScanIncompleteException;
+import rabbitmq.console.component.ScanRegistry;
 import rabbitmq.console.configuration.DlqProperties;
 import rabbitmq.console.repository.RabbitMqMutexRepository;
+import rabbitmq.console.repository.entity.AuditEntry;
 import rabbitmq.console.repository.entity.RabbitMqMutex;
+import rabbitmq.console.service.AuditService;
 import rabbitmq.console.service.QueueService;
+import rabbitmq.console.service.SearchIndexService;
+import rabbitmq.console.service.dto.AuditAction;
+import rabbitmq.console.service.dto.AuditOutcome;
+import rabbitmq.console.service.dto.BrowseResult;
+import rabbitmq.console.service.dto.BulkActionResult;
 import rabbitmq.console.service.dto.DeadLetteredMessage;
+import rabbitmq.console.service.dto.GroupedMessages;
+import rabbitmq.console.service.dto.MessageAction;
+import rabbitmq.console.service.dto.MessageGroup;
+import rabbitmq.console.service.dto.QueueVersion;
+import rabbitmq.console.service.dto.SearchIndexState;
 import rabbitmq.console.service.dto.DeadLetteredMessage.MessageHeader;
 import rabbitmq.console.service.dto.DeadLetteredMessage.XDeath;
 
@@ -46,12 +77,27 @@ public class QueueServiceImpl implements QueueService {
   /**
    * Dead Letter関連情報保持用ヘッダキー.
    */
-  private static final String X_DEATH_KEY = "x-death";
+  static final String X_DEATH_KEY = "x-death";
 
   /**
    * Mutex ID保持用ヘッダキー.
    */
-  private static final String X_MUTEX_KEY = "x-message-mutex";
+  static final String X_MUTEX_KEY = "x-message-mutex";
+
+  /**
+   * 再登録回数保持用ヘッダキー.
+   */
+  static final String X_REPUBLISH_COUNT_KEY = "x-republish-count";
+
+  /**
+   * 隔離時刻保持用ヘッダキー.
+   */
+  static final String X_QUARANTINED_AT_KEY = "x-quarantined-at";
+
+  /**
+   * 隔離理由保持用ヘッダキー.
+   */
+  static final String X_QUARANTINE_REASON_KEY = "x-quarantine-reason";
 
   /**
    * RabbitMQからメッセージを取得する際のプリフェッチ数
@@ -65,68 +111,214 @@ public class QueueServiceImpl implements QueueService {
   private DlqProperties dlqProperties;
 
   /**
-   * RabbitMQ関連プロパティ.
+   * Mutex ID保持テーブル用リポジトリ.
    */
   @Autowired
-  private RabbitProperties rabbitProperties;
+  private RabbitMqMutexRepository rabbitMqMutexRepository;
 
   /**
-   * Mutex ID保持テーブル用リポジトリ.
+   * 全文検索用インデックスサービス.
    */
   @Autowired
-  private RabbitMqMutexRepository rabbitMqMutexRepository;
+  private SearchIndexService searchIndexService;
 
   /**
-   * RabbitMQコネクションファクトリ.
+   * 接続先一覧.
    */
   @Autowired
-  private ConnectionFactory connectionFactory;
+  private BrokerTargetRegistry brokerTargetRegistry;
 
   /**
-   * RabbitMQテンプレート.
+   * 一覧取得で読み込むバイト数の制限.
    */
   @Autowired
-  private RabbitTemplate rabbitTemplate;
+  private BrowseMemoryLimiter browseMemoryLimiter;
+
+  /**
+   * 再登録履歴.
+   */
+  @Autowired
+  private RepublishHistory republishHistory;
+
+  /**
+   * 実行中の走査一覧.
+   */
+  @Autowired
+  private ScanRegistry scanRegistry;
+
+  /**
+   * 受信と並行して変換するパイプライン.
+   */
+  @Autowired
+  private DecodePipeline decodePipeline;
+
+  /**
+   * 開いている一覧セッション一覧.
+   */
+  @Autowired
+  private BrowseSessionRegistry browseSessionRegistry;
+
+  /**
+   * 監査ログサービス.
+   */
+  @Autowired
+  private AuditService auditService;
+
+  /**
+   * 操作対象の接続先のRabbitMQテンプレートを取得.
+   *
+   * @return RabbitMQテンプレート
+   */
+  private RabbitTemplate currentRabbitTemplate() {
+    return brokerTargetRegistry.current().getRabbitTemplate();
+  }
+
+  /**
+   * キューの走査を開始する. 開始時点のメッセージ数を走査件数の上限とする.
+   *
+   * @param channel チャネル
+   * @param operation 操作名
+   * @param queueName 走査するキュー名
+   * @return 打ち切り条件
+   * @throws IOException キューが存在しない等でメッセージ数を取得できなかった場合
+   */
+  private ScanControl openScan(Channel channel, String operation, String queueName)
+      throws IOException {
+    int depth = channel.queueDeclarePassive(queueName).getMessageCount();
+    return scanRegistry.open(operation, queueName, depth);
+  }
+
+  /**
+   * メッセージ単位の更新操作を実行し、結果を監査ログへ記録する.
+   *
+   * @param action 操作
+   * @param dlqName Dead Letter Queue名
+   * @param message 操作対象のメッセージ
+   * @param detail 成功時に記録する詳細。無ければnull
+   * @param operation 更新操作
+   */
+  private void audited(AuditAction action, String dlqName, DeadLetteredMessage message,
+      String detail, Runnable operation) {
+    try {
+      operation.run();
+    } catch (RuntimeException e) {
+      auditService.record(action, dlqName, message, AuditOutcome.FAILED, e.toString());
+      throw e;
+    }
+    auditService.record(action, dlqName, message, AuditOutcome.SUCCEEDED, detail);
+  }
 
   /**
    * {@inheritDoc}.
    */
   @Override
   public void recoverAllUnackedMessages(String dlqName) {
-    rabbitTemplate.setChannelTransacted(false);
-    rabbitTemplate.execute(channel -> {
+    // 共有テンプレートのトランザクション設定を切り替えると並行処理中の走査に影響するので、非トランザクションのチャネルを直接使う
+    Connection connection = brokerTargetRegistry.current().getConnectionFactory()
+        .createConnection();
+    Channel channel = connection.createChannel(false);
+    try {
       boolean requeue = true;
-      return channel.basicRecover(requeue);
-    });
+      channel.basicRecover(requeue);
+    } catch (IOException e) {
+      throw new AmqpIOException(e);
+    } finally {
+      RabbitUtils.closeChannel(channel);
+      RabbitUtils.closeConnection(connection);
+    }
   }
 
   /**
    * {@inheritDoc}.
    */
   @Override
-  public List<DeadLetteredMessage> listDeadLetteredMessages(String deadLetterQueueName) {
-    return listMessages(deadLetterQueueName, null);
+  public BrowseResult listDeadLetteredMessages(String deadLetterQueueName) {
+    return listMessages(deadLetterQueueName, null, dlqProperties.getMaxCount());
   }
 
   /**
    * {@inheritDoc}.
-   *
-   * @param backupQueueName2
    */
   @Override
-  public List<DeadLetteredMessage> listBackedUpMessages(String dlqName, String backupQueueName) {
-    return listMessages(dlqName, backupQueueName);
+  public BrowseResult listBackedUpMessages(String dlqName, String backupQueueName) {
+    return listMessages(dlqName, backupQueueName, dlqProperties.getMaxCount());
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public BrowseResult exportDeadLetteredMessages(String dlqName) {
+    return listMessages(dlqName, null, Integer.MAX_VALUE);
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public int streamMessages(String dlqName, String backupQueueName, MessageVisitor visitor) {
+    final String queueName = StringUtils.isEmpty(backupQueueName) ? dlqName : backupQueueName;
+    final int maxCount = dlqProperties.getStreamingList().getMaxCount();
+    currentRabbitTemplate().setChannelTransacted(true);
+    return currentRabbitTemplate().execute(channel -> {
+      channel.basicQos(PREFETCH_COUNT);
+      int count = 0;
+      ScanControl scan = openScan(channel, "stream", queueName);
+      DecodePipeline.Window<DeadLetteredMessage> decoding = decodePipeline.open();
+      try {
+        while (count < maxCount && scan.proceed()) {
+          GetResponse response = channel.basicGet(queueName, false);
+          if (response == null) {
+            break;
+          }
+          scan.scanned(response.getBody().length);
+          channel.basicNack(response.getEnvelope().getDeliveryTag(), false, true);
+          scan.nacked();
+          if (extractXDeathMap(response).isEmpty()) { // 対象外メッセージはスキップ
+            continue;
+          }
+          // 変換は次の受信と並行して実行し、受信順に出力する
+          decoding.submit(() -> convertToMessage(response), message -> {
+            message.setDlqName(dlqName);
+            message.setBackupQueueName(backupQueueName);
+            // 保持せずにそのまま出力する
+            try {
+              visitor.visit(message);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+          count++;
+        }
+        decoding.drain();
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      } finally {
+        decoding.close();
+        scanRegistry.close(scan);
+      }
+      return count;
+    });
   }
 
   /**
-   * 指定されたキューにあるメッセージ一覧を取得する.
+   * 指定されたキューにあるメッセージ一覧を、件数と読み込みバイト数の上限まで取得する.
    *
-   * @param queueName キュー名
+   * @param dlqName Dead Letter Queue名
+   * @param backupQueueName Backup Queue名。Dead Letter Queueから取得する場合はnull
+   * @param maxCount 取得最大件数
    * @return メッセージ一覧
    */
-  private List<DeadLetteredMessage> listMessages(String dlqName, String backupQueueName) {
-    rabbitTemplate.setChannelTransacted(true);
-    return rabbitTemplate.execute(listMessageActionCallback(dlqName, backupQueueName));
+  private BrowseResult listMessages(String dlqName, String backupQueueName, int maxCount) {
+    BrowseMemoryLimiter.Reservation reservation = browseMemoryLimiter.open(dlqName);
+    try {
+      currentRabbitTemplate().setChannelTransacted(true);
+      return currentRabbitTemplate()
+          .execute(listMessageActionCallback(dlqName, backupQueueName, maxCount, reservation));
+    } finally {
+      // 取得したメッセージは画面描画・レスポンス出力まで保持されるので、リクエスト完了時に解放する
+      browseMemoryLimiter.releaseAfterRequest(reservation);
+    }
   }
 
   /**
@@ -134,31 +326,483 @@ public class QueueServiceImpl implements QueueService {
    *
    * @param dlqName Dead Letter Queue名
    * @param backupQueueName Backup Queue名
+   * @param maxCount 取得最大件数
+   * @param reservation 読み込み枠
    * @return コールバック
    */
-  private ChannelCallback<List<DeadLetteredMessage>> listMessageActionCallback(String dlqName,
-      String backupQueueName) {
+  private ChannelCallback<BrowseResult> listMessageActionCallback(String dlqName,
+      String backupQueueName, int maxCount, BrowseMemoryLimiter.Reservation reservation) {
     final String queueName = StringUtils.isEmpty(backupQueueName) ? dlqName : backupQueueName;
-    final int maxCount = dlqProperties.getMaxCount();
+    // 開始されていればペイロードをヒープ外のスナップショットへ保持する
+    final MessageSnapshot snapshot = MessageSnapshot.current();
     return channel -> {
-      List<DeadLetteredMessage> list = new ArrayList<>();
+      BrowseResult result = new BrowseResult();
       channel.basicQos(PREFETCH_COUNT);
       int count = 0;
-      while (count < maxCount) {
-        GetResponse response = channel.basicGet(queueName, false);
-        if (response == null) {
-          break;
-        }
-        DeadLetteredMessage message = convertToMessage(response);
-        channel.basicNack(response.getEnvelope().getDeliveryTag(), false, true);
-        if (message != null) { // 対象外メッセージはスキップ
-          message.setDlqName(dlqName);
-          message.setBackupQueueName(backupQueueName);
-          list.add(message);
+      ScanControl scan = openScan(channel, "list", queueName);
+      DecodePipeline.Window<DeadLetteredMessage> decoding = decodePipeline.open();
+      try {
+        while (count < maxCount && scan.proceed()) {
+          GetResponse response = channel.basicGet(queueName, false);
+          if (response == null) {
+            break;
+          }
+          scan.scanned(response.getBody().length);
+          channel.basicNack(response.getEnvelope().getDeliveryTag(), false, true);
+          scan.nacked();
+          if (extractXDeathMap(response).isEmpty()) { // 対象外メッセージはスキップ
+            continue;
+          }
+          if (!reservation.tryReserve(response.getBody().length)) {
+            // 読み込みバイト数の上限に達したら、取得済みの分だけ返す
+            result.setTruncated(true);
+            break;
+          }
+          // 変換(ペイロードの複製・Mutexテーブルの参照)は次の受信と並行して実行し、受信順に一覧へ追加する
+          decoding.submit(() -> convertToMessage(response, snapshot), message -> {
+            message.setDlqName(dlqName);
+            message.setBackupQueueName(backupQueueName);
+            result.getMessages().add(message);
+          });
           count++;
         }
+        decoding.drain();
+      } finally {
+        decoding.close();
+        scanRegistry.close(scan);
+      }
+      result.setBytes(reservation.getBytes());
+      result.setIncompleteReason(scan.getIncompleteReason());
+      return result;
+    };
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public Long countMessages(String queueName) {
+    if (StringUtils.isEmpty(queueName)) {
+      return null;
+    }
+    try {
+      currentRabbitTemplate().setChannelTransacted(true);
+      return currentRabbitTemplate()
+          .execute(channel -> (long) channel.queueDeclarePassive(queueName).getMessageCount());
+    } catch (AmqpException e) {
+      log.warn(String.format("Failed to count messages. Queue:%s", queueName), e);
+      return null;
+    }
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public QueueVersion resolveQueueVersion(String queueName) {
+    if (StringUtils.isEmpty(queueName)) {
+      return null;
+    }
+    try {
+      // キャッシュしたトランザクションのチャネルでNackするとCommitされるまで先頭が未応答のまま残るので、
+      // 先頭メッセージは使い捨てのチャネルで応答せずに覗き、チャネルを閉じて元の位置へ戻す
+      return brokerTargetRegistry.current().executeOnDedicatedChannel(channel -> {
+        QueueVersion version = new QueueVersion();
+        version.setQueueName(queueName);
+        version.setMessageCount(channel.queueDeclarePassive(queueName).getMessageCount());
+        if (version.getMessageCount() > 0) {
+          GetResponse response = channel.basicGet(queueName, false);
+          if (response != null) {
+            version.setHeadHash(hashMessage(response.getProps()));
+          }
+        }
+        return version;
+      });
+    } catch (AmqpException e) {
+      log.warn(String.format("Failed to resolve queue version. Queue:%s", queueName), e);
+      return null;
+    }
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public String resolveMutexVersion() {
+    return rabbitMqMutexRepository.resolveVersion();
+  }
+
+  /**
+   * メッセージの同一性判定用ハッシュを計算する. ペイロードは読まずに、メッセージIDと、Dead Letter Queue入りの度に
+   * 変わるヘッダ(x-death)から計算する.
+   *
+   * @param props メッセージプロパティ
+   * @return ハッシュ
+   */
+  private long hashMessage(BasicProperties props) {
+    long hash = Objects.hashCode(props.getMessageId());
+    return hash * 31 + Objects.hashCode(props.getHeaders());
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Transactional(readOnly = false)
+  @Override
+  public BulkActionResult applyMessageActions(String dlqName, MessageActionResolver resolver) {
+    return applyMessageActions(dlqName, resolver, Integer.MAX_VALUE);
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Transactional(readOnly = false)
+  @Override
+  public BulkActionResult applyMessageActions(String dlqName, MessageActionResolver resolver,
+      int maxScan) {
+    return applyMessageActions(dlqName, null, resolver, 0, maxScan);
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Transactional(readOnly = false)
+  @Override
+  public BulkActionResult applyMessageActions(String dlqName, MessageActionResolver resolver,
+      int skip, int maxScan) {
+    return applyMessageActions(dlqName, null, resolver, skip, maxScan);
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Transactional(readOnly = false)
+  @Override
+  public BulkActionResult applyGroupAction(String dlqName, String groupId,
+      MessageAction action) {
+    PayloadGroupKey groupKey = new PayloadGroupKey();
+    return applyMessageActions(dlqName, response -> groupId.equals(groupKey.of(response)),
+        message -> action, 0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Dead Letter Queueの先頭から指定件数を読み飛ばし、続く指定件数までのメッセージへ一括操作を適用する.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param candidate 受信メッセージを変換せずに対象を絞り込む条件。絞り込まない場合はnull
+   * @param resolver メッセージに適用する処理を決定するコールバック
+   * @param skip 先頭から読み飛ばす件数
+   * @param maxScan 走査する最大件数
+   * @return 一括操作結果
+   */
+  private BulkActionResult applyMessageActions(String dlqName, Predicate<GetResponse> candidate,
+      MessageActionResolver resolver, int skip, int maxScan) {
+    String backupQueueName = resolveBackupQueueName(dlqName);
+    List<String> removedMessageIds = new ArrayList<>();
+    List<String> removedMutexes = new ArrayList<>();
+    List<AuditEntry> auditEntries = new ArrayList<>();
+    currentRabbitTemplate().setChannelTransacted(true);
+    BulkActionResult result = currentRabbitTemplate().execute(bulkActionCallback(dlqName,
+        backupQueueName, candidate, resolver, skip, maxScan, removedMessageIds, removedMutexes,
+        auditEntries));
+    // コミットできた分だけ監査ログへ記録
+    auditService.recordAll(auditEntries);
+    // ミューテックス削除
+    removedMutexes.forEach(this::deleteMutex);
+    // 検索用インデックスから削除
+    removedMessageIds.forEach(messageId -> searchIndexService.remove(dlqName, messageId));
+    log.info(String.format("Bulk action applied. Queue:%s,Result:%s", dlqName, result));
+    return result;
+  }
+
+  /**
+   * Dead Letter Queueの全メッセージへ一括操作を適用するアクション用コールバックを返す
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param backupQueueName Backup Queue名
+   * @param candidate 受信メッセージを変換せずに対象を絞り込む条件。絞り込まない場合はnull
+   * @param resolver メッセージに適用する処理を決定するコールバック
+   * @param skip 先頭から読み飛ばす件数
+   * @param maxScan 走査する最大件数
+   * @param removedMessageIds キューから取り除いたメッセージIDの格納先
+   * @param removedMutexes 削除すべきミューテックスIDの格納先
+   * @param auditEntries 監査ログの格納先
+   * @return コールバック
+   */
+  private ChannelCallback<BulkActionResult> bulkActionCallback(String dlqName,
+      String backupQueueName, Predicate<GetResponse> candidate, MessageActionResolver resolver,
+      int skip, int maxScan, List<String> removedMessageIds, List<String> removedMutexes,
+      List<AuditEntry> auditEntries) {
+    return channel -> {
+      BulkActionResult result = new BulkActionResult();
+      channel.basicQos(PREFETCH_COUNT);
+      ScanControl scan = openScan(channel, "bulk", dlqName);
+      int skipped = 0;
+      try {
+        while (result.getScanned() < maxScan && scan.proceed()) {
+          GetResponse response = channel.basicGet(dlqName, false);
+          if (response == null) {
+            break;
+          }
+          scan.scanned(response.getBody().length);
+          long deliveryTag = response.getEnvelope().getDeliveryTag();
+          if (skipped < skip) {
+            // 前回までに走査した位置までは変換せずに戻す(コミット時に元の順で戻る)
+            skipped++;
+            channel.basicNack(deliveryTag, false, true);
+            scan.nacked();
+            continue;
+          }
+          result.setScanned(result.getScanned() + 1);
+          if (candidate != null && !candidate.test(response)) {
+            // 対象外は変換(ミューテックスの存在確認)せずに戻す
+            channel.basicNack(deliveryTag, false, true);
+            scan.nacked();
+            continue;
+          }
+          DeadLetteredMessage message = convertToMessage(response);
+          MessageAction action = message == null ? MessageAction.KEEP
+              : permittedAction(message, backupQueueName, resolver.resolve(message));
+          switch (action) {
+            case REPUBLISH:
+              republishDeadLetteredMessage(channel, response);
+              scan.published();
+              result.setRepublished(result.getRepublished() + 1);
+              break;
+            case BACKUP:
+              backupDeadLetteredMessage(backupQueueName, channel, response);
+              scan.published();
+              result.setBackedUp(result.getBackedUp() + 1);
+              break;
+            case DELETE:
+              result.setDeleted(result.getDeleted() + 1);
+              break;
+            default:
+              channel.basicNack(deliveryTag, false, true);
+              scan.nacked();
+              continue;
+          }
+          channel.basicAck(deliveryTag, false);
+          scan.acked();
+          removedMessageIds.add(message.getProperties().getMessageId());
+          auditEntries.add(bulkAuditEntry(action, dlqName, message));
+          // 再登録したメッセージはミューテックスを残す
+          if (action != MessageAction.REPUBLISH) {
+            removedMutexes.add(message.getProperties().getHeaders().getExtraMessageMutex());
+          }
+        }
+      } finally {
+        scanRegistry.close(scan);
       }
-      return list;
+      result.setIncompleteReason(scan.getIncompleteReason());
+      return result;
+    };
+  }
+
+  /**
+   * 一括操作で処理したメッセージの監査ログを組み立てる. 記録はトランザクションのコミット後に行う.
+   *
+   * @param action 適用した処理
+   * @param dlqName Dead Letter Queue名
+   * @param message メッセージ
+   * @return 監査ログ
+   */
+  private AuditEntry bulkAuditEntry(MessageAction action, String dlqName,
+      DeadLetteredMessage message) {
+    AuditEntry entry = new AuditEntry();
+    entry.setAction(action.name());
+    entry.setQueueName(dlqName);
+    entry.setMessageId(message.getProperties().getMessageId());
+    entry.setMutex(message.getProperties().getHeaders().getExtraMessageMutex());
+    entry.setOutcome(AuditOutcome.SUCCEEDED.name());
+    entry.setDetail("Bulk action");
+    return entry;
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public GroupedMessages groupMessages(String dlqName) {
+    currentRabbitTemplate().setChannelTransacted(true);
+    GroupedMessages result = currentRabbitTemplate().execute(groupActionCallback(dlqName));
+    log.info(String.format("Messages grouped. Queue:%s,Scanned:%d,Groups:%d,Ungrouped:%d",
+        dlqName, result.getScanned(), result.getGroups().size(), result.getUngrouped()));
+    return result;
+  }
+
+  /**
+   * Dead Letter Queue全体を走査してペイロード毎に集計するアクション用コールバックを返す
+   *
+   * @param dlqName Dead Letter Queue名
+   * @return コールバック
+   */
+  private ChannelCallback<GroupedMessages> groupActionCallback(String dlqName) {
+    final int maxGroups = dlqProperties.getGrouping().getMaxGroups();
+    final int previewBytes = dlqProperties.getGrouping().getPreviewBytes();
+    return channel -> {
+      GroupedMessages result = new GroupedMessages();
+      Map<String, MessageGroup> groups = new LinkedHashMap<>();
+      PayloadGroupKey groupKey = new PayloadGroupKey();
+      channel.basicQos(PREFETCH_COUNT);
+      ScanControl scan = openScan(channel, "group", dlqName);
+      try {
+        while (scan.proceed()) {
+          GetResponse response = channel.basicGet(dlqName, false);
+          if (response == null) {
+            break;
+          }
+          scan.scanned(response.getBody().length);
+          channel.basicNack(response.getEnvelope().getDeliveryTag(), false, true);
+          scan.nacked();
+          Map<String, Object> headers = response.getProps().getHeaders();
+          Map<String, Object> extraDeath = XDeathHeaders.latest(headers);
+          if (extraDeath.isEmpty()) { // 対象外メッセージはスキップ
+            continue;
+          }
+          result.setScanned(result.getScanned() + 1);
+          String groupId = groupKey.of(response);
+          MessageGroup group = groups.get(groupId);
+          if (group == null) {
+            if (groups.size() >= maxGroups) {
+              result.setUngrouped(result.getUngrouped() + 1);
+              continue;
+            }
+            byte[] body = response.getBody();
+            group = new MessageGroup();
+            group.setGroupId(groupId);
+            group.setOriginalQueue(safetyToString(extraDeath.get("queue")));
+            group.setReason(safetyToString(extraDeath.get("reason")));
+            group.setPayloadBytes(body.length);
+            // 先頭部分のみ文字列へ変換する
+            group.setPreview(new String(body, 0, Math.min(body.length, previewBytes),
+                Charset.forName("UTF-8")));
+            groups.put(groupId, group);
+          }
+          group.setCount(group.getCount() + 1);
+          Object time = extraDeath.get("time");
+          if (time instanceof Date) {
+            Date deadLetteredAt = (Date) time;
+            if (group.getFirstDeadLetteredAt() == null
+                || deadLetteredAt.before(group.getFirstDeadLetteredAt())) {
+              group.setFirstDeadLetteredAt(deadLetteredAt);
+            }
+            if (group.getLastDeadLetteredAt() == null
+                || deadLetteredAt.after(group.getLastDeadLetteredAt())) {
+              group.setLastDeadLetteredAt(deadLetteredAt);
+            }
+          }
+          String extraMessageMutex = headers == null ? null
+              : safetyToString(headers.get(X_MUTEX_KEY));
+          if (!StringUtils.isEmpty(extraMessageMutex)) {
+            Long mutex = Long.valueOf(extraMessageMutex);
+            if (group.getMinMutex() == null || mutex < group.getMinMutex()) {
+              group.setMinMutex(mutex);
+            }
+            if (group.getMaxMutex() == null || mutex > group.getMaxMutex()) {
+              group.setMaxMutex(mutex);
+            }
+          }
+        }
+      } finally {
+        scanRegistry.close(scan);
+      }
+      result.setIncompleteReason(scan.getIncompleteReason());
+      result.getGroups().addAll(groups.values());
+      return result;
+    };
+  }
+
+  /**
+   * メッセージの削除可否・再登録可否を踏まえて、実際に適用してよい処理を導出する.
+   *
+   * @param message メッセージ
+   * @param backupQueueName Backup Queue名
+   * @param action 適用したい処理
+   * @return 適用してよい処理
+   */
+  private MessageAction permittedAction(DeadLetteredMessage message, String backupQueueName,
+      MessageAction action) {
+    if (action == null) {
+      return MessageAction.KEEP;
+    }
+    switch (action) {
+      case REPUBLISH:
+        return message.isRepublishable() ? action : MessageAction.KEEP;
+      case DELETE:
+        return message.isDeletable() ? action : MessageAction.KEEP;
+      case BACKUP:
+        // 待避はMutexの登録有無によらず行える(待避後にMutexを削除し、リストア時にヘッダから登録し直す)
+        return StringUtils.isEmpty(backupQueueName) ? MessageAction.KEEP : action;
+      default:
+        return MessageAction.KEEP;
+    }
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public List<String> searchMessageIds(String dlqName, String keyword) {
+    return new ArrayList<>(
+        searchMessages(dlqName, keyword, searchIndexService.state(dlqName)).keySet());
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public Map<String, Long> searchMessages(String dlqName, String keyword,
+      SearchIndexState indexState) {
+    if (indexState == SearchIndexState.AVAILABLE) {
+      return searchIndexService.search(dlqName, keyword);
+    }
+    currentRabbitTemplate().setChannelTransacted(true);
+    return currentRabbitTemplate().execute(searchActionCallback(dlqName, keyword));
+  }
+
+  /**
+   * キュー全体を走査してキーワードに合致するメッセージIDを検索するアクション用コールバックを返す
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param keyword キーワード
+   * @return コールバック
+   */
+  private ChannelCallback<Map<String, Long>> searchActionCallback(String dlqName,
+      String keyword) {
+    return channel -> {
+      Map<String, Long> messageIds = new LinkedHashMap<>();
+      channel.basicQos(PREFETCH_COUNT);
+      ScanControl scan = openScan(channel, "search", dlqName);
+      DecodePipeline.Window<Boolean> matching = decodePipeline.open();
+      try {
+        while (scan.proceed()) {
+          GetResponse response = channel.basicGet(dlqName, false);
+          if (response == null) {
+            break;
+          }
+          scan.scanned(response.getBody().length);
+          channel.basicNack(response.getEnvelope().getDeliveryTag(), false, true);
+          scan.nacked();
+          String messageId = response.getProps().getMessageId();
+          if (!StringUtils.hasText(messageId)) {
+            continue;
+          }
+          // 照合は次の受信と並行して実行し、受信順に結果へ追加する
+          Map<String, Object> headers = response.getProps().getHeaders();
+          matching.submit(() -> searchIndexService.matches(keyword, response.getBody(), headers),
+              matched -> {
+                if (matched) {
+                  messageIds.put(messageId, XDeathHeaders.totalCount(headers));
+                }
+              });
+        }
+        matching.drain();
+      } finally {
+        matching.close();
+        scanRegistry.close(scan);
+      }
+      return messageIds;
     };
   }
 
@@ -169,42 +813,69 @@ public class QueueServiceImpl implements QueueService {
    * @return DeadLetterメッセージ
    */
   private DeadLetteredMessage convertToMessage(GetResponse response) {
+    return convertToMessage(response, null);
+  }
+
+  /**
+   * GetレスポンスをDeadLetterメッセージへ変換する.
+   *
+   * @param response Getレスポンス
+   * @param snapshot ペイロードを保持するスナップショット。nullの場合はヒープ上に保持する
+   * @return DeadLetterメッセージ
+   */
+  private DeadLetteredMessage convertToMessage(GetResponse response, MessageSnapshot snapshot) {
     Map<String, Object> extraDeathMap = extractXDeathMap(response);
     if (extraDeathMap.isEmpty()) {
       return null;
     }
 
-    DeadLetteredMessage dlMessage = new DeadLetteredMessage();
-    // メッセージ数
-    dlMessage.setMessageCount(response.getMessageCount());
-    // ペイロード
-    final String encoding = "UTF-8";
-    Charset charset = Charset.forName(encoding);
+    Envelope envelope = response.getEnvelope();
     byte[] body = response.getBody();
-    dlMessage.setPayload(new String(body, charset));
-    dlMessage.setPayloadBytes(body.length);
-    dlMessage.setPayloadEncoding(encoding);
+    DeadLetteredMessage dlMessage;
+    if (snapshot != null) {
+      // メッセージ数・ペイロード・再送信フラグはスラブに保持する
+      dlMessage = new SlabBackedMessage(snapshot, response.getMessageCount(),
+          envelope.isRedeliver(), body);
+    } else {
+      dlMessage = new DeadLetteredMessage();
+      // メッセージ数
+      dlMessage.setMessageCount(response.getMessageCount());
+      // ペイロード
+      final String encoding = "UTF-8";
+      Charset charset = Charset.forName(encoding);
+      dlMessage.setPayload(new String(body, charset));
+      dlMessage.setPayloadBytes(body.length);
+      dlMessage.setPayloadEncoding(encoding);
+      // 再送信フラグ
+      dlMessage.setRedelivered(envelope.isRedeliver());
+    }
 
-    Envelope envelope = response.getEnvelope();
     // ルーティングキー
     dlMessage.setRoutingKey(envelope.getRoutingKey());
     // エクスチェンジ
     dlMessage.setExchange(envelope.getExchange());
-    // 再送信フラグ
-    dlMessage.setRedelivered(envelope.isRedeliver());
 
     MessageHeader messageHeader = dlMessage.getProperties().getHeaders();
     List<XDeath> extraDeaths = messageHeader.getExtraDeaths();
-    XDeath extraDeath = new XDeath();
-    extraDeaths.add(extraDeath);
-    LongString exchange = (LongString) extraDeathMap.get("exchange");
-    extraDeath.setExchange(safetyToString(exchange));
-    LongString queue = (LongString) extraDeathMap.get("queue");
-    extraDeath.setQueue(safetyToString(queue));
-    LongString reason = (LongString) extraDeathMap.get("reason");
-    extraDeath.setReason(safetyToString(reason));
-    Date time = (Date) extraDeathMap.get("time");
-    extraDeath.setTime(time);
+    long totalDeathCount = 0;
+    // 全エントリ(直近が先頭)
+    for (Map<String, Object> extraDeathEntry : XDeathHeaders
+        .entries(response.getProps().getHeaders())) {
+      XDeath extraDeath = new XDeath();
+      extraDeaths.add(extraDeath);
+      LongString exchange = (LongString) extraDeathEntry.get("exchange");
+      extraDeath.setExchange(safetyToString(exchange));
+      LongString queue = (LongString) extraDeathEntry.get("queue");
+      extraDeath.setQueue(safetyToString(queue));
+      LongString reason = (LongString) extraDeathEntry.get("reason");
+      extraDeath.setReason(safetyToString(reason));
+      Date time = (Date) extraDeathEntry.get("time");
+      extraDeath.setTime(time);
+      long count = XDeathHeaders.count(extraDeathEntry);
+      extraDeath.setCount(count);
+      totalDeathCount += count;
+    }
+    dlMessage.setTotalDeathCount(totalDeathCount);
     // メッセージID
     dlMessage.getProperties().setMessageId(response.getProps().getMessageId());
     // mutex
@@ -212,6 +883,16 @@ public class QueueServiceImpl implements QueueService {
     if (headers != null) {
       LongString extraMessageMutex = (LongString) headers.get(X_MUTEX_KEY);
       messageHeader.setExtraMessageMutex(safetyToString(extraMessageMutex));
+      Object republishCount = headers.get(X_REPUBLISH_COUNT_KEY);
+      if (republishCount instanceof Number) {
+        messageHeader.setExtraRepublishCount(((Number) republishCount).intValue());
+      }
+      Object quarantinedAt = headers.get(X_QUARANTINED_AT_KEY);
+      if (quarantinedAt instanceof Date) {
+        messageHeader.setExtraQuarantinedAt((Date) quarantinedAt);
+        messageHeader
+            .setExtraQuarantineReason(safetyToString(headers.get(X_QUARANTINE_REASON_KEY)));
+      }
       if (StringUtils.isEmpty(messageHeader.getExtraMessageMutex())) { // ヘッダがない場合
         // 二重配信制御対象外なので削除も再登録もOK
         dlMessage.setRepublishable(true);
@@ -224,6 +905,10 @@ public class QueueServiceImpl implements QueueService {
         // RABBITMQ_MUTEXテーブルにMutex IDが存在していたら削除不可
         dlMessage.setDeletable(!exists);
       }
+      if (messageHeader.getExtraQuarantinedAt() != null) {
+        // 隔離したメッセージは再登録すると再びループするので再登録不可
+        dlMessage.setRepublishable(false);
+      }
     }
     return dlMessage;
   }
@@ -248,9 +933,14 @@ public class QueueServiceImpl implements QueueService {
   @Override
   public void republishMessage(String dlqName, DeadLetteredMessage message) {
     if (message != null) {
-      // 再登録処理
-      rabbitTemplate.setChannelTransacted(true);
-      rabbitTemplate.execute(republishActionCallback(dlqName, message));
+      audited(AuditAction.REPUBLISH, dlqName, message, null, () -> {
+        // 再登録処理
+        currentRabbitTemplate().setChannelTransacted(true);
+        currentRabbitTemplate().execute(republishActionCallback(dlqName, message));
+      });
+
+      // 検索用インデックスから削除
+      searchIndexService.remove(dlqName, message.getProperties().getMessageId());
     }
   }
 
@@ -282,23 +972,39 @@ public class QueueServiceImpl implements QueueService {
   private ChannelCallback<Object> getResponseActionCallback(String dlqName,
       DeadLetteredMessage message, SameMessageCallback sameMessageCallback) {
     XDeath extraDeath = message.getProperties().getHeaders().getExtraDeaths().get(0);
+    MessageFingerprint fingerprint = MessageFingerprint.of(message);
     return channel -> {
       channel.basicQos(PREFETCH_COUNT);
-      while (true) {
-        GetResponse response = channel.basicGet(dlqName, false);
-        if (response == null) {
-          break;
-        }
-        if (isSameMessage(message, response)) {
-          channel.basicAck(response.getEnvelope().getDeliveryTag(), false);
-          logAcked(extraDeath);
-          if (sameMessageCallback != null) {
-            sameMessageCallback.doInSameMessage(channel, response);
+      boolean found = false;
+      ScanControl scan = openScan(channel, "find", dlqName);
+      try {
+        while (scan.proceed()) {
+          GetResponse response = channel.basicGet(dlqName, false);
+          if (response == null) {
+            break;
+          }
+          scan.scanned(response.getBody().length);
+          if (fingerprint.matches(response)) {
+            found = true;
+            channel.basicAck(response.getEnvelope().getDeliveryTag(), false);
+            scan.acked();
+            logAcked(extraDeath);
+            if (sameMessageCallback != null) {
+              sameMessageCallback.doInSameMessage(channel, response);
+              scan.published();
+            }
+          } else {
+            channel.basicNack(response.getEnvelope().getDeliveryTag(), false, true);
+            scan.nacked();
+            logUnacked(extraDeath);
           }
-        } else {
-          channel.basicNack(response.getEnvelope().getDeliveryTag(), false, true);
-          logUnacked(extraDeath);
         }
+      } finally {
+        scanRegistry.close(scan);
+      }
+      if (!found && scan.isIncomplete()) {
+        // 対象メッセージの有無が分からないまま処理済みにしない
+        throw new ScanIncompleteException(scan);
       }
       return null;
     };
@@ -346,10 +1052,16 @@ public class QueueServiceImpl implements QueueService {
     // Dead Letter関連情報をクリア
     Map<String, Object> headerMap = props.getHeaders();
     headerMap.remove(X_DEATH_KEY);
+    // 再登録回数を加算(自動再登録の試行回数判定に使う)
+    Object republishCount = headerMap.get(X_REPUBLISH_COUNT_KEY);
+    headerMap.put(X_REPUBLISH_COUNT_KEY,
+        republishCount instanceof Number ? ((Number) republishCount).intValue() + 1 : 1);
+    // 短時間に再登録を繰り返すメッセージを検知するために記録
+    republishHistory.record(RepublishHistory
+        .identity(safetyToString(headerMap.get(X_MUTEX_KEY)), props.getMessageId()));
     channel.basicPublish(safetyToString(exchange), safetyToString(routingKey), mandatory, immediate,
         props, body);
-    log.info(String.format("Republished. Exchange:%s,Routing-Key:%s", safetyToString(exchange),
-        safetyToString(routingKey)));
+    log.debug("Republished. Exchange:{},Routing-Key:{}", exchange, routingKey);
   }
 
   /**
@@ -359,48 +1071,7 @@ public class QueueServiceImpl implements QueueService {
    * @return x-deathヘッダ情報
    */
   private Map<String, Object> extractXDeathMap(GetResponse response) {
-    Map<String, Object> extraDeathMap = new HashMap<>();
-    Map<String, Object> headers = response.getProps().getHeaders();
-    if (headers != null) {
-      @SuppressWarnings("unchecked")
-      List<Map<String, Object>> extraDeathList = (List<Map<String, Object>>) headers
-          .getOrDefault(X_DEATH_KEY, new ArrayList<>());
-      if (!extraDeathList.isEmpty()) {
-        extraDeathMap = extraDeathList.get(0);
-      }
-    }
-    return extraDeathMap;
-  }
-
-  /**
-   * 処理対象メッセージとConnection経由で取得したレスポンスのメッセージが同一かどうかを判定.
-   *
-   * @param deadLetteredMessage 処理対象メッセージ
-   * @param response レスポンス
-   * @return 同一であればtrue
-   */
-  private boolean isSameMessage(DeadLetteredMessage deadLetteredMessage, GetResponse response) {
-    // メッセージIDを再優先で比較
-    String responseMessageId = response.getProps().getMessageId();
-    String messageId = deadLetteredMessage.getProperties().getMessageId();
-    if (StringUtils.hasText(messageId) && StringUtils.hasText(responseMessageId)) {
-      return messageId.equals(responseMessageId);
-    }
-    MessageHeader messageHeader = deadLetteredMessage.getProperties().getHeaders();
-    String mutex = messageHeader.getExtraMessageMutex();
-    XDeath extraDeath = messageHeader.getExtraDeaths().get(0);
-    String originalQueue = extraDeath.getQueue();
-    Date deadLeteredTime = extraDeath.getTime();
-
-    Map<String, Object> extraDeathMap = extractXDeathMap(response);
-    if (!extraDeathMap.isEmpty()) {
-      Date targetTime = (Date) extraDeathMap.get("time");
-      LongString targetQueue = (LongString) extraDeathMap.get("queue");
-      LongString mutexKey = (LongString) response.getProps().getHeaders().get(X_MUTEX_KEY);
-      return targetTime.equals(deadLeteredTime) && originalQueue.equals(safetyToString(targetQueue))
-          && mutex.equals(safetyToString(mutexKey));
-    }
-    return false;
+    return XDeathHeaders.latest(response.getProps().getHeaders());
   }
 
   /**
@@ -410,12 +1081,17 @@ public class QueueServiceImpl implements QueueService {
   @Override
   public void deleteMessage(String dlqName, DeadLetteredMessage message) {
     if (message != null) {
-      // キューから削除
-      rabbitTemplate.setChannelTransacted(true);
-      rabbitTemplate.execute(deleteActionCallback(dlqName, message));
+      audited(AuditAction.DELETE, dlqName, message, null, () -> {
+        // キューから削除
+        currentRabbitTemplate().setChannelTransacted(true);
+        currentRabbitTemplate().execute(deleteActionCallback(dlqName, message));
 
-      // ミューテックス削除
-      deleteMutex(message);
+        // ミューテックス削除
+        deleteMutex(message);
+      });
+
+      // 検索用インデックスから削除
+      searchIndexService.remove(dlqName, message.getProperties().getMessageId());
     }
   }
 
@@ -432,21 +1108,21 @@ public class QueueServiceImpl implements QueueService {
   }
 
   /**
-   * Queueから正常にメッセージを取得した旨、ログ出力する
+   * Queueから正常にメッセージを取得した旨、DEBUGでログ出力する. 件数は走査の終了時に要約としてログ出力する.
    *
    * @param extraDeath x-deathヘッダ情報
    */
   private void logAcked(XDeath extraDeath) {
-    log.info(String.format("Message Acked: %s, %s", extraDeath.getTime(), extraDeath.getQueue()));
+    log.debug("Message Acked: {}, {}", extraDeath.getTime(), extraDeath.getQueue());
   }
 
   /**
-   * Queueにメッセージを戻した旨、ログ出力する
+   * Queueにメッセージを戻した旨、DEBUGでログ出力する. 件数は走査の終了時に要約としてログ出力する.
    *
    * @param extraDeath x-deathヘッダ情報
    */
   private void logUnacked(XDeath extraDeath) {
-    log.info(String.format("Message Unacked: %s, %s", extraDeath.getTime(), extraDeath.getQueue()));
+    log.debug("Message Unacked: {}, {}", extraDeath.getTime(), extraDeath.getQueue());
   }
 
   /**
@@ -455,13 +1131,54 @@ public class QueueServiceImpl implements QueueService {
   @Override
   public void deleteAndBackupMessage(String dlqName, String backupQueueName,
       DeadLetteredMessage message) {
+    deleteAndBackupMessage(dlqName, backupQueueName, message, null);
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public void quarantineMessage(String dlqName, String backupQueueName,
+      DeadLetteredMessage message, String reason) {
     if (message != null) {
-      // Dead Letterキューから削除
-      rabbitTemplate.setChannelTransacted(true);
-      rabbitTemplate.execute(deleteAndBackupActionCallback(dlqName, backupQueueName, message));
+      Map<String, Object> quarantineHeaders = new HashMap<>();
+      quarantineHeaders.put(X_QUARANTINED_AT_KEY, new Date());
+      quarantineHeaders.put(X_QUARANTINE_REASON_KEY, reason);
+      deleteAndBackupMessage(dlqName, backupQueueName, message, quarantineHeaders);
+      MessageHeader messageHeader = message.getProperties().getHeaders();
+      republishHistory.forget(RepublishHistory.identity(messageHeader.getExtraMessageMutex(),
+          message.getProperties().getMessageId()));
+      log.warn(String.format("Quarantined. Queue:%s,Backup:%s,Message-Id:%s,Reason:%s", dlqName,
+          backupQueueName, message.getProperties().getMessageId(), reason));
+    }
+  }
 
-      // ミューテックス削除
-      deleteMutex(message);
+  /**
+   * Dead Letter Queueから削除し、Backup Queueへ待避する.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param backupQueueName Backup Queue名
+   * @param message Dead Letter Message
+   * @param extraHeaders 待避時に追加するヘッダ。追加しない場合はnull
+   */
+  private void deleteAndBackupMessage(String dlqName, String backupQueueName,
+      DeadLetteredMessage message, Map<String, Object> extraHeaders) {
+    if (message != null) {
+      AuditAction action = extraHeaders == null ? AuditAction.BACKUP : AuditAction.QUARANTINE;
+      String detail = extraHeaders == null ? null
+          : safetyToString(extraHeaders.get(X_QUARANTINE_REASON_KEY));
+      audited(action, dlqName, message, detail, () -> {
+        // Dead Letterキューから削除
+        currentRabbitTemplate().setChannelTransacted(true);
+        currentRabbitTemplate().execute(
+            deleteAndBackupActionCallback(dlqName, backupQueueName, message, extraHeaders));
+
+        // ミューテックス削除
+        deleteMutex(message);
+      });
+
+      // 検索用インデックスから削除
+      searchIndexService.remove(dlqName, message.getProperties().getMessageId());
     }
   }
 
@@ -471,26 +1188,46 @@ public class QueueServiceImpl implements QueueService {
    * @param dlqName Dead Letter Queue名
    * @param backupQueueName Backup Queue名
    * @param message Dead Letter Message
+   * @param extraHeaders 待避時に追加するヘッダ。追加しない場合はnull
    * @return コールバック
    */
   private ChannelCallback<Object> deleteAndBackupActionCallback(String dlqName,
-      String backupQueueName, DeadLetteredMessage message) {
+      String backupQueueName, DeadLetteredMessage message, Map<String, Object> extraHeaders) {
+    XDeath extraDeath = message.getProperties().getHeaders().getExtraDeaths().get(0);
+    MessageFingerprint fingerprint = MessageFingerprint.of(message);
     return channel -> {
       channel.basicQos(PREFETCH_COUNT);
-      while (true) {
-        GetResponse response = channel.basicGet(dlqName, false);
-        if (response == null) {
-          break;
-        }
-        XDeath extraDeath = message.getProperties().getHeaders().getExtraDeaths().get(0);
-        if (isSameMessage(message, response)) {
-          backupDeadLetteredMessage(backupQueueName, channel, response);
-          channel.basicAck(response.getEnvelope().getDeliveryTag(), false);
-          logAcked(extraDeath);
-        } else {
-          channel.basicNack(response.getEnvelope().getDeliveryTag(), false, true);
-          logUnacked(extraDeath);
+      boolean found = false;
+      ScanControl scan = openScan(channel, "backup", dlqName);
+      try {
+        while (scan.proceed()) {
+          GetResponse response = channel.basicGet(dlqName, false);
+          if (response == null) {
+            break;
+          }
+          scan.scanned(response.getBody().length);
+          if (fingerprint.matches(response)) {
+            found = true;
+            if (extraHeaders != null) {
+              response.getProps().getHeaders().putAll(extraHeaders);
+            }
+            backupDeadLetteredMessage(backupQueueName, channel, response);
+            scan.published();
+            channel.basicAck(response.getEnvelope().getDeliveryTag(), false);
+            scan.acked();
+            logAcked(extraDeath);
+          } else {
+            channel.basicNack(response.getEnvelope().getDeliveryTag(), false, true);
+            scan.nacked();
+            logUnacked(extraDeath);
+          }
         }
+      } finally {
+        scanRegistry.close(scan);
+      }
+      if (!found && scan.isIncomplete()) {
+        // 対象メッセージの有無が分からないまま処理済みにしない
+        throw new ScanIncompleteException(scan);
       }
       return null;
     };
@@ -503,12 +1240,14 @@ public class QueueServiceImpl implements QueueService {
   public void restoreBackedUpMessage(String dlqName, String backupQueueName,
       DeadLetteredMessage message) {
     if (message != null) {
-      // バックアップキューから削除
-      rabbitTemplate.setChannelTransacted(true);
-      rabbitTemplate.execute(restoreActionCallback(dlqName, backupQueueName, message));
+      audited(AuditAction.RESTORE, dlqName, message, null, () -> {
+        // バックアップキューから削除
+        currentRabbitTemplate().setChannelTransacted(true);
+        currentRabbitTemplate().execute(restoreActionCallback(dlqName, backupQueueName, message));
 
-      // ミューテックス復活
-      saveMutex(message);
+        // ミューテックス復活
+        saveMutex(message);
+      });
     }
   }
 
@@ -522,22 +1261,38 @@ public class QueueServiceImpl implements QueueService {
    */
   private ChannelCallback<Object> restoreActionCallback(String dlqName, String backupQueueName,
       DeadLetteredMessage message) {
+    XDeath extraDeath = message.getProperties().getHeaders().getExtraDeaths().get(0);
+    MessageFingerprint fingerprint = MessageFingerprint.of(message);
     return channel -> {
       channel.basicQos(PREFETCH_COUNT);
-      while (true) {
-        GetResponse response = channel.basicGet(backupQueueName, false);
-        if (response == null) {
-          break;
-        }
-        XDeath extraDeath = message.getProperties().getHeaders().getExtraDeaths().get(0);
-        if (isSameMessage(message, response)) {
-          restoreBackedUpMessage(dlqName, channel, response);
-          channel.basicAck(response.getEnvelope().getDeliveryTag(), false);
-          logAcked(extraDeath);
-        } else {
-          channel.basicNack(response.getEnvelope().getDeliveryTag(), false, true);
-          logUnacked(extraDeath);
+      boolean found = false;
+      ScanControl scan = openScan(channel, "restore", backupQueueName);
+      try {
+        while (scan.proceed()) {
+          GetResponse response = channel.basicGet(backupQueueName, false);
+          if (response == null) {
+            break;
+          }
+          scan.scanned(response.getBody().length);
+          if (fingerprint.matches(response)) {
+            found = true;
+            restoreBackedUpMessage(dlqName, channel, response);
+            scan.published();
+            channel.basicAck(response.getEnvelope().getDeliveryTag(), false);
+            scan.acked();
+            logAcked(extraDeath);
+          } else {
+            channel.basicNack(response.getEnvelope().getDeliveryTag(), false, true);
+            scan.nacked();
+            logUnacked(extraDeath);
+          }
         }
+      } finally {
+        scanRegistry.close(scan);
+      }
+      if (!found && scan.isIncomplete()) {
+        // 対象メッセージの有無が分からないまま処理済みにしない
+        throw new ScanIncompleteException(scan);
       }
       return null;
     };
@@ -560,7 +1315,9 @@ public class QueueServiceImpl implements QueueService {
     boolean mandatory = false;
     boolean immediate = false;
     channel.basicPublish(exchange, routingKey, mandatory, immediate, props, body);
-    log.info(String.format("Restored. Exchange:%s,Routing-Key:%s", exchange, routingKey));
+    log.debug("Restored. Exchange:{},Routing-Key:{}", exchange, routingKey);
+    // 検索用インデックスへ追加
+    searchIndexService.index(dlqName, props.getMessageId(), body, props.getHeaders());
   }
 
   /**
@@ -580,7 +1337,7 @@ public class QueueServiceImpl implements QueueService {
     boolean mandatory = false;
     boolean immediate = false;
     channel.basicPublish(exchange, routingKey, mandatory, immediate, props, body);
-    log.info(String.format("Backuped. Exchange:%s,Routing-Key:%s", exchange, routingKey));
+    log.debug("Backuped. Exchange:{},Routing-Key:{}", exchange, routingKey);
   }
 
   /**
@@ -591,13 +1348,11 @@ public class QueueServiceImpl implements QueueService {
   private void saveMutex(DeadLetteredMessage message) {
     String extraMessageMutex = message.getProperties().getHeaders().getExtraMessageMutex();
     if (!StringUtils.isEmpty(extraMessageMutex)) {
-      Long id = Long.valueOf(extraMessageMutex);
-      if (!rabbitMqMutexRepository.exists(id)) {
-        RabbitMqMutex mutex = new RabbitMqMutex();
-        mutex.setMutex(id);
-        mutex.setCreatedAt(Calendar.getInstance().getTime());
-        rabbitMqMutexRepository.save(mutex);
-      }
+      // 既に存在する場合は登録しない(存在確認と登録を1文で行う)
+      RabbitMqMutex mutex = new RabbitMqMutex();
+      mutex.setMutex(Long.valueOf(extraMessageMutex));
+      mutex.setCreatedAt(Calendar.getInstance().getTime());
+      rabbitMqMutexRepository.save(mutex);
     }
   }
 
@@ -607,7 +1362,15 @@ public class QueueServiceImpl implements QueueService {
    * @param message Dead Letter メッセージ
    */
   private void deleteMutex(DeadLetteredMessage message) {
-    String extraMessageMutex = message.getProperties().getHeaders().getExtraMessageMutex();
+    deleteMutex(message.getProperties().getHeaders().getExtraMessageMutex());
+  }
+
+  /**
+   * ミューテックス削除.
+   *
+   * @param extraMessageMutex x-message-mutexヘッダ情報
+   */
+  private void deleteMutex(String extraMessageMutex) {
     if (!StringUtils.isEmpty(extraMessageMutex)) {
       Long id = Long.valueOf(extraMessageMutex);
       if (rabbitMqMutexRepository.exists(id)) {
@@ -621,7 +1384,7 @@ public class QueueServiceImpl implements QueueService {
    */
   @Override
   public DeadLetteredMessage findDeadLetteredMessage(String dlqName, String id) {
-    List<DeadLetteredMessage> messages = listDeadLetteredMessages(dlqName);
+    List<DeadLetteredMessage> messages = listDeadLetteredMessages(dlqName).getMessages();
     return messages.stream()//
         .filter(message -> id.equals(message.getProperties().getMessageId()))//
         .findFirst()//
@@ -634,19 +1397,190 @@ public class QueueServiceImpl implements QueueService {
   @Override
   public DeadLetteredMessage findBackedUpMessage(String dlqName, String backupQueueName,
       String id) {
-    List<DeadLetteredMessage> messages = listBackedUpMessages(dlqName, backupQueueName);
+    List<DeadLetteredMessage> messages = listBackedUpMessages(dlqName, backupQueueName)
+        .getMessages();
     return messages.stream()//
         .filter(message -> id.equals(message.getProperties().getMessageId()))//
         .findFirst()//
         .orElse(null);
   }
 
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public BrowseResult openBrowseSession(String dlqName) {
+    // 保持したメッセージをキャッシュへ戻したチャネル経由で他の処理に渡さないよう、実体のチャネルを使い捨てる
+    Channel proxy = brokerTargetRegistry.current().getConnectionFactory().createConnection()
+        .createChannel(false);
+    Channel channel = ((ChannelProxy) proxy).getTargetChannel();
+    // 受信したメッセージはセッションを閉じるまで保持するので、読み込み枠はセッションを閉じた時点で解放する
+    BrowseSession session = browseSessionRegistry.open(dlqName, proxy, channel,
+        browseMemoryLimiter.open(dlqName));
+    if (session == null) {
+      RabbitUtils.closeChannel(proxy);
+      return null;
+    }
+    try {
+      synchronized (session) {
+        BrowseResult result = holdMessages(session);
+        log.info(String.format("Browse session opened. Queue:%s,Session:%s,Messages:%d", dlqName,
+            session.getId(), result.getMessages().size()));
+        return result;
+      }
+    } catch (IOException e) {
+      browseSessionRegistry.close(session.getId());
+      throw new AmqpIOException(e);
+    } catch (RuntimeException e) {
+      browseSessionRegistry.close(session.getId());
+      throw e;
+    }
+  }
+
+  /**
+   * Dead Letter Queueの先頭から一覧の件数までのメッセージを受信し、未確定のままセッションに保持する.
+   * 一覧に含めない対象外のメッセージも閉じるまで保持するので、セッションの読み込み枠に含める.
+   *
+   * @param session セッション
+   * @return メッセージ一覧
+   * @throws IOException IOエラー発生時
+   */
+  private BrowseResult holdMessages(BrowseSession session) throws IOException {
+    final String dlqName = session.getDlqName();
+    final BrowseMemoryLimiter.Reservation reservation = session.getReservation();
+    final int maxCount = dlqProperties.getMaxCount();
+    Channel channel = session.getChannel();
+    // 再登録・待避は登録確認を待ってから元のメッセージを確定する
+    channel.confirmSelect();
+    BrowseResult result = new BrowseResult();
+    int count = 0;
+    ScanControl scan = openScan(channel, "session", dlqName);
+    try {
+      while (count < maxCount && scan.proceed()) {
+        GetResponse response = channel.basicGet(dlqName, false);
+        if (response == null) {
+          break;
+        }
+        scan.scanned(response.getBody().length);
+        if (!reservation.tryReserve(response.getBody().length)) {
+          result.setTruncated(true);
+          break;
+        }
+        // 非トランザクションのチャネルでNackするとすぐ先頭へ戻って再受信するので、対象外メッセージも閉じるまで保持する
+        DeadLetteredMessage message = convertToMessage(response);
+        if (message == null || StringUtils.isEmpty(message.getProperties().getMessageId())) {
+          continue;
+        }
+        message.setDlqName(dlqName);
+        session.hold(response, message);
+        result.getMessages().add(message);
+        count++;
+      }
+    } finally {
+      scanRegistry.close(scan);
+    }
+    result.setBytes(reservation.getBytes());
+    result.setIncompleteReason(scan.getIncompleteReason());
+    result.setSessionId(session.getId());
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public BrowseResult resumeBrowseSession(String sessionId, String dlqName) {
+    BrowseSession session = browseSessionRegistry.get(sessionId, dlqName);
+    if (session == null) {
+      return null;
+    }
+    BrowseResult result = new BrowseResult();
+    result.getMessages().addAll(session.messages());
+    result.setSessionId(session.getId());
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public DeadLetteredMessage findInBrowseSession(String sessionId, String dlqName, String id) {
+    BrowseSession session = browseSessionRegistry.get(sessionId, dlqName);
+    return session == null ? null : session.find(id);
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Transactional(readOnly = false)
+  @Override
+  public boolean applyInBrowseSession(String sessionId, String dlqName,
+      DeadLetteredMessage message, MessageAction action) {
+    BrowseSession session = browseSessionRegistry.get(sessionId, dlqName);
+    if (session == null || message == null || action == MessageAction.KEEP) {
+      return false;
+    }
+    String backupQueueName = resolveBackupQueueName(dlqName);
+    if (action == MessageAction.BACKUP && StringUtils.isEmpty(backupQueueName)) {
+      return false;
+    }
+    String messageId = message.getProperties().getMessageId();
+    AuditAction auditAction = AuditAction.valueOf(action.name());
+    synchronized (session) {
+      GetResponse response = session.response(messageId);
+      if (response == null || !session.isOpen()) {
+        return false;
+      }
+      Channel channel = session.getChannel();
+      try {
+        if (action == MessageAction.REPUBLISH) {
+          republishDeadLetteredMessage(channel, response);
+        } else if (action == MessageAction.BACKUP) {
+          backupDeadLetteredMessage(backupQueueName, channel, response);
+        }
+        if (action != MessageAction.DELETE) {
+          channel.waitForConfirmsOrDie(dlqProperties.getBrowseSession().getConfirmTimeout());
+        }
+        channel.basicAck(response.getEnvelope().getDeliveryTag(), false);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        browseSessionRegistry.close(sessionId);
+        auditService.record(auditAction, dlqName, message, AuditOutcome.FAILED, e.toString());
+        throw new BasicPublishException(e);
+      } catch (IOException | TimeoutException | ShutdownSignalException e) {
+        // 登録の成否が分からないまま保持し続けないよう、セッションを閉じてキューへ戻す
+        browseSessionRegistry.close(sessionId);
+        auditService.record(auditAction, dlqName, message, AuditOutcome.FAILED, e.toString());
+        throw new BasicPublishException(e);
+      }
+      session.release(messageId);
+    }
+    logAcked(message.getProperties().getHeaders().getExtraDeaths().get(0));
+    if (action != MessageAction.REPUBLISH) {
+      // ミューテックス削除
+      deleteMutex(message);
+    }
+    auditService.record(auditAction, dlqName, message, AuditOutcome.SUCCEEDED,
+        "Browse session");
+    // 検索用インデックスから削除
+    searchIndexService.remove(dlqName, messageId);
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public void closeBrowseSession(String sessionId) {
+    browseSessionRegistry.close(sessionId);
+  }
+
   /**
    * {@inheritDoc}.
    */
   @Override
   public String resolveUsername() {
-    return rabbitProperties.getUsername();
+    return brokerTargetRegistry.current().getUsername();
   }
 
   /**
@@ -654,7 +1588,7 @@ public class QueueServiceImpl implements QueueService {
    */
   @Override
   public String resolveHostname() {
-    return connectionFactory.getHost();
+    return brokerTargetRegistry.current().getHost();
   }
 
   /**
@@ -662,7 +1596,7 @@ public class QueueServiceImpl implements QueueService {
    */
   @Override
   public Integer resolvePort() {
-    return connectionFactory.getPort();
+    return brokerTargetRegistry.current().getPort();
   }
 
   /**
@@ -670,7 +1604,7 @@ public class QueueServiceImpl implements QueueService {
    */
   @Override
   public String resolveVirtualHost() {
-    return connectionFactory.getVirtualHost();
+    return brokerTargetRegistry.current().getVirtualHost();
   }
 
   /**
@@ -678,7 +1612,7 @@ public class QueueServiceImpl implements QueueService {
    */
   @Override
   public Map<String, String> listDeadLetterQueues() {
-    return dlqProperties.getDeadLetterQueue();
+    return brokerTargetRegistry.current().getDeadLetterQueue();
   }
 
   /**
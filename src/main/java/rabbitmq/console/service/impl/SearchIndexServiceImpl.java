@@ -0,0 +1,416 @@
+package rabbitmq.console.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.amqp.AmqpException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.rabbitmq.client.GetResponse;
+
+import lombok.extern.slf4j.Slf4j;
+import rabbitmq.console.component.BrokerTarget;
+import rabbitmq.console.component.BrokerTargetHolder;
+import rabbitmq.console.component.BrokerTargetRegistry;
+import rabbitmq.console.component.JobScheduler;
+import rabbitmq.console.component.ScanControl;
+import rabbitmq.console.component.ScanRegistry;
+import rabbitmq.console.configuration.DlqProperties;
+import rabbitmq.console.service.SearchIndexService;
+import rabbitmq.console.service.dto.SearchIndexState;
+
+/**
+ * Dead Letter Queueの全文検索用インデックスを扱うサービス.
+ *
+ * <p>
+ * インデックスはこの画面からの操作でのみ更新されるので、検索時と一定間隔でキューのメッセージ数と先頭のメッセージを構築時の状態と比較し、
+ * 画面を経由せずに内容が変わった古いインデックスは使わずに再構築する.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+@Service
+@Slf4j
+public class SearchIndexServiceImpl
+    implements SearchIndexService, ApplicationListener<ApplicationReadyEvent> {
+  /**
+   * RabbitMQからメッセージを取得する際のプリフェッチ数
+   */
+  private static final int PREFETCH_COUNT = 1;
+
+  /**
+   * Dead Letter Queue関連プロパティ.
+   */
+  @Autowired
+  private DlqProperties dlqProperties;
+
+  /**
+   * 接続先一覧.
+   */
+  @Autowired
+  private BrokerTargetRegistry brokerTargetRegistry;
+
+  /**
+   * 実行中の走査一覧.
+   */
+  @Autowired
+  private ScanRegistry scanRegistry;
+
+  /**
+   * 構築済みインデックス(キー:接続先名/Dead Letter Queue名).
+   */
+  private final ConcurrentMap<String, DeadLetterQueueIndex> indexes = new ConcurrentHashMap<>();
+
+  /**
+   * 構築中インデックス(キー:接続先名/Dead Letter Queue名).
+   */
+  private final ConcurrentMap<String, DeadLetterQueueIndex> buildingIndexes = new ConcurrentHashMap<>();
+
+  /**
+   * 再構築待ちのインデックスのキー. 同じインデックスの再構築を重複して待たせない.
+   */
+  private final Set<String> queuedRebuilds = ConcurrentHashMap.newKeySet();
+
+  /**
+   * インデックス構築用スレッド.
+   */
+  private final ExecutorService indexBuilder = Executors
+      .newSingleThreadExecutor(indexBuilderThreadFactory());
+
+  /**
+   * インデックスの鮮度確認用スケジューラ.
+   */
+  private final JobScheduler jobScheduler = new JobScheduler("index-check");
+
+  /**
+   * インデックス構築用スレッドファクトリを生成する.
+   *
+   * @return スレッドファクトリ
+   */
+  private static CustomizableThreadFactory indexBuilderThreadFactory() {
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("dlq-index-");
+    threadFactory.setDaemon(true);
+    return threadFactory;
+  }
+
+  /**
+   * 起動完了時に全Dead Letter Queueのインデックスを構築する.
+   *
+   * @param event 起動完了イベント
+   */
+  @Override
+  public void onApplicationEvent(ApplicationReadyEvent event) {
+    if (isEnabled() && dlqProperties.getSearchIndex().isBuildOnStartup()) {
+      for (BrokerTarget target : brokerTargetRegistry.list()) {
+        BrokerTargetHolder.set(target.getName());
+        try {
+          target.getDeadLetterQueue().keySet().forEach(this::rebuild);
+        } finally {
+          BrokerTargetHolder.clear();
+        }
+      }
+    }
+  }
+
+  /**
+   * 操作対象の接続先とDead Letter Queue名からインデックスのキーを導出する.
+   *
+   * @param dlqName Dead Letter Queue名
+   * @return インデックスのキー
+   */
+  private String indexKey(String dlqName) {
+    return brokerTargetRegistry.current().getName() + "/" + dlqName;
+  }
+
+  /**
+   * インデックスの鮮度確認を開始する.
+   */
+  @PostConstruct
+  public void start() {
+    long interval = dlqProperties.getSearchIndex().getStaleCheckInterval();
+    if (isEnabled() && interval > 0) {
+      jobScheduler.scheduleWithFixedDelay(this::checkStaleness, interval);
+    }
+  }
+
+  /**
+   * インデックス構築用スレッドと鮮度確認を停止する.
+   */
+  @PreDestroy
+  public void shutdown() {
+    jobScheduler.shutdown();
+    indexBuilder.shutdownNow();
+  }
+
+  /**
+   * 全接続先の構築済みインデックスの鮮度を確認し、古くなったインデックスを再構築する.
+   */
+  void checkStaleness() {
+    for (BrokerTarget target : brokerTargetRegistry.list()) {
+      BrokerTargetHolder.set(target.getName());
+      try {
+        target.getDeadLetterQueue().keySet().forEach(this::state);
+      } finally {
+        BrokerTargetHolder.clear();
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public boolean isEnabled() {
+    return dlqProperties.getSearchIndex().isEnabled();
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public void rebuild(String dlqName) {
+    if (isEnabled()) {
+      final String key = indexKey(dlqName);
+      if (queuedRebuilds.add(key)) {
+        indexBuilder.execute(BrokerTargetHolder.wrap(() -> {
+          // 構築の開始後に届いた再構築要求は、構築の完了後に改めて実行する
+          queuedRebuilds.remove(key);
+          build(dlqName);
+        }));
+      }
+    }
+  }
+
+  /**
+   * Dead Letter Queueを1回走査してインデックスを構築し、構築済みインデックスと差し替える.
+   *
+   * @param dlqName Dead Letter Queue名
+   */
+  void build(String dlqName) {
+    final long startedAt = System.currentTimeMillis();
+    final String key = indexKey(dlqName);
+    final DeadLetterQueueIndex index = new DeadLetterQueueIndex(
+        dlqProperties.getSearchIndex().getMaxBytes());
+    buildingIndexes.put(key, index);
+    try {
+      // 受信したメッセージは応答せず、走査の完了後に使い捨てのチャネルを閉じて元の順のままキューへ戻す
+      ScanControl scan = brokerTargetRegistry.current().executeOnDedicatedChannel(channel -> {
+        channel.basicQos(PREFETCH_COUNT);
+        ScanControl control = scanRegistry.open("index", dlqName,
+            channel.queueDeclarePassive(dlqName).getMessageCount());
+        try {
+          while (!index.isOverflowed() && control.proceed()) {
+            GetResponse response = channel.basicGet(dlqName, false);
+            if (response == null) {
+              break;
+            }
+            control.scanned(response.getBody().length);
+            String messageId = response.getProps().getMessageId();
+            if (StringUtils.hasText(messageId)) {
+              Map<String, Object> headers = response.getProps().getHeaders();
+              index.add(messageId, tokenize(response.getBody(), headers),
+                  XDeathHeaders.totalCount(headers));
+            } else {
+              index.skipUnidentified();
+            }
+            if (control.getScanned() == 1) {
+              index.setHeadMessageId(messageId);
+            }
+          }
+        } finally {
+          scanRegistry.close(control);
+        }
+        return control;
+      });
+      if (index.isOverflowed()) {
+        indexes.remove(key);
+        log.warn("Search index for {} exceeded {} bytes and was discarded.", key,
+            dlqProperties.getSearchIndex().getMaxBytes());
+      } else if (scan.isIncomplete()) {
+        // 一部のメッセージしか含まないインデックスでは検索漏れが起きるので使わない
+        indexes.remove(key);
+        log.warn("Search index for {} was discarded because the scan stopped: {}", key,
+            scan.getIncompleteReason());
+      } else {
+        indexes.put(key, index);
+        log.info("Search index for {} built. Messages:{}, Elapsed:{}ms", key, index.size(),
+            System.currentTimeMillis() - startedAt);
+      }
+    } catch (AmqpException e) {
+      log.warn("Failed to build search index for " + key, e);
+    } finally {
+      buildingIndexes.remove(key, index);
+    }
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public SearchIndexState state(String dlqName) {
+    DeadLetterQueueIndex index = indexes.get(indexKey(dlqName));
+    if (!isEnabled() || index == null || index.isOverflowed()) {
+      return SearchIndexState.UNAVAILABLE;
+    }
+    if (index.isStale() || isStale(dlqName, index)) {
+      return SearchIndexState.STALE;
+    }
+    return SearchIndexState.AVAILABLE;
+  }
+
+  /**
+   * キューのメッセージ数と先頭のメッセージを構築時の状態と比較し、インデックスが古くなっていれば再構築する.
+   *
+   * <p>
+   * この画面からの操作はインデックスへ反映するので、メッセージ数は登録件数と一致し、先頭は構築時の先頭のままのはずである.
+   * 画面を経由せずに届いた・取り出されたメッセージでどちらかが食い違った場合は古いとみなす.
+   * 確認には使い捨てのチャネルを使い、先頭のメッセージはチャネルを閉じると元の位置へ戻る.
+   * </p>
+   *
+   * @param dlqName Dead Letter Queue名
+   * @param index 構築済みインデックス
+   * @return 古くなっていればtrue。キューの状態を取得できない場合もtrue
+   */
+  private boolean isStale(String dlqName, DeadLetterQueueIndex index) {
+    final int indexed = index.size() + index.getUnidentified();
+    final String headMessageId = index.getHeadMessageId();
+    String drift;
+    try {
+      drift = brokerTargetRegistry.current().executeOnDedicatedChannel(channel -> {
+        int depth = channel.queueDeclarePassive(dlqName).getMessageCount();
+        if (depth != indexed) {
+          return String.format("Indexed:%d, Depth:%d", indexed, depth);
+        }
+        if (headMessageId == null) {
+          return null;
+        }
+        GetResponse head = channel.basicGet(dlqName, false);
+        String messageId = head == null ? null : head.getProps().getMessageId();
+        return headMessageId.equals(messageId) ? null
+            : String.format("Head:%s, Indexed head:%s", messageId, headMessageId);
+      });
+    } catch (AmqpException e) {
+      log.warn("Failed to check search index for " + indexKey(dlqName), e);
+      drift = e.getMessage();
+    }
+    if (drift == null) {
+      return false;
+    }
+    index.markStale();
+    log.info("Search index for {} is stale and will be rebuilt. {}", indexKey(dlqName), drift);
+    rebuild(dlqName);
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public Map<String, Long> search(String dlqName, String keyword) {
+    DeadLetterQueueIndex index = indexes.get(indexKey(dlqName));
+    if (index == null) {
+      return Collections.emptyMap();
+    }
+    Set<String> queryTokens = new LinkedHashSet<>();
+    DeadLetterQueueIndex.tokenize(keyword, queryTokens);
+    return index.search(queryTokens);
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public Long totalDeathCount(String dlqName) {
+    DeadLetterQueueIndex index = indexes.get(indexKey(dlqName));
+    if (!isEnabled() || index == null || index.isOverflowed() || index.isStale()) {
+      return null;
+    }
+    return index.getTotalDeathCount();
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public boolean matches(String keyword, byte[] body, Map<String, Object> headers) {
+    Set<String> queryTokens = new LinkedHashSet<>();
+    DeadLetterQueueIndex.tokenize(keyword, queryTokens);
+    return !queryTokens.isEmpty() && tokenize(body, headers).containsAll(queryTokens);
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public void index(String dlqName, String messageId, byte[] body, Map<String, Object> headers) {
+    if (!isEnabled() || !StringUtils.hasText(messageId)) {
+      return;
+    }
+    Set<String> tokens = tokenize(body, headers);
+    long deathCount = XDeathHeaders.totalCount(headers);
+    DeadLetterQueueIndex index = indexes.get(indexKey(dlqName));
+    if (index != null) {
+      index.add(messageId, tokens, deathCount);
+    }
+    DeadLetterQueueIndex buildingIndex = buildingIndexes.get(indexKey(dlqName));
+    if (buildingIndex != null) {
+      buildingIndex.add(messageId, tokens, deathCount);
+    }
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public void remove(String dlqName, String messageId) {
+    if (!isEnabled() || !StringUtils.hasText(messageId)) {
+      return;
+    }
+    DeadLetterQueueIndex index = indexes.get(indexKey(dlqName));
+    if (index != null) {
+      index.remove(messageId);
+    }
+    DeadLetterQueueIndex buildingIndex = buildingIndexes.get(indexKey(dlqName));
+    if (buildingIndex != null) {
+      buildingIndex.remove(messageId);
+    }
+  }
+
+  /**
+   * ペイロードと対象ヘッダの値をトークンへ分割する.
+   *
+   * @param body ペイロード
+   * @param headers メッセージヘッダ
+   * @return トークン集合
+   */
+  private Set<String> tokenize(byte[] body, Map<String, Object> headers) {
+    Set<String> tokens = new LinkedHashSet<>();
+    if (body != null) {
+      DeadLetterQueueIndex.tokenize(new String(body, StandardCharsets.UTF_8), tokens);
+    }
+    if (headers != null) {
+      for (String headerName : dlqProperties.getSearchIndex().getHeaders()) {
+        Object value = headers.get(headerName);
+        if (value != null) {
+          DeadLetterQueueIndex.tokenize(value.toString(), tokens);
+        }
+      }
+    }
+    return tokens;
+  }
+}
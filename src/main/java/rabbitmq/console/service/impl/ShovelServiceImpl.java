@@ -0,0 +1,573 @@
+package rabbitmq.console.service.impl;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.ChannelProxy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.GetResponse;
+import com.rabbitmq.client.QueueingConsumer;
+import com.rabbitmq.client.QueueingConsumer.Delivery;
+import com.rabbitmq.client.ShutdownSignalException;
+
+import lombok.extern.slf4j.Slf4j;
+import rabbitmq.console.component.BrokerTargetRegistry;
+import rabbitmq.console.configuration.DlqProperties;
+import rabbitmq.console.repository.RabbitMqMutexRepository;
+import rabbitmq.console.service.AuditService;
+import rabbitmq.console.service.SearchIndexService;
+import rabbitmq.console.service.ShovelService;
+import rabbitmq.console.service.dto.AuditAction;
+import rabbitmq.console.service.dto.AuditOutcome;
+import rabbitmq.console.service.dto.MessageFilter;
+import rabbitmq.console.service.dto.MoveRequest;
+import rabbitmq.console.service.dto.MoveResult;
+
+/**
+ * 任意のキュー間でメッセージを移動するサービス.
+ *
+ * <p>
+ * 移動元の受信・移動先への登録・移動元の削除をパイプライン化する。 移動先へはパブリッシャ確認付きで登録し、確認できたバッチから移動元をまとめて削除する。
+ * 絞り込み条件が無い場合はプリフェッチ付きのコンシューマで受信する。 条件がある場合は対象外のメッセージを未削除のまま保持しておく必要があるため、
+ * プリフェッチ数に制限されないbasic.getで受信する。 対象外のメッセージは移動の完了後(保持上限に達した場合は打ち切り後)にまとめて移動元へ戻す.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+@Service
+@Slf4j
+public class ShovelServiceImpl implements ShovelService {
+  /**
+   * Dead Letter Queue関連プロパティ.
+   */
+  @Autowired
+  private DlqProperties dlqProperties;
+
+  /**
+   * 接続先一覧.
+   */
+  @Autowired
+  private BrokerTargetRegistry brokerTargetRegistry;
+
+  /**
+   * 全文検索用インデックスサービス.
+   */
+  @Autowired
+  private SearchIndexService searchIndexService;
+
+  /**
+   * Mutexテーブルアクセス用リポジトリ.
+   */
+  @Autowired
+  private RabbitMqMutexRepository rabbitMqMutexRepository;
+
+  /**
+   * 監査ログサービス.
+   */
+  @Autowired
+  private AuditService auditService;
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public MoveResult move(MoveRequest request) {
+    if (StringUtils.isEmpty(request.getSourceQueue())
+        || StringUtils.isEmpty(request.getTargetRoutingKey())
+            && StringUtils.isEmpty(request.getTargetExchange())) {
+      throw new IllegalArgumentException("Source queue and target are required.");
+    }
+    if (StringUtils.isEmpty(request.getTargetExchange())
+        && request.getSourceQueue().equals(request.getTargetRoutingKey())) {
+      throw new IllegalArgumentException("Source and target queue must differ.");
+    }
+    MoveResult result = transfer(request, true, false);
+    auditService.record(AuditAction.MOVE, request.getSourceQueue(),
+        result.getError() == null ? AuditOutcome.SUCCEEDED : AuditOutcome.FAILED,
+        String.format("Exchange:%s,Routing-Key:%s,Moved:%d%s%s", request.getTargetExchange(),
+            request.getTargetRoutingKey(), result.getMoved(),
+            result.getIncompleteReason() == null ? ""
+                : ",Incomplete:" + result.getIncompleteReason(),
+            result.getError() == null ? "" : ",Error:" + result.getError()));
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public MoveResult drain(String queueName, String backupQueueName) {
+    MoveRequest request = new MoveRequest();
+    request.setSourceQueue(queueName);
+    request.setTargetRoutingKey(backupQueueName);
+    return transfer(request, backupQueueName != null, true);
+  }
+
+  /**
+   * 専用のチャネルでメッセージを移動または削除する.
+   *
+   * @param request 移動要求
+   * @param publish 移動先へ登録する場合はtrue。falseの場合は削除する
+   * @param releaseMutexes 取り出したメッセージのミューテックスを削除する場合はtrue
+   * @return 移動結果
+   */
+  private MoveResult transfer(MoveRequest request, boolean publish, boolean releaseMutexes) {
+    final long startedAt = System.currentTimeMillis();
+    MoveResult result = new MoveResult();
+    // キャッシュしたチャネルをパブリッシャ確認モードにすると他の処理で使えなくなるので、実体のチャネルを使い捨てる
+    Channel proxy = brokerTargetRegistry.current().getConnectionFactory().createConnection()
+        .createChannel(false);
+    Channel channel = ((ChannelProxy) proxy).getTargetChannel();
+    try {
+      new Transfer(channel, request, publish, releaseMutexes, result).run();
+    } catch (IOException | TimeoutException | ShutdownSignalException | AmqpException e) {
+      log.warn(String.format("Failed to move messages. Source:%s,Exchange:%s,Routing-Key:%s",
+          request.getSourceQueue(), request.getTargetExchange(), request.getTargetRoutingKey()),
+          e);
+      result.setError(e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      result.setError("Interrupted.");
+    } finally {
+      // 未削除のメッセージ(対象外・受信済み未処理)はチャネルを閉じると移動元へ戻る
+      close(channel);
+      // 閉じたチャネルはキャッシュへ戻さずに破棄される
+      close(proxy);
+    }
+    result.setElapsed(System.currentTimeMillis() - startedAt);
+    log.info(String.format(
+        "Messages %s. Source:%s,Exchange:%s,Routing-Key:%s,Scanned:%d,Moved:%d,Mutexes:%d,"
+            + "Elapsed:%dms",
+        publish ? "moved" : "deleted", request.getSourceQueue(), request.getTargetExchange(),
+        request.getTargetRoutingKey(), result.getScanned(), result.getMoved(),
+        result.getReleasedMutexes(), result.getElapsed()));
+    return result;
+  }
+
+  /**
+   * メッセージヘッダが絞り込み条件に合致するかどうか. 直近のx-deathエントリで判定する.
+   *
+   * @param filter 絞り込み条件
+   * @param headers メッセージヘッダ
+   * @return 合致すればtrue
+   */
+  private boolean matches(MessageFilter filter, Map<String, Object> headers) {
+    Map<String, Object> extraDeath = XDeathHeaders.latest(headers);
+    if (extraDeath.isEmpty()) {
+      return false;
+    }
+    if (!StringUtils.isEmpty(filter.getReason())
+        && !filter.getReason().equals(String.valueOf(extraDeath.get("reason")))) {
+      return false;
+    }
+    return StringUtils.isEmpty(filter.getOriginalQueue())
+        || filter.getOriginalQueue().equals(String.valueOf(extraDeath.get("queue")));
+  }
+
+  /**
+   * NPEを起こさずにオブジェクトの文字列表現を取得する.
+   *
+   * @param object 対象オブジェクト
+   * @return オブジェクトの文字列表現。オブジェクトがNULLの場合はNULL
+   */
+  private String safetyToString(Object object) {
+    return object == null ? null : object.toString();
+  }
+
+  /**
+   * チャネルを閉じる. 閉じる際のエラーは無視する.
+   *
+   * @param channel チャネル
+   */
+  private void close(Channel channel) {
+    try {
+      channel.close();
+    } catch (IOException | TimeoutException | RuntimeException e) {
+      log.debug("Failed to close shovel channel.", e);
+    }
+  }
+
+  /**
+   * 移動元から未削除の移動済みメッセージのバッチ.
+   *
+   * @author Tomoaki Mikami
+   */
+  private static class Batch {
+    /**
+     * 配信タグ.
+     */
+    private final List<Long> deliveryTags;
+
+    /**
+     * メッセージID.
+     */
+    private final List<String> messageIds;
+
+    /**
+     * ミューテックスID.
+     */
+    private final List<Long> mutexIds = new ArrayList<>();
+
+    /**
+     * 最後に登録したメッセージのパブリッシャ確認の連番.
+     */
+    private long lastSeqNo;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param batchSize バッチの件数
+     */
+    Batch(int batchSize) {
+      this.deliveryTags = new ArrayList<>(batchSize);
+      this.messageIds = new ArrayList<>(batchSize);
+    }
+  }
+
+  /**
+   * 1回の移動処理. 移動先へは確認を待たずに登録し続け、確認できたバッチから移動元をまとめて削除する.
+   *
+   * <p>
+   * 移動先へ登録済み・移動元から未削除のメッセージが確認ウィンドウ(window)に達した場合だけ、先頭のバッチの確認を待つ。
+   * 絞り込み時に未削除のまま保持する対象外のメッセージは保持上限(hold-limit)までとし、達した時点で移動を打ち切る.
+   * </p>
+   *
+   * @author Tomoaki Mikami
+   */
+  private class Transfer {
+    /**
+     * チャネル.
+     */
+    private final Channel channel;
+
+    /**
+     * 移動要求.
+     */
+    private final MoveRequest request;
+
+    /**
+     * 移動先へ登録するかどうか. falseの場合は削除する.
+     */
+    private final boolean publish;
+
+    /**
+     * 取り出したメッセージのミューテックスを削除するかどうか.
+     */
+    private final boolean releaseMutexes;
+
+    /**
+     * 移動結果の格納先.
+     */
+    private final MoveResult result;
+
+    /**
+     * 移動設定.
+     */
+    private final DlqProperties.Shovel settings = dlqProperties.getShovel();
+
+    /**
+     * 確認ウィンドウ(件数). バッチの件数未満の場合はバッチの件数とする.
+     */
+    private final int window = Math.max(settings.getWindow(), settings.getBatchSize());
+
+    /**
+     * 確認待ちのバッチ(登録順).
+     */
+    private final Deque<Batch> pending = new ArrayDeque<>();
+
+    /**
+     * 移動先からの確認が未着のパブリッシャ確認の連番. 確認の通知と待ち合わせのモニタを兼ねる.
+     */
+    private final SortedSet<Long> unconfirmed = new TreeSet<>();
+
+    /**
+     * 移動先が登録を拒否したかどうか.
+     */
+    private boolean nacked;
+
+    /**
+     * ルーティングできずに返送されたメッセージ数. ルーティングできなかったメッセージは確認より先に返送される.
+     */
+    private final AtomicInteger returned = new AtomicInteger();
+
+    /**
+     * 作成中のバッチ.
+     */
+    private Batch batch;
+
+    /**
+     * 移動先へ登録済み・移動元から未削除のメッセージ数(作成中のバッチを含む).
+     */
+    private int inFlight;
+
+    /**
+     * 未削除のまま保持している対象外のメッセージ数.
+     */
+    private int held;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param channel チャネル
+     * @param request 移動要求
+     * @param publish 移動先へ登録する場合はtrue
+     * @param releaseMutexes ミューテックスを削除する場合はtrue
+     * @param result 移動結果の格納先
+     */
+    Transfer(Channel channel, MoveRequest request, boolean publish, boolean releaseMutexes,
+        MoveResult result) {
+      this.channel = channel;
+      this.request = request;
+      this.publish = publish;
+      this.releaseMutexes = releaseMutexes;
+      this.result = result;
+      this.batch = new Batch(settings.getBatchSize());
+    }
+
+    /**
+     * メッセージを移動する.
+     *
+     * @throws IOException IOエラー発生時
+     * @throws TimeoutException 移動先への登録確認がタイムアウトした場合
+     * @throws InterruptedException 割り込まれた場合
+     */
+    void run() throws IOException, TimeoutException, InterruptedException {
+      final String sourceQueue = request.getSourceQueue();
+      final String exchange = StringUtils.isEmpty(request.getTargetExchange()) ? ""
+          : request.getTargetExchange();
+      final String routingKey = request.getTargetRoutingKey() == null ? ""
+          : request.getTargetRoutingKey();
+      final MessageFilter filter = request.getFilter();
+      final boolean filtered = filter != null && !filter.isEmpty();
+
+      // 移動元・移動先の存在確認(存在しない場合はブローカーがチャネルを閉じて例外になる)
+      int limit = channel.queueDeclarePassive(sourceQueue).getMessageCount();
+      if (request.getMaxMessages() > 0) {
+        limit = Math.min(limit, request.getMaxMessages());
+      }
+      if (publish) {
+        if (exchange.isEmpty()) {
+          channel.queueDeclarePassive(routingKey);
+        } else {
+          channel.exchangeDeclarePassive(exchange);
+        }
+        channel.confirmSelect();
+        channel.addConfirmListener(new ConfirmListener() {
+          @Override
+          public void handleAck(long seqNo, boolean multiple) {
+            confirm(seqNo, multiple, false);
+          }
+
+          @Override
+          public void handleNack(long seqNo, boolean multiple) {
+            confirm(seqNo, multiple, true);
+          }
+        });
+        channel.addReturnListener((replyCode, replyText, returnedExchange, returnedRoutingKey,
+            properties, body) -> returned.incrementAndGet());
+        // チャネルが閉じられたら確認待ちを起こす
+        channel.addShutdownListener(cause -> {
+          synchronized (unconfirmed) {
+            unconfirmed.notifyAll();
+          }
+        });
+      }
+
+      QueueingConsumer consumer = null;
+      String consumerTag = null;
+      if (!filtered) {
+        // 確認ウィンドウを超えて受信しても削除できないので、プリフェッチ数を確認ウィンドウに合わせる
+        channel.basicQos(window);
+        consumer = new QueueingConsumer(channel);
+        consumerTag = channel.basicConsume(sourceQueue, false, consumer);
+      }
+
+      long lastDeliveryTag = 0;
+      while (result.getScanned() < limit) {
+        Delivery delivery;
+        if (consumer != null) {
+          delivery = consumer.nextDelivery(settings.getIdleTimeout());
+        } else {
+          GetResponse response = channel.basicGet(sourceQueue, false);
+          delivery = response == null ? null
+              : new Delivery(response.getEnvelope(), response.getProps(), response.getBody());
+        }
+        if (delivery == null) {
+          break;
+        }
+        result.setScanned(result.getScanned() + 1);
+        lastDeliveryTag = delivery.getEnvelope().getDeliveryTag();
+        Map<String, Object> headers = delivery.getProperties().getHeaders();
+        if (filtered && !matches(filter, headers)) {
+          // 対象外は未削除のまま保持し、移動の完了後に戻す
+          held++;
+          if (held >= settings.getHoldLimit()) {
+            result.setIncompleteReason(String.format(
+                "Stopped after holding %d non-matching messages (hold-limit).", held));
+            break;
+          }
+          continue;
+        }
+        if (publish) {
+          long seqNo = channel.getNextPublishSeqNo();
+          synchronized (unconfirmed) {
+            unconfirmed.add(seqNo);
+          }
+          channel.basicPublish(exchange, routingKey, true, delivery.getProperties(),
+              delivery.getBody());
+          batch.lastSeqNo = seqNo;
+        }
+        batch.deliveryTags.add(lastDeliveryTag);
+        batch.messageIds.add(delivery.getProperties().getMessageId());
+        String mutex = releaseMutexes && headers != null
+            ? safetyToString(headers.get(QueueServiceImpl.X_MUTEX_KEY)) : null;
+        if (StringUtils.hasText(mutex)) {
+          batch.mutexIds.add(Long.valueOf(mutex));
+        }
+        inFlight++;
+        if (batch.deliveryTags.size() >= settings.getBatchSize()) {
+          seal();
+        }
+        // 確認済みのバッチは待たずに削除し、確認ウィンドウに達した場合だけ先頭のバッチの確認を待つ
+        acknowledge(false);
+        while (inFlight >= window && !pending.isEmpty()) {
+          acknowledge(true);
+        }
+      }
+      seal();
+      while (!pending.isEmpty()) {
+        acknowledge(true);
+      }
+      if (consumerTag != null) {
+        channel.basicCancel(consumerTag);
+      }
+      if (held > 0) {
+        channel.basicNack(lastDeliveryTag, true, true);
+      }
+    }
+
+    /**
+     * 作成中のバッチを確認待ちにする.
+     */
+    private void seal() {
+      if (!batch.deliveryTags.isEmpty()) {
+        pending.addLast(batch);
+        batch = new Batch(settings.getBatchSize());
+      }
+    }
+
+    /**
+     * 移動先からの確認を記録し、確認待ちを起こす.
+     *
+     * @param seqNo パブリッシャ確認の連番
+     * @param multiple 連番以下をまとめて確認する場合はtrue
+     * @param rejected 拒否された場合はtrue
+     */
+    private void confirm(long seqNo, boolean multiple, boolean rejected) {
+      synchronized (unconfirmed) {
+        if (multiple) {
+          unconfirmed.headSet(seqNo + 1).clear();
+        } else {
+          unconfirmed.remove(seqNo);
+        }
+        nacked |= rejected;
+        unconfirmed.notifyAll();
+      }
+    }
+
+    /**
+     * 確認待ちの先頭のバッチが移動先で確認できたら、移動元からまとめて削除する.
+     *
+     * @param wait 確認できるまで待つ場合はtrue
+     * @throws IOException IOエラー発生時、または移動先への登録が拒否された場合
+     * @throws TimeoutException 移動先への登録確認がタイムアウトした場合
+     * @throws InterruptedException 割り込まれた場合
+     */
+    private void acknowledge(boolean wait)
+        throws IOException, TimeoutException, InterruptedException {
+      Batch head;
+      while ((head = pending.peekFirst()) != null) {
+        if (publish && !awaitConfirm(head.lastSeqNo, wait)) {
+          return;
+        }
+        pending.removeFirst();
+        if (held > 0) {
+          // 対象外のメッセージまで削除しないよう1件ずつ削除する
+          for (Long deliveryTag : head.deliveryTags) {
+            channel.basicAck(deliveryTag, false);
+          }
+        } else {
+          channel.basicAck(head.deliveryTags.get(head.deliveryTags.size() - 1), true);
+        }
+        inFlight -= head.deliveryTags.size();
+        result.setMoved(result.getMoved() + head.deliveryTags.size());
+        // 検索用インデックスから削除
+        head.messageIds
+            .forEach(messageId -> searchIndexService.remove(request.getSourceQueue(), messageId));
+        if (!head.mutexIds.isEmpty()) {
+          result.setReleasedMutexes(
+              result.getReleasedMutexes() + rabbitMqMutexRepository.deleteAll(head.mutexIds));
+        }
+        if (wait) {
+          return;
+        }
+      }
+    }
+
+    /**
+     * 指定した連番までの登録が移動先で確認できるのを待つ.
+     *
+     * @param seqNo パブリッシャ確認の連番
+     * @param wait 確認できるまで待つ場合はtrue。falseの場合は現時点の状態を返す
+     * @return 確認できた場合はtrue
+     * @throws IOException 移動先への登録が拒否された場合、またはルーティングできなかった場合
+     * @throws TimeoutException 移動先への登録確認がタイムアウトした場合
+     * @throws InterruptedException 割り込まれた場合
+     */
+    private boolean awaitConfirm(long seqNo, boolean wait)
+        throws IOException, TimeoutException, InterruptedException {
+      final long deadline = System.currentTimeMillis() + settings.getConfirmTimeout();
+      synchronized (unconfirmed) {
+        while (true) {
+          // 拒否・タイムアウト時は呼び出し元がチャネルを閉じ、未削除のメッセージは移動元へ戻る
+          if (nacked) {
+            throw new IOException("Target broker rejected messages.");
+          }
+          if (unconfirmed.isEmpty() || unconfirmed.first() > seqNo) {
+            break;
+          }
+          if (!wait) {
+            return false;
+          }
+          if (!channel.isOpen()) {
+            throw channel.getCloseReason();
+          }
+          long remaining = deadline - System.currentTimeMillis();
+          if (remaining <= 0) {
+            throw new TimeoutException(String.format("Timed out waiting for confirms (%dms).",
+                settings.getConfirmTimeout()));
+          }
+          unconfirmed.wait(remaining);
+        }
+      }
+      if (returned.get() > 0) {
+        throw new IOException(String.format("%d messages were unroutable.", returned.get()));
+      }
+      return true;
+    }
+  }
+}
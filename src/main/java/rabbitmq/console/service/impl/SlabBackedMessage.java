@@ -0,0 +1,130 @@
+package rabbitmq.console.service.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+import rabbitmq.console.component.MessageSnapshot;
+import rabbitmq.console.service.dto.DeadLetteredMessage;
+
+/**
+ * ペイロードと固定長の項目をスナップショットのスラブに保持するDead Letterメッセージ.
+ *
+ * <p>
+ * スラブ上のレイアウトは[メッセージ数(int)][ペイロード長(int)][再送信フラグ(byte)][ペイロード]。
+ * ヒープ上にはメッセージIDやx-deathなどの小さな項目だけを保持し、ペイロード等は参照された時点で復元する。
+ * スラブの読み書きは、スナップショットが並行して解放されないよう参照を追加して行う。
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+class SlabBackedMessage extends DeadLetteredMessage {
+  /**
+   * メッセージ数の位置.
+   */
+  private static final int MESSAGE_COUNT_OFFSET = 0;
+
+  /**
+   * ペイロード長の位置.
+   */
+  private static final int PAYLOAD_LENGTH_OFFSET = 4;
+
+  /**
+   * 再送信フラグの位置.
+   */
+  private static final int REDELIVERED_OFFSET = 8;
+
+  /**
+   * ペイロードの位置.
+   */
+  private static final int PAYLOAD_OFFSET = 9;
+
+  /**
+   * 領域を確保したスナップショット.
+   */
+  private final MessageSnapshot snapshot;
+
+  /**
+   * スラブ上の領域.
+   */
+  private final ByteBuffer region;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param snapshot スナップショット
+   * @param messageCount メッセージ数
+   * @param redelivered 再送信フラグ
+   * @param body ペイロード
+   */
+  SlabBackedMessage(MessageSnapshot snapshot, int messageCount, boolean redelivered,
+      byte[] body) {
+    this.snapshot = snapshot;
+    snapshot.retain();
+    try {
+      this.region = snapshot.allocate(PAYLOAD_OFFSET + body.length);
+      region.putInt(MESSAGE_COUNT_OFFSET, messageCount);
+      region.putInt(PAYLOAD_LENGTH_OFFSET, body.length);
+      region.put(REDELIVERED_OFFSET, (byte) (redelivered ? 1 : 0));
+      ByteBuffer payload = region.duplicate();
+      payload.position(PAYLOAD_OFFSET);
+      payload.put(body);
+    } finally {
+      snapshot.release();
+    }
+    setPayloadEncoding(StandardCharsets.UTF_8.name());
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public Number getMessageCount() {
+    return read(slab -> slab.getInt(MESSAGE_COUNT_OFFSET));
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public Number getPayloadBytes() {
+    return read(slab -> slab.getInt(PAYLOAD_LENGTH_OFFSET));
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public Boolean getRedelivered() {
+    return read(slab -> slab.get(REDELIVERED_OFFSET) != 0);
+  }
+
+  /**
+   * {@inheritDoc}.
+   */
+  @Override
+  public String getPayload() {
+    return read(slab -> {
+      byte[] body = new byte[slab.getInt(PAYLOAD_LENGTH_OFFSET)];
+      ByteBuffer payload = slab.duplicate();
+      payload.position(PAYLOAD_OFFSET);
+      payload.get(body);
+      return new String(body, StandardCharsets.UTF_8);
+    });
+  }
+
+  /**
+   * スナップショットが解放されないよう参照を追加してスラブ上の領域を読む.
+   *
+   * @param reader 領域を読む処理
+   * @return 読んだ値
+   */
+  private <T> T read(Function<ByteBuffer, T> reader) {
+    snapshot.retain();
+    try {
+      return reader.apply(region);
+    } finally {
+      snapshot.release();
+    }
+  }
+}
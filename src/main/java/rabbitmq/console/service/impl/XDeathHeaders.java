@@ -0,0 +1,75 @@
+package rabbitmq.console.service.impl;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * x-deathヘッダの読み取り.
+ *
+ * <p>
+ * x-deathはキューと理由の組毎に1エントリを持ち、直近のものが先頭に並ぶ。 同じ組で繰り返しDead Letter Queue入りした回数は各エントリのcountに集約される。
+ * 走査する全メッセージに対して呼ばれるので、ヘッダの値をそのまま参照してオブジェクトを生成しない。
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+final class XDeathHeaders {
+  /**
+   * コンストラクタ.
+   */
+  private XDeathHeaders() {
+  }
+
+  /**
+   * x-deathの全エントリを取得する.
+   *
+   * @param headers メッセージヘッダ
+   * @return エントリ一覧(直近が先頭)。ヘッダが無い場合は空
+   */
+  @SuppressWarnings("unchecked")
+  static List<Map<String, Object>> entries(Map<String, Object> headers) {
+    if (headers == null) {
+      return Collections.emptyList();
+    }
+    Object extraDeaths = headers.get(QueueServiceImpl.X_DEATH_KEY);
+    return extraDeaths instanceof List ? (List<Map<String, Object>>) extraDeaths
+        : Collections.emptyList();
+  }
+
+  /**
+   * 直近のx-deathエントリを取得する.
+   *
+   * @param headers メッセージヘッダ
+   * @return エントリ。ヘッダが無い場合は空
+   */
+  static Map<String, Object> latest(Map<String, Object> headers) {
+    List<Map<String, Object>> entries = entries(headers);
+    return entries.isEmpty() ? Collections.emptyMap() : entries.get(0);
+  }
+
+  /**
+   * エントリのDead Letter Queue入り回数を取得する.
+   *
+   * @param entry x-deathエントリ
+   * @return 回数。countを持たない古いブローカーの場合は1
+   */
+  static long count(Map<String, Object> entry) {
+    Object count = entry.get("count");
+    return count instanceof Number ? ((Number) count).longValue() : 1;
+  }
+
+  /**
+   * 全エントリのDead Letter Queue入り回数の合計を求める.
+   *
+   * @param headers メッセージヘッダ
+   * @return 合計回数。ヘッダが無い場合は0
+   */
+  static long totalCount(Map<String, Object> headers) {
+    long total = 0;
+    for (Map<String, Object> entry : entries(headers)) {
+      total += count(entry);
+    }
+    return total;
+  }
+}
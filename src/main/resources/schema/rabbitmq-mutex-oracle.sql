@@ -0,0 +1,35 @@
+BEGIN
+  EXECUTE IMMEDIATE 'CREATE TABLE RABBITMQ_MUTEX ( MUTEX NUMBER(18) NOT NULL ,CREATED_AT TIMESTAMP ,CONSTRAINT RABBITMQ_MUTEX_PK PRIMARY KEY (MUTEX) )';
+EXCEPTION
+  WHEN OTHERS THEN
+    IF SQLCODE != -955 THEN RAISE; END IF;
+END;
+/
+BEGIN
+  EXECUTE IMMEDIATE 'CREATE SEQUENCE RABBITMQ_MUTEX_SEQ START WITH 1 INCREMENT BY 1 MAXVALUE 99999 CYCLE';
+EXCEPTION
+  WHEN OTHERS THEN
+    IF SQLCODE != -955 THEN RAISE; END IF;
+END;
+/
+BEGIN
+  EXECUTE IMMEDIATE 'CREATE INDEX RABBITMQ_MUTEX_CREATED_AT_IX ON RABBITMQ_MUTEX (CREATED_AT)';
+EXCEPTION
+  WHEN OTHERS THEN
+    IF SQLCODE != -955 THEN RAISE; END IF;
+END;
+/
+BEGIN
+  EXECUTE IMMEDIATE 'CREATE TABLE RABBITMQ_AUDIT ( RECORDED_AT TIMESTAMP NOT NULL ,OPERATOR VARCHAR2(255) ,TARGET VARCHAR2(255) ,QUEUE_NAME VARCHAR2(255) ,MESSAGE_ID VARCHAR2(255) ,MUTEX VARCHAR2(32) ,ACTION VARCHAR2(32) NOT NULL ,OUTCOME VARCHAR2(16) NOT NULL ,DETAIL VARCHAR2(1000) )';
+EXCEPTION
+  WHEN OTHERS THEN
+    IF SQLCODE != -955 THEN RAISE; END IF;
+END;
+/
+BEGIN
+  EXECUTE IMMEDIATE 'CREATE INDEX RABBITMQ_AUDIT_RECORDED_AT_IX ON RABBITMQ_AUDIT (RECORDED_AT)';
+EXCEPTION
+  WHEN OTHERS THEN
+    IF SQLCODE != -955 THEN RAISE; END IF;
+END;
+/
@@ -0,0 +1,5 @@
+CREATE TABLE IF NOT EXISTS RABBITMQ_MUTEX ( MUTEX NUMERIC(18) NOT NULL ,CREATED_AT TIMESTAMP ,CONSTRAINT RABBITMQ_MUTEX_PK PRIMARY KEY (MUTEX) );
+CREATE SEQUENCE IF NOT EXISTS RABBITMQ_MUTEX_SEQ START WITH 1 INCREMENT BY 1 MAXVALUE 99999 CYCLE;
+CREATE INDEX IF NOT EXISTS RABBITMQ_MUTEX_CREATED_AT_IX ON RABBITMQ_MUTEX (CREATED_AT);
+CREATE TABLE IF NOT EXISTS RABBITMQ_AUDIT ( RECORDED_AT TIMESTAMP NOT NULL ,OPERATOR VARCHAR(255) ,TARGET VARCHAR(255) ,QUEUE_NAME VARCHAR(255) ,MESSAGE_ID VARCHAR(255) ,MUTEX VARCHAR(32) ,ACTION VARCHAR(32) NOT NULL ,OUTCOME VARCHAR(16) NOT NULL ,DETAIL VARCHAR(1000) );
+CREATE INDEX IF NOT EXISTS RABBITMQ_AUDIT_RECORDED_AT_IX ON RABBITMQ_AUDIT (RECORDED_AT);
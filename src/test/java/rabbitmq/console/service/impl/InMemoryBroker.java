@@ -0,0 +1,869 @@
+package rabbitmq.console.service.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.Address;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.GetResponse;
+import com.rabbitmq.client.impl.AMQImpl;
+import com.rabbitmq.client.impl.ContentHeaderPropertyWriter;
+
+/**
+ * テスト用のメモリ上のブローカー.
+ *
+ * <p>
+ * 本アプリが使うチャネル操作(basicGet・basicAck・basicNack・basicPublish・トランザクション等)だけを実装する。
+ * RabbitMQと同様に、受信したメッセージはAck/Nackされるまで受信したチャネルが保持し、チャネルを閉じるとキューへ戻る。
+ * トランザクションのAck・Nack・PublishはCommit時に適用し、Rollbackしても受信済みのメッセージは保持したままとなる。
+ * Nackで戻したメッセージは元の位置に戻る.
+ * </p>
+ *
+ * <p>
+ * メッセージの保存則を検証するため、Ackで消えたメッセージのうち同じトランザクションで同じメッセージIDを登録していないもの(削除)を数える.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+class InMemoryBroker {
+  /**
+   * キュー(キー:キュー名,値:登録順のメッセージ).
+   */
+  private final Map<String, TreeMap<Long, StoredMessage>> queues = new HashMap<>();
+
+  /**
+   * 削除されたメッセージ数(キー:メッセージID).
+   */
+  private final Map<String, Integer> deletions = new HashMap<>();
+
+  /**
+   * 開いているコネクション.
+   */
+  private final List<FakeConnection> connections = new ArrayList<>();
+
+  /**
+   * 開いているチャネル.
+   */
+  private final List<FakeChannel> channels = new ArrayList<>();
+
+  /**
+   * 宛先のキューが無く破棄したメッセージ数.
+   */
+  private int unroutable;
+
+  /**
+   * メッセージの登録順.
+   */
+  private long sequence;
+
+  /**
+   * チャネル番号.
+   */
+  private final AtomicInteger channelNumber = new AtomicInteger();
+
+  /**
+   * 本ブローカーへ接続するコネクションファクトリを生成する.
+   *
+   * @return コネクションファクトリ
+   */
+  ConnectionFactory connectionFactory() {
+    return new ConnectionFactory() {
+      @Override
+      public Connection newConnection(ExecutorService executor) {
+        return newFakeConnection();
+      }
+
+      @Override
+      public Connection newConnection(ExecutorService executor, Address[] addrs) {
+        return newFakeConnection();
+      }
+    };
+  }
+
+  /**
+   * キューを空の状態で定義し直す. 削除件数等の記録も消去する.
+   *
+   * @param queueNames キュー名
+   */
+  synchronized void reset(String... queueNames) {
+    queues.clear();
+    deletions.clear();
+    unroutable = 0;
+    for (String queueName : queueNames) {
+      queues.put(queueName, new TreeMap<>());
+    }
+  }
+
+  /**
+   * キューへメッセージを直接登録する.
+   *
+   * @param queueName キュー名
+   * @param props メッセージプロパティ
+   * @param body ペイロード
+   */
+  synchronized void enqueue(String queueName, BasicProperties props, byte[] body) {
+    publish("", queueName, props, body);
+  }
+
+  /**
+   * キュー毎のメッセージIDの出現数を数える. チャネルが保持しているメッセージは含まない.
+   *
+   * @return 出現数(キー:メッセージID)
+   */
+  synchronized Map<String, Integer> countCopies() {
+    Map<String, Integer> copies = new HashMap<>();
+    queues.values().forEach(queue -> queue.values()
+        .forEach(message -> copies.merge(message.props.getMessageId(), 1, Integer::sum)));
+    return copies;
+  }
+
+  /**
+   * キューに残っているメッセージIDを取得する.
+   *
+   * @param queueName キュー名
+   * @return メッセージID一覧(先頭から順)
+   */
+  synchronized List<String> messageIds(String queueName) {
+    List<String> messageIds = new ArrayList<>();
+    queues.get(queueName).values()
+        .forEach(message -> messageIds.add(message.props.getMessageId()));
+    return messageIds;
+  }
+
+  /**
+   * 削除されたメッセージ数を取得する.
+   *
+   * @param messageId メッセージID
+   * @return 削除された回数
+   */
+  synchronized int deletions(String messageId) {
+    return deletions.getOrDefault(messageId, 0);
+  }
+
+  /**
+   * 開いているチャネルが保持している(Ack/Nackされていない)メッセージ数を取得する.
+   *
+   * @return メッセージ数
+   */
+  synchronized int unacked() {
+    int count = 0;
+    for (FakeChannel channel : channels) {
+      count += channel.unacked.size();
+    }
+    return count;
+  }
+
+  /**
+   * 全コネクションを閉じる(ブローカーの再起動に相当). チャネルが保持しているメッセージはキューへ戻る.
+   */
+  synchronized void closeConnections() {
+    new ArrayList<>(connections).forEach(FakeConnection::close);
+  }
+
+  /**
+   * 宛先のキューが無く破棄したメッセージ数を取得する.
+   *
+   * @return メッセージ数
+   */
+  synchronized int unroutable() {
+    return unroutable;
+  }
+
+  /**
+   * コネクションを生成する.
+   *
+   * @return コネクション
+   */
+  private synchronized Connection newFakeConnection() {
+    FakeConnection connection = new FakeConnection();
+    connections.add(connection);
+    return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] {Connection.class}, connection);
+  }
+
+  /**
+   * メッセージを登録する. エクスチェンジは既定のエクスチェンジ(ルーティングキーと同名のキューへ配送)として扱う.
+   *
+   * @param exchange エクスチェンジ名
+   * @param routingKey ルーティングキー
+   * @param props メッセージプロパティ
+   * @param body ペイロード
+   */
+  private void publish(String exchange, String routingKey, BasicProperties props, byte[] body) {
+    TreeMap<Long, StoredMessage> queue = queues.get(routingKey);
+    if (queue == null) {
+      unroutable++;
+      return;
+    }
+    long seq = ++sequence;
+    queue.put(seq, new StoredMessage(seq, exchange, routingKey, copy(props), body.clone()));
+  }
+
+  /**
+   * メッセージプロパティを複製する. 実際のブローカーから受信した場合と同じく、ヘッダを変更可能なMap(文字列はLongString)として
+   * 受け取れるよう、AMQPのコンテントヘッダへ書き出して読み直す.
+   *
+   * @param props メッセージプロパティ
+   * @return 複製
+   */
+  private static BasicProperties copy(BasicProperties props) {
+    if (props == null) {
+      return new BasicProperties();
+    }
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      // コンテントヘッダのweightとbody-size
+      out.writeShort(0);
+      out.writeLong(0L);
+      props.writePropertiesTo(new ContentHeaderPropertyWriter(out));
+      out.flush();
+      return new BasicProperties(
+          new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * 戻り値の型の既定値を取得する.
+   *
+   * @param type 戻り値の型
+   * @return 既定値
+   */
+  private static Object defaultValue(Class<?> type) {
+    if (type == boolean.class) {
+      return Boolean.FALSE;
+    }
+    if (type == int.class) {
+      return 0;
+    }
+    if (type == long.class) {
+      return 0L;
+    }
+    return null;
+  }
+
+  /**
+   * リスナー登録等、何もしないでよいメソッドかどうか.
+   *
+   * @param method メソッド
+   * @return 何もしないでよければtrue
+   */
+  private static boolean isIgnorable(Method method) {
+    String name = method.getName();
+    return name.startsWith("add") || name.startsWith("remove") || name.startsWith("clear")
+        || name.equals("basicQos") || name.equals("confirmSelect")
+        || name.startsWith("waitForConfirms");
+  }
+
+  /**
+   * Objectのメソッドを処理する.
+   *
+   * @param proxy プロキシ
+   * @param method メソッド
+   * @param args 引数
+   * @param self 実装オブジェクト
+   * @return 戻り値。Objectのメソッドでなければthis(未処理)
+   */
+  private static Object invokeObjectMethod(Object proxy, Method method, Object[] args,
+      Object self) {
+    switch (method.getName()) {
+      case "toString":
+        return self.toString();
+      case "hashCode":
+        return System.identityHashCode(proxy);
+      case "equals":
+        return proxy == args[0];
+      default:
+        return self;
+    }
+  }
+
+  /**
+   * 保存しているメッセージ.
+   */
+  private static final class StoredMessage {
+    /**
+     * 登録順.
+     */
+    private final long seq;
+
+    /**
+     * エクスチェンジ名.
+     */
+    private final String exchange;
+
+    /**
+     * ルーティングキー.
+     */
+    private final String routingKey;
+
+    /**
+     * メッセージプロパティ.
+     */
+    private final BasicProperties props;
+
+    /**
+     * ペイロード.
+     */
+    private final byte[] body;
+
+    /**
+     * 再配送かどうか.
+     */
+    private boolean redelivered;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param seq 登録順
+     * @param exchange エクスチェンジ名
+     * @param routingKey ルーティングキー
+     * @param props メッセージプロパティ
+     * @param body ペイロード
+     */
+    private StoredMessage(long seq, String exchange, String routingKey, BasicProperties props,
+        byte[] body) {
+      this.seq = seq;
+      this.exchange = exchange;
+      this.routingKey = routingKey;
+      this.props = props;
+      this.body = body;
+    }
+  }
+
+  /**
+   * チャネルが保持しているメッセージ.
+   */
+  private static final class Delivery {
+    /**
+     * 受信したキュー名.
+     */
+    private final String queueName;
+
+    /**
+     * メッセージ.
+     */
+    private final StoredMessage message;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param queueName 受信したキュー名
+     * @param message メッセージ
+     */
+    private Delivery(String queueName, StoredMessage message) {
+      this.queueName = queueName;
+      this.message = message;
+    }
+  }
+
+  /**
+   * トランザクション内で保留している操作.
+   */
+  private static final class PendingOperation {
+    /**
+     * Ack/NackするDelivery Tag. 登録の場合は0.
+     */
+    private final long deliveryTag;
+
+    /**
+     * 指定したDelivery Tag以前の全てを対象とするかどうか.
+     */
+    private final boolean multiple;
+
+    /**
+     * Ackかどうか(falseならNack). 登録の場合は使わない.
+     */
+    private final boolean ack;
+
+    /**
+     * 登録するエクスチェンジ名.
+     */
+    private final String exchange;
+
+    /**
+     * 登録するルーティングキー.
+     */
+    private final String routingKey;
+
+    /**
+     * 登録するメッセージプロパティ.
+     */
+    private final BasicProperties props;
+
+    /**
+     * 登録するペイロード.
+     */
+    private final byte[] body;
+
+    /**
+     * Ack/Nack用コンストラクタ.
+     *
+     * @param deliveryTag Delivery Tag
+     * @param multiple 指定したDelivery Tag以前の全てを対象とするかどうか
+     * @param ack Ackかどうか
+     */
+    private PendingOperation(long deliveryTag, boolean multiple, boolean ack) {
+      this(deliveryTag, multiple, ack, null, null, null, null);
+    }
+
+    /**
+     * 登録用コンストラクタ.
+     *
+     * @param exchange エクスチェンジ名
+     * @param routingKey ルーティングキー
+     * @param props メッセージプロパティ
+     * @param body ペイロード
+     */
+    private PendingOperation(String exchange, String routingKey, BasicProperties props,
+        byte[] body) {
+      this(0L, false, false, exchange, routingKey, props, body);
+    }
+
+    /**
+     * コンストラクタ.
+     *
+     * @param deliveryTag Delivery Tag
+     * @param multiple 指定したDelivery Tag以前の全てを対象とするかどうか
+     * @param ack Ackかどうか
+     * @param exchange エクスチェンジ名
+     * @param routingKey ルーティングキー
+     * @param props メッセージプロパティ
+     * @param body ペイロード
+     */
+    private PendingOperation(long deliveryTag, boolean multiple, boolean ack, String exchange,
+        String routingKey, BasicProperties props, byte[] body) {
+      this.deliveryTag = deliveryTag;
+      this.multiple = multiple;
+      this.ack = ack;
+      this.exchange = exchange;
+      this.routingKey = routingKey;
+      this.props = props;
+      this.body = body;
+    }
+
+    /**
+     * 登録かどうか.
+     *
+     * @return 登録であればtrue
+     */
+    private boolean isPublish() {
+      return routingKey != null;
+    }
+  }
+
+  /**
+   * コネクションの実装.
+   */
+  private final class FakeConnection implements InvocationHandler {
+    /**
+     * 本コネクションで開いたチャネル.
+     */
+    private final List<FakeChannel> opened = new ArrayList<>();
+
+    /**
+     * 開いているかどうか.
+     */
+    private volatile boolean open = true;
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      Object result = invokeObjectMethod(proxy, method, args, this);
+      if (result != this) {
+        return result;
+      }
+      switch (method.getName()) {
+        case "createChannel":
+          return createChannel(proxy);
+        case "close":
+        case "abort":
+          close();
+          return null;
+        case "isOpen":
+          return open;
+        case "getAddress":
+          return InetAddress.getLoopbackAddress();
+        case "getPort":
+          return ConnectionFactory.DEFAULT_AMQP_PORT;
+        case "getServerProperties":
+        case "getClientProperties":
+          return Collections.emptyMap();
+        default:
+          if (isIgnorable(method) || method.getName().startsWith("get")) {
+            return defaultValue(method.getReturnType());
+          }
+          throw new UnsupportedOperationException("Connection#" + method.getName());
+      }
+    }
+
+    /**
+     * チャネルを開く.
+     *
+     * @param connection コネクション(プロキシ)
+     * @return チャネル
+     */
+    private Channel createChannel(Object connection) {
+      FakeChannel channel = new FakeChannel((Connection) connection,
+          channelNumber.incrementAndGet());
+      synchronized (InMemoryBroker.this) {
+        opened.add(channel);
+        channels.add(channel);
+      }
+      return (Channel) Proxy.newProxyInstance(getClass().getClassLoader(),
+          new Class<?>[] {Channel.class}, channel);
+    }
+
+    /**
+     * コネクションと全チャネルを閉じる.
+     */
+    private void close() {
+      synchronized (InMemoryBroker.this) {
+        open = false;
+        opened.forEach(FakeChannel::close);
+        opened.clear();
+        connections.remove(this);
+      }
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public String toString() {
+      return "InMemoryBroker.Connection";
+    }
+  }
+
+  /**
+   * チャネルの実装.
+   */
+  private final class FakeChannel implements InvocationHandler {
+    /**
+     * コネクション.
+     */
+    private final Connection connection;
+
+    /**
+     * チャネル番号.
+     */
+    private final int number;
+
+    /**
+     * 保持しているメッセージ(キー:Delivery Tag).
+     */
+    private final TreeMap<Long, Delivery> unacked = new TreeMap<>();
+
+    /**
+     * トランザクション内で保留している操作.
+     */
+    private final List<PendingOperation> pending = new ArrayList<>();
+
+    /**
+     * 非トランザクションで登録し、まだAckと対応付けていないメッセージID毎の件数.
+     */
+    private final Map<String, Integer> unmatchedPublishes = new HashMap<>();
+
+    /**
+     * 最後に払い出したDelivery Tag.
+     */
+    private long lastDeliveryTag;
+
+    /**
+     * トランザクションモードかどうか.
+     */
+    private boolean transactional;
+
+    /**
+     * 開いているかどうか.
+     */
+    private volatile boolean open = true;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param connection コネクション
+     * @param number チャネル番号
+     */
+    private FakeChannel(Connection connection, int number) {
+      this.connection = connection;
+      this.number = number;
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      Object result = invokeObjectMethod(proxy, method, args, this);
+      if (result != this) {
+        return result;
+      }
+      switch (method.getName()) {
+        case "isOpen":
+          return open;
+        case "getChannelNumber":
+          return number;
+        case "getConnection":
+          return connection;
+        case "close":
+        case "abort":
+          synchronized (InMemoryBroker.this) {
+            close();
+          }
+          return null;
+        default:
+          if (isIgnorable(method)) {
+            return method.getReturnType() == boolean.class ? Boolean.TRUE
+                : defaultValue(method.getReturnType());
+          }
+          if (method.getName().startsWith("get")) {
+            return defaultValue(method.getReturnType());
+          }
+          if (!open) {
+            throw new IllegalStateException("Channel already closed. Channel:" + number);
+          }
+          synchronized (InMemoryBroker.this) {
+            return invokeChannelMethod(method, args);
+          }
+      }
+    }
+
+    /**
+     * ブローカーの状態を参照・更新するチャネル操作を行う.
+     *
+     * @param method メソッド
+     * @param args 引数
+     * @return 戻り値
+     */
+    private Object invokeChannelMethod(Method method, Object[] args) {
+      switch (method.getName()) {
+        case "queueDeclarePassive":
+          return declareOk((String) args[0]);
+        case "basicGet":
+          return get((String) args[0], (Boolean) args[1]);
+        case "basicAck":
+          enqueueOperation(new PendingOperation((Long) args[0], (Boolean) args[1], true));
+          return null;
+        case "basicNack":
+          enqueueOperation(new PendingOperation((Long) args[0], (Boolean) args[1], false));
+          return null;
+        case "basicReject":
+          enqueueOperation(new PendingOperation((Long) args[0], false, false));
+          return null;
+        case "basicPublish":
+          enqueueOperation(new PendingOperation((String) args[0], (String) args[1],
+              (BasicProperties) args[args.length - 2], ((byte[]) args[args.length - 1]).clone()));
+          return null;
+        case "basicRecover":
+          requeueAll();
+          return null;
+        case "txSelect":
+          transactional = true;
+          return null;
+        case "txCommit":
+          commit();
+          return null;
+        case "txRollback":
+          // 受信済みのメッセージは保持したまま
+          pending.clear();
+          return null;
+        default:
+          throw new UnsupportedOperationException("Channel#" + method.getName());
+      }
+    }
+
+    /**
+     * キューのメッセージ数を返す.
+     *
+     * @param queueName キュー名
+     * @return 応答
+     */
+    private AMQImpl.Queue.DeclareOk declareOk(String queueName) {
+      TreeMap<Long, StoredMessage> queue = queues.get(queueName);
+      if (queue == null) {
+        throw new IllegalStateException("NOT_FOUND - no queue '" + queueName + "'");
+      }
+      return new AMQImpl.Queue.DeclareOk(queueName, queue.size(), 0);
+    }
+
+    /**
+     * キューの先頭のメッセージを受信する.
+     *
+     * @param queueName キュー名
+     * @param autoAck 自動Ackするかどうか
+     * @return 受信結果。キューが空の場合はnull
+     */
+    private GetResponse get(String queueName, boolean autoAck) {
+      TreeMap<Long, StoredMessage> queue = queues.get(queueName);
+      if (queue == null) {
+        throw new IllegalStateException("NOT_FOUND - no queue '" + queueName + "'");
+      }
+      Map.Entry<Long, StoredMessage> head = queue.pollFirstEntry();
+      if (head == null) {
+        return null;
+      }
+      StoredMessage message = head.getValue();
+      long deliveryTag = ++lastDeliveryTag;
+      if (autoAck) {
+        recordDeletion(message.props.getMessageId(), unmatchedPublishes);
+      } else {
+        unacked.put(deliveryTag, new Delivery(queueName, message));
+      }
+      // 受信側でプロパティを書き換えてもキューのメッセージに影響しないよう複製を渡す
+      return new GetResponse(
+          new Envelope(deliveryTag, message.redelivered, message.exchange, message.routingKey),
+          copy(message.props), message.body.clone(), queue.size());
+    }
+
+    /**
+     * 操作をトランザクションに保留する. トランザクションモードでなければ即座に適用する.
+     *
+     * @param operation 操作
+     */
+    private void enqueueOperation(PendingOperation operation) {
+      if (transactional) {
+        pending.add(operation);
+      } else {
+        apply(operation, unmatchedPublishes);
+      }
+    }
+
+    /**
+     * 保留している操作を適用する.
+     */
+    private void commit() {
+      // 同じトランザクションで登録したメッセージIDのAckは移動として扱う
+      Map<String, Integer> published = new HashMap<>();
+      pending.stream().filter(PendingOperation::isPublish)
+          .forEach(operation -> published.merge(operation.props.getMessageId(), 1, Integer::sum));
+      pending.forEach(operation -> apply(operation, published));
+      pending.clear();
+    }
+
+    /**
+     * 操作を適用する.
+     *
+     * @param operation 操作
+     * @param published Ackと対応付けていない登録済みメッセージID毎の件数
+     */
+    private void apply(PendingOperation operation, Map<String, Integer> published) {
+      if (operation.isPublish()) {
+        publish(operation.exchange, operation.routingKey, operation.props, operation.body);
+        if (!transactional) {
+          published.merge(operation.props.getMessageId(), 1, Integer::sum);
+        }
+        return;
+      }
+      List<Delivery> targets = new ArrayList<>();
+      if (operation.multiple) {
+        Iterator<Delivery> deliveries = unacked.headMap(operation.deliveryTag, true).values()
+            .iterator();
+        while (deliveries.hasNext()) {
+          targets.add(deliveries.next());
+          deliveries.remove();
+        }
+      } else {
+        Delivery delivery = unacked.remove(operation.deliveryTag);
+        if (delivery == null) {
+          throw new IllegalStateException(
+              "PRECONDITION_FAILED - unknown delivery tag " + operation.deliveryTag);
+        }
+        targets.add(delivery);
+      }
+      for (Delivery delivery : targets) {
+        if (operation.ack) {
+          recordDeletion(delivery.message.props.getMessageId(), published);
+        } else {
+          requeue(delivery);
+        }
+      }
+    }
+
+    /**
+     * Ackで消えたメッセージを記録する. 登録済みのメッセージIDと対応付けられれば移動とみなす.
+     *
+     * @param messageId メッセージID
+     * @param published Ackと対応付けていない登録済みメッセージID毎の件数
+     */
+    private void recordDeletion(String messageId, Map<String, Integer> published) {
+      Integer count = published.get(messageId);
+      if (count != null) {
+        if (count == 1) {
+          published.remove(messageId);
+        } else {
+          published.put(messageId, count - 1);
+        }
+        return;
+      }
+      deletions.merge(messageId, 1, Integer::sum);
+    }
+
+    /**
+     * メッセージを元の位置へ戻す.
+     *
+     * @param delivery 保持しているメッセージ
+     */
+    private void requeue(Delivery delivery) {
+      TreeMap<Long, StoredMessage> queue = queues.get(delivery.queueName);
+      if (queue != null) {
+        delivery.message.redelivered = true;
+        queue.put(delivery.message.seq, delivery.message);
+      }
+    }
+
+    /**
+     * 保持している全メッセージをキューへ戻す.
+     */
+    private void requeueAll() {
+      unacked.values().forEach(this::requeue);
+      unacked.clear();
+    }
+
+    /**
+     * チャネルを閉じる. 未確定の操作は破棄し、保持しているメッセージはキューへ戻す.
+     */
+    private void close() {
+      if (!open) {
+        return;
+      }
+      open = false;
+      pending.clear();
+      requeueAll();
+      channels.remove(this);
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public String toString() {
+      return "InMemoryBroker.Channel(" + number + ")";
+    }
+  }
+}
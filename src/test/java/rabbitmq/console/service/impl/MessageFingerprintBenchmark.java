@@ -0,0 +1,149 @@
+package rabbitmq.console.service.impl;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.GetResponse;
+import com.rabbitmq.client.impl.LongStringHelper;
+
+import rabbitmq.console.service.dto.DeadLetteredMessage;
+import rabbitmq.console.service.dto.DeadLetteredMessage.XDeath;
+
+/**
+ * 処理対象メッセージの同一性判定({@link MessageFingerprint#matches(GetResponse)})のJMHベンチマーク.
+ *
+ * <p>
+ * メッセージIDを持たない処理対象メッセージで、x-deathヘッダを比較する経路を計測する。 候補の半数はDead Letter時刻が一致し、
+ * Mutex IDのバイト列比較まで進む。 gradle jmhで実行し、-prof gcのgc.alloc.rate.normで受信メッセージ毎の割り当て量を確認する.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageFingerprintBenchmark {
+  /**
+   * 候補メッセージ数(2のべき乗).
+   */
+  static final int CANDIDATES = 1024;
+
+  /**
+   * 処理対象メッセージのDead Letter時刻.
+   */
+  static final long DEAD_LETTERED_AT = 1_476_000_000_000L;
+
+  /**
+   * 元のキュー名.
+   */
+  static final String ORIGINAL_QUEUE = "orders.work";
+
+  /**
+   * 処理対象メッセージのMutex ID.
+   */
+  static final String TARGET_MUTEX = "mutex-target";
+
+  /**
+   * 処理対象メッセージの指紋.
+   */
+  private MessageFingerprint fingerprint;
+
+  /**
+   * 候補メッセージ.
+   */
+  private GetResponse[] candidates;
+
+  /**
+   * 次に比較する候補の位置.
+   */
+  private int next;
+
+  /**
+   * 指紋と候補メッセージを準備する.
+   */
+  @Setup
+  public void setUp() {
+    fingerprint = MessageFingerprint.of(target());
+    candidates = candidates(CANDIDATES);
+  }
+
+  /**
+   * 候補メッセージ1件を処理対象メッセージと比較する.
+   *
+   * @return 同一であればtrue
+   */
+  @Benchmark
+  public boolean matches() {
+    return fingerprint.matches(candidates[next++ & (CANDIDATES - 1)]);
+  }
+
+  /**
+   * メッセージIDを持たない処理対象メッセージを生成する.
+   *
+   * @return 処理対象メッセージ
+   */
+  static DeadLetteredMessage target() {
+    DeadLetteredMessage message = new DeadLetteredMessage();
+    XDeath extraDeath = new XDeath();
+    extraDeath.setQueue(ORIGINAL_QUEUE);
+    extraDeath.setTime(new Date(DEAD_LETTERED_AT));
+    message.getProperties().getHeaders().getExtraDeaths().add(extraDeath);
+    message.getProperties().getHeaders().setExtraMessageMutex(TARGET_MUTEX);
+    return message;
+  }
+
+  /**
+   * 処理対象メッセージと一致しない候補メッセージを生成する. 偶数番目はDead Letter時刻だけが一致し、Mutex IDが異なる.
+   *
+   * @param count 件数
+   * @return 候補メッセージ
+   */
+  static GetResponse[] candidates(int count) {
+    GetResponse[] responses = new GetResponse[count];
+    for (int i = 0; i < count; i++) {
+      long time = i % 2 == 0 ? DEAD_LETTERED_AT : DEAD_LETTERED_AT + i;
+      responses[i] = response(time, String.format("mutex-%06d", i));
+    }
+    return responses;
+  }
+
+  /**
+   * ブローカーから受信した形式(文字列はLongString)の候補メッセージを生成する.
+   *
+   * @param time Dead Letter時刻
+   * @param mutex Mutex ID
+   * @return 候補メッセージ
+   */
+  static GetResponse response(long time, String mutex) {
+    Map<String, Object> extraDeath = new HashMap<>();
+    extraDeath.put("queue", LongStringHelper.asLongString(ORIGINAL_QUEUE));
+    extraDeath.put("time", new Date(time));
+    List<Object> extraDeaths = new ArrayList<>();
+    extraDeaths.add(extraDeath);
+    Map<String, Object> headers = new HashMap<>();
+    headers.put(QueueServiceImpl.X_DEATH_KEY, extraDeaths);
+    headers.put(QueueServiceImpl.X_MUTEX_KEY, LongStringHelper.asLongString(mutex));
+    BasicProperties props = new BasicProperties.Builder().headers(headers).build();
+    return new GetResponse(new Envelope(1L, false, "", "dlq"), props, new byte[0], 0);
+  }
+}
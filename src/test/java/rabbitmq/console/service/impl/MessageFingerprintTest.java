@@ -0,0 +1,113 @@
+package rabbitmq.console.service.impl;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Test;
+
+import com.rabbitmq.client.GetResponse;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 処理対象メッセージの同一性判定({@link MessageFingerprint})を検証する.
+ *
+ * <p>
+ * 割り当て量の検証は{@link MessageFingerprintBenchmark}と同じ候補メッセージを用いたマイクロベンチマーク形式で、 JMHを実行しなくても、
+ * 受信メッセージ毎にオブジェクトを生成しないことを通常のテストで確認する.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+@Slf4j
+public class MessageFingerprintTest {
+  /**
+   * 暖機の比較回数.
+   */
+  private static final int WARMUP = 200_000;
+
+  /**
+   * 計測の比較回数.
+   */
+  private static final int ITERATIONS = 1_000_000;
+
+  /**
+   * 計測全体で許容する割り当て量(バイト). 計測処理自体の割り当て分の余裕.
+   */
+  private static final long ALLOCATION_ALLOWANCE = 16 * 1024;
+
+  /**
+   * x-deathヘッダとMutex IDが一致する受信メッセージを同一と判定することを検証する.
+   */
+  @Test
+  public void matchesSameDeathAndMutex() {
+    MessageFingerprint fingerprint = MessageFingerprint.of(MessageFingerprintBenchmark.target());
+
+    assertTrue(fingerprint.matches(MessageFingerprintBenchmark.response(
+        MessageFingerprintBenchmark.DEAD_LETTERED_AT, MessageFingerprintBenchmark.TARGET_MUTEX)));
+  }
+
+  /**
+   * Dead Letter時刻またはMutex IDが異なる受信メッセージを同一と判定しないことを検証する.
+   */
+  @Test
+  public void rejectsOtherMessages() {
+    MessageFingerprint fingerprint = MessageFingerprint.of(MessageFingerprintBenchmark.target());
+
+    for (GetResponse candidate : MessageFingerprintBenchmark
+        .candidates(MessageFingerprintBenchmark.CANDIDATES)) {
+      assertFalse(fingerprint.matches(candidate));
+    }
+  }
+
+  /**
+   * 一致しない受信メッセージとの比較で、オブジェクトを生成しないことを検証する.
+   */
+  @Test
+  public void doesNotAllocatePerScannedMessage() {
+    assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean threadMxBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    assumeTrue(threadMxBean.isThreadAllocatedMemorySupported()
+        && threadMxBean.isThreadAllocatedMemoryEnabled());
+    MessageFingerprint fingerprint = MessageFingerprint.of(MessageFingerprintBenchmark.target());
+    GetResponse[] candidates =
+        MessageFingerprintBenchmark.candidates(MessageFingerprintBenchmark.CANDIDATES);
+    long threadId = Thread.currentThread().getId();
+
+    int matched = compare(fingerprint, candidates, WARMUP);
+    long startBytes = threadMxBean.getThreadAllocatedBytes(threadId);
+    long startNanos = System.nanoTime();
+    matched += compare(fingerprint, candidates, ITERATIONS);
+    long elapsedNanos = System.nanoTime() - startNanos;
+    long allocatedBytes = threadMxBean.getThreadAllocatedBytes(threadId) - startBytes;
+
+    log.info(String.format("MessageFingerprint#matches: %.1f ns/op, %.4f bytes/op",
+        (double) elapsedNanos / ITERATIONS, (double) allocatedBytes / ITERATIONS));
+    assertFalse(matched > 0);
+    assertTrue(String.format("Allocated %d bytes for %d comparisons", allocatedBytes, ITERATIONS),
+        allocatedBytes < ALLOCATION_ALLOWANCE);
+  }
+
+  /**
+   * 候補メッセージを順に比較する.
+   *
+   * @param fingerprint 処理対象メッセージの指紋
+   * @param candidates 候補メッセージ(件数は2のべき乗)
+   * @param iterations 比較回数
+   * @return 同一と判定した件数
+   */
+  private static int compare(MessageFingerprint fingerprint, GetResponse[] candidates,
+      int iterations) {
+    int matched = 0;
+    for (int i = 0; i < iterations; i++) {
+      if (fingerprint.matches(candidates[i & (candidates.length - 1)])) {
+        matched++;
+      }
+    }
+    return matched;
+  }
+}
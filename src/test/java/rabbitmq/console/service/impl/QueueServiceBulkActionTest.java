@@ -0,0 +1,162 @@
+package rabbitmq.console.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.impl.LongStringHelper;
+
+import rabbitmq.console.TestApplication;
+import rabbitmq.console.service.QueueService;
+import rabbitmq.console.service.dto.BulkActionResult;
+import rabbitmq.console.service.dto.DeadLetteredMessage;
+import rabbitmq.console.service.dto.MessageAction;
+
+/**
+ * Dead Letter Queueへの一括操作を、メモリ上のブローカー({@link InMemoryBroker})とH2のRABBITMQ_MUTEXに対して検証する.
+ *
+ * @author Tomoaki Mikami
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = {TestApplication.class,
+    QueueServiceStressTest.BrokerStandIn.class})
+@ActiveProfiles("h2")
+@TestPropertySource(properties = {"spring.datasource.url=jdbc:h2:mem:dlq-bulk;DB_CLOSE_DELAY=-1",
+    "dlq.rabbitmq.dead-letter-queue[bulk.dlq]=bulk.dlq.backup"})
+public class QueueServiceBulkActionTest {
+  /**
+   * Dead Letter Queue名.
+   */
+  private static final String DLQ_NAME = "bulk.dlq";
+
+  /**
+   * Backup Queue名.
+   */
+  private static final String BACKUP_QUEUE_NAME = "bulk.dlq.backup";
+
+  /**
+   * 再登録先(Dead Letter Queue入りする前)のキュー名.
+   */
+  private static final String WORK_QUEUE_NAME = "bulk.work";
+
+  /**
+   * 投入するメッセージ数.
+   */
+  private static final int MESSAGES = 10;
+
+  /**
+   * Mutex IDの開始値.
+   */
+  private static final long MUTEX_BASE = 2000000L;
+
+  /**
+   * キューサービス.
+   */
+  @Autowired
+  private QueueService queueService;
+
+  /**
+   * メモリ上のブローカー.
+   */
+  @Autowired
+  private InMemoryBroker broker;
+
+  /**
+   * Mutexテーブル確認用.
+   */
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  /**
+   * 投入したメッセージID(先頭から順).
+   */
+  private final List<String> messageIds = new ArrayList<>();
+
+  /**
+   * 全メッセージのMutexを登録した状態で、Dead Letter Queueへメッセージを投入する.
+   */
+  @Before
+  public void seed() {
+    broker.closeConnections();
+    broker.reset(DLQ_NAME, BACKUP_QUEUE_NAME, WORK_QUEUE_NAME);
+    jdbcTemplate.update("DELETE FROM RABBITMQ_MUTEX");
+    // AMQPのタイムスタンプは秒単位
+    long deadLetteredAt = (System.currentTimeMillis() / 1000L - MESSAGES) * 1000L;
+    for (int i = 0; i < MESSAGES; i++) {
+      String messageId = String.format("bulk-%03d", i);
+      long mutex = MUTEX_BASE + i;
+      Map<String, Object> extraDeath = new LinkedHashMap<>();
+      extraDeath.put("count", 1L);
+      extraDeath.put("reason", LongStringHelper.asLongString("rejected"));
+      extraDeath.put("queue", LongStringHelper.asLongString(WORK_QUEUE_NAME));
+      extraDeath.put("time", new Date(deadLetteredAt + i * 1000L));
+      extraDeath.put("exchange", LongStringHelper.asLongString(""));
+      extraDeath.put("routing-keys",
+          Collections.singletonList(LongStringHelper.asLongString(WORK_QUEUE_NAME)));
+      Map<String, Object> headers = new HashMap<>();
+      headers.put(QueueServiceImpl.X_DEATH_KEY, Collections.singletonList(extraDeath));
+      headers.put(QueueServiceImpl.X_MUTEX_KEY,
+          LongStringHelper.asLongString(String.valueOf(mutex)));
+      BasicProperties props =
+          new BasicProperties.Builder().messageId(messageId).headers(headers).build();
+      broker.enqueue(DLQ_NAME, props,
+          String.format("{\"seq\":%d}", i).getBytes(StandardCharsets.UTF_8));
+      jdbcTemplate.update("INSERT INTO RABBITMQ_MUTEX (MUTEX, CREATED_AT) VALUES (?, ?)", mutex,
+          new Date());
+      messageIds.add(messageId);
+    }
+  }
+
+  /**
+   * Mutexが登録されている(削除不可の)メッセージも待避でき、待避後にMutexが削除されることを検証する.
+   * 再登録回数が上限に達したメッセージがキューの先頭に残り続けないための前提.
+   */
+  @Test
+  public void backsUpMessagesWhoseMutexIsStillRegistered() {
+    BulkActionResult result =
+        queueService.applyMessageActions(DLQ_NAME, message -> MessageAction.BACKUP, MESSAGES);
+
+    assertEquals(MESSAGES, result.getBackedUp());
+    assertTrue("Messages left in the DLQ", broker.messageIds(DLQ_NAME).isEmpty());
+    assertEquals(messageIds, broker.messageIds(BACKUP_QUEUE_NAME));
+    assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM RABBITMQ_MUTEX",
+        Integer.class).intValue());
+    assertEquals(0, broker.unacked());
+  }
+
+  /**
+   * 待避したメッセージをリストアすると、ヘッダのMutex IDが登録し直されることを検証する.
+   */
+  @Test
+  public void restoreRegistersTheMutexAgain() {
+    queueService.applyMessageActions(DLQ_NAME, message -> MessageAction.BACKUP, MESSAGES);
+    DeadLetteredMessage message =
+        queueService.listBackedUpMessages(DLQ_NAME, BACKUP_QUEUE_NAME).getMessages().get(0);
+
+    queueService.restoreBackedUpMessage(DLQ_NAME, BACKUP_QUEUE_NAME, message);
+    queueService.recoverAllUnackedMessages(BACKUP_QUEUE_NAME);
+
+    assertEquals(Collections.singletonList(MUTEX_BASE), jdbcTemplate
+        .queryForList("SELECT MUTEX FROM RABBITMQ_MUTEX", Long.class));
+    assertEquals(Collections.singletonList(messageIds.get(0)), broker.messageIds(DLQ_NAME));
+  }
+}
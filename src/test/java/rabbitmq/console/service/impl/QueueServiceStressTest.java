@@ -0,0 +1,834 @@
+package rabbitmq.console.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.impl.LongStringHelper;
+
+import rabbitmq.console.TestApplication;
+import rabbitmq.console.service.QueueService;
+import rabbitmq.console.service.dto.DeadLetteredMessage;
+
+/**
+ * QueueServiceの並行操作に対するストレステスト.
+ *
+ * <p>
+ * メモリ上のブローカー({@link InMemoryBroker})とH2のRABBITMQ_MUTEXに対して、複数の操作者が一覧・再登録・削除・待避・リストアを並行に行う。
+ * メッセージが消失・重複しないこと、Mutexテーブルが操作結果と一致することを検証し、同時実行数毎の応答時間のパーセンタイルをログ出力する。
+ * 規模はシステムプロパティ(stress.messages・stress.operations・stress.concurrency・stress.seed)で変更できる.
+ * </p>
+ *
+ * @author Tomoaki Mikami
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = {TestApplication.class,
+    QueueServiceStressTest.BrokerStandIn.class})
+@ActiveProfiles("h2")
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:dlq-stress;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+    "dlq.rabbitmq.max-count=100000", "logging.level.rabbitmq.console=WARN",
+    "logging.level.rabbitmq.console.service.impl.QueueServiceStressTest=INFO"})
+public class QueueServiceStressTest {
+  /**
+   * ロガー.
+   */
+  private static final Logger log = LoggerFactory.getLogger(QueueServiceStressTest.class);
+
+  /**
+   * Dead Letter Queue名.
+   */
+  private static final String DLQ_NAME = "stress.dlq";
+
+  /**
+   * Backup Queue名.
+   */
+  private static final String BACKUP_QUEUE_NAME = "stress.dlq.backup";
+
+  /**
+   * 再登録先(Dead Letter Queue入りする前)のキュー名.
+   */
+  private static final String WORK_QUEUE_NAME = "stress.work";
+
+  /**
+   * 投入するメッセージ数.
+   */
+  private static final int MESSAGES = Integer.getInteger("stress.messages", 200);
+
+  /**
+   * 同一メッセージを奪い合う場合に投入するメッセージ数.
+   */
+  private static final int CONTENDED_MESSAGES = 20;
+
+  /**
+   * 同時実行数毎の操作回数.
+   */
+  private static final int OPERATIONS = Integer.getInteger("stress.operations", 600);
+
+  /**
+   * 同時実行数(カンマ区切り).
+   */
+  private static final String CONCURRENCY = System.getProperty("stress.concurrency", "1,4,16");
+
+  /**
+   * 操作を選ぶ乱数の種.
+   */
+  private static final long SEED = Long.getLong("stress.seed", 20161019L);
+
+  /**
+   * x-deathヘッダを持たない(一覧の対象外)メッセージを混ぜる間隔.
+   */
+  private static final int NOISE_INTERVAL = 10;
+
+  /**
+   * Mutex IDの開始値.
+   */
+  private static final long MUTEX_BASE = 1000000L;
+
+  /**
+   * 同一メッセージへの操作を直列化するロックの数.
+   */
+  private static final int LOCK_STRIPES = 64;
+
+  /**
+   * 1回の実行の待ち時間の上限(分).
+   */
+  private static final long TIMEOUT_MINUTES = 10;
+
+  /**
+   * キューサービス.
+   */
+  @Autowired
+  private QueueService queueService;
+
+  /**
+   * メモリ上のブローカー.
+   */
+  @Autowired
+  private InMemoryBroker broker;
+
+  /**
+   * Mutexテーブル確認用.
+   */
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  /**
+   * 同じメッセージを同時に操作しない操作者が、同時実行数を変えても消失・重複なくMutexテーブルを整合させることを検証する.
+   *
+   * @throws Exception 操作者のスレッドが異常終了した場合
+   */
+  @Test
+  public void keepsMessagesAndMutexesConsistentAtEachConcurrencyLevel() throws Exception {
+    for (int concurrency : concurrencyLevels()) {
+      Fixture fixture = seed(MESSAGES);
+      Workload workload = run(fixture, concurrency, true);
+      int held = closeConnections();
+      report(concurrency, workload, held);
+
+      assertConserved(fixture);
+      assertMutexesKnown(fixture);
+      assertEquals("Mutex table does not match the operations applied", fixture.expectedMutexes(),
+          mutexRows());
+      assertTrue("Unexpected failures: " + workload.failures, workload.failures.isEmpty());
+    }
+  }
+
+  /**
+   * 少数のメッセージを最大の同時実行数で奪い合っても、メッセージが消失・重複せず、Mutexテーブルが操作結果と一致することを検証する.
+   *
+   * <p>
+   * Mutexテーブルは、最後に終わった操作が成功し他の操作と重なっていないメッセージについて、その操作の結果と比較する。
+   * 許容する失敗は、同じメッセージのリストアが競合してMutexの登録が重複した場合のみ(トランザクションが戻るのでメッセージは失われない).
+   * </p>
+   *
+   * @throws Exception 操作者のスレッドが異常終了した場合
+   */
+  @Test
+  public void neitherLosesNorDuplicatesMessagesWhenOperatorsRace() throws Exception {
+    int concurrency = Collections.max(concurrencyLevels());
+    Fixture fixture = seed(CONTENDED_MESSAGES);
+    Workload workload = run(fixture, concurrency, false);
+    int held = closeConnections();
+    report(concurrency, workload, held);
+
+    assertConserved(fixture);
+    assertMutexesKnown(fixture);
+    int settled = assertSettledMutexes(fixture, workload);
+    log.info(String.format("Concurrency:%d,Mutexes-Checked:%d/%d", concurrency, settled,
+        fixture.mutexes.size()));
+    assertTrue("No message had a settled mutex state to check", settled > 0);
+    for (Failure failure : workload.failures) {
+      assertTrue("Unexpected failure: " + failure, failure.operation == Operation.RESTORE
+          && failure.exception instanceof DuplicateKeyException);
+    }
+  }
+
+  /**
+   * 同時実行数一覧を取得する.
+   *
+   * @return 同時実行数一覧
+   */
+  private static List<Integer> concurrencyLevels() {
+    return Arrays.stream(CONCURRENCY.split(",")).map(String::trim).map(Integer::valueOf)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * キューとMutexテーブルを初期化し、Dead Letter Queueへメッセージを投入する. 偶数番目のメッセージのみMutexを登録する.
+   *
+   * @param messages メッセージ数
+   * @return 投入内容
+   */
+  private Fixture seed(int messages) {
+    broker.closeConnections();
+    broker.reset(DLQ_NAME, BACKUP_QUEUE_NAME, WORK_QUEUE_NAME);
+    jdbcTemplate.update("DELETE FROM RABBITMQ_MUTEX");
+    Fixture fixture = new Fixture();
+    // AMQPのタイムスタンプは秒単位
+    long deadLetteredAt = (System.currentTimeMillis() / 1000L - messages) * 1000L;
+    for (int i = 0; i < messages; i++) {
+      byte[] body = String.format("{\"seq\":%d}", i).getBytes(StandardCharsets.UTF_8);
+      if (i % NOISE_INTERVAL == NOISE_INTERVAL - 1) {
+        String messageId = String.format("noise-%05d", i);
+        broker.enqueue(DLQ_NAME, properties(messageId, new HashMap<>()), body);
+        fixture.messageIds.add(messageId);
+        continue;
+      }
+      String messageId = String.format("stress-%05d", i);
+      long mutex = MUTEX_BASE + i;
+      Map<String, Object> extraDeath = new LinkedHashMap<>();
+      extraDeath.put("count", 1L);
+      extraDeath.put("reason", LongStringHelper.asLongString("rejected"));
+      extraDeath.put("queue", LongStringHelper.asLongString(WORK_QUEUE_NAME));
+      extraDeath.put("time", new Date(deadLetteredAt + i * 1000L));
+      extraDeath.put("exchange", LongStringHelper.asLongString(""));
+      extraDeath.put("routing-keys",
+          Collections.singletonList(LongStringHelper.asLongString(WORK_QUEUE_NAME)));
+      Map<String, Object> headers = new HashMap<>();
+      headers.put(QueueServiceImpl.X_DEATH_KEY, Collections.singletonList(extraDeath));
+      headers.put(QueueServiceImpl.X_MUTEX_KEY,
+          LongStringHelper.asLongString(String.valueOf(mutex)));
+      broker.enqueue(DLQ_NAME, properties(messageId, headers), body);
+
+      boolean registered = i % 2 == 0;
+      if (registered) {
+        jdbcTemplate.update("INSERT INTO RABBITMQ_MUTEX (MUTEX, CREATED_AT) VALUES (?, ?)", mutex,
+            new Date());
+      }
+      fixture.messageIds.add(messageId);
+      fixture.mutexes.put(messageId, mutex);
+      fixture.registered.put(messageId, registered);
+    }
+    return fixture;
+  }
+
+  /**
+   * メッセージプロパティを生成する.
+   *
+   * @param messageId メッセージID
+   * @param headers ヘッダ
+   * @return メッセージプロパティ
+   */
+  private static BasicProperties properties(String messageId, Map<String, Object> headers) {
+    return new BasicProperties.Builder().messageId(messageId).contentType("application/json")
+        .headers(headers).build();
+  }
+
+  /**
+   * 指定した同時実行数で操作者を動かし、全員の終了を待つ.
+   *
+   * @param fixture 投入内容
+   * @param concurrency 同時実行数
+   * @param serialized 同じメッセージへの操作を直列化するかどうか
+   * @return 実行結果
+   * @throws Exception 操作者のスレッドが異常終了した場合
+   */
+  private Workload run(Fixture fixture, int concurrency, boolean serialized) throws Exception {
+    Workload workload = new Workload(fixture, serialized);
+    ExecutorService operators = Executors.newFixedThreadPool(concurrency);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int operator = 0; operator < concurrency; operator++) {
+      Random random = new Random(SEED + operator);
+      int operations = OPERATIONS / concurrency + (operator < OPERATIONS % concurrency ? 1 : 0);
+      futures.add(operators.submit(() -> {
+        start.await();
+        for (int i = 0; i < operations; i++) {
+          workload.operate(random);
+        }
+        return null;
+      }));
+    }
+    long startedAt = System.nanoTime();
+    start.countDown();
+    try {
+      for (Future<?> future : futures) {
+        future.get(TIMEOUT_MINUTES, TimeUnit.MINUTES);
+      }
+    } finally {
+      operators.shutdownNow();
+    }
+    workload.elapsed = System.nanoTime() - startedAt;
+    return workload;
+  }
+
+  /**
+   * ブローカーの全コネクションを閉じ、キャッシュされたチャネルが保持しているメッセージをキューへ戻す.
+   *
+   * @return 閉じる前にチャネルが保持していたメッセージ数
+   */
+  private int closeConnections() {
+    int held = broker.unacked();
+    broker.closeConnections();
+    return held;
+  }
+
+  /**
+   * 投入した全メッセージが、キューに1件だけ残っているか1回だけ削除されていることを検証する.
+   *
+   * @param fixture 投入内容
+   */
+  private void assertConserved(Fixture fixture) {
+    assertEquals("Messages still held by closed channels", 0, broker.unacked());
+    assertEquals("Messages published to a missing queue", 0, broker.unroutable());
+    Map<String, Integer> copies = broker.countCopies();
+    for (String messageId : fixture.messageIds) {
+      int remaining = copies.getOrDefault(messageId, 0);
+      int deleted = broker.deletions(messageId);
+      assertEquals(String.format("Message-Id:%s,Copies:%d,Deletions:%d", messageId, remaining,
+          deleted), 1, remaining + deleted);
+    }
+    Set<String> unknown = new HashSet<>(copies.keySet());
+    unknown.removeAll(fixture.messageIds);
+    assertTrue("Unknown messages: " + unknown, unknown.isEmpty());
+  }
+
+  /**
+   * Mutexテーブルに投入したメッセージ以外のMutexが無いことを検証する.
+   *
+   * @param fixture 投入内容
+   */
+  private void assertMutexesKnown(Fixture fixture) {
+    Set<Long> unknown = mutexRows();
+    unknown.removeAll(fixture.mutexes.values());
+    assertTrue("Unknown mutexes: " + unknown, unknown.isEmpty());
+  }
+
+  /**
+   * 操作結果が確定しているメッセージについて、Mutexテーブルの登録有無が最後の操作の結果と一致することを検証する.
+   *
+   * @param fixture 投入内容
+   * @param workload 実行結果
+   * @return 検証したメッセージ数
+   */
+  private int assertSettledMutexes(Fixture fixture, Workload workload) {
+    Set<Long> rows = mutexRows();
+    int settled = 0;
+    for (Map.Entry<String, Long> entry : fixture.mutexes.entrySet()) {
+      Boolean expected = workload.settledMutex(entry.getKey());
+      if (expected == null) {
+        continue;
+      }
+      settled++;
+      assertEquals(String.format("Message-Id:%s,Mutex:%d", entry.getKey(), entry.getValue()),
+          expected, rows.contains(entry.getValue()));
+    }
+    return settled;
+  }
+
+  /**
+   * Mutexテーブルの全Mutex IDを取得する.
+   *
+   * @return Mutex ID一覧
+   */
+  private Set<Long> mutexRows() {
+    return new HashSet<>(jdbcTemplate.queryForList("SELECT MUTEX FROM RABBITMQ_MUTEX", Long.class));
+  }
+
+  /**
+   * 操作毎の応答時間のパーセンタイルをログ出力する.
+   *
+   * @param concurrency 同時実行数
+   * @param workload 実行結果
+   * @param held 実行後にチャネルが保持していたメッセージ数
+   */
+  private void report(int concurrency, Workload workload, int held) {
+    int total = 0;
+    for (Operation operation : Operation.values()) {
+      List<Long> samples = new ArrayList<>(workload.latencies.get(operation));
+      if (samples.isEmpty()) {
+        continue;
+      }
+      Collections.sort(samples);
+      total += samples.size();
+      log.info(String.format(
+          "Concurrency:%d,Operation:%s,Count:%d,p50:%.2fms,p95:%.2fms,p99:%.2fms,Max:%.2fms",
+          concurrency, operation, samples.size(), percentile(samples, 50),
+          percentile(samples, 95), percentile(samples, 99), percentile(samples, 100)));
+    }
+    double seconds = workload.elapsed / 1e9;
+    log.info(String.format(
+        "Concurrency:%d,Elapsed:%.2fs,Throughput:%.1fops/s,Failures:%d,Held-After-Run:%d,"
+            + "Dead-Lettered:%d,Backed-Up:%d,Republished:%d",
+        concurrency, seconds, total / seconds, workload.failures.size(), held,
+        broker.messageIds(DLQ_NAME).size(), broker.messageIds(BACKUP_QUEUE_NAME).size(),
+        broker.messageIds(WORK_QUEUE_NAME).size()));
+  }
+
+  /**
+   * パーセンタイルを求める(nearest-rank法).
+   *
+   * @param sorted 昇順に並べた応答時間(ナノ秒)
+   * @param percent パーセント
+   * @return 応答時間(ミリ秒)
+   */
+  private static double percentile(List<Long> sorted, int percent) {
+    int rank = (int) Math.ceil(percent / 100.0 * sorted.size());
+    return sorted.get(Math.max(rank, 1) - 1) / 1e6;
+  }
+
+  /**
+   * 操作.
+   */
+  private enum Operation {
+    /**
+     * 一覧取得.
+     */
+    BROWSE(30),
+
+    /**
+     * 再登録.
+     */
+    REPUBLISH(15),
+
+    /**
+     * 削除.
+     */
+    DELETE(15),
+
+    /**
+     * 待避.
+     */
+    BACKUP(20),
+
+    /**
+     * リストア.
+     */
+    RESTORE(20);
+
+    /**
+     * 選ばれる比率.
+     */
+    private final int weight;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param weight 選ばれる比率
+     */
+    Operation(int weight) {
+      this.weight = weight;
+    }
+
+    /**
+     * 比率に従って操作を選ぶ.
+     *
+     * @param random 乱数
+     * @return 操作
+     */
+    private static Operation choose(Random random) {
+      int total = Arrays.stream(values()).mapToInt(operation -> operation.weight).sum();
+      int value = random.nextInt(total);
+      for (Operation operation : values()) {
+        value -= operation.weight;
+        if (value < 0) {
+          return operation;
+        }
+      }
+      return BROWSE;
+    }
+  }
+
+  /**
+   * 投入内容.
+   */
+  private static final class Fixture {
+    /**
+     * 投入した全メッセージID(対象外メッセージを含む).
+     */
+    private final Set<String> messageIds = new HashSet<>();
+
+    /**
+     * メッセージ毎のMutex ID(キー:メッセージID).
+     */
+    private final Map<String, Long> mutexes = new HashMap<>();
+
+    /**
+     * メッセージ毎のMutexの登録有無の期待値(キー:メッセージID).
+     */
+    private final Map<String, Boolean> registered = new ConcurrentHashMap<>();
+
+    /**
+     * 登録されているべきMutex ID一覧を取得する.
+     *
+     * @return Mutex ID一覧
+     */
+    private Set<Long> expectedMutexes() {
+      return registered.entrySet().stream().filter(Map.Entry::getValue)
+          .map(entry -> mutexes.get(entry.getKey())).collect(Collectors.toSet());
+    }
+  }
+
+  /**
+   * 失敗した操作.
+   */
+  private static final class Failure {
+    /**
+     * 操作.
+     */
+    private final Operation operation;
+
+    /**
+     * 対象のメッセージID. 一覧取得の場合はnull.
+     */
+    private final String messageId;
+
+    /**
+     * 発生した例外.
+     */
+    private final RuntimeException exception;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param operation 操作
+     * @param messageId 対象のメッセージID
+     * @param exception 発生した例外
+     */
+    private Failure(Operation operation, String messageId, RuntimeException exception) {
+      this.operation = operation;
+      this.messageId = messageId;
+      this.exception = exception;
+    }
+
+    /**
+     * {@inheritDoc}.
+     */
+    @Override
+    public String toString() {
+      return String.format("%s(%s): %s", operation, messageId, exception);
+    }
+  }
+
+  /**
+   * Mutexを変更し得る操作1回分の記録.
+   */
+  private static final class Attempt {
+    /**
+     * 操作.
+     */
+    private final Operation operation;
+
+    /**
+     * 開始順.
+     */
+    private final long startedAt;
+
+    /**
+     * 終了順.
+     */
+    private final long endedAt;
+
+    /**
+     * 成功したかどうか.
+     */
+    private final boolean succeeded;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param operation 操作
+     * @param startedAt 開始順
+     * @param endedAt 終了順
+     * @param succeeded 成功したかどうか
+     */
+    private Attempt(Operation operation, long startedAt, long endedAt, boolean succeeded) {
+      this.operation = operation;
+      this.startedAt = startedAt;
+      this.endedAt = endedAt;
+      this.succeeded = succeeded;
+    }
+  }
+
+  /**
+   * 操作者が共有する実行状態.
+   *
+   * <p>
+   * 操作者は一覧取得で最新の一覧を共有し、他の操作者が取得した古い一覧から対象を選ぶこともある(画面の操作と同じ)。
+   * 直列化する場合は、同じメッセージへの再登録・削除・待避・リストアを同時に行わず、操作結果からMutexの登録有無の期待値を更新する.
+   * </p>
+   */
+  private final class Workload {
+    /**
+     * 投入内容.
+     */
+    private final Fixture fixture;
+
+    /**
+     * 同じメッセージへの操作を直列化するロック. 直列化しない場合はnull.
+     */
+    private final ReentrantLock[] locks;
+
+    /**
+     * 最後に取得したDead Letter Queueの一覧.
+     */
+    private final AtomicReference<List<DeadLetteredMessage>> deadLettered =
+        new AtomicReference<>(Collections.emptyList());
+
+    /**
+     * 最後に取得したBackup Queueの一覧.
+     */
+    private final AtomicReference<List<DeadLetteredMessage>> backedUp =
+        new AtomicReference<>(Collections.emptyList());
+
+    /**
+     * 操作毎の応答時間(ナノ秒).
+     */
+    private final Map<Operation, Queue<Long>> latencies = new EnumMap<>(Operation.class);
+
+    /**
+     * 失敗した操作.
+     */
+    private final Queue<Failure> failures = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 操作の開始・終了の順序を採番する.
+     */
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * メッセージ毎のMutexを変更し得る操作の記録(キー:メッセージID).
+     */
+    private final Map<String, Queue<Attempt>> attempts = new ConcurrentHashMap<>();
+
+    /**
+     * 経過時間(ナノ秒).
+     */
+    private long elapsed;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param fixture 投入内容
+     * @param serialized 同じメッセージへの操作を直列化するかどうか
+     */
+    private Workload(Fixture fixture, boolean serialized) {
+      this.fixture = fixture;
+      this.locks = serialized ? new ReentrantLock[LOCK_STRIPES] : null;
+      if (serialized) {
+        Arrays.setAll(locks, i -> new ReentrantLock());
+      }
+      for (Operation operation : Operation.values()) {
+        latencies.put(operation, new ConcurrentLinkedQueue<>());
+      }
+      deadLettered.set(queueService.listDeadLetteredMessages(DLQ_NAME).getMessages());
+    }
+
+    /**
+     * 操作を1回行う. 対象となるメッセージが一覧に無ければ一覧を取得し直す.
+     *
+     * @param random 乱数
+     */
+    private void operate(Random random) {
+      Operation operation = Operation.choose(random);
+      if (operation == Operation.BROWSE) {
+        browse(random);
+        return;
+      }
+      List<DeadLetteredMessage> candidates =
+          operation == Operation.RESTORE ? backedUp.get() : deadLettered.get();
+      if (candidates.isEmpty()) {
+        browse(random);
+        return;
+      }
+      DeadLetteredMessage message = candidates.get(random.nextInt(candidates.size()));
+      String messageId = message.getProperties().getMessageId();
+      ReentrantLock lock =
+          locks == null ? null : locks[Math.floorMod(messageId.hashCode(), locks.length)];
+      if (lock != null) {
+        lock.lock();
+      }
+      try {
+        long startedAt = clock.incrementAndGet();
+        boolean succeeded = timed(operation, messageId, () -> apply(operation, message));
+        if (operation != Operation.REPUBLISH) {
+          // 再登録はMutexを変更しない
+          attempts.computeIfAbsent(messageId, key -> new ConcurrentLinkedQueue<>())
+              .add(new Attempt(operation, startedAt, clock.incrementAndGet(), succeeded));
+        }
+      } finally {
+        if (lock != null) {
+          lock.unlock();
+        }
+      }
+    }
+
+    /**
+     * Dead Letter QueueまたはBackup Queueの一覧を取得して共有する.
+     *
+     * @param random 乱数
+     */
+    private void browse(Random random) {
+      if (random.nextInt(10) < 7) {
+        timed(Operation.BROWSE, null, () -> deadLettered
+            .set(queueService.listDeadLetteredMessages(DLQ_NAME).getMessages()));
+      } else {
+        timed(Operation.BROWSE, null, () -> backedUp
+            .set(queueService.listBackedUpMessages(DLQ_NAME, BACKUP_QUEUE_NAME).getMessages()));
+      }
+    }
+
+    /**
+     * メッセージに操作を行い、Mutexの登録有無の期待値を更新する.
+     *
+     * @param operation 操作
+     * @param message 対象メッセージ
+     */
+    private void apply(Operation operation, DeadLetteredMessage message) {
+      String messageId = message.getProperties().getMessageId();
+      switch (operation) {
+        case REPUBLISH:
+          queueService.republishMessage(DLQ_NAME, message);
+          break;
+        case DELETE:
+          // 対象がキューに無くてもMutexは削除される
+          queueService.deleteMessage(DLQ_NAME, message);
+          fixture.registered.put(messageId, false);
+          break;
+        case BACKUP:
+          queueService.deleteAndBackupMessage(DLQ_NAME, BACKUP_QUEUE_NAME, message);
+          fixture.registered.put(messageId, false);
+          break;
+        case RESTORE:
+          // 対象がキューに無くてもMutexは登録される
+          queueService.restoreBackedUpMessage(DLQ_NAME, BACKUP_QUEUE_NAME, message);
+          fixture.registered.put(messageId, true);
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported operation: " + operation);
+      }
+    }
+
+    /**
+     * 操作結果から確定できるMutexの登録有無を求める. 最後に終わった操作が成功し、他の操作と重なっていない場合のみ確定できる.
+     *
+     * @param messageId メッセージID
+     * @return 登録されているべきであればtrue。確定できない場合はnull
+     */
+    private Boolean settledMutex(String messageId) {
+      Queue<Attempt> history = attempts.get(messageId);
+      if (history == null || history.isEmpty()) {
+        return fixture.registered.get(messageId);
+      }
+      Attempt last = history.stream().max(Comparator.comparingLong(attempt -> attempt.endedAt))
+          .get();
+      boolean overlapped = history.stream()
+          .anyMatch(attempt -> attempt != last && attempt.endedAt > last.startedAt);
+      if (!last.succeeded || overlapped) {
+        return null;
+      }
+      return last.operation == Operation.RESTORE;
+    }
+
+    /**
+     * 操作の応答時間を記録する. 失敗した場合は例外を記録する.
+     *
+     * @param operation 操作
+     * @param messageId 対象のメッセージID
+     * @param action 操作内容
+     * @return 成功した場合はtrue
+     */
+    private boolean timed(Operation operation, String messageId, Runnable action) {
+      long startedAt = System.nanoTime();
+      try {
+        action.run();
+        return true;
+      } catch (RuntimeException e) {
+        failures.add(new Failure(operation, messageId, e));
+        return false;
+      } finally {
+        latencies.get(operation).add(System.nanoTime() - startedAt);
+      }
+    }
+  }
+
+  /**
+   * ブローカーの代わりにメモリ上のブローカーへ接続するコネクションファクトリを定義する.
+   */
+  @Configuration
+  public static class BrokerStandIn {
+    /**
+     * メモリ上のブローカーを取得.
+     *
+     * @return メモリ上のブローカー
+     */
+    @Bean
+    public InMemoryBroker inMemoryBroker() {
+      return new InMemoryBroker();
+    }
+
+    /**
+     * メモリ上のブローカーへ接続するコネクションファクトリを取得.
+     *
+     * @param broker メモリ上のブローカー
+     * @return コネクションファクトリ
+     */
+    @Bean
+    public CachingConnectionFactory connectionFactory(InMemoryBroker broker) {
+      return new CachingConnectionFactory(broker.connectionFactory());
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package rabbitmq.console.service.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.impl.LongStringHelper;
+
+import rabbitmq.console.TestApplication;
+import rabbitmq.console.component.RetryPolicyScheduler;
+
+/**
+ * 自動再登録が、メモリ上のブローカー({@link InMemoryBroker})のキュー全体を複数回の走査で巡回することを検証する.
+ *
+ * @author Tomoaki Mikami
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = {TestApplication.class,
+    QueueServiceStressTest.BrokerStandIn.class})
+@ActiveProfiles("h2")
+@TestPropertySource(properties = {"spring.datasource.url=jdbc:h2:mem:dlq-retry;DB_CLOSE_DELAY=-1",
+    "dlq.rabbitmq.dead-letter-queue[retry.dlq]=retry.dlq.backup",
+    "dlq.rabbitmq.retry-policy.enabled=true",
+    "dlq.rabbitmq.retry-policy.interval=3600000",
+    "dlq.rabbitmq.retry-policy.max-scan=" + RetryPolicySchedulerTest.MAX_SCAN,
+    "dlq.rabbitmq.retry-policy.rules[retry.dlq][0].original-queue=retry.work",
+    "dlq.rabbitmq.retry-policy.rules[retry.dlq][0].initial-delay=0"})
+public class RetryPolicySchedulerTest {
+  /**
+   * 1回の走査で走査する最大件数.
+   */
+  static final int MAX_SCAN = 3;
+
+  /**
+   * Dead Letter Queue名.
+   */
+  private static final String DLQ_NAME = "retry.dlq";
+
+  /**
+   * Backup Queue名.
+   */
+  private static final String BACKUP_QUEUE_NAME = "retry.dlq.backup";
+
+  /**
+   * ルールに合致する元のキュー名.
+   */
+  private static final String WORK_QUEUE_NAME = "retry.work";
+
+  /**
+   * ルールに合致しない元のキュー名.
+   */
+  private static final String OTHER_QUEUE_NAME = "other.work";
+
+  /**
+   * 先頭に並べるルールに合致しないメッセージ数.
+   */
+  private static final int NON_MATCHING = 5;
+
+  /**
+   * 自動再登録スケジューラ.
+   */
+  @Autowired
+  private RetryPolicyScheduler retryPolicyScheduler;
+
+  /**
+   * メモリ上のブローカー.
+   */
+  @Autowired
+  private InMemoryBroker broker;
+
+  /**
+   * ルールに合致しないメッセージID(先頭から順).
+   */
+  private final List<String> keptIds = new ArrayList<>();
+
+  /**
+   * ルールに合致するメッセージID(先頭から順).
+   */
+  private final List<String> retriedIds = new ArrayList<>();
+
+  /**
+   * 先頭に1回の走査件数を超えるルールに合致しないメッセージ、その後ろに合致するメッセージを投入する.
+   */
+  @Before
+  public void seed() {
+    broker.closeConnections();
+    broker.reset(DLQ_NAME, BACKUP_QUEUE_NAME, WORK_QUEUE_NAME, OTHER_QUEUE_NAME);
+    for (int i = 0; i < NON_MATCHING; i++) {
+      keptIds.add(enqueue(String.format("other-%03d", i), OTHER_QUEUE_NAME));
+    }
+    for (int i = 0; i < 2; i++) {
+      retriedIds.add(enqueue(String.format("retry-%03d", i), WORK_QUEUE_NAME));
+    }
+  }
+
+  /**
+   * 先頭にルールに合致しないメッセージが1回の走査件数以上並んでいても、続きから走査して後ろのメッセージを再登録することを検証する.
+   */
+  @Test
+  public void reachesMessagesBehindNonMatchingHead() {
+    for (int run = 0; run < 3; run++) {
+      retryPolicyScheduler.run();
+    }
+
+    assertEquals(retriedIds, broker.messageIds(WORK_QUEUE_NAME));
+    assertEquals(keptIds, broker.messageIds(DLQ_NAME));
+    assertEquals(0, broker.unacked());
+  }
+
+  /**
+   * 元のキューからDead Letter Queue入りしたメッセージを投入する.
+   *
+   * @param messageId メッセージID
+   * @param originalQueue 元のキュー名
+   * @return メッセージID
+   */
+  private String enqueue(String messageId, String originalQueue) {
+    Map<String, Object> extraDeath = new LinkedHashMap<>();
+    extraDeath.put("count", 1L);
+    extraDeath.put("reason", LongStringHelper.asLongString("rejected"));
+    extraDeath.put("queue", LongStringHelper.asLongString(originalQueue));
+    extraDeath.put("time", new Date(System.currentTimeMillis() - 60 * 1000L));
+    extraDeath.put("exchange", LongStringHelper.asLongString(""));
+    extraDeath.put("routing-keys",
+        Collections.singletonList(LongStringHelper.asLongString(originalQueue)));
+    Map<String, Object> headers = new HashMap<>();
+    headers.put(QueueServiceImpl.X_DEATH_KEY, Collections.singletonList(extraDeath));
+    BasicProperties props =
+        new BasicProperties.Builder().messageId(messageId).headers(headers).build();
+    broker.enqueue(DLQ_NAME, props, messageId.getBytes(StandardCharsets.UTF_8));
+    return messageId;
+  }
+}
@@ -0,0 +1,155 @@
+package rabbitmq.console.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.GetResponse;
+
+import rabbitmq.console.TestApplication;
+import rabbitmq.console.service.dto.SearchIndexState;
+
+/**
+ * 全文検索用インデックスの構築を、メモリ上のブローカー({@link InMemoryBroker})に対して検証する.
+ *
+ * @author Tomoaki Mikami
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = {TestApplication.class,
+    QueueServiceStressTest.BrokerStandIn.class})
+@ActiveProfiles("h2")
+@TestPropertySource(properties = {"spring.datasource.url=jdbc:h2:mem:dlq-index;DB_CLOSE_DELAY=-1",
+    "dlq.rabbitmq.search-index.enabled=true",
+    "dlq.rabbitmq.search-index.build-on-startup=false"})
+public class SearchIndexServiceTest {
+  /**
+   * Dead Letter Queue名.
+   */
+  private static final String DLQ_NAME = "index.dlq";
+
+  /**
+   * 投入するメッセージ数.
+   */
+  private static final int MESSAGES = 50;
+
+  /**
+   * バックグラウンドの再構築を待つ最大時間(ミリ秒).
+   */
+  private static final long REBUILD_TIMEOUT = 10 * 1000L;
+
+  /**
+   * 全文検索用インデックスサービス.
+   */
+  @Autowired
+  private SearchIndexServiceImpl searchIndexService;
+
+  /**
+   * 既定の接続先のRabbitMQテンプレート.
+   */
+  @Autowired
+  private RabbitTemplate rabbitTemplate;
+
+  /**
+   * メモリ上のブローカー.
+   */
+  @Autowired
+  private InMemoryBroker broker;
+
+  /**
+   * 投入したメッセージID(先頭から順).
+   */
+  private final List<String> messageIds = new ArrayList<>();
+
+  /**
+   * Dead Letter Queueへメッセージを投入する.
+   */
+  @Before
+  public void seed() {
+    broker.closeConnections();
+    broker.reset(DLQ_NAME);
+    for (int i = 0; i < MESSAGES; i++) {
+      String messageId = String.format("index-%03d", i);
+      BasicProperties props = new BasicProperties.Builder().messageId(messageId)
+          .headers(new HashMap<>()).build();
+      broker.enqueue(DLQ_NAME, props,
+          String.format("order%03d shipped", i).getBytes(StandardCharsets.UTF_8));
+      messageIds.add(messageId);
+    }
+  }
+
+  /**
+   * ホストアプリケーションのテンプレートが非トランザクションでも、全メッセージを1回ずつ走査してインデックスに含め、キューを元の順に戻すことを検証する.
+   */
+  @Test
+  public void indexesEveryMessageWithNonTransactedHostTemplate() {
+    rabbitTemplate.setChannelTransacted(false);
+
+    searchIndexService.build(DLQ_NAME);
+
+    assertEquals(SearchIndexState.AVAILABLE, searchIndexService.state(DLQ_NAME));
+    assertEquals(MESSAGES, searchIndexService.search(DLQ_NAME, "shipped").size());
+    assertEquals(1, searchIndexService.search(DLQ_NAME, "order042").size());
+    assertEquals(messageIds, broker.messageIds(DLQ_NAME));
+    assertEquals(0, broker.unacked());
+  }
+
+  /**
+   * 画面を経由せずに届いたメッセージでインデックスが古くなった場合、インデックスを使わずに古いと報告し、
+   * バックグラウンドの再構築で新たなメッセージを含めることを検証する.
+   */
+  @Test
+  public void reportsStaleIndexAndRebuildsWithNewMessages() throws InterruptedException {
+    searchIndexService.build(DLQ_NAME);
+    BasicProperties props = new BasicProperties.Builder().messageId("index-new")
+        .headers(new HashMap<>()).build();
+    broker.enqueue(DLQ_NAME, props, "order999 shipped".getBytes(StandardCharsets.UTF_8));
+
+    assertEquals(SearchIndexState.STALE, searchIndexService.state(DLQ_NAME));
+    assertNull("Stale index was used", searchIndexService.totalDeathCount(DLQ_NAME));
+    long deadline = System.currentTimeMillis() + REBUILD_TIMEOUT;
+    while (searchIndexService.search(DLQ_NAME, "order999").isEmpty()
+        && System.currentTimeMillis() < deadline) {
+      TimeUnit.MILLISECONDS.sleep(50);
+    }
+    assertEquals(1, searchIndexService.search(DLQ_NAME, "order999").size());
+    assertEquals(SearchIndexState.AVAILABLE, searchIndexService.state(DLQ_NAME));
+    assertEquals(MESSAGES + 1, searchIndexService.search(DLQ_NAME, "shipped").size());
+    assertEquals(0, broker.unacked());
+  }
+
+  /**
+   * 画面を経由せずに先頭のメッセージが取り出され、同数のメッセージが届いてメッセージ数が変わらない場合も、
+   * 先頭のメッセージの食い違いで古いと報告することを検証する.
+   */
+  @Test
+  public void reportsStaleIndexWhenHeadChangesWithSameDepth() {
+    searchIndexService.build(DLQ_NAME);
+    assertEquals(SearchIndexState.AVAILABLE, searchIndexService.state(DLQ_NAME));
+    rabbitTemplate.execute(channel -> {
+      GetResponse head = channel.basicGet(DLQ_NAME, true);
+      return head.getProps().getMessageId();
+    });
+    BasicProperties props = new BasicProperties.Builder().messageId("index-new")
+        .headers(new HashMap<>()).build();
+    broker.enqueue(DLQ_NAME, props, "order999 shipped".getBytes(StandardCharsets.UTF_8));
+
+    assertEquals(SearchIndexState.STALE, searchIndexService.state(DLQ_NAME));
+    assertEquals(0, broker.unacked());
+  }
+}